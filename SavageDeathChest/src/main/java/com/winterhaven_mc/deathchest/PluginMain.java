@@ -2,9 +2,17 @@ package com.winterhaven_mc.deathchest;
 
 import com.winterhaven_mc.deathchest.chests.ChestManager;
 import com.winterhaven_mc.deathchest.listeners.BlockEventListener;
+import com.winterhaven_mc.deathchest.listeners.ChunkEventListener;
 import com.winterhaven_mc.deathchest.listeners.InventoryEventListener;
 import com.winterhaven_mc.deathchest.listeners.PlayerEventListener;
+import com.winterhaven_mc.deathchest.listeners.WorldEventListener;
 import com.winterhaven_mc.deathchest.storage.DataStore;
+import com.winterhaven_mc.deathchest.storage.DataStoreBackup;
+import com.winterhaven_mc.deathchest.storage.DataStoreExecutor;
+import com.winterhaven_mc.deathchest.storage.DataStoreTransfer;
+import com.winterhaven_mc.deathchest.storage.HistoryArchive;
+import com.winterhaven_mc.deathchest.storage.QueryProfiler;
+import com.winterhaven_mc.deathchest.storage.WorldCache;
 import com.winterhaven_mc.deathchest.commands.CommandManager;
 import com.winterhaven_mc.deathchest.messages.MessageManager;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
@@ -13,6 +21,9 @@ import com.winterhaven_mc.util.WorldManager;
 import com.winterhaven_mc.util.YamlSoundConfiguration;
 
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitWorker;
+
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -24,9 +35,15 @@ public final class PluginMain extends JavaPlugin {
 	public static PluginMain instance;
 
 	public WorldManager worldManager;
+	public WorldCache worldCache;
 	public MessageManager messageManager;
 	public SoundConfiguration soundConfig;
 	public DataStore dataStore;
+	public DataStoreBackup dataStoreBackup;
+	public DataStoreExecutor dataStoreExecutor;
+	public DataStoreTransfer dataStoreTransfer;
+	public HistoryArchive historyArchive;
+	public QueryProfiler queryProfiler;
 	public ChestManager chestManager;
 
 	public boolean debug = getConfig().getBoolean("debug");
@@ -44,15 +61,35 @@ public final class PluginMain extends JavaPlugin {
 		// instantiate world manager
 		worldManager = new WorldManager(this);
 
+		// instantiate world cache, used to resolve worlds on asynchronous threads
+		worldCache = new WorldCache(this);
+
 		// instantiate message manager
 		messageManager = new MessageManager(this);
 
 		// instantiate sound configuration
 		soundConfig = new YamlSoundConfiguration(this);
 
+		// instantiate datastore profiler
+		queryProfiler = new QueryProfiler(this);
+
+		// instantiate datastore task executor
+		dataStoreExecutor = new DataStoreExecutor(this);
+
 		// instantiate datastore
 		dataStore = DataStore.create();
 
+		// open death chest history archive
+		historyArchive = new HistoryArchive(this);
+		historyArchive.open();
+
+		// start scheduled datastore backups
+		dataStoreBackup = new DataStoreBackup(this);
+		dataStoreBackup.start();
+
+		// instantiate datastore export and import
+		dataStoreTransfer = new DataStoreTransfer(this);
+
 		// instantiate chest manager
 		chestManager = new ChestManager(this);
 
@@ -66,6 +103,8 @@ public final class PluginMain extends JavaPlugin {
 		new PlayerEventListener(this);
 		new BlockEventListener(this);
 		new InventoryEventListener(this);
+		new ChunkEventListener(this);
+		new WorldEventListener(this);
 
 		// log detected protection plugins
 		ProtectionPlugin.reportInstalled();
@@ -75,8 +114,75 @@ public final class PluginMain extends JavaPlugin {
 	@Override
 	public void onDisable() {
 
-		// close datastore
+		// stop lazy loading expire sweep
+		chestManager.stopExpireSweepTask();
+
+		// stop scheduled datastore backups
+		dataStoreBackup.stop();
+
+		// cancel pending tasks, and wait for running asynchronous tasks and datastore tasks to submit their datastore writes
+		getServer().getScheduler().cancelTasks(this);
+		awaitAsyncTasks();
+
+		// close datastore, committing pending writes or saving them to the spill file
 		dataStore.close();
+
+		// close history archive, recording queued events
+		historyArchive.close();
+	}
+
+
+	/**
+	 * Wait up to the configured shutdown timeout for this plugin's running asynchronous tasks, and then
+	 * for tasks submitted to the datastore executor, to finish, so their datastore writes are queued
+	 * before the datastore is closed
+	 */
+	private void awaitAsyncTasks() {
+
+		// get shutdown timeout in seconds from config; zero waits without limit
+		long timeout = getConfig().getLong("storage.shutdown-timeout", 10);
+		if (timeout < 0) {
+			timeout = 10;
+		}
+		final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout);
+
+		while (hasActiveWorkers()) {
+			if (timeout > 0 && System.currentTimeMillis() >= deadline) {
+				getLogger().warning("Asynchronous tasks did not finish within the shutdown timeout; "
+						+ "their datastore writes may be lost.");
+				dataStoreExecutor.shutdown(1);
+				return;
+			}
+			try {
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+		// wait for remaining time for datastore tasks; tasks submitted from now on run on the submitting thread
+		final long remaining = timeout == 0 ? 0 : Math.max(1, deadline - System.currentTimeMillis());
+		if (!dataStoreExecutor.shutdown(remaining)) {
+			getLogger().warning(dataStoreExecutor.getActiveCount() + dataStoreExecutor.getQueuedCount()
+					+ " datastore tasks did not finish within the shutdown timeout; their datastore writes may be lost.");
+		}
+	}
+
+
+	/**
+	 * Check if any of this plugin's asynchronous tasks are running
+	 *
+	 * @return {@code true} if an asynchronous task owned by this plugin is running, {@code false} if not
+	 */
+	private boolean hasActiveWorkers() {
+		for (BukkitWorker worker : getServer().getScheduler().getActiveWorkers()) {
+			if (worker.getOwner() == this) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 }
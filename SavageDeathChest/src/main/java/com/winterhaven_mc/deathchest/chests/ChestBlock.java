@@ -260,7 +260,7 @@ public final class ChestBlock {
 	/**
 	 * Remove metadata from this chest block
 	 */
-	private void removeMetadata() {
+	final void removeMetadata() {
 
 		// get in game block at this chestBlock location
 		Block block = this.getLocation().getBlock();
@@ -273,7 +273,8 @@ public final class ChestBlock {
 
 	/**
 	 * Destroy chest block, dropping any contents on ground.
-	 * Removes block metadata and deletes corresponding block record from block index and datastore.
+	 * Removes block metadata and removes chest block from block index. The block record
+	 * is deleted from the datastore with its chest record.
 	 */
 	final void destroy() {
 
@@ -288,9 +289,6 @@ public final class ChestBlock {
 		// remove metadata from block
 		this.removeMetadata();
 
-		// remove ChestBlock record from datastore
-		plugin.dataStore.deleteBlockRecord(this);
-
 		// remove ChestBlock from block map
 		plugin.chestManager.removeChestBlock(this);
 
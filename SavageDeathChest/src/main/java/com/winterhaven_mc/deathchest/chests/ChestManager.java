@@ -1,16 +1,26 @@
 package com.winterhaven_mc.deathchest.chests;
 
 import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.storage.CompletionThread;
+import com.winterhaven_mc.deathchest.storage.DataStore;
+import com.winterhaven_mc.deathchest.tasks.ExpireSweepTask;
 
+import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.Chest;
 import org.bukkit.block.DoubleChest;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -30,6 +40,27 @@ public final class ChestManager {
 	// set of replaceable blocks
 	public final ReplaceableBlocks replaceableBlocks;
 
+	// true while death chests are being loaded from the datastore
+	private volatile boolean loading;
+
+	// locations of chest blocks read from the datastore but not yet published to the block index
+	private final Set<Location> pendingLocations = ConcurrentHashMap.newKeySet();
+
+	// true if chests are loaded from the datastore with their chunks, instead of all at startup
+	private final boolean lazyLoading;
+
+	// summary of all chests in the datastore by chunk, when chests are loaded lazily
+	private final ChunkIndex chunkIndex;
+
+	// UUIDs of chests being loaded from the datastore on demand
+	private final Set<UUID> loadingChests = ConcurrentHashMap.newKeySet();
+
+	// UUIDs of chests whose datastore insert has not completed; they are never released from memory
+	private final Set<UUID> unsavedChests = ConcurrentHashMap.newKeySet();
+
+	// repeating task to load chests in unloaded chunks when they expire
+	private ExpireSweepTask expireSweepTask;
+
 	// DeathChest material types
 	final static Set<Material> deathChestMaterials =
 			Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
@@ -56,29 +87,114 @@ public final class ChestManager {
 
 		// initialize blockIndex
 		blockIndex = new BlockIndex();
+
+		// initialize chunkIndex
+		chunkIndex = new ChunkIndex();
+
+		// lazy loading requires a datastore that holds chests released from memory,
+		// and reads the chests of a chunk without reading all chests
+		boolean lazyConfig = plugin.getConfig().getBoolean("lazy-loading", false);
+		if (lazyConfig && (!plugin.dataStore.isPersistent() || !plugin.dataStore.hasChestIndex())) {
+			plugin.getLogger().warning("Lazy loading is not available with the "
+					+ plugin.dataStore.getName() + " datastore; all death chests will be kept in memory.");
+			lazyConfig = false;
+		}
+		lazyLoading = lazyConfig;
 	}
 
 
 	/**
 	 * Load death chest blocks from datastore.
+	 * Records are read and parsed on an asynchronous thread, with worlds resolved from the world cache
+	 * kept on the main thread; chests are then validated against in game blocks and published to the
+	 * chest and block indexes on the main thread. Until publishing is complete,
+	 * {@link #isLoadingChestBlock(Block)} reports the blocks that have been read, so listeners can protect them.<br>
+	 * If lazy loading is enabled, only a summary of the chests in each chunk is loaded, and chests
+	 * are loaded from the datastore when their chunks load.
+	 */
+	public final void loadDeathChests() {
+
+		// set loading state
+		loading = true;
+
+		// if chests are loaded lazily, read only the chunk summary
+		if (lazyLoading) {
+			loadChunkIndex();
+			return;
+		}
+
+		// get start time for log message
+		final long startTime = System.currentTimeMillis();
+
+		final Runnable loadTask = () -> {
+
+			// stage all chest block records streamed from datastore, recording their locations as pending;
+			// blocks are read first, so they are protected while the chest records are read
+			final List<ChestBlock> stagedBlocks = new ArrayList<>();
+			plugin.dataStore.forEachBlockRecord(chestBlock -> {
+				stagedBlocks.add(chestBlock);
+				pendingLocations.add(chestBlock.getLocation());
+			});
+
+			// stage all death chest records streamed from datastore
+			final ChestIndex stagedChests = new ChestIndex();
+			plugin.dataStore.forEachChestRecord(stagedChests::addChest);
+
+			// if plugin has been disabled while loading, do not schedule publish task
+			if (!plugin.isEnabled()) {
+				return;
+			}
+
+			// publish staged records on main thread
+			new BukkitRunnable() {
+				@Override
+				public void run() {
+					publishDeathChests(stagedChests, stagedBlocks);
+
+					// all staged blocks are now published
+					pendingLocations.clear();
+					loading = false;
+
+					plugin.getLogger().info(stagedChests.getAllChests().size() + " death chests loaded in "
+							+ (System.currentTimeMillis() - startTime) + " ms.");
+				}
+			}.runTask(plugin);
+		};
+
+		// loading must run, so if the datastore executor is busy, run it on the server's scheduler
+		try {
+			plugin.dataStoreExecutor.execute(loadTask);
+		}
+		catch (RejectedExecutionException e) {
+			plugin.getServer().getScheduler().runTaskAsynchronously(plugin, loadTask);
+		}
+	}
+
+
+	/**
+	 * Validate staged death chests and chest blocks against in game blocks and add them to the indexes.
 	 * Expire death chest blocks whose time has passed.
 	 * schedule tasks to expire remaining loaded chests.
+	 * Must be called on the main thread.
+	 *
+	 * @param stagedChests death chests read from the datastore
+	 * @param stagedBlocks chest blocks read from the datastore
 	 */
-	public final void loadDeathChests() {
+	private void publishDeathChests(final ChestIndex stagedChests, final Collection<ChestBlock> stagedBlocks) {
 
-		// populate chestIndex with all death chest records retrieved from datastore
-		for (DeathChest deathChest : plugin.dataStore.getAllChestRecords()) {
+		// populate chestIndex with all staged death chests
+		for (DeathChest deathChest : stagedChests.getAllChests()) {
 			this.addDeathChest(deathChest);
 		}
 
-		// populate chest block map with all valid chest blocks retrieved from datastore
-		for (ChestBlock chestBlock : plugin.dataStore.getAllBlockRecords()) {
+		// populate chest block map with all valid staged chest blocks
+		for (ChestBlock chestBlock : stagedBlocks) {
 
 			// get chest block type from in game block
 			ChestBlockType chestBlockType = ChestBlockType.getType(chestBlock.getLocation().getBlock());
 
 			// if chest block type is null or parent chest not in chest map, delete block record
-			if (chestBlockType == null || !chestIndex.containsKey(chestBlock.getChestUUID())) {
+			if (chestBlockType == null || !stagedChests.containsKey(chestBlock.getChestUUID())) {
 				plugin.dataStore.deleteBlockRecord(chestBlock);
 			}
 			else {
@@ -90,23 +206,387 @@ public final class ChestManager {
 		// get current time
 		long currentTime = System.currentTimeMillis();
 
+		// chests removed from the datastore together once all chests are published
+		final List<DeathChest> deletedChests = new ArrayList<>();
+
 		// expire chests with no blocks or past expiration
-		for (DeathChest deathChest : chestIndex.getAllChests()) {
+		for (DeathChest deathChest : stagedChests.getAllChests()) {
 
 			// if DeathChest has no children, remove from index and datastore
 			if (this.getBlockSet(deathChest.getChestUUID()).isEmpty()) {
-				chestIndex.removeDeathChest(deathChest);
-				plugin.dataStore.deleteChestRecord(deathChest);
+				this.removeDeathChest(deathChest);
+				deletedChests.add(deathChest);
 			}
 			// if DeathChest is past expiration, expire chest
 			else if (deathChest.getExpirationTime() < currentTime) {
-				deathChest.expire();
+				deathChest.expire(false);
+				deletedChests.add(deathChest);
 			}
 			else {
 				// set chest metadata
 				deathChest.setMetadata();
+
+				// create task to expire chest at expiration time
+				deathChest.scheduleExpireTask();
+			}
+		}
+
+		// delete records of removed and expired chests; their block records are deleted with them
+		plugin.dataStore.deleteChestRecords(deletedChests);
+	}
+
+
+	/**
+	 * Load a summary of the chests in each chunk from the datastore on an asynchronous thread.
+	 * Block records of missing chests, and chest records without blocks, are deleted.
+	 * Once the summary is loaded, chests in loaded chunks are loaded, and a task is started
+	 * to load chests in unloaded chunks when they expire.
+	 */
+	private void loadChunkIndex() {
+
+		// get start time for log message
+		final long startTime = System.currentTimeMillis();
+
+		final Runnable loadTask = () -> {
+
+			// record expiration time of every chest
+			plugin.dataStore.forEachChestRecord(deathChest ->
+					chunkIndex.putExpirationTime(deathChest.getChestUUID(), deathChest.getExpirationTime()));
+
+			// record chunk of every chest block, deleting block records of missing chests
+			final Set<UUID> chestsWithBlocks = new HashSet<>();
+			plugin.dataStore.forEachBlockRecord(chestBlock -> {
+				if (chunkIndex.containsChest(chestBlock.getChestUUID())) {
+					chunkIndex.addBlock(chestBlock.getLocation(), chestBlock.getChestUUID());
+					chestsWithBlocks.add(chestBlock.getChestUUID());
+				}
+				else {
+					plugin.dataStore.deleteBlockRecord(chestBlock);
+				}
+			});
+
+			// delete chest records without blocks
+			final List<DeathChest> deletedChests = new ArrayList<>();
+			for (UUID chestUUID : chunkIndex.getChestUUIDs()) {
+				if (!chestsWithBlocks.contains(chestUUID)) {
+					chunkIndex.removeChest(chestUUID);
+					deletedChests.add(new DeathChest(chestUUID, null, null, 0, 0, 0));
+				}
+			}
+			plugin.dataStore.deleteChestRecords(deletedChests);
+
+			// the chunk summary now protects blocks of chests that are not loaded
+			loading = false;
+
+			plugin.getLogger().info(chunkIndex.size() + " death chests indexed in "
+					+ (System.currentTimeMillis() - startTime) + " ms; chests will be loaded with their chunks.");
+
+			// if plugin has been disabled while loading, do not schedule load task
+			if (!plugin.isEnabled()) {
+				return;
+			}
+
+			// load chests in chunks that are already loaded
+			new BukkitRunnable() {
+				@Override
+				public void run() {
+					final Set<UUID> chestUUIDs = new HashSet<>();
+					for (World world : plugin.getServer().getWorlds()) {
+						for (Chunk chunk : world.getLoadedChunks()) {
+							chestUUIDs.addAll(chunkIndex.getChestUUIDs(world.getName(), chunk.getX(), chunk.getZ()));
+						}
+					}
+					loadChests(chestUUIDs);
+					startExpireSweepTask();
+				}
+			}.runTask(plugin);
+		};
+
+		// loading must run, so if the datastore executor is busy, run it on the server's scheduler
+		try {
+			plugin.dataStoreExecutor.execute(loadTask);
+		}
+		catch (RejectedExecutionException e) {
+			plugin.getServer().getScheduler().runTaskAsynchronously(plugin, loadTask);
+		}
+	}
+
+
+	/**
+	 * Start repeating asynchronous task to load chests in unloaded chunks when they expire
+	 */
+	private void startExpireSweepTask() {
+
+		// get sweep interval in seconds from config
+		long interval = plugin.getConfig().getLong("lazy-expire-interval", 60);
+		if (interval < 1) {
+			interval = 60;
+		}
+
+		long ticks = TimeUnit.SECONDS.toMillis(interval) / 50;
+		expireSweepTask = new ExpireSweepTask(this);
+		expireSweepTask.runTaskTimerAsynchronously(plugin, 0L, ticks);
+	}
+
+
+	/**
+	 * Stop repeating expire sweep task, if running
+	 */
+	public final void stopExpireSweepTask() {
+		if (expireSweepTask != null) {
+			expireSweepTask.cancel();
+			expireSweepTask = null;
+		}
+	}
+
+
+	/**
+	 * Load the chests in a chunk from the datastore, if chests are loaded lazily
+	 *
+	 * @param chunk the chunk that has been loaded
+	 */
+	public final void loadChunkChests(final Chunk chunk) {
+
+		// if chests are not loaded lazily, or chunk summary is still loading, do nothing and return
+		if (!lazyLoading || loading) {
+			return;
+		}
+
+		loadChests(chunkIndex.getChestUUIDs(chunk.getWorld().getName(), chunk.getX(), chunk.getZ()));
+	}
+
+
+	/**
+	 * Release the chests in a chunk from memory, if chests are loaded lazily.
+	 * A chest with blocks in another loaded chunk is kept, as is a chest whose insert
+	 * has not yet been committed to the datastore.
+	 * The chests remain in the datastore and the chunk summary, and are loaded again with the chunk.
+	 *
+	 * @param chunk the chunk that is being unloaded
+	 */
+	public final void unloadChunkChests(final Chunk chunk) {
+
+		// if chests are not loaded lazily, do nothing and return
+		if (!lazyLoading) {
+			return;
+		}
+
+		for (UUID chestUUID : chunkIndex.getChestUUIDs(chunk.getWorld().getName(), chunk.getX(), chunk.getZ())) {
+
+			DeathChest deathChest = chestIndex.getDeathChest(chestUUID);
+
+			// keep chest if it has not been saved, or any of its blocks is in another loaded chunk
+			if (deathChest != null && !unsavedChests.contains(chestUUID) && !hasBlockInLoadedChunk(chestUUID, chunk)) {
+				releaseDeathChest(deathChest);
+			}
+		}
+	}
+
+
+	/**
+	 * Test if any block of a chest is in a loaded chunk other than an excluded chunk
+	 *
+	 * @param chestUUID     the chest UUID
+	 * @param excludedChunk the chunk to exclude, or null to include all chunks
+	 * @return {@code true} if any block of the chest is in a loaded chunk, {@code false} if not
+	 */
+	private boolean hasBlockInLoadedChunk(final UUID chestUUID, final Chunk excludedChunk) {
+
+		for (ChestBlock chestBlock : getBlockSet(chestUUID)) {
+
+			Location location = chestBlock.getLocation();
+			int chunkX = location.getBlockX() >> 4;
+			int chunkZ = location.getBlockZ() >> 4;
+
+			// skip excluded chunk
+			if (excludedChunk != null && excludedChunk.getWorld().equals(location.getWorld())
+					&& chunkX == excludedChunk.getX() && chunkZ == excludedChunk.getZ()) {
+				continue;
+			}
+
+			if (location.getWorld() != null && location.getWorld().isChunkLoaded(chunkX, chunkZ)) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+
+	/**
+	 * Release a death chest and its blocks from memory, leaving them in the datastore and the chunk summary
+	 *
+	 * @param deathChest the death chest to release
+	 */
+	private void releaseDeathChest(final DeathChest deathChest) {
+
+		// cancel expire task; a new task is created when the chest is loaded again
+		deathChest.cancelExpireTask();
+
+		// remove chest blocks from block index
+		for (ChestBlock chestBlock : getBlockSet(deathChest.getChestUUID())) {
+			chestBlock.removeMetadata();
+			blockIndex.removeChestBlock(chestBlock);
+		}
+
+		// remove chest from chest index
+		chestIndex.removeDeathChest(deathChest);
+	}
+
+
+	/**
+	 * Load chests in unloaded chunks that have expired, so they are expired as they would be if loaded.
+	 * Expired chests are read from the datastore by its expiration index; loaded chests are expired
+	 * by their own expire tasks.
+	 */
+	public final void loadExpiredChests() {
+
+		// read expired chest records on an asynchronous task, and load chests that are not loaded on the main thread
+		plugin.dataStore.getChestRecordsExpiringBeforeAsync(System.currentTimeMillis(), CompletionThread.MAIN)
+				.whenComplete((records, throwable) -> {
+
+					// if plugin has been disabled while reading, do nothing and return
+					if (!plugin.isEnabled()) {
+						return;
+					}
+
+					// if read failed, output error message; expired chests are read again on the next sweep
+					if (throwable != null) {
+						plugin.getLogger().warning("An error occurred while reading expired death chests from the datastore.");
+						plugin.getLogger().warning(throwable.getMessage());
+
+						// if debugging is enabled, output stack trace
+						if (plugin.debug) {
+							throwable.printStackTrace();
+						}
+						return;
+					}
+
+					// get expired chests that are not loaded
+					final Set<UUID> chestUUIDs = new HashSet<>();
+					for (DeathChest deathChest : records) {
+						if (!chestIndex.containsKey(deathChest.getChestUUID())) {
+							chestUUIDs.add(deathChest.getChestUUID());
+						}
+					}
+
+					loadChests(chestUUIDs);
+				});
+	}
+
+
+	/**
+	 * Load chests from the datastore on asynchronous tasks, and publish them on the main thread.
+	 * Chests that are already loaded or being loaded are skipped.
+	 *
+	 * @param chestUUIDs the UUIDs of the chests to load
+	 */
+	private void loadChests(final Collection<UUID> chestUUIDs) {
+
+		// get chests that are not loaded or being loaded
+		final Set<UUID> loadUUIDs = new HashSet<>();
+		for (UUID chestUUID : chestUUIDs) {
+			if (!chestIndex.containsKey(chestUUID) && loadingChests.add(chestUUID)) {
+				loadUUIDs.add(chestUUID);
+			}
+		}
+
+		// if there are no chests to load, do nothing and return
+		if (loadUUIDs.isEmpty()) {
+			return;
+		}
+
+		// read chest and block records from datastore on asynchronous tasks
+		final CompletableFuture<List<DeathChest>> chestsFuture =
+				plugin.dataStore.getChestRecordsAsync(loadUUIDs, CompletionThread.ASYNC);
+		final CompletableFuture<List<ChestBlock>> blocksFuture =
+				plugin.dataStore.getBlockRecordsAsync(loadUUIDs, CompletionThread.ASYNC);
+
+		// publish records on main thread once both reads have completed
+		DataStore.completeOn(CompletableFuture.allOf(chestsFuture, blocksFuture), CompletionThread.MAIN)
+				.whenComplete((result, throwable) -> {
+
+					// if plugin has been disabled while loading, do not publish
+					if (!plugin.isEnabled()) {
+						return;
+					}
+
+					// if a read failed, allow the chests to be loaded again later
+					if (throwable != null) {
+						loadingChests.removeAll(loadUUIDs);
+						plugin.getLogger().warning("An error occurred while loading death chests from the datastore.");
+						plugin.getLogger().warning(throwable.getMessage());
+
+						// if debugging is enabled, output stack trace
+						if (plugin.debug) {
+							throwable.printStackTrace();
+						}
+						return;
+					}
+
+					// stage chest records
+					final ChestIndex stagedChests = new ChestIndex();
+					for (DeathChest deathChest : chestsFuture.join()) {
+						stagedChests.addChest(deathChest);
+					}
+
+					// remove chests that are no longer in the datastore from chunk summary;
+					// a chest whose insert has not yet been committed is not missing
+					for (UUID chestUUID : loadUUIDs) {
+						if (!stagedChests.containsKey(chestUUID) && !unsavedChests.contains(chestUUID)) {
+							chunkIndex.removeChest(chestUUID);
+						}
+					}
+
+					publishDeathChests(stagedChests, blocksFuture.join());
+					loadingChests.removeAll(loadUUIDs);
+
+					// release chests whose chunks were unloaded while they were loading
+					for (DeathChest deathChest : stagedChests.getAllChests()) {
+						if (chestIndex.containsKey(deathChest.getChestUUID())
+								&& !unsavedChests.contains(deathChest.getChestUUID())
+								&& !hasBlockInLoadedChunk(deathChest.getChestUUID(), null)) {
+							releaseDeathChest(deathChest);
+						}
+					}
+				});
+	}
+
+
+	/**
+	 * Test if a block belongs to a death chest that has not finished loading from the datastore.
+	 * Only blocks whose records have been read are reported, so other chests and signs are not affected.
+	 *
+	 * @param block the block to test
+	 * @return {@code true} if the block is a block of a death chest that is not loaded, {@code false} if not
+	 */
+	public final boolean isLoadingChestBlock(final Block block) {
+
+		// if passed block is null, return false
+		if (block == null) {
+			return false;
+		}
+
+		// if chests are not loading and not loaded lazily, return false
+		if (!loading && !lazyLoading) {
+			return false;
+		}
+
+		// confirm block is death chest material
+		if (!deathChestMaterials.contains(block.getType())) {
+			return false;
+		}
+
+		// block read from the datastore but not yet published to the block index
+		if (pendingLocations.contains(block.getLocation())) {
+			return true;
+		}
+
+		// if chests are loaded lazily, block of a chest in the chunk summary that is not loaded
+		if (lazyLoading) {
+			UUID chestUUID = chunkIndex.getChestUUID(block.getWorld().getName(), block.getX(), block.getY(), block.getZ());
+			return chestUUID != null && !chestIndex.containsKey(chestUUID);
+		}
+		return false;
 	}
 
 
@@ -117,6 +597,32 @@ public final class ChestManager {
 	 */
 	final void addDeathChest(final DeathChest deathChest) {
 		this.chestIndex.addChest(deathChest);
+
+		// record chest expiration in chunk summary
+		if (lazyLoading) {
+			this.chunkIndex.putExpirationTime(deathChest.getChestUUID(), deathChest.getExpirationTime());
+		}
+	}
+
+
+	/**
+	 * Insert a death chest and its blocks in the datastore. Until the insert has been committed,
+	 * the chest is not released from memory when its chunk unloads, so it is never read back from
+	 * a datastore that does not hold it yet. If the insert fails, the chest stays in memory.
+	 *
+	 * @param deathChest the death chest to insert
+	 * @return a future completed when the insert has been committed
+	 */
+	public final CompletableFuture<Void> saveDeathChest(final DeathChest deathChest) {
+
+		final UUID chestUUID = deathChest.getChestUUID();
+		unsavedChests.add(chestUUID);
+
+		return plugin.dataStore.putChestRecord(deathChest).whenComplete((result, throwable) -> {
+			if (throwable == null) {
+				unsavedChests.remove(chestUUID);
+			}
+		});
 	}
 
 
@@ -156,6 +662,16 @@ public final class ChestManager {
 	 */
 	final void removeDeathChest(final DeathChest deathChest) {
 		this.chestIndex.removeDeathChest(deathChest);
+
+		// a removed chest is no longer kept in memory
+		if (deathChest != null) {
+			this.unsavedChests.remove(deathChest.getChestUUID());
+		}
+
+		// remove chest from chunk summary
+		if (lazyLoading && deathChest != null) {
+			this.chunkIndex.removeChest(deathChest.getChestUUID());
+		}
 	}
 
 
@@ -166,6 +682,11 @@ public final class ChestManager {
 	 */
 	final void addChestBlock(final ChestBlockType chestBlockType, final ChestBlock chestBlock) {
 		this.blockIndex.addChestBlock(chestBlockType, chestBlock);
+
+		// record block chunk in chunk summary
+		if (lazyLoading && chestBlock != null) {
+			this.chunkIndex.addBlock(chestBlock.getLocation(), chestBlock.getChestUUID());
+		}
 	}
 
 
@@ -209,6 +730,18 @@ public final class ChestManager {
 	 */
 	final void removeChestBlock(final ChestBlock chestBlock) {
 		this.blockIndex.removeChestBlock(chestBlock);
+
+		// remove chest from chunk summary of block's chunk, unless the chest has another block in the chunk
+		if (lazyLoading && chestBlock != null) {
+			Location location = chestBlock.getLocation();
+			for (ChestBlock otherBlock : getBlockSet(chestBlock.getChestUUID())) {
+				if (otherBlock.getLocation().getBlockX() >> 4 == location.getBlockX() >> 4
+						&& otherBlock.getLocation().getBlockZ() >> 4 == location.getBlockZ() >> 4) {
+					return;
+				}
+			}
+			this.chunkIndex.removeBlock(location, chestBlock.getChestUUID());
+		}
 	}
 
 
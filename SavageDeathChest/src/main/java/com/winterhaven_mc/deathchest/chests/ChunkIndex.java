@@ -0,0 +1,232 @@
+package com.winterhaven_mc.deathchest.chests;
+
+import org.bukkit.Location;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A compact summary of every death chest in the datastore, used when chests are loaded lazily.
+ * Records the chest each block in each chunk belongs to, and the expiration time of each chest,
+ * without holding DeathChest or ChestBlock objects.
+ */
+final class ChunkIndex {
+
+	// chest UUID of each chest block in each chunk, indexed by world name, chunk key and block key
+	private final Map<String, Map<Long, Map<Long, UUID>>> chunkMap;
+
+	// expiration time of each chest, indexed by chest UUID
+	private final Map<UUID, Long> expirationMap;
+
+
+	/**
+	 * Constructor
+	 */
+	ChunkIndex() {
+
+		// initialize chunk map
+		chunkMap = new ConcurrentHashMap<>();
+
+		// initialize expiration map
+		expirationMap = new ConcurrentHashMap<>();
+	}
+
+
+	/**
+	 * Get the key of a chunk from its chunk coordinates
+	 *
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return the chunk key
+	 */
+	static long chunkKey(final int chunkX, final int chunkZ) {
+		return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+	}
+
+
+	/**
+	 * Get the key of a block within its chunk from its block coordinates
+	 *
+	 * @param x the block x coordinate
+	 * @param y the block y coordinate
+	 * @param z the block z coordinate
+	 * @return the block key
+	 */
+	static long blockKey(final int x, final int y, final int z) {
+		return ((long) y << 8) | ((x & 15) << 4) | (z & 15);
+	}
+
+
+	/**
+	 * Record a chest block in the chunk that contains it
+	 *
+	 * @param location  the block location
+	 * @param chestUUID the UUID of the chest the block belongs to
+	 */
+	final void addBlock(final Location location, final UUID chestUUID) {
+
+		// if passed location has no world or chest UUID is null, do nothing and return
+		if (location == null || location.getWorld() == null || chestUUID == null) {
+			return;
+		}
+
+		chunkMap.computeIfAbsent(location.getWorld().getName(), k -> new ConcurrentHashMap<>())
+				.computeIfAbsent(chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4),
+						k -> new ConcurrentHashMap<>())
+				.put(blockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()), chestUUID);
+	}
+
+
+	/**
+	 * Remove a chest block from the summary of the chunk that contains it
+	 *
+	 * @param location  the block location
+	 * @param chestUUID the UUID of the chest the block belongs to
+	 */
+	final void removeBlock(final Location location, final UUID chestUUID) {
+
+		// if passed location has no world or chest UUID is null, do nothing and return
+		if (location == null || location.getWorld() == null || chestUUID == null) {
+			return;
+		}
+
+		Map<Long, Map<Long, UUID>> worldChunks = chunkMap.get(location.getWorld().getName());
+		if (worldChunks == null) {
+			return;
+		}
+
+		long chunkKey = chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+		Map<Long, UUID> chunkBlocks = worldChunks.get(chunkKey);
+		if (chunkBlocks != null) {
+			chunkBlocks.remove(blockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ()), chestUUID);
+			if (chunkBlocks.isEmpty()) {
+				worldChunks.remove(chunkKey);
+			}
+		}
+	}
+
+
+	/**
+	 * Get the UUIDs of chests with blocks in a chunk
+	 *
+	 * @param worldName the world name
+	 * @param chunkX    the chunk x coordinate
+	 * @param chunkZ    the chunk z coordinate
+	 * @return Set of chest UUID, or empty set if no chests have blocks in the chunk
+	 */
+	final Set<UUID> getChestUUIDs(final String worldName, final int chunkX, final int chunkZ) {
+
+		Map<Long, Map<Long, UUID>> worldChunks = chunkMap.get(worldName);
+		if (worldChunks == null) {
+			return Collections.emptySet();
+		}
+
+		Map<Long, UUID> chunkBlocks = worldChunks.get(chunkKey(chunkX, chunkZ));
+		if (chunkBlocks == null) {
+			return Collections.emptySet();
+		}
+		return new HashSet<>(chunkBlocks.values());
+	}
+
+
+	/**
+	 * Get the UUID of the chest a block belongs to
+	 *
+	 * @param worldName the world name
+	 * @param x         the block x coordinate
+	 * @param y         the block y coordinate
+	 * @param z         the block z coordinate
+	 * @return the chest UUID, or null if the block is not a chest block in the summary
+	 */
+	final UUID getChestUUID(final String worldName, final int x, final int y, final int z) {
+
+		Map<Long, Map<Long, UUID>> worldChunks = chunkMap.get(worldName);
+		if (worldChunks == null) {
+			return null;
+		}
+
+		Map<Long, UUID> chunkBlocks = worldChunks.get(chunkKey(x >> 4, z >> 4));
+		if (chunkBlocks == null) {
+			return null;
+		}
+		return chunkBlocks.get(blockKey(x, y, z));
+	}
+
+
+	/**
+	 * Record the expiration time of a chest
+	 *
+	 * @param chestUUID      the chest UUID
+	 * @param expirationTime the chest expiration time, or zero if the chest never expires
+	 */
+	final void putExpirationTime(final UUID chestUUID, final long expirationTime) {
+
+		// check for null key
+		if (chestUUID == null) {
+			return;
+		}
+
+		expirationMap.put(chestUUID, expirationTime);
+	}
+
+
+	/**
+	 * Remove a chest from the summary, including any chunks it is still recorded in
+	 *
+	 * @param chestUUID the chest UUID
+	 */
+	final void removeChest(final UUID chestUUID) {
+
+		// check for null key
+		if (chestUUID == null) {
+			return;
+		}
+
+		expirationMap.remove(chestUUID);
+
+		// remove chest from chunks, removing chunks that no longer contain chests
+		for (Map<Long, Map<Long, UUID>> worldChunks : chunkMap.values()) {
+			worldChunks.values().removeIf(chunkBlocks ->
+					chunkBlocks.values().removeIf(chestUUID::equals) && chunkBlocks.isEmpty());
+		}
+	}
+
+
+	/**
+	 * Check if a chest is in the summary
+	 *
+	 * @param chestUUID the chest UUID
+	 * @return {@code true} if the chest is in the summary, {@code false} if it is not
+	 */
+	final boolean containsChest(final UUID chestUUID) {
+
+		// check for null key
+		if (chestUUID == null) {
+			return false;
+		}
+
+		return expirationMap.containsKey(chestUUID);
+	}
+
+
+	/**
+	 * Get the UUIDs of all chests in the summary
+	 *
+	 * @return Set of chest UUID
+	 */
+	final Set<UUID> getChestUUIDs() {
+		return new HashSet<>(expirationMap.keySet());
+	}
+
+
+	/**
+	 * Get the number of chests in the summary
+	 *
+	 * @return the number of chests
+	 */
+	final int size() {
+		return expirationMap.size();
+	}
+
+}
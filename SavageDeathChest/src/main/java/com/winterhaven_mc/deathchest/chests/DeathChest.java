@@ -3,6 +3,8 @@ package com.winterhaven_mc.deathchest.chests;
 import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.messages.MessageId;
 import com.winterhaven_mc.deathchest.sounds.SoundId;
+import com.winterhaven_mc.deathchest.storage.HistoryEvent;
+import com.winterhaven_mc.deathchest.storage.HistoryEventType;
 import com.winterhaven_mc.deathchest.tasks.ExpireChestTask;
 
 import org.bukkit.Location;
@@ -44,11 +46,12 @@ public final class DeathChest {
 	private final long expirationTime;
 
 	// task id of expire task for this death chest block
-	private final int expireTaskId;
+	private int expireTaskId;
 
 
 	/**
-	 * Class constructor
+	 * Class constructor for death chests read from the datastore.
+	 * No expire task is created until the chest is scheduled for expiration by the chest manager.
 	 *
 	 * @param chestUUID      the chest UUID
 	 * @param ownerUUID      the chest owner UUID
@@ -70,7 +73,7 @@ public final class DeathChest {
 		this.itemCount = itemCount;
 		this.placementTime = placementTime;
 		this.expirationTime = expirationTime;
-		this.expireTaskId = createExpireTask();
+		this.expireTaskId = -1;
 	}
 
 
@@ -284,7 +287,7 @@ public final class DeathChest {
 
 		// if remainingItems is empty, all chest items fit in player inventory so destroy chest and return
 		if (remainingItems.isEmpty()) {
-			this.destroy();
+			this.destroy(HistoryEventType.LOOTED, player);
 			return;
 		}
 
@@ -308,12 +311,23 @@ public final class DeathChest {
 	 * Expire this death chest
 	 */
 	public final void expire() {
+		expire(true);
+	}
+
+
+	/**
+	 * Expire this death chest
+	 *
+	 * @param deleteRecord {@code true} to delete the chest record from the datastore,
+	 *                     {@code false} if the caller deletes the records of several chests together
+	 */
+	final void expire(final boolean deleteRecord) {
 
 		// get player from ownerUUID
 		final Player player = plugin.getServer().getPlayer(this.ownerUUID);
 
 		// destroy DeathChest
-		this.destroy();
+		this.destroy(HistoryEventType.EXPIRED, null, deleteRecord);
 
 		// if player is not null, send player message
 		if (player != null) {
@@ -326,6 +340,33 @@ public final class DeathChest {
 	 * Destroy this death chest, dropping chest contents
 	 */
 	public final void destroy() {
+		destroy(HistoryEventType.BROKEN, null, true);
+	}
+
+
+	/**
+	 * Destroy this death chest, dropping chest contents, and record the reason in the history archive
+	 *
+	 * @param eventType the history event type: LOOTED if the chest was emptied, otherwise BROKEN
+	 * @param actor     the player who looted or broke the chest, or null
+	 */
+	public final void destroy(final HistoryEventType eventType, final Player actor) {
+		destroy(eventType, actor, true);
+	}
+
+
+	/**
+	 * Destroy this death chest, dropping chest contents, and record the reason in the history archive
+	 *
+	 * @param eventType    the history event type
+	 * @param actor        the player who caused the chest to be destroyed, or null
+	 * @param deleteRecord {@code true} to delete the chest record from the datastore,
+	 *                     {@code false} if the caller deletes the records of several chests together
+	 */
+	private void destroy(final HistoryEventType eventType, final Player actor, final boolean deleteRecord) {
+
+		// record event while the chest blocks and contents still exist
+		recordHistory(eventType, actor);
 
 		// play chest break sound at chest location
 		plugin.soundConfig.playSound(this.getLocation(), SoundId.CHEST_BREAK);
@@ -338,8 +379,10 @@ public final class DeathChest {
 			chestBlock.destroy();
 		}
 
-		// delete DeathChest record from datastore
-		plugin.dataStore.deleteChestRecord(this);
+		// delete DeathChest record from datastore; its block records are deleted with it
+		if (deleteRecord) {
+			plugin.dataStore.deleteChestRecord(this);
+		}
 
 		// cancel expire block task
 		if (this.getExpireTaskId() > 0) {
@@ -351,6 +394,41 @@ public final class DeathChest {
 	}
 
 
+	/**
+	 * Record a lifecycle event for this death chest in the history archive,
+	 * with the chest's current location and number of items
+	 *
+	 * @param eventType the history event type
+	 * @param actor     the player who caused the event, or null
+	 */
+	final void recordHistory(final HistoryEventType eventType, final Player actor) {
+
+		// if history archive is not open, do nothing and return
+		if (plugin.historyArchive == null || !plugin.historyArchive.isOpen()) {
+			return;
+		}
+
+		// count items in chest; both blocks of a double chest share one inventory, so count only one block
+		int items = 0;
+		final Map<ChestBlockType, ChestBlock> chestBlockMap = plugin.chestManager.getChestBlockMap(this.chestUUID);
+		ChestBlock chestBlock = chestBlockMap.get(ChestBlockType.RIGHT_CHEST);
+		if (chestBlock == null) {
+			chestBlock = chestBlockMap.get(ChestBlockType.LEFT_CHEST);
+		}
+		final Inventory inventory = chestBlock == null ? null : chestBlock.getInventory();
+		if (inventory != null) {
+			for (ItemStack itemStack : inventory.getContents()) {
+				if (itemStack != null) {
+					items += itemStack.getAmount();
+				}
+			}
+		}
+
+		plugin.historyArchive.record(new HistoryEvent(eventType, this,
+				actor == null ? null : actor.getUniqueId(), this.getLocation(), items));
+	}
+
+
 	/**
 	 * Get inventory associated with this death chest
 	 *
@@ -423,6 +501,20 @@ public final class DeathChest {
 	}
 
 
+	/**
+	 * Create expire task for this death chest, if one does not already exist
+	 */
+	final void scheduleExpireTask() {
+
+		// if task id is positive integer, task already exists
+		if (this.expireTaskId > 0) {
+			return;
+		}
+
+		this.expireTaskId = createExpireTask();
+	}
+
+
 	/**
 	 * Cancel expire task for this death chest
 	 */
@@ -3,6 +3,7 @@ package com.winterhaven_mc.deathchest.chests;
 import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.messages.MessageId;
+import com.winterhaven_mc.deathchest.storage.HistoryEventType;
 
 import org.bukkit.ChatColor;
 import org.bukkit.GameMode;
@@ -20,6 +21,7 @@ import org.bukkit.inventory.ItemStack;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static com.winterhaven_mc.deathchest.util.LocationUtilities.*;
 
@@ -147,8 +149,21 @@ public final class Deployment {
 		// put DeathChest in DeathChest map
 		plugin.chestManager.addDeathChest(deathChest);
 
-		// put DeathChest in datastore
-		plugin.dataStore.putChestRecord(deathChest);
+		// record deployment in history archive
+		deathChest.recordHistory(HistoryEventType.DEPLOYED, null);
+
+		// put DeathChest in datastore, and report if it could not be saved
+		final long saveStart = System.nanoTime();
+		plugin.chestManager.saveDeathChest(deathChest).whenComplete((saved, throwable) -> {
+			if (throwable != null) {
+				plugin.getLogger().warning("The death chest of " + player.getName()
+						+ " could not be saved to the datastore: " + throwable.getMessage());
+			}
+			else if (plugin.debug) {
+				plugin.getLogger().info("The death chest of " + player.getName() + " was saved to the datastore in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - saveStart) + " ms.");
+			}
+		});
 	}
 
 
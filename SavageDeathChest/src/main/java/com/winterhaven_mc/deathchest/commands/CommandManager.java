@@ -2,14 +2,20 @@ package com.winterhaven_mc.deathchest.commands;
 
 
 import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.storage.CompletionThread;
 import com.winterhaven_mc.deathchest.storage.DataStore;
+import com.winterhaven_mc.deathchest.storage.DataStoreTransfer;
+import com.winterhaven_mc.deathchest.storage.HistoryEvent;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 import com.winterhaven_mc.deathchest.messages.MessageId;
 import com.winterhaven_mc.deathchest.sounds.SoundId;
 
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -17,7 +23,11 @@ import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 
@@ -35,7 +45,12 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 	// constant List of subcommands
 	private final static List<String> subcommands =
 			Collections.unmodifiableList(new ArrayList<>(
-					Arrays.asList("help", "list", "reload", "status")));
+					Arrays.asList("backup", "export", "help", "history", "import", "list", "profile", "reload", "status")));
+
+	// constant List of profile command actions
+	private final static List<String> profileActions =
+			Collections.unmodifiableList(new ArrayList<>(
+					Arrays.asList("on", "off", "reset", "dump")));
 
 
 	public CommandManager(final PluginMain plugin) {
@@ -86,6 +101,24 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 				}
 				returnList.addAll(chestOwners.values());
 			}
+			else if (args[0].equalsIgnoreCase("history")
+					&& sender.hasPermission("deathchest.history")) {
+
+				for (Player player : plugin.getServer().getOnlinePlayers()) {
+					if (player.getName().toLowerCase().startsWith(args[1].toLowerCase())) {
+						returnList.add(player.getName());
+					}
+				}
+			}
+			else if (args[0].equalsIgnoreCase("profile")
+					&& sender.hasPermission("deathchest.profile")) {
+
+				for (String profileAction : profileActions) {
+					if (profileAction.startsWith(args[1].toLowerCase())) {
+						returnList.add(profileAction);
+					}
+				}
+			}
 			else if (args[0].equalsIgnoreCase("help")
 					&& sender.hasPermission("deathchest.help")) {
 
@@ -97,6 +130,16 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 				}
 			}
 		}
+		else if ((args[0].equalsIgnoreCase("export") || args[0].equalsIgnoreCase("import"))
+				&& sender.hasPermission("deathchest." + args[0].toLowerCase())) {
+
+			// export and import arguments after the export name are world names
+			for (World world : plugin.getServer().getWorlds()) {
+				if (world.getName().toLowerCase().startsWith(args[args.length - 1].toLowerCase())) {
+					returnList.add(world.getName());
+				}
+			}
+		}
 
 		return returnList;
 	}
@@ -142,6 +185,31 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 			return listCommand(sender, args);
 		}
 
+		// backup command
+		if (subcommand.equalsIgnoreCase("backup")) {
+			return backupCommand(sender);
+		}
+
+		// export command
+		if (subcommand.equalsIgnoreCase("export")) {
+			return exportCommand(sender, args);
+		}
+
+		// import command
+		if (subcommand.equalsIgnoreCase("import")) {
+			return importCommand(sender, args);
+		}
+
+		// profile command
+		if (subcommand.equalsIgnoreCase("profile")) {
+			return profileCommand(sender, args);
+		}
+
+		// history command
+		if (subcommand.equalsIgnoreCase("history")) {
+			return historyCommand(sender, args);
+		}
+
 		// list command
 		if (subcommand.equalsIgnoreCase("help")) {
 			return helpCommand(sender, args);
@@ -184,6 +252,22 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 		sender.sendMessage(ChatColor.GREEN + "Storage Type: "
 				+ ChatColor.RESET + plugin.dataStore.getName());
 
+		sender.sendMessage(ChatColor.GREEN + "Storage Executor: "
+				+ ChatColor.RESET + plugin.dataStoreExecutor.getMaxThreads() + " "
+				+ plugin.dataStoreExecutor.getThreadType() + ", "
+				+ plugin.dataStoreExecutor.getActiveCount() + " active, "
+				+ plugin.dataStoreExecutor.getQueuedCount() + "/" + plugin.dataStoreExecutor.getMaxQueued() + " queued"
+				+ " (peak " + plugin.dataStoreExecutor.getPeakQueuedCount() + "), "
+				+ plugin.dataStoreExecutor.getCompletedCount() + " completed");
+		if (plugin.dataStoreExecutor.getCallerRunsCount() > 0) {
+			sender.sendMessage(ChatColor.YELLOW + "  " + plugin.dataStoreExecutor.getCallerRunsCount()
+					+ " datastore tasks ran on the submitting thread because the executor queue was full.");
+		}
+		if (plugin.dataStoreExecutor.getRejectedCount() > 0) {
+			sender.sendMessage(ChatColor.YELLOW + "  " + plugin.dataStoreExecutor.getRejectedCount()
+					+ " datastore tasks from the main thread were rejected because the executor queue was full.");
+		}
+
 		int expireTime = plugin.getConfig().getInt("expire-time");
 		if (expireTime == 0) {
 			expireTime = -1;
@@ -275,8 +359,24 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 		// reload sounds
 		plugin.soundConfig.reload();
 
-		// reload datastore if changed
-		DataStore.reload();
+		// reload datastore if changed; if it is being converted, report when the conversion has finished
+		final String oldDataStoreName = plugin.dataStore.getName();
+		final CompletableFuture<Void> conversion = DataStore.reload();
+		if (!conversion.isDone()) {
+			sender.sendMessage(ChatColor.AQUA + "Converting the " + oldDataStoreName + " datastore to "
+					+ plugin.dataStore.getName() + "...");
+			DataStore.completeOn(conversion, CompletionThread.MAIN).whenComplete((result, throwable) -> {
+				if (throwable != null) {
+					sender.sendMessage(ChatColor.RED + "The datastore conversion failed; see the server log for details.");
+				}
+				else {
+					sender.sendMessage(ChatColor.AQUA + "The datastore conversion has finished.");
+				}
+			});
+		}
+
+		// restart scheduled datastore backups with reloaded interval
+		plugin.dataStoreBackup.start();
 
 		// send success message
 		plugin.messageManager.sendMessage(sender, MessageId.COMMAND_SUCCESS_RELOAD);
@@ -286,6 +386,172 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 	}
 
 
+	/**
+	 * backup command
+	 *
+	 * @param sender command sender
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 * @throws NullPointerException if parameter is null
+	 */
+	private boolean backupCommand(final CommandSender sender) {
+
+		// check for null parameter
+		Objects.requireNonNull(sender);
+
+		if (!sender.hasPermission("deathchest.backup")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to back up the datastore.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// start backup on asynchronous task; the result is sent when the backup is complete
+		try {
+			if (plugin.dataStoreBackup.backupAsync(sender)) {
+				sender.sendMessage(ChatColor.AQUA + "Backing up the " + plugin.dataStore.getName() + " datastore...");
+			}
+			else {
+				sender.sendMessage(ChatColor.RED + "A datastore backup is already in progress.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			}
+		}
+		catch (RejectedExecutionException e) {
+			sender.sendMessage(ChatColor.RED + "The datastore is busy; try again later.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * export command
+	 *
+	 * @param sender command sender
+	 * @param args   command arguments; the export name, followed by the names of the worlds to export
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 * @throws NullPointerException if parameter is null
+	 */
+	private boolean exportCommand(final CommandSender sender, final String[] args) {
+
+		// check for null parameters
+		Objects.requireNonNull(sender);
+		Objects.requireNonNull(args);
+
+		if (!sender.hasPermission("deathchest.export")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to export death chests.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// check export name
+		if (args.length < 2 || !DataStoreTransfer.isValidName(args[1])) {
+			sender.sendMessage(ChatColor.RED + "Export names may contain only letters, digits, underscores and hyphens.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			displayUsage(sender, "export");
+			return true;
+		}
+
+		// get worlds to export; chests are exported only from loaded worlds
+		final Set<String> worlds = new HashSet<>();
+		for (int i = 2; i < args.length; i++) {
+			World world = plugin.getServer().getWorld(args[i]);
+			if (world == null) {
+				sender.sendMessage(ChatColor.RED + "World " + args[i] + " is not loaded.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+				return true;
+			}
+			worlds.add(world.getName());
+		}
+
+		// start export on the datastore executor; the result is sent when the export is complete
+		try {
+			if (plugin.dataStoreTransfer.exportAsync(sender, args[1], worlds)) {
+				sender.sendMessage(ChatColor.AQUA + "Exporting death chests to "
+						+ DataStoreTransfer.getDisplayPath(args[1]) + "...");
+			}
+			else {
+				sender.sendMessage(ChatColor.RED + "A death chest export or import is already in progress.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			}
+		}
+		catch (RejectedExecutionException e) {
+			sender.sendMessage(ChatColor.RED + "The datastore is busy; try again later.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * import command
+	 *
+	 * @param sender command sender
+	 * @param args   command arguments; the export name, followed by the names of the worlds to import,
+	 *               and world renames in the form {@code from=to}
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 * @throws NullPointerException if parameter is null
+	 */
+	private boolean importCommand(final CommandSender sender, final String[] args) {
+
+		// check for null parameters
+		Objects.requireNonNull(sender);
+		Objects.requireNonNull(args);
+
+		if (!sender.hasPermission("deathchest.import")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to import death chests.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// check export name
+		if (args.length < 2 || !DataStoreTransfer.isValidName(args[1])) {
+			sender.sendMessage(ChatColor.RED + "Export names may contain only letters, digits, underscores and hyphens.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			displayUsage(sender, "import");
+			return true;
+		}
+
+		// get worlds to import, and world renames
+		final Set<String> worlds = new HashSet<>();
+		final Map<String, String> worldMap = new HashMap<>();
+		for (int i = 2; i < args.length; i++) {
+			final int separator = args[i].indexOf('=');
+			if (separator < 0) {
+				worlds.add(args[i]);
+				continue;
+			}
+
+			final String fromWorld = args[i].substring(0, separator);
+			final String toWorld = args[i].substring(separator + 1);
+			if (fromWorld.isEmpty() || plugin.getServer().getWorld(toWorld) == null) {
+				sender.sendMessage(ChatColor.RED + "World " + toWorld + " is not loaded.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+				return true;
+			}
+			worldMap.put(fromWorld, toWorld);
+		}
+
+		// start import on the datastore executor; the result is sent when the import is complete
+		try {
+			if (plugin.dataStoreTransfer.importAsync(sender, args[1], worlds, worldMap)) {
+				sender.sendMessage(ChatColor.AQUA + "Importing death chests from "
+						+ DataStoreTransfer.getDisplayPath(args[1]) + "...");
+			}
+			else {
+				sender.sendMessage(ChatColor.RED + "A death chest export or import is already in progress.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			}
+		}
+		catch (RejectedExecutionException e) {
+			sender.sendMessage(ChatColor.RED + "The datastore is busy; try again later.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+		}
+
+		return true;
+	}
+
+
 	/**
 	 * list command
 	 *
@@ -371,55 +637,138 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 
 		page = Math.max(1, page);
 
-		int itemsPerPage = plugin.getConfig().getInt("list-page-size");
-
-		// get all records from chest manager
-		final Collection<DeathChest> chestList = plugin.chestManager.getAllChests();
+		// get owner whose chests to list, or null to list the chests of all players
+		final UUID ownerUUID;
+		if (passedPlayerName.equals("*") && sender.hasPermission("deathchest.list.other")) {
+			ownerUUID = null;
+		}
+		else if (targetPlayer != null) {
+			ownerUUID = targetPlayer.getUniqueId();
+		}
+		else if (player != null) {
+			ownerUUID = player.getUniqueId();
+		}
+		else {
+			plugin.messageManager.sendMessage(sender, MessageId.LIST_EMPTY);
+			return true;
+		}
 
-		// create empty list of records
-		List<DeathChest> displayRecords = new ArrayList<>();
+		// read chest records from datastore, so chests that are not loaded are listed too
+		final CompletableFuture<List<DeathChest>> recordsFuture = ownerUUID == null
+				? plugin.dataStore.getAllChestRecordsAsync(CompletionThread.MAIN)
+				: plugin.dataStore.getChestRecordsByOwnerAsync(ownerUUID, CompletionThread.MAIN);
+
+		final int requestedPage = page;
+		final boolean listAll = passedPlayerName.equals("*");
+
+		recordsFuture.whenComplete((records, throwable) -> {
+			if (throwable != null) {
+				plugin.getLogger().warning("An error occurred while reading death chests for the list command.");
+				plugin.getLogger().warning(throwable.getMessage());
+				sender.sendMessage(ChatColor.RED + "The death chest list could not be read from the datastore.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+				return;
+			}
+			displayChestList(sender, ownerUUID, records, requestedPage, listAll);
+		});
 
-		// add chests to displayRecords list
-		for (DeathChest deathChest : chestList) {
+		return true;
+	}
 
-			// if passed player name is wildcard, add chest to list
-			if ((passedPlayerName.equals("*")) && sender.hasPermission("deathchest.list.other")) {
-				displayRecords.add(deathChest);
-			}
 
-			// if passed player is valid player and matches chest owner, add chest to list
-			else if (targetPlayer != null
-					&& deathChest.getOwnerUUID().equals(targetPlayer.getUniqueId())
-					&& sender.hasPermission("deathchest.list.other")) {
-				displayRecords.add(deathChest);
-			}
-			// if message recipient is valid player and matches chest owner, add chest to list
-			else if (player != null && player.getUniqueId().equals(deathChest.getOwnerUUID())) {
-				displayRecords.add(deathChest);
+	/**
+	 * Display a page of a death chest list. Chests in memory are merged with the chest records read
+	 * from the datastore, so chests whose records have not yet been written are listed too.
+	 *
+	 * @param sender    the command sender
+	 * @param ownerUUID the owner whose chests are listed, or null if the chests of all players are listed
+	 * @param records   the chest records read from the datastore
+	 * @param page      the page to display
+	 * @param listAll   true if the chests of all players are listed
+	 */
+	private void displayChestList(final CommandSender sender,
+								  final UUID ownerUUID,
+								  final List<DeathChest> records,
+								  final int page,
+								  final boolean listAll) {
+
+		// merge chest records with chests in memory, preferring chests in memory
+		final Map<UUID, DeathChest> chestMap = new HashMap<>();
+		for (DeathChest deathChest : records) {
+			chestMap.put(deathChest.getChestUUID(), deathChest);
+		}
+		for (DeathChest deathChest : plugin.chestManager.getAllChests()) {
+			if (ownerUUID == null || ownerUUID.equals(deathChest.getOwnerUUID())) {
+				chestMap.put(deathChest.getChestUUID(), deathChest);
 			}
-
 		}
 
+		List<DeathChest> displayRecords = new ArrayList<>(chestMap.values());
+
 		// if display list is empty, output list empty message and return
 		if (displayRecords.isEmpty()) {
 			plugin.messageManager.sendMessage(sender, MessageId.LIST_EMPTY);
-			return true;
+			return;
 		}
 
 		// sort displayRecords
 		displayRecords.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
 
+		int itemsPerPage = plugin.getConfig().getInt("list-page-size");
+
 		// get page count
-		int pageCount = ((displayRecords.size() - 1) / itemsPerPage) + 1;
-		if (page > pageCount) {
-			page = pageCount;
+		final int pageCount = ((displayRecords.size() - 1) / itemsPerPage) + 1;
+		final int displayPage = Math.min(page, pageCount);
+		final int startIndex = ((displayPage - 1) * itemsPerPage);
+		int endIndex = Math.min((displayPage * itemsPerPage), displayRecords.size());
+
+		final List<DeathChest> displayRange = displayRecords.subList(startIndex, endIndex);
+
+		// get chests on page that are not loaded, whose locations are read from their block records
+		final List<UUID> unloadedUUIDs = new ArrayList<>();
+		for (DeathChest deathChest : displayRange) {
+			if (plugin.chestManager.getDeathChest(deathChest.getChestUUID()) == null) {
+				unloadedUUIDs.add(deathChest.getChestUUID());
+			}
 		}
-		int startIndex = ((page - 1) * itemsPerPage);
-		int endIndex = Math.min((page * itemsPerPage), displayRecords.size());
 
-		List<DeathChest> displayRange = displayRecords.subList(startIndex, endIndex);
+		if (unloadedUUIDs.isEmpty()) {
+			sendChestList(sender, displayRange, Collections.emptyMap(), startIndex, displayPage, pageCount, listAll);
+			return;
+		}
+
+		plugin.dataStore.getBlockRecordsAsync(unloadedUUIDs, CompletionThread.MAIN)
+				.whenComplete((chestBlocks, throwable) -> {
+					final Map<UUID, Location> locations = new HashMap<>();
+					if (chestBlocks != null) {
+						for (ChestBlock chestBlock : chestBlocks) {
+							locations.putIfAbsent(chestBlock.getChestUUID(), chestBlock.getLocation());
+						}
+					}
+					sendChestList(sender, displayRange, locations, startIndex, displayPage, pageCount, listAll);
+				});
+	}
 
 
+	/**
+	 * Send a page of a death chest list to a command sender
+	 *
+	 * @param sender       the command sender
+	 * @param displayRange the chests on the page
+	 * @param locations    the locations of chests on the page that are not loaded, by chest UUID
+	 * @param startIndex   the list index of the first chest on the page
+	 * @param page         the page number
+	 * @param pageCount    the number of pages
+	 * @param listAll      true if the chests of all players are listed
+	 */
+	private void sendChestList(final CommandSender sender,
+							   final List<DeathChest> displayRange,
+							   final Map<UUID, Location> locations,
+							   final int startIndex,
+							   final int page,
+							   final int pageCount,
+							   final boolean listAll) {
+
 		int listCount = startIndex;
 
 		// display list header
@@ -430,21 +779,227 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 			// increment list counter
 			listCount++;
 
-			// if passedPlayerName is wildcard, display LIST_ITEM_ALL
-			if (passedPlayerName.equals("*")) {
-				plugin.messageManager.sendMessage(sender, MessageId.LIST_ITEM_ALL, deathChest, listCount);
+			// if listing chests of all players, display LIST_ITEM_ALL
+			if (listAll) {
+				plugin.messageManager.sendMessage(sender, MessageId.LIST_ITEM_ALL, deathChest, listCount,
+						locations.get(deathChest.getChestUUID()));
 			}
 			else {
-				plugin.messageManager.sendMessage(sender, MessageId.LIST_ITEM, deathChest, listCount);
+				plugin.messageManager.sendMessage(sender, MessageId.LIST_ITEM, deathChest, listCount,
+						locations.get(deathChest.getChestUUID()));
 			}
 		}
 
 		// display list footer
 		plugin.messageManager.sendMessage(sender, MessageId.LIST_FOOTER, page, pageCount);
+	}
+
+
+	/**
+	 * profile command
+	 *
+	 * @param sender command sender
+	 * @param args   additional command arguments
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 * @throws NullPointerException if parameter is null
+	 */
+	private boolean profileCommand(final CommandSender sender, final String[] args) {
+
+		// check for null parameters
+		Objects.requireNonNull(sender);
+		Objects.requireNonNull(args);
+
+		if (!sender.hasPermission("deathchest.profile")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to profile the datastore.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// with no action, display profile
+		if (args.length < 2) {
+			for (String line : plugin.queryProfiler.report()) {
+				sender.sendMessage(ChatColor.AQUA + line);
+			}
+			return true;
+		}
+
+		final String action = args[1];
+
+		if (action.equalsIgnoreCase("on")) {
+			plugin.queryProfiler.setEnabled(true);
+			sender.sendMessage(ChatColor.GREEN + "Datastore profiler enabled.");
+		}
+		else if (action.equalsIgnoreCase("off")) {
+			plugin.queryProfiler.setEnabled(false);
+			sender.sendMessage(ChatColor.GREEN + "Datastore profiler disabled.");
+		}
+		else if (action.equalsIgnoreCase("reset")) {
+			plugin.queryProfiler.reset();
+			sender.sendMessage(ChatColor.GREEN + "Datastore profile statistics reset.");
+		}
+		else if (action.equalsIgnoreCase("dump")) {
+			try {
+				sender.sendMessage(ChatColor.GREEN + "Datastore profile written to "
+						+ plugin.queryProfiler.dump().getName() + ".");
+			}
+			catch (IOException e) {
+				plugin.getLogger().warning("An error occurred while writing the datastore profile.");
+				plugin.getLogger().warning(e.getMessage());
+				sender.sendMessage(ChatColor.RED + "The datastore profile could not be written. See the server log for details.");
+				plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			}
+		}
+		else {
+			displayUsage(sender, "profile");
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * history command
+	 *
+	 * @param sender command sender
+	 * @param args   additional command arguments
+	 * @return boolean - always returns {@code true}, to suppress bukkit builtin help message
+	 * @throws NullPointerException if parameter is null
+	 */
+	private boolean historyCommand(final CommandSender sender, final String[] args) {
+
+		// check for null parameters
+		Objects.requireNonNull(sender);
+		Objects.requireNonNull(args);
+
+		if (!sender.hasPermission("deathchest.history")) {
+			sender.sendMessage(ChatColor.RED + "You do not have permission to view death chest history.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		if (!plugin.historyArchive.isOpen()) {
+			sender.sendMessage(ChatColor.RED + "Death chest history is not being recorded.");
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// with no player name, a player views their own history
+		if (args.length < 2 && !(sender instanceof Player)) {
+			displayUsage(sender, "history");
+			return true;
+		}
+
+		if (args.length > 3) {
+			plugin.messageManager.sendMessage(sender, MessageId.COMMAND_FAIL_ARGS_COUNT_OVER);
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			displayUsage(sender, "history");
+			return true;
+		}
+
+		// match player name
+		OfflinePlayer targetPlayer = null;
+		if (args.length < 2) {
+			targetPlayer = (Player) sender;
+		}
+		else {
+			for (OfflinePlayer offlinePlayer : plugin.getServer().getOfflinePlayers()) {
+				if (args[1].equalsIgnoreCase(offlinePlayer.getName())) {
+					targetPlayer = offlinePlayer;
+				}
+			}
+		}
+		if (targetPlayer == null) {
+			plugin.messageManager.sendMessage(sender, MessageId.LIST_PLAYER_NOT_FOUND);
+			plugin.soundConfig.playSound(sender, SoundId.COMMAND_FAIL);
+			return true;
+		}
+
+		// get page number
+		int page = 1;
+		if (args.length == 3) {
+			try {
+				page = Math.max(1, Integer.parseInt(args[2]));
+			}
+			catch (NumberFormatException e) {
+				displayUsage(sender, "history");
+				return true;
+			}
+		}
+
+		int pageSize = plugin.getConfig().getInt("history-page-size", 10);
+		if (pageSize < 1) {
+			pageSize = 10;
+		}
+
+		// read events on datastore executor, and display them on main thread
+		final String playerName = targetPlayer.getName();
+		final int finalPage = page;
+		final int finalPageSize = pageSize;
+		plugin.historyArchive.getEventsByOwnerAsync(targetPlayer.getUniqueId(), page, pageSize, CompletionThread.MAIN)
+				.whenComplete((events, throwable) -> {
+
+					if (throwable != null) {
+						plugin.getLogger().warning("An error occurred while reading death chest history.");
+						plugin.getLogger().warning(throwable.getMessage());
+						sender.sendMessage(ChatColor.RED + "Death chest history could not be read. See the server log for details.");
+						return;
+					}
+
+					if (events.isEmpty()) {
+						sender.sendMessage(ChatColor.AQUA + "No death chest history for " + playerName
+								+ (finalPage > 1 ? " on page " + finalPage + "." : "."));
+						return;
+					}
+
+					sender.sendMessage(ChatColor.DARK_AQUA + "Death chest history for " + playerName
+							+ ", page " + finalPage + ", newest first:");
+
+					final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+					for (HistoryEvent historyEvent : events.subList(0, Math.min(events.size(), finalPageSize))) {
+
+						StringBuilder line = new StringBuilder()
+								.append(ChatColor.GRAY).append(dateFormat.format(new Date(historyEvent.getEventTime())))
+								.append(' ').append(ChatColor.GOLD).append(historyEvent.getType())
+								.append(ChatColor.RESET);
+						if (historyEvent.getWorldName() != null) {
+							line.append(" in ").append(historyEvent.getWorldName())
+									.append(" at ").append(historyEvent.getX())
+									.append(", ").append(historyEvent.getY())
+									.append(", ").append(historyEvent.getZ());
+						}
+						line.append(", ").append(historyEvent.getItemCount()).append(" items");
+						if (historyEvent.getActorUUID() != null) {
+							line.append(", by ").append(getPlayerName(historyEvent.getActorUUID()));
+						}
+						if (historyEvent.getKillerUUID() != null) {
+							line.append(", killed by ").append(getPlayerName(historyEvent.getKillerUUID()));
+						}
+						sender.sendMessage(line.toString());
+					}
+
+					// the archive returns one event past the page if there is a following page
+					if (events.size() > finalPageSize) {
+						sender.sendMessage(ChatColor.AQUA + "More events: /deathchest history "
+								+ playerName + " " + (finalPage + 1));
+					}
+				});
+
 		return true;
 	}
 
 
+	/**
+	 * Get the name of a player, for display
+	 *
+	 * @param playerUUID the UUID of the player
+	 * @return the player name, or the UUID if the player has never joined the server
+	 */
+	private String getPlayerName(final UUID playerUUID) {
+		final String name = plugin.getServer().getOfflinePlayer(playerUUID).getName();
+		return name != null ? name : playerUUID.toString();
+	}
+
+
 	/**
 	 * help command
 	 *
@@ -474,12 +1029,28 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 
 		String helpMessage = "That is not a valid command.";
 
+		if (command.equalsIgnoreCase("backup")) {
+			helpMessage = "Backs up the datastore without stopping the server.";
+		}
+		if (command.equalsIgnoreCase("export")) {
+			helpMessage = "Exports DeathChests to a file in the exports folder, from all worlds or the named worlds.";
+		}
 		if (command.equalsIgnoreCase("help")) {
 			helpMessage = "Displays help for DeathChest commands.";
 		}
+		if (command.equalsIgnoreCase("history")) {
+			helpMessage = "Displays when a player's DeathChests were deployed, looted, broken or expired.";
+		}
+		if (command.equalsIgnoreCase("import")) {
+			helpMessage = "Imports DeathChests from an export file, from all worlds or the named worlds, "
+					+ "moving chests from world 'from' to world 'to'.";
+		}
 		if (command.equalsIgnoreCase("list")) {
 			helpMessage = "Displays a list of DeathChests.";
 		}
+		if (command.equalsIgnoreCase("profile")) {
+			helpMessage = "Displays, resets or dumps datastore statement timings, or turns the profiler on or off.";
+		}
 		if (command.equalsIgnoreCase("reload")) {
 			helpMessage = "Reloads the configuration without needing to restart the server.";
 		}
@@ -508,11 +1079,31 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 			command = "all";
 		}
 
+		if ((command.equalsIgnoreCase("backup")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.backup")) {
+			sender.sendMessage(usageColor + "/deathchest backup");
+		}
+		if ((command.equalsIgnoreCase("export")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.export")) {
+			sender.sendMessage(usageColor + "/deathchest export <name> [world...]");
+		}
 		if ((command.equalsIgnoreCase("help")
 				|| command.equalsIgnoreCase("all"))
 				&& sender.hasPermission("deathchest.help")) {
 			sender.sendMessage(usageColor + "/deathchest help [command]");
 		}
+		if ((command.equalsIgnoreCase("history")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.history")) {
+			sender.sendMessage(usageColor + "/deathchest history [username] [page]");
+		}
+		if ((command.equalsIgnoreCase("import")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.import")) {
+			sender.sendMessage(usageColor + "/deathchest import <name> [world...] [from=to...]");
+		}
 		if ((command.equalsIgnoreCase("list")
 				|| command.equalsIgnoreCase("all"))
 				&& sender.hasPermission("deathchest.list")) {
@@ -521,6 +1112,11 @@ public final class CommandManager implements CommandExecutor, TabCompleter {
 				sender.sendMessage(usageColor + "/deathchest list [username] [page]");
 			}
 		}
+		if ((command.equalsIgnoreCase("profile")
+				|| command.equalsIgnoreCase("all"))
+				&& sender.hasPermission("deathchest.profile")) {
+			sender.sendMessage(usageColor + "/deathchest profile [on|off|reset|dump]");
+		}
 		if ((command.equalsIgnoreCase("reload")
 				|| command.equalsIgnoreCase("all"))
 				&& sender.hasPermission("deathchest.reload")) {
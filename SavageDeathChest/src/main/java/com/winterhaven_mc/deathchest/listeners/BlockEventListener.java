@@ -3,6 +3,7 @@ package com.winterhaven_mc.deathchest.listeners;
 import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
+import com.winterhaven_mc.deathchest.storage.HistoryEventType;
 import com.winterhaven_mc.deathchest.messages.MessageId;
 import com.winterhaven_mc.deathchest.sounds.SoundId;
 
@@ -87,6 +88,12 @@ public final class BlockEventListener implements Listener {
 		final Block block = event.getBlock();
 		final Player player = event.getPlayer();
 
+		// if event block may be a DeathChestBlock that has not finished loading, cancel event and return
+		if (plugin.chestManager.isLoadingChestBlock(block)) {
+			event.setCancelled(true);
+			return;
+		}
+
 		// if event block is not a DeathChestBlock, do nothing and return
 		if (!plugin.chestManager.isChestBlock(block)) {
 			return;
@@ -142,7 +149,7 @@ public final class BlockEventListener implements Listener {
 
 		// if player is owner or has deathchest.loot.other permission, break chest and return
 		if (deathChest.isOwner(player) || player.hasPermission("deathchest.loot.other")) {
-			deathChest.destroy();
+			deathChest.destroy(HistoryEventType.BROKEN, player);
 			return;
 		}
 
@@ -151,7 +158,7 @@ public final class BlockEventListener implements Listener {
 		if (plugin.getConfig().getBoolean("killer-looting")
 				&& deathChest.isKiller(player)
 				&& player.hasPermission("deathchest.loot.killer")) {
-			deathChest.destroy();
+			deathChest.destroy(HistoryEventType.BROKEN, player);
 			return;
 		}
 
@@ -180,7 +187,7 @@ public final class BlockEventListener implements Listener {
 		// iterate through all blocks in explosion event and remove those that are DeathChest chests or signs
 		ArrayList<Block> blocks = new ArrayList<>(event.blockList());
 		for (Block block : blocks) {
-			if (plugin.chestManager.isChestBlock(block)) {
+			if (plugin.chestManager.isChestBlock(block) || plugin.chestManager.isLoadingChestBlock(block)) {
 				event.blockList().remove(block);
 			}
 		}
@@ -204,7 +211,7 @@ public final class BlockEventListener implements Listener {
 		// iterate through all blocks in explosion event and remove those that are DeathChest chests or signs
 		ArrayList<Block> blocks = new ArrayList<>(event.blockList());
 		for (Block block : blocks) {
-			if (plugin.chestManager.isChestBlock(block)) {
+			if (plugin.chestManager.isChestBlock(block) || plugin.chestManager.isLoadingChestBlock(block)) {
 				event.blockList().remove(block);
 			}
 		}
@@ -220,8 +227,9 @@ public final class BlockEventListener implements Listener {
 	@EventHandler
 	public final void signDetachCheck(final BlockPhysicsEvent event) {
 
-		// if event block is a DeathChest component, cancel event
-		if (plugin.chestManager.isChestBlockSign(event.getBlock())) {
+		// if event block is a DeathChest component, or may be one that has not finished loading, cancel event
+		if (plugin.chestManager.isChestBlockSign(event.getBlock())
+				|| plugin.chestManager.isLoadingChestBlock(event.getBlock())) {
 			event.setCancelled(true);
 		}
 	}
@@ -0,0 +1,60 @@
+package com.winterhaven_mc.deathchest.listeners;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+
+
+/**
+ * A class that contains {@code EventHandler} methods to load and release death chests
+ * with their chunks, when death chests are loaded lazily
+ */
+public final class ChunkEventListener implements Listener {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public ChunkEventListener(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// register event handlers in this class
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+	}
+
+
+	/**
+	 * Chunk load event handler<br>
+	 * Loads death chests in the chunk from the datastore
+	 *
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public final void onChunkLoad(final ChunkLoadEvent event) {
+		plugin.chestManager.loadChunkChests(event.getChunk());
+	}
+
+
+	/**
+	 * Chunk unload event handler<br>
+	 * Releases death chests in the chunk from memory
+	 *
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public final void onChunkUnload(final ChunkUnloadEvent event) {
+		plugin.chestManager.unloadChunkChests(event.getChunk());
+	}
+
+}
@@ -4,6 +4,7 @@ package com.winterhaven_mc.deathchest.listeners;
 import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
+import com.winterhaven_mc.deathchest.storage.HistoryEventType;
 
 import org.bukkit.block.Block;
 import org.bukkit.block.Chest;
@@ -134,7 +135,8 @@ public final class InventoryEventListener implements Listener {
 
 		// if inventory is empty, destroy chest(s) and sign
 		if (isEmpty(inventory)) {
-			deathChest.destroy();
+			deathChest.destroy(HistoryEventType.LOOTED,
+					event.getPlayer() instanceof Player ? (Player) event.getPlayer() : null);
 		}
 	}
 
@@ -75,6 +75,12 @@ public final class PlayerEventListener implements Listener {
 		// get block
 		final Block block = event.getClickedBlock();
 
+		// if block may be a DeathChest block that has not finished loading, cancel event and return
+		if (plugin.chestManager.isLoadingChestBlock(block)) {
+			event.setCancelled(true);
+			return;
+		}
+
 		// if block is not DeathChest block, do nothing and return
 		if (!plugin.chestManager.isChestBlock(block)) {
 			return;
@@ -0,0 +1,60 @@
+package com.winterhaven_mc.deathchest.listeners;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+
+/**
+ * A class that contains {@code EventHandler} methods to keep the world cache used by
+ * asynchronous datastore reads up to date as worlds are loaded and unloaded
+ */
+public final class WorldEventListener implements Listener {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public WorldEventListener(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// register event handlers in this class
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+	}
+
+
+	/**
+	 * World load event handler<br>
+	 * Adds the world to the world cache
+	 *
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	public final void onWorldLoad(final WorldLoadEvent event) {
+		plugin.worldCache.addWorld(event.getWorld());
+	}
+
+
+	/**
+	 * World unload event handler<br>
+	 * Removes the world from the world cache, unless the unload was cancelled
+	 *
+	 * @param event the event being handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	public final void onWorldUnload(final WorldUnloadEvent event) {
+		plugin.worldCache.removeWorld(event.getWorld());
+	}
+
+}
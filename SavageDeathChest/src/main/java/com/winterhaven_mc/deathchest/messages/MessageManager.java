@@ -6,6 +6,7 @@ import com.winterhaven_mc.deathchest.util.ProtectionPlugin;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 import com.winterhaven_mc.util.AbstractMessageManager;
 import org.bukkit.ChatColor;
+import org.bukkit.Location;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
@@ -177,6 +178,25 @@ public final class MessageManager extends AbstractMessageManager {
 							final MessageId messageId,
 							final DeathChest deathChest,
 							final int listCount) {
+		sendMessage(recipient, messageId, deathChest, listCount, null);
+	}
+
+
+	/**
+	 * Send message to recipient
+	 *
+	 * @param recipient  the recipient to whom to send a message
+	 * @param messageId  the message identifier
+	 * @param deathChest the chest being referenced in this message
+	 * @param listCount  the item number of a list of which this message is a single entry
+	 * @param location   the location of the chest, or null to use the location of the chest's loaded blocks
+	 * @throws NullPointerException if parameter is null
+	 */
+	public void sendMessage(final CommandSender recipient,
+							final MessageId messageId,
+							final DeathChest deathChest,
+							final int listCount,
+							final Location location) {
 
 		// check for null parameters
 		Objects.requireNonNull(recipient);
@@ -186,11 +206,14 @@ public final class MessageManager extends AbstractMessageManager {
 		// get default replacement map
 		Map<String, String> replacements = getDefaultReplacements(recipient);
 
-		if (deathChest.getLocation() != null) {
-			replacements.put("%WORLD_NAME%", plugin.worldManager.getWorldName(deathChest.getLocation().getWorld()));
-			replacements.put("%LOC_X%", String.valueOf(deathChest.getLocation().getBlockX()));
-			replacements.put("%LOC_Y%", String.valueOf(deathChest.getLocation().getBlockY()));
-			replacements.put("%LOC_Z%", String.valueOf(deathChest.getLocation().getBlockZ()));
+		// a chest that is not loaded has no blocks in memory, so its location is passed
+		final Location chestLocation = location != null ? location : deathChest.getLocation();
+
+		if (chestLocation != null) {
+			replacements.put("%WORLD_NAME%", plugin.worldManager.getWorldName(chestLocation.getWorld()));
+			replacements.put("%LOC_X%", String.valueOf(chestLocation.getBlockX()));
+			replacements.put("%LOC_Y%", String.valueOf(chestLocation.getBlockY()));
+			replacements.put("%LOC_Z%", String.valueOf(chestLocation.getBlockZ()));
 		}
 
 		replacements.put("%OWNER_NAME%",
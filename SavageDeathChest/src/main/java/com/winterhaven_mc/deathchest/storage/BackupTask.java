@@ -0,0 +1,34 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+
+/**
+ * A class that implements a repeating task to back up the datastore
+ */
+final class BackupTask extends BukkitRunnable {
+
+	// the backup manager
+	private final DataStoreBackup dataStoreBackup;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dataStoreBackup the backup manager
+	 */
+	BackupTask(final DataStoreBackup dataStoreBackup) {
+
+		// set backup manager field
+		this.dataStoreBackup = dataStoreBackup;
+	}
+
+
+	@Override
+	public void run() {
+
+		// scheduled backups are reported only in the log
+		this.dataStoreBackup.backup(null);
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.util.List;
+
+
+/**
+ * An interface for datastores that can commit a batch of write operations in a single transaction
+ */
+interface BatchWriter {
+
+	/**
+	 * Commit a batch of write operations to the datastore. Implementations must apply
+	 * either all or none of the operations in the batch.
+	 *
+	 * @param batch the list of write operations to commit
+	 * @throws Exception if the batch could not be committed
+	 */
+	void writeBatch(final List<WriteOperation> batch) throws Exception;
+
+}
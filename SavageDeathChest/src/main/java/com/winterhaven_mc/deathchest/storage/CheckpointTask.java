@@ -0,0 +1,35 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+
+/**
+ * A class that implements a repeating task to checkpoint the SQLite write-ahead log,
+ * so the -wal file does not grow without bound
+ */
+final class CheckpointTask extends BukkitRunnable {
+
+	// the datastore to checkpoint
+	private final DataStoreSQLite dataStore;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dataStore the datastore to checkpoint
+	 */
+	CheckpointTask(final DataStoreSQLite dataStore) {
+
+		// set datastore field
+		this.dataStore = dataStore;
+	}
+
+
+	@Override
+	public void run() {
+
+		// passive checkpoint does not wait for readers or writers
+		this.dataStore.checkpoint("PASSIVE");
+	}
+
+}
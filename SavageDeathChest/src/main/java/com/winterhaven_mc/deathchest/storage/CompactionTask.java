@@ -0,0 +1,35 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+
+/**
+ * A class that implements a repeating task to compact the journal datastore
+ * once enough of its records have been superseded
+ */
+final class CompactionTask extends BukkitRunnable {
+
+	// the datastore to compact
+	private final DataStoreJournal dataStore;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dataStore the datastore to compact
+	 */
+	CompactionTask(final DataStoreJournal dataStore) {
+
+		// set datastore field
+		this.dataStore = dataStore;
+	}
+
+
+	@Override
+	public void run() {
+
+		// compaction only rewrites the journal if the configured threshold has been reached
+		this.dataStore.compact(false);
+	}
+
+}
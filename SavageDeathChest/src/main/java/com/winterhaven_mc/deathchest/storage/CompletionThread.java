@@ -0,0 +1,64 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * The thread on which a datastore future is completed. Stages chained to the future
+ * with non-async methods run on that thread.
+ */
+public enum CompletionThread {
+
+	/**
+	 * Complete on the server main thread, so chained stages may use the Bukkit API.
+	 * While the plugin is being disabled, the main thread is blocked in onDisable,
+	 * so the future is completed on the calling thread instead.
+	 */
+	MAIN {
+		@Override
+		void execute(final PluginMain plugin, final Runnable task) {
+			if (plugin.getServer().isPrimaryThread() || !plugin.isEnabled()) {
+				task.run();
+			}
+			else {
+				plugin.getServer().getScheduler().runTask(plugin, task);
+			}
+		}
+	},
+
+	/**
+	 * Complete on an asynchronous thread, so chained stages do not delay the server tick.
+	 * When called from the main thread, the future is completed on the datastore executor.
+	 * Chained stages must not use the Bukkit API.
+	 */
+	ASYNC {
+		@Override
+		void execute(final PluginMain plugin, final Runnable task) {
+			if (!plugin.getServer().isPrimaryThread() || !plugin.isEnabled()) {
+				task.run();
+			}
+			else {
+				try {
+					plugin.dataStoreExecutor.execute(task);
+				}
+				catch (RejectedExecutionException e) {
+
+					// datastore executor is busy; a completion must not be lost, so use the server's scheduler
+					plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+				}
+			}
+		}
+	};
+
+
+	/**
+	 * Run a task on this thread
+	 *
+	 * @param plugin reference to main class
+	 * @param task   the task to run
+	 */
+	abstract void execute(final PluginMain plugin, final Runnable task);
+
+}
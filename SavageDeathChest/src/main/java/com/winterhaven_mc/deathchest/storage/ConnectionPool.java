@@ -0,0 +1,175 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A class that implements a small fixed size pool of database connections,
+ * so that concurrent readers and writers do not share a single connection.
+ * Connections are opened as needed, up to the maximum pool size.
+ */
+final class ConnectionPool {
+
+	// database url
+	private final String url;
+
+	// maximum number of open connections
+	private final int maxSize;
+
+	// idle connections
+	private final BlockingQueue<Connection> idleConnections;
+
+	// number of open connections, idle or borrowed
+	private final AtomicInteger openCount = new AtomicInteger();
+
+	// time in milliseconds to wait for a connection when all connections are borrowed
+	private final long timeout;
+
+	// true once pool is closed
+	private volatile boolean closed;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param url     the database url
+	 * @param maxSize the maximum number of open connections
+	 * @param timeout the time in milliseconds to wait for a connection when all connections are borrowed
+	 */
+	ConnectionPool(final String url, final int maxSize, final long timeout) {
+		this.url = url;
+		this.maxSize = maxSize;
+		this.timeout = timeout;
+		this.idleConnections = new LinkedBlockingQueue<>(maxSize);
+	}
+
+
+	/**
+	 * Borrow a connection from the pool, opening a new connection if none is idle and the pool is not full.
+	 * The connection must be returned with {@link #release(Connection)}.
+	 *
+	 * @return a connection in auto-commit mode
+	 * @throws SQLException if a connection could not be opened, or none became available within the timeout
+	 */
+	final Connection borrow() throws SQLException {
+
+		if (closed) {
+			throw new SQLException("Connection pool is closed.");
+		}
+
+		// use idle connection if one is available
+		Connection connection = idleConnections.poll();
+		if (connection != null) {
+			return connection;
+		}
+
+		// open new connection if pool is not full
+		if (openCount.incrementAndGet() <= maxSize) {
+			try {
+				return DriverManager.getConnection(url);
+			}
+			catch (SQLException e) {
+				openCount.decrementAndGet();
+				throw e;
+			}
+		}
+		openCount.decrementAndGet();
+
+		// wait for a connection to be released
+		try {
+			connection = idleConnections.poll(timeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection.");
+		}
+
+		if (connection == null) {
+			throw new SQLException("Timed out waiting for a database connection.");
+		}
+		return connection;
+	}
+
+
+	/**
+	 * Return a borrowed connection to the pool. A transaction left open on the connection is rolled back
+	 * before it is reset to auto-commit mode, as resetting auto-commit would commit it. A connection that
+	 * has been closed, or whose transaction cannot be rolled back or that cannot be reset to auto-commit mode,
+	 * is discarded.
+	 *
+	 * @param connection the connection to return
+	 */
+	final void release(final Connection connection) {
+
+		// if passed connection is null, do nothing and return
+		if (connection == null) {
+			return;
+		}
+
+		try {
+			if (!closed && !connection.isClosed()) {
+
+				// roll back open transaction; if it cannot be rolled back, the connection is discarded
+				if (!connection.getAutoCommit()) {
+					connection.rollback();
+				}
+				connection.setAutoCommit(true);
+				if (idleConnections.offer(connection)) {
+					return;
+				}
+			}
+		}
+		catch (SQLException e) {
+			// connection is not usable; fall through to discard it
+		}
+
+		discard(connection);
+	}
+
+
+	/**
+	 * Close a connection and remove it from the open connection count
+	 *
+	 * @param connection the connection to discard
+	 */
+	private void discard(final Connection connection) {
+		openCount.decrementAndGet();
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			// connection is already unusable
+		}
+	}
+
+
+	/**
+	 * Close the pool and all idle connections. Borrowed connections are closed when they are released.
+	 */
+	final void close() {
+
+		closed = true;
+
+		Connection connection;
+		while ((connection = idleConnections.poll()) != null) {
+			discard(connection);
+		}
+	}
+
+
+	/**
+	 * Get the number of open connections
+	 *
+	 * @return the number of open connections, idle or borrowed
+	 */
+	final int getOpenCount() {
+		return openCount.get();
+	}
+
+}
@@ -4,11 +4,23 @@ import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.chests.ChestBlock;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 
 /**
  * An abstract class that declares methods for managing persistent storage of death chests and chest blocks.
+ * <p>
+ * Write methods return a future that is completed when the write is durable, or exceptionally if it was
+ * discarded, so callers can chain work on, await or time a write. Read methods block, and are called from
+ * asynchronous tasks; each list read has an asynchronous variant that runs the read on the datastore
+ * executor and completes its future on the requested {@link CompletionThread}. Any datastore future can be moved to a
+ * completion thread with {@link #completeOn(CompletableFuture, CompletionThread)}.
  */
 public abstract class DataStore {
 
@@ -21,6 +33,12 @@ public abstract class DataStore {
 
 	String filename;
 
+	// chests deleted while records are converted into this datastore, by chest UUID; null when not converting
+	private volatile Map<UUID, DeathChest> conversionDeletes;
+
+	// chest records sorted by chest UUID, read once for the default page read; null when no page read is in progress
+	private List<DeathChest> pageSnapshot;
+
 
 	/**
 	 * Initialize the datastore
@@ -31,28 +49,139 @@ public abstract class DataStore {
 	abstract void initialize() throws Exception;
 
 
+	/**
+	 * Pass each chest record in the datastore to a consumer, without collecting all records in memory
+	 *
+	 * @param consumer the consumer to receive each chest record
+	 * @return the number of chest records passed to the consumer
+	 */
+	public abstract int forEachChestRecord(final Consumer<DeathChest> consumer);
+
+
 	/**
 	 * Retrieve a list of all chest records from the datastore
 	 *
 	 * @return List of DeathChest
 	 */
-	public abstract List<DeathChest> getAllChestRecords();
+	public List<DeathChest> getAllChestRecords() {
+		final List<DeathChest> results = new ArrayList<>();
+		forEachChestRecord(results::add);
+		return results;
+	}
+
+
+	/**
+	 * Retrieve a list of all chest records for an owner from the datastore
+	 *
+	 * @param ownerUUID the UUID of the chest owner
+	 * @return List of DeathChest, ordered by expiration time
+	 */
+	public abstract List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID);
+
+
+	/**
+	 * Retrieve a list of chest records that expire before a given time from the datastore.
+	 * Chests that never expire are not included.
+	 *
+	 * @param expirationTime the time in milliseconds since epoch
+	 * @return List of DeathChest, ordered by expiration time
+	 */
+	public abstract List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime);
 
 
 	/**
-	 * Insert a chest record in the datastore
+	 * Insert a chest record in the datastore, with the records of its blocks in the chest manager
 	 *
 	 * @param deathChest the DeathChest object to insert into the datastore
+	 * @return a future completed on a datastore thread when the chest and block records are durable
+	 */
+	public abstract CompletableFuture<Void> putChestRecord(final DeathChest deathChest);
+
+
+	/**
+	 * Delete a chest record from the datastore. While records are being converted into the datastore, the
+	 * deleted chest is also remembered, so the conversion does not bring it back.
+	 *
+	 * @param deathChest the chest to delete
+	 * @return a future completed on a datastore thread when the delete is durable
 	 */
-	public abstract void putChestRecord(final DeathChest deathChest);
+	public final CompletableFuture<Void> deleteChestRecord(final DeathChest deathChest) {
+
+		// remember chest deleted during conversion
+		final Map<UUID, DeathChest> deletes = conversionDeletes;
+		if (deletes != null && deathChest != null) {
+			deletes.put(deathChest.getChestUUID(), deathChest);
+		}
+
+		return removeChestRecord(deathChest);
+	}
 
 
 	/**
 	 * Delete a chest record from the datastore
 	 *
 	 * @param deathChest the chest to delete
+	 * @return a future completed on a datastore thread when the delete is durable
 	 */
-	public abstract void deleteChestRecord(final DeathChest deathChest);
+	abstract CompletableFuture<Void> removeChestRecord(final DeathChest deathChest);
+
+
+	/**
+	 * Start remembering the chests deleted from the datastore, while records are converted into it
+	 */
+	final void startConversionDeletes() {
+		conversionDeletes = new ConcurrentHashMap<>();
+	}
+
+
+	/**
+	 * Check if a chest has been deleted from the datastore since records started being converted into it
+	 *
+	 * @param chestUUID the UUID of the chest
+	 * @return {@code true} if the chest has been deleted during the conversion, {@code false} if not
+	 */
+	final boolean isConversionDelete(final UUID chestUUID) {
+		final Map<UUID, DeathChest> deletes = conversionDeletes;
+		return deletes != null && deletes.containsKey(chestUUID);
+	}
+
+
+	/**
+	 * Stop remembering deleted chests at the end of a conversion
+	 *
+	 * @return the chests deleted from the datastore during the conversion
+	 */
+	final Collection<DeathChest> stopConversionDeletes() {
+		final Map<UUID, DeathChest> deletes = conversionDeletes;
+		conversionDeletes = null;
+		return deletes == null ? Collections.emptyList() : deletes.values();
+	}
+
+
+	/**
+	 * Delete the records of several chests from the datastore. Deleting a chest record also deletes
+	 * its block records, so the blocks of deleted chests need not be deleted separately.
+	 * Datastores that commit batches delete consecutive chests in a batch with a single statement.
+	 *
+	 * @param deathChests the chests to delete
+	 * @return a future completed on a datastore thread when all deletes are durable
+	 */
+	public CompletableFuture<Void> deleteChestRecords(final Collection<DeathChest> deathChests) {
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (DeathChest deathChest : deathChests) {
+			futures.add(deleteChestRecord(deathChest));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+
+	/**
+	 * Pass each block record in the datastore to a consumer, without collecting all records in memory
+	 *
+	 * @param consumer the consumer to receive each block record
+	 * @return the number of block records passed to the consumer
+	 */
+	public abstract int forEachBlockRecord(final Consumer<ChestBlock> consumer);
 
 
 	/**
@@ -60,23 +189,293 @@ public abstract class DataStore {
 	 *
 	 * @return List of ChestBlock
 	 */
-	public abstract List<ChestBlock> getAllBlockRecords();
+	public List<ChestBlock> getAllBlockRecords() {
+		final List<ChestBlock> results = new ArrayList<>();
+		forEachBlockRecord(results::add);
+		return results;
+	}
+
+
+	/**
+	 * Retrieve the chest records of a set of chests from the datastore.
+	 * Datastores with an index on chest UUID override this to avoid reading all records.
+	 *
+	 * @param chestUUIDs the UUIDs of the chests to retrieve
+	 * @return List of DeathChest, for the chests that exist in the datastore
+	 */
+	public List<DeathChest> getChestRecords(final Collection<UUID> chestUUIDs) {
+		final Set<UUID> chestUUIDSet = new HashSet<>(chestUUIDs);
+		final List<DeathChest> results = new ArrayList<>();
+		forEachChestRecord(deathChest -> {
+			if (chestUUIDSet.contains(deathChest.getChestUUID())) {
+				results.add(deathChest);
+			}
+		});
+		return results;
+	}
+
+
+	/**
+	 * Retrieve the block records of a set of chests from the datastore.
+	 * Datastores with an index on chest UUID override this to avoid reading all records.
+	 *
+	 * @param chestUUIDs the UUIDs of the chests whose blocks to retrieve
+	 * @return List of ChestBlock, for the blocks of the chests in loaded worlds
+	 */
+	public List<ChestBlock> getBlockRecords(final Collection<UUID> chestUUIDs) {
+		final Set<UUID> chestUUIDSet = new HashSet<>(chestUUIDs);
+		final List<ChestBlock> results = new ArrayList<>();
+		forEachBlockRecord(chestBlock -> {
+			if (chestUUIDSet.contains(chestBlock.getChestUUID())) {
+				results.add(chestBlock);
+			}
+		});
+		return results;
+	}
+
+
+	/**
+	 * Retrieve a page of chest records in chest UUID order, so all chest records can be read without holding
+	 * a read open between pages. Unlike the other read methods, a read error is thrown instead of logged, so
+	 * a caller that must read every record can stop. Datastores with an index on chest UUID override this.
+	 * <p>
+	 * This default reads and sorts all chest records once, when the first page is requested, and returns
+	 * the following pages from that sorted copy, which is released when the last page has been returned.
+	 * Chests inserted after the first page was read are not returned.
+	 *
+	 * @param afterChestUUID the UUID of the last chest of the previous page, or null to retrieve the first page
+	 * @param limit          the maximum number of chest records to retrieve
+	 * @return List of DeathChest, ordered by chest UUID; an empty list when there are no more chest records
+	 * @throws Exception if the chest records could not be read
+	 */
+	synchronized List<DeathChest> readChestRecordPage(final UUID afterChestUUID, final int limit) throws Exception {
+
+		// read and sort all chest records for the first page, or for a read resumed after a restart
+		if (afterChestUUID == null || pageSnapshot == null) {
+			final List<DeathChest> snapshot = new ArrayList<>();
+			forEachChestRecord(snapshot::add);
+			snapshot.sort((chest1, chest2) -> RecordCodec.compareUUIDs(chest1.getChestUUID(), chest2.getChestUUID()));
+			pageSnapshot = snapshot;
+		}
+
+		// find the first chest record after the passed UUID
+		int fromIndex = 0;
+		if (afterChestUUID != null) {
+			int low = 0;
+			int high = pageSnapshot.size();
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (RecordCodec.compareUUIDs(pageSnapshot.get(middle).getChestUUID(), afterChestUUID) > 0) {
+					high = middle;
+				}
+				else {
+					low = middle + 1;
+				}
+			}
+			fromIndex = low;
+		}
+
+		final int toIndex = Math.min(pageSnapshot.size(), fromIndex + limit);
+		final List<DeathChest> page = new ArrayList<>(pageSnapshot.subList(fromIndex, toIndex));
+
+		// release the sorted copy after the last page
+		if (page.isEmpty()) {
+			pageSnapshot = null;
+		}
+		return page;
+	}
+
+
+	/**
+	 * Retrieve the block records of a set of chests from the datastore. Unlike {@link #getBlockRecords(Collection)},
+	 * a read error is thrown instead of logged, so a caller that must read every record can stop.
+	 *
+	 * @param chestUUIDs the UUIDs of the chests whose blocks to retrieve
+	 * @return List of ChestBlock, for the blocks of the chests in loaded worlds
+	 * @throws Exception if the block records could not be read
+	 */
+	abstract List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) throws Exception;
 
 
 	/**
 	 * Insert a block record in the datastore
 	 *
 	 * @param blockRecord the BlockChest object to insert in the datastore
+	 * @return a future completed on a datastore thread when the insert is durable
 	 */
-	abstract void putBlockRecord(final ChestBlock blockRecord);
+	abstract CompletableFuture<Void> putBlockRecord(final ChestBlock blockRecord);
 
 
 	/**
 	 * Delete a block record from the datastore
 	 *
 	 * @param chestBlock the chest block to delete
+	 * @return a future completed on a datastore thread when the delete is durable
+	 */
+	public abstract CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock);
+
+
+	/**
+	 * Retrieve a list of all chest records from the datastore on the datastore executor
+	 *
+	 * @param completionThread the thread to complete the future on
+	 * @return a future of List of DeathChest
+	 */
+	public final CompletableFuture<List<DeathChest>> getAllChestRecordsAsync(final CompletionThread completionThread) {
+		return readAsync(this::getAllChestRecords, completionThread);
+	}
+
+
+	/**
+	 * Retrieve a list of all chest records for an owner from the datastore on the datastore executor
+	 *
+	 * @param ownerUUID        the UUID of the chest owner
+	 * @param completionThread the thread to complete the future on
+	 * @return a future of List of DeathChest, ordered by expiration time
+	 */
+	public final CompletableFuture<List<DeathChest>> getChestRecordsByOwnerAsync(final UUID ownerUUID,
+																			   final CompletionThread completionThread) {
+		return readAsync(() -> getChestRecordsByOwner(ownerUUID), completionThread);
+	}
+
+
+	/**
+	 * Retrieve a list of chest records that expire before a given time from the datastore on the datastore executor
+	 *
+	 * @param expirationTime   the time in milliseconds since epoch
+	 * @param completionThread the thread to complete the future on
+	 * @return a future of List of DeathChest, ordered by expiration time
 	 */
-	public abstract void deleteBlockRecord(final ChestBlock chestBlock);
+	public final CompletableFuture<List<DeathChest>> getChestRecordsExpiringBeforeAsync(final long expirationTime,
+																					  final CompletionThread completionThread) {
+		return readAsync(() -> getChestRecordsExpiringBefore(expirationTime), completionThread);
+	}
+
+
+	/**
+	 * Retrieve the chest records of a set of chests from the datastore on the datastore executor
+	 *
+	 * @param chestUUIDs       the UUIDs of the chests to retrieve
+	 * @param completionThread the thread to complete the future on
+	 * @return a future of List of DeathChest, for the chests that exist in the datastore
+	 */
+	public final CompletableFuture<List<DeathChest>> getChestRecordsAsync(final Collection<UUID> chestUUIDs,
+																		final CompletionThread completionThread) {
+		return readAsync(() -> getChestRecords(chestUUIDs), completionThread);
+	}
+
+
+	/**
+	 * Retrieve the block records of a set of chests from the datastore on the datastore executor
+	 *
+	 * @param chestUUIDs       the UUIDs of the chests whose blocks to retrieve
+	 * @param completionThread the thread to complete the future on
+	 * @return a future of List of ChestBlock, for the blocks of the chests in loaded worlds
+	 */
+	public final CompletableFuture<List<ChestBlock>> getBlockRecordsAsync(final Collection<UUID> chestUUIDs,
+																		final CompletionThread completionThread) {
+		return readAsync(() -> getBlockRecords(chestUUIDs), completionThread);
+	}
+
+
+	/**
+	 * Run a blocking read on the datastore executor, and complete a future with its result on a completion thread
+	 *
+	 * @param read             the read to run
+	 * @param completionThread the thread to complete the future on
+	 * @param <T>              the type of the read result
+	 * @return a future of the read result, completed exceptionally if the read throws
+	 * or the datastore executor rejects it
+	 */
+	private <T> CompletableFuture<T> readAsync(final Supplier<T> read, final CompletionThread completionThread) {
+
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		try {
+			plugin.dataStoreExecutor.execute(() -> {
+				try {
+					future.complete(read.get());
+				}
+				catch (Exception e) {
+					future.completeExceptionally(e);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+
+		return completeOn(future, completionThread);
+	}
+
+
+	/**
+	 * Get a future that is completed on a completion thread when another future completes
+	 *
+	 * @param future           the future to follow
+	 * @param completionThread the thread to complete the returned future on
+	 * @param <T>              the type of the future result
+	 * @return a future completed with the same result or exception, on the completion thread
+	 */
+	public static <T> CompletableFuture<T> completeOn(final CompletableFuture<T> future,
+													  final CompletionThread completionThread) {
+
+		final CompletableFuture<T> result = new CompletableFuture<>();
+
+		future.whenComplete((value, throwable) -> completionThread.execute(plugin, () -> {
+			if (throwable != null) {
+				result.completeExceptionally(throwable);
+			}
+			else {
+				result.complete(value);
+			}
+		}));
+
+		return result;
+	}
+
+
+	/**
+	 * Get a future that is already completed exceptionally
+	 *
+	 * @param throwable the exception
+	 * @return the failed future
+	 */
+	static CompletableFuture<Void> failedFuture(final Throwable throwable) {
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+		future.completeExceptionally(throwable);
+		return future;
+	}
+
+
+	/**
+	 * Write a chunk of insert operations to the datastore, returning once they are committed.
+	 * Used by datastore conversion; datastores that commit batches override this to write
+	 * the whole chunk in a single transaction.
+	 *
+	 * @param writeOperations the insert operations to write
+	 * @throws Exception if the chunk could not be committed
+	 */
+	void putRecords(final List<WriteOperation> writeOperations) throws Exception {
+
+		for (WriteOperation writeOperation : writeOperations) {
+			switch (writeOperation.getType()) {
+				case PUT_CHEST:
+					putChestRecord(writeOperation.getDeathChest());
+					break;
+				case PUT_BLOCK:
+					putBlockRecord(writeOperation.getChestBlock());
+					break;
+				case DELETE_CHEST:
+					deleteChestRecord(writeOperation.getDeathChest());
+					break;
+				case DELETE_BLOCK:
+					deleteBlockRecord(writeOperation.getChestBlock());
+					break;
+			}
+		}
+		sync();
+	}
 
 
 	/**
@@ -106,6 +505,53 @@ public abstract class DataStore {
 	abstract boolean exists();
 
 
+	/**
+	 * Check if the datastore keeps its records across restarts
+	 *
+	 * @return {@code true} if the datastore is persistent, {@code false} if its records are lost when the server stops
+	 */
+	public boolean isPersistent() {
+		return true;
+	}
+
+
+	/**
+	 * Check if the datastore reads the records of a set of chests without reading all records,
+	 * as lazy loading requires when chests are loaded with each chunk
+	 *
+	 * @return {@code true} if chest and block records are indexed by chest, {@code false} if not
+	 */
+	public boolean hasChestIndex() {
+		return false;
+	}
+
+
+	/**
+	 * Check if the datastore can be backed up while it remains in use
+	 *
+	 * @return {@code true} if the datastore supports online backup, {@code false} if not
+	 */
+	boolean supportsBackup() {
+		return false;
+	}
+
+
+	/**
+	 * Write a consistent copy of the datastore to the backup folder while the datastore remains in use.
+	 * Called only if {@link #supportsBackup()} returns {@code true}; datastore types that cannot be
+	 * copied while in use do not override this method.
+	 *
+	 * @param backupFolder the folder to write the backup to
+	 * @param backupName   the backup filename, without extension
+	 * @return the backup file or folder
+	 * @throws Exception if the backup could not be written
+	 * @throws UnsupportedOperationException if the datastore type does not support online backup
+	 */
+	File backup(final File backupFolder, final String backupName) throws Exception {
+		throw new UnsupportedOperationException(getName() + " datastore does not support online backup.");
+	}
+
+
 	/**
 	 * Check if the datastore is initialized
 	 *
@@ -159,7 +605,8 @@ public abstract class DataStore {
 	/**
 	 * Create new data store of given type.<br>
 	 * No parameter version used when no current datastore exists
-	 * and datastore type should be read from configuration
+	 * and datastore type should be read from configuration. Write operations spilled
+	 * at the last shutdown are replayed into the new datastore.
 	 *
 	 * @return new datastore of configured type
 	 */
@@ -170,7 +617,12 @@ public abstract class DataStore {
 		if (dataStoreType == null) {
 			dataStoreType = DataStoreType.getDefaultType();
 		}
-		return create(dataStoreType, null);
+		DataStore newDataStore = create(dataStoreType, null);
+
+		// replay write operations that could not be committed before the last shutdown
+		SpillFile.replay(plugin, newDataStore);
+
+		return newDataStore;
 	}
 
 
@@ -184,6 +636,30 @@ public abstract class DataStore {
 	 */
 	private static DataStore create(final DataStoreType dataStoreType, final DataStore oldDataStore) {
 
+		// get new initialized data store of specified type
+		DataStore newDataStore = createInitialized(dataStoreType);
+
+		// if old data store was passed, convert to new data store
+		if (oldDataStore != null) {
+			convert(oldDataStore, newDataStore);
+		}
+		else {
+			convertAll(newDataStore);
+		}
+
+		// return initialized data store
+		return newDataStore;
+	}
+
+
+	/**
+	 * Create and initialize a new data store of given type
+	 *
+	 * @param dataStoreType new datastore type
+	 * @return the new datastore
+	 */
+	private static DataStore createInitialized(final DataStoreType dataStoreType) {
+
 		// get new data store of specified type
 		DataStore newDataStore = dataStoreType.create();
 
@@ -198,24 +674,20 @@ public abstract class DataStore {
 			}
 		}
 
-		// if old data store was passed, convert to new data store
-		if (oldDataStore != null) {
-			convert(oldDataStore, newDataStore);
-		}
-		else {
-			convertAll(newDataStore);
-		}
-
-		// return initialized data store
 		return newDataStore;
 	}
 
 
 	/**
 	 * Check if a new datastore type has been configured, and
-	 * convert old datastore to new type if necessary
+	 * convert old datastore to new type if necessary.<br>
+	 * The new datastore replaces the old one immediately, and the old datastore is converted on the
+	 * datastore executor, so the main thread is not blocked for the length of the conversion.
+	 *
+	 * @return a future completed on the executor thread when the conversion has finished,
+	 * or already completed if the datastore type has not changed
 	 */
-	public static void reload() {
+	public static CompletableFuture<Void> reload() {
 
 		// get current datastore type
 		DataStoreType currentType = plugin.dataStore.getType();
@@ -226,9 +698,34 @@ public abstract class DataStore {
 		// if current datastore type does not match configured datastore type, create new datastore
 		if (!currentType.equals(newType)) {
 
-			// create new datastore
-			plugin.dataStore = create(newType, plugin.dataStore);
+			// create new datastore and make it current
+			final DataStore oldDataStore = plugin.dataStore;
+			final DataStore newDataStore = createInitialized(newType);
+			plugin.dataStore = newDataStore;
+
+			// convert old datastore to new datastore
+			final CompletableFuture<Void> future = new CompletableFuture<>();
+			final Runnable task = () -> {
+				try {
+					convert(oldDataStore, newDataStore);
+					future.complete(null);
+				}
+				catch (Exception e) {
+					future.completeExceptionally(e);
+				}
+			};
+
+			// the conversion must run, so if the datastore executor is busy, run it on the server's scheduler
+			try {
+				plugin.dataStoreExecutor.execute(task);
+			}
+			catch (RejectedExecutionException e) {
+				plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+			}
+			return future;
 		}
+
+		return CompletableFuture.completedFuture(null);
 	}
 
 
@@ -245,6 +742,16 @@ public abstract class DataStore {
 			return;
 		}
 
+		// if new datastore does not keep records across restarts, leave old datastore file in place
+		if (!newDataStore.isPersistent()) {
+			if (oldDataStore.exists()) {
+				plugin.getLogger().info("Existing " + oldDataStore.getName() + " datastore was not converted to "
+						+ newDataStore.getName() + " datastore, and has been left in place.");
+			}
+			oldDataStore.close();
+			return;
+		}
+
 		// if old datastore file exists, attempt to read all records
 		if (oldDataStore.exists()) {
 
@@ -264,38 +771,16 @@ public abstract class DataStore {
 				}
 			}
 
-			Collection<DeathChest> allChestRecords = oldDataStore.getAllChestRecords();
-
-			Iterator<DeathChest> chestIterator = allChestRecords.iterator();
-
-			int recordCount = 0;
-
-			while (chestIterator.hasNext()) {
-				newDataStore.putChestRecord(chestIterator.next());
-				recordCount++;
-			}
-
-			plugin.getLogger().info(recordCount + " records converted to "
-					+ newDataStore.getName() + " datastore.");
-
-			Collection<ChestBlock> allBlockRecords = oldDataStore.getAllBlockRecords();
-
-			Iterator<ChestBlock> blockIterator = allBlockRecords.iterator();
-
-			recordCount = 0;
-
-			while (blockIterator.hasNext()) {
-				newDataStore.putBlockRecord(blockIterator.next());
-				recordCount++;
-			}
-
-			plugin.getLogger().info(recordCount + " records converted to "
-					+ newDataStore.getName() + " datastore.");
+			// stream records from old datastore to new datastore in chunks
+			boolean converted = new DataStoreConversion(plugin, oldDataStore, newDataStore).run();
 
 			newDataStore.sync();
 
+			// if conversion was interrupted, keep old datastore so conversion can resume
 			oldDataStore.close();
-			oldDataStore.delete();
+			if (converted) {
+				oldDataStore.delete();
+			}
 		}
 	}
 
@@ -311,19 +796,12 @@ public abstract class DataStore {
 		ArrayList<DataStoreType> dataStores = new ArrayList<>(Arrays.asList(DataStoreType.values()));
 
 		// remove newDataStore from list of types to convert
-		//noinspection SuspiciousMethodCalls
-		dataStores.remove(newDataStore);
+		dataStores.remove(newDataStore.getType());
 
 		for (DataStoreType type : dataStores) {
 
-			// create oldDataStore holder
-			DataStore oldDataStore = null;
-
-			if (type.equals(DataStoreType.SQLITE)) {
-				oldDataStore = new DataStoreSQLite(plugin);
-			}
-
-			// add additional datastore types here as they become available
+			// create oldDataStore of type
+			DataStore oldDataStore = type.create();
 
 			if (oldDataStore != null && oldDataStore.exists()) {
 				convert(oldDataStore, newDataStore);
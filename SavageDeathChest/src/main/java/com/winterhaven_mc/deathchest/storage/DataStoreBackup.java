@@ -0,0 +1,275 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+
+/**
+ * A class that manages online backups of the current datastore.<br>
+ * Backups are written on an asynchronous task while the datastore remains in use, on demand or on a
+ * configured schedule, to the backups folder. Only the most recent configured number of backups are kept.
+ */
+public final class DataStoreBackup {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// name of backups folder in plugin data folder
+	private static final String BACKUP_FOLDER = "backups";
+
+	// prefix of backup file names
+	private static final String BACKUP_PREFIX = "deathchests-";
+
+	// true while a backup is being written
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	// repeating task to back up the datastore
+	private BackupTask backupTask;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public DataStoreBackup(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+	}
+
+
+	/**
+	 * Start repeating asynchronous backup task, if enabled in config.
+	 * A running backup task is stopped first, so this method also applies a changed backup interval.
+	 */
+	public final void start() {
+
+		// stop existing backup task
+		stop();
+
+		// get backup interval in minutes from config
+		long interval = plugin.getConfig().getLong("storage.backup-interval", 0);
+
+		// if interval is zero or negative, backup task is disabled
+		if (interval <= 0) {
+			return;
+		}
+
+		long ticks = TimeUnit.MINUTES.toSeconds(interval) * 20;
+		backupTask = new BackupTask(this);
+		backupTask.runTaskTimerAsynchronously(plugin, ticks, ticks);
+	}
+
+
+	/**
+	 * Stop repeating backup task
+	 */
+	public final void stop() {
+		if (backupTask != null) {
+			backupTask.cancel();
+			backupTask = null;
+		}
+	}
+
+
+	/**
+	 * Back up the datastore on the datastore executor
+	 *
+	 * @param sender the command sender to report the result to
+	 * @return {@code true} if a backup was started, {@code false} if a backup is already being written
+	 * @throws RejectedExecutionException if the datastore executor is busy
+	 */
+	public final boolean backupAsync(final CommandSender sender) {
+
+		// allow only one backup at a time
+		if (!running.compareAndSet(false, true)) {
+			return false;
+		}
+
+		try {
+			plugin.dataStoreExecutor.execute(() -> {
+				try {
+					writeBackup(sender);
+				}
+				finally {
+					running.set(false);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			running.set(false);
+			throw e;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Back up the datastore on the calling thread, then remove old backups.
+	 * If a backup is already being written, no backup is made.
+	 *
+	 * @param sender the command sender to report the result to, or null to report the result only in the log
+	 */
+	final void backup(final CommandSender sender) {
+
+		// allow only one backup at a time
+		if (!running.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			writeBackup(sender);
+		}
+		finally {
+			running.set(false);
+		}
+	}
+
+
+	/**
+	 * Back up the datastore on the calling thread, then remove old backups
+	 *
+	 * @param sender the command sender to report the result to, or null to report the result only in the log
+	 */
+	private void writeBackup(final CommandSender sender) {
+
+		final DataStore dataStore = plugin.dataStore;
+
+		// if datastore type cannot be backed up while in use, report and return
+		if (!dataStore.supportsBackup()) {
+			final String message = dataStore.getName() + " datastore does not support online backup.";
+			plugin.getLogger().warning(message);
+			report(sender, ChatColor.RED + message);
+			return;
+		}
+
+		try {
+			final File backupFolder = new File(plugin.getDataFolder(), BACKUP_FOLDER);
+			if (!backupFolder.isDirectory() && !backupFolder.mkdirs()) {
+				throw new IOException("Could not create backup folder " + backupFolder.getPath() + ".");
+			}
+
+			final String backupName = BACKUP_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+			// write backup
+			final long startTime = System.nanoTime();
+			final File backupFile = dataStore.backup(backupFolder, backupName);
+			final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+			// remove backups beyond configured number to keep
+			removeOldBackups(backupFolder);
+
+			String message = dataStore.getName() + " datastore backed up to "
+					+ BACKUP_FOLDER + File.separator + backupFile.getName() + " in " + elapsed + " ms.";
+			plugin.getLogger().info(message);
+			report(sender, ChatColor.GREEN + message);
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while backing up the " + dataStore.getName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			report(sender, ChatColor.RED + "The " + dataStore.getName() + " datastore backup failed. See the server log for details.");
+		}
+	}
+
+
+	/**
+	 * Delete backups beyond the configured number to keep, oldest first
+	 *
+	 * @param backupFolder the backups folder
+	 */
+	private void removeOldBackups(final File backupFolder) {
+
+		// get number of backups to keep from config
+		int keep = plugin.getConfig().getInt("storage.backup-keep", 5);
+
+		// if keep is zero or negative, all backups are kept
+		if (keep <= 0) {
+			return;
+		}
+
+		File[] backupFiles = backupFolder.listFiles((dir, name) ->
+				name.startsWith(BACKUP_PREFIX) && !name.endsWith(".tmp"));
+		if (backupFiles == null || backupFiles.length <= keep) {
+			return;
+		}
+
+		// backup names begin with their timestamp, so sorting by name sorts newest first
+		Arrays.sort(backupFiles, Comparator.comparing(File::getName).reversed());
+
+		for (int i = keep; i < backupFiles.length; i++) {
+			try {
+				deleteRecursively(backupFiles[i].toPath());
+				if (plugin.debug) {
+					plugin.getLogger().info("Removed old backup " + backupFiles[i].getName() + ".");
+				}
+			}
+			catch (IOException e) {
+				plugin.getLogger().warning("Could not remove old backup " + backupFiles[i].getName() + ".");
+			}
+		}
+	}
+
+
+	/**
+	 * Delete a backup file, or a backup folder and its contents
+	 *
+	 * @param path the backup file or folder
+	 * @throws IOException if the backup could not be deleted
+	 */
+	static void deleteRecursively(final Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> children = Files.list(path)) {
+				for (Path child : (Iterable<Path>) children::iterator) {
+					deleteRecursively(child);
+				}
+			}
+		}
+		Files.deleteIfExists(path);
+	}
+
+
+	/**
+	 * Send a backup result message to a command sender on the main thread. The console is not sent
+	 * the message, because the result is already in the log.
+	 *
+	 * @param sender  the command sender, or null
+	 * @param message the message to send
+	 */
+	private void report(final CommandSender sender, final String message) {
+
+		if (sender == null || sender instanceof ConsoleCommandSender || !plugin.isEnabled()) {
+			return;
+		}
+
+		new BukkitRunnable() {
+			@Override
+			public void run() {
+				sender.sendMessage(message);
+			}
+		}.runTask(plugin);
+	}
+
+}
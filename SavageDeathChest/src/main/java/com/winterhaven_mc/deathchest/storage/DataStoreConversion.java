@@ -0,0 +1,326 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A class that converts the records of one datastore to another.<br>
+ * Chest records are read from the old datastore in pages, in chest UUID order, and each page is written
+ * to the new datastore with the block records of its chests as a single batch. After each chunk a checkpoint
+ * file records the UUID of the last chest converted, so a conversion that is interrupted resumes after that
+ * chest when it is next run, however the records of the old datastore have changed in between. Chests deleted
+ * from the new datastore while the conversion runs are left out, and their deletes are replayed into both
+ * datastores when the conversion ends, so a conversion running alongside the game does not bring them back.
+ */
+final class DataStoreConversion {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// the datastore to convert from
+	private final DataStore oldDataStore;
+
+	// the datastore to convert to
+	private final DataStore newDataStore;
+
+	// number of chests written in each chunk
+	private final int chunkSize;
+
+	// interval in nanoseconds between progress messages
+	private final long progressInterval;
+
+	// conversion checkpoint file
+	private final File checkpointFile;
+
+	// checkpoint property keys
+	private static final String SOURCE = "source";
+	private static final String TARGET = "target";
+	private static final String LAST_CHEST = "last-chest";
+	private static final String CHESTS = "chests";
+	private static final String BLOCKS = "blocks";
+
+	// UUID of last chest committed to new datastore, or null if no chest has been committed
+	private UUID lastChestUUID;
+
+	// number of chest records committed to new datastore, including records committed before a resume
+	private long chestCount;
+
+	// number of block records committed to new datastore, including records committed before a resume
+	private long blockCount;
+
+	// number of records written by this run
+	private long writtenCount;
+
+	// start time of this run, in nanoseconds
+	private long startTime;
+
+	// time of last progress message, in nanoseconds
+	private long lastProgressTime;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin       reference to main class
+	 * @param oldDataStore the datastore to convert from
+	 * @param newDataStore the datastore to convert to
+	 */
+	DataStoreConversion(final PluginMain plugin, final DataStore oldDataStore, final DataStore newDataStore) {
+
+		this.plugin = plugin;
+		this.oldDataStore = oldDataStore;
+		this.newDataStore = newDataStore;
+
+		// get conversion settings from config, substituting defaults for invalid values
+		int configChunkSize = plugin.getConfig().getInt("storage.convert-chunk-size", 1000);
+		if (configChunkSize < 1) {
+			configChunkSize = 1000;
+		}
+		this.chunkSize = configChunkSize;
+
+		long configProgressInterval = plugin.getConfig().getLong("storage.convert-progress-interval", 5);
+		if (configProgressInterval < 1) {
+			configProgressInterval = 5;
+		}
+		this.progressInterval = TimeUnit.SECONDS.toNanos(configProgressInterval);
+
+		this.checkpointFile = getCheckpointFile(plugin);
+	}
+
+
+	/**
+	 * Get the conversion checkpoint file
+	 *
+	 * @param plugin reference to main class
+	 * @return the checkpoint file
+	 */
+	private static File getCheckpointFile(final PluginMain plugin) {
+		return new File(plugin.getDataFolder() + File.separator + "convert.checkpoint");
+	}
+
+
+	/**
+	 * Check if a conversion has been interrupted and will resume when next run
+	 *
+	 * @param plugin reference to main class
+	 * @return {@code true} if a conversion checkpoint exists, {@code false} if not
+	 */
+	static boolean isInterrupted(final PluginMain plugin) {
+		return getCheckpointFile(plugin).exists();
+	}
+
+
+	/**
+	 * Convert all chest and block records, resuming from a checkpoint left by an interrupted conversion
+	 * between the same two datastore types
+	 *
+	 * @return {@code true} if all records were converted, {@code false} if the conversion failed
+	 */
+	final boolean run() {
+
+		startTime = System.nanoTime();
+		lastProgressTime = startTime;
+
+		// read checkpoint
+		Properties checkpoint = readCheckpoint();
+		if (checkpoint.containsKey(LAST_CHEST)) {
+			lastChestUUID = UUID.fromString(checkpoint.getProperty(LAST_CHEST));
+			chestCount = Long.parseLong(checkpoint.getProperty(CHESTS, "0"));
+			blockCount = Long.parseLong(checkpoint.getProperty(BLOCKS, "0"));
+			plugin.getLogger().info("Resuming interrupted conversion after " + chestCount + " chests.");
+		}
+
+		// remember chests deleted from new datastore while conversion runs
+		newDataStore.startConversionDeletes();
+
+		boolean converted;
+		try {
+			convertChests();
+
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			plugin.getLogger().info(chestCount + " chest records and " + blockCount + " block records converted to "
+					+ newDataStore.getName() + " datastore in " + elapsed + " ms ("
+					+ rate(writtenCount, elapsed) + " records/s).");
+			converted = true;
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while converting the " + oldDataStore.getName()
+					+ " datastore. Conversion will resume after the " + chestCount + " chests already converted.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			converted = false;
+		}
+
+		// replay chests deleted during conversion, which may have been converted after they were deleted;
+		// the old datastore is kept if the conversion is interrupted, so delete them there too
+		final Collection<DeathChest> deletedChests = newDataStore.stopConversionDeletes();
+		if (!deletedChests.isEmpty()) {
+			newDataStore.deleteChestRecords(deletedChests);
+			oldDataStore.deleteChestRecords(deletedChests);
+		}
+
+		// conversion is complete; remove checkpoint
+		if (converted) {
+			//noinspection ResultOfMethodCallIgnored
+			checkpointFile.delete();
+		}
+		return converted;
+	}
+
+
+	/**
+	 * Read chest records from the old datastore a page at a time, after the last chest converted, and write
+	 * each page with the block records of its chests to the new datastore
+	 *
+	 * @throws Exception if records could not be read or a chunk could not be written
+	 */
+	private void convertChests() throws Exception {
+
+		List<DeathChest> page;
+		while (!(page = oldDataStore.readChestRecordPage(lastChestUUID, chunkSize)).isEmpty()) {
+
+			// leave out chests deleted since the conversion started
+			final List<UUID> chestUUIDs = new ArrayList<>(page.size());
+			final List<WriteOperation> chunk = new ArrayList<>();
+			for (DeathChest deathChest : page) {
+				if (!newDataStore.isConversionDelete(deathChest.getChestUUID())) {
+					chestUUIDs.add(deathChest.getChestUUID());
+					chunk.add(new WriteOperation(WriteOperationType.PUT_CHEST, deathChest));
+				}
+			}
+
+			// add block records of chunk chests, after their chest records
+			final int chestRecords = chunk.size();
+			for (ChestBlock chestBlock : oldDataStore.readBlockRecords(chestUUIDs)) {
+				chunk.add(new WriteOperation(WriteOperationType.PUT_BLOCK, chestBlock));
+			}
+
+			writeChunk(chunk, chestRecords, page.get(page.size() - 1).getChestUUID());
+		}
+	}
+
+
+	/**
+	 * Commit a chunk to the new datastore, then save a checkpoint and report progress
+	 *
+	 * @param chunk         the chest and block records to commit, as write operations
+	 * @param chestRecords  the number of chest records in the chunk
+	 * @param lastChestUUID the UUID of the last chest of the page the chunk was read from
+	 * @throws Exception if the chunk could not be committed
+	 */
+	private void writeChunk(final List<WriteOperation> chunk, final int chestRecords, final UUID lastChestUUID)
+			throws Exception {
+
+		// commit chunk
+		if (!chunk.isEmpty()) {
+			newDataStore.putRecords(chunk);
+		}
+		chestCount += chestRecords;
+		blockCount += chunk.size() - chestRecords;
+		writtenCount += chunk.size();
+		this.lastChestUUID = lastChestUUID;
+
+		// save checkpoint
+		writeCheckpoint();
+
+		// report progress
+		long now = System.nanoTime();
+		if (now - lastProgressTime >= progressInterval) {
+			lastProgressTime = now;
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(now - startTime);
+			plugin.getLogger().info("Converting: " + chestCount + " chests and " + blockCount
+					+ " blocks converted (" + rate(writtenCount, elapsed) + " records/s).");
+		}
+	}
+
+
+	/**
+	 * Read the checkpoint file. A checkpoint left by a conversion between other datastore types, or by an
+	 * earlier version that recorded its progress as a record count, is ignored.
+	 *
+	 * @return the checkpoint properties, empty if there is no matching checkpoint
+	 */
+	private Properties readCheckpoint() {
+
+		Properties properties = new Properties();
+
+		if (!checkpointFile.exists()) {
+			return properties;
+		}
+
+		try (InputStream inputStream = new FileInputStream(checkpointFile)) {
+			properties.load(inputStream);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("Could not read conversion checkpoint; conversion will start from the beginning.");
+			return new Properties();
+		}
+
+		// ignore checkpoint for a different conversion
+		if (!oldDataStore.getName().equals(properties.getProperty(SOURCE))
+				|| !newDataStore.getName().equals(properties.getProperty(TARGET))) {
+			return new Properties();
+		}
+
+		// ignore checkpoint with invalid values; converted records are written again, which is harmless
+		try {
+			UUID.fromString(properties.getProperty(LAST_CHEST));
+			Long.parseLong(properties.getProperty(CHESTS, "0"));
+			Long.parseLong(properties.getProperty(BLOCKS, "0"));
+		}
+		catch (NullPointerException | IllegalArgumentException e) {
+			return new Properties();
+		}
+
+		return properties;
+	}
+
+
+	/**
+	 * Write the checkpoint file, replacing the previous checkpoint atomically
+	 *
+	 * @throws IOException if the checkpoint could not be written
+	 */
+	private void writeCheckpoint() throws IOException {
+
+		Properties properties = new Properties();
+		properties.setProperty(SOURCE, oldDataStore.getName());
+		properties.setProperty(TARGET, newDataStore.getName());
+		properties.setProperty(LAST_CHEST, lastChestUUID.toString());
+		properties.setProperty(CHESTS, String.valueOf(chestCount));
+		properties.setProperty(BLOCKS, String.valueOf(blockCount));
+
+		File tempFile = new File(checkpointFile.getPath() + ".tmp");
+		try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+			properties.store(outputStream, "SavageDeathChest datastore conversion checkpoint");
+		}
+		Files.move(tempFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+
+	/**
+	 * Get a record rate
+	 *
+	 * @param count   the number of records
+	 * @param elapsed the elapsed time in milliseconds
+	 * @return the number of records per second
+	 */
+	private static long rate(final long count, final long elapsed) {
+		return count * 1000 / Math.max(1, elapsed);
+	}
+
+}
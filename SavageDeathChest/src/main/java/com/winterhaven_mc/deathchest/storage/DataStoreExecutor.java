@@ -0,0 +1,357 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * An executor for datastore tasks, so that datastore reads, conversions and backups do not share
+ * the server's asynchronous scheduler with other plugins. On Java 21 or later each task runs on its
+ * own virtual thread; on earlier versions tasks run on a fixed pool of daemon platform threads.
+ * Either way, no more than the configured number of tasks run at once, and no more than the configured
+ * number wait to run. When the limit of waiting tasks is reached, a task submitted from the main thread is rejected,
+ * so the server tick is never delayed by a datastore task; a task submitted from any other thread runs on that thread.
+ */
+public final class DataStoreExecutor implements Executor {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// the underlying executor
+	private final ExecutorService executor;
+
+	// true if tasks run on virtual threads
+	private final boolean virtual;
+
+	// maximum number of tasks running at once
+	private final int maxThreads;
+
+	// maximum number of tasks waiting to run
+	private final int maxQueued;
+
+	// limits the number of tasks running at once on virtual threads
+	private final Semaphore permits;
+
+	// number of tasks waiting to run, running, and completed
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+
+	// highest number of tasks waiting to run at once
+	private final AtomicInteger peakQueued = new AtomicInteger();
+
+	// number of tasks run on the submitting thread because the limit of waiting tasks was reached
+	private final AtomicLong callerRuns = new AtomicLong();
+
+	// number of tasks submitted from the main thread that were rejected because the limit of waiting tasks was reached
+	private final AtomicLong rejected = new AtomicLong();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public DataStoreExecutor(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// get executor settings from config, substituting defaults for invalid values
+		int configThreads = plugin.getConfig().getInt("storage.executor-threads", 4);
+		if (configThreads < 1) {
+			configThreads = 4;
+		}
+		this.maxThreads = configThreads;
+
+		int configQueueSize = plugin.getConfig().getInt("storage.executor-queue-size", 1000);
+		if (configQueueSize < 1) {
+			configQueueSize = 1000;
+		}
+		this.maxQueued = configQueueSize;
+
+		// use virtual threads if enabled and supported by the running Java version
+		ExecutorService virtualExecutor = null;
+		if (plugin.getConfig().getBoolean("storage.virtual-threads", true)) {
+			virtualExecutor = createVirtualExecutor(plugin.getName() + " datastore-");
+		}
+
+		if (virtualExecutor != null) {
+			this.executor = virtualExecutor;
+			this.virtual = true;
+			this.permits = new Semaphore(maxThreads);
+		}
+		else {
+			this.executor = createPlatformExecutor(plugin.getName() + " datastore-", maxThreads);
+			this.virtual = false;
+			this.permits = null;
+		}
+
+		// output debugging information
+		if (plugin.debug) {
+			plugin.getLogger().info("Datastore executor started with " + maxThreads + " "
+					+ getThreadType() + ".");
+		}
+	}
+
+
+	/**
+	 * Create an executor that starts a named virtual thread for each task. Virtual threads were added in
+	 * Java 21, so they are created by reflection, and the plugin can still be built for and run on Java 8.
+	 *
+	 * @param namePrefix the prefix of thread names, followed by a counter
+	 * @return the executor, or null if virtual threads are not supported
+	 */
+	private static ExecutorService createVirtualExecutor(final String namePrefix) {
+
+		try {
+			// Thread.ofVirtual().name(namePrefix, 0).factory()
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+			ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+			// Executors.newThreadPerTaskExecutor(threadFactory)
+			Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+		}
+		catch (ReflectiveOperationException | ClassCastException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Create an executor with a fixed pool of named daemon platform threads
+	 *
+	 * @param namePrefix the prefix of thread names, followed by a counter
+	 * @param threads    the number of threads in the pool
+	 * @return the executor
+	 */
+	private static ExecutorService createPlatformExecutor(final String namePrefix, final int threads) {
+
+		final AtomicInteger threadCount = new AtomicInteger();
+
+		// waiting tasks are limited before they are submitted, so the pool queue need not be bounded
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, namePrefix + threadCount.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+
+	/**
+	 * Run a datastore task. If the executor has been shut down, the task runs on the calling thread.
+	 * If the limit of waiting tasks has been reached, a task submitted from the main thread is rejected,
+	 * and a task submitted from any other thread runs on that thread.
+	 *
+	 * @param task the task to run
+	 * @throws RejectedExecutionException if the limit of waiting tasks has been reached and the calling thread
+	 *                                    is the main thread
+	 */
+	@Override
+	public final void execute(final Runnable task) {
+
+		// if executor has been shut down, run task on calling thread
+		if (executor.isShutdown()) {
+			task.run();
+			return;
+		}
+
+		// if limit of waiting tasks has been reached, reject task submitted from main thread,
+		// or run task on calling thread
+		final int queuedCount = queued.incrementAndGet();
+		if (queuedCount > maxQueued) {
+			queued.decrementAndGet();
+			if (plugin.getServer().isPrimaryThread()) {
+				rejected.incrementAndGet();
+				throw new RejectedExecutionException("Datastore executor queue is full.");
+			}
+			callerRuns.incrementAndGet();
+			plugin.getLogger().warning("Datastore executor queue is full; running a datastore task on the "
+					+ Thread.currentThread().getName() + " thread.");
+			task.run();
+			return;
+		}
+		peakQueued.accumulateAndGet(queuedCount, Math::max);
+
+		try {
+			executor.execute(() -> run(task));
+		}
+		catch (RejectedExecutionException e) {
+
+			// executor was shut down after it was checked, so run task on calling thread
+			queued.decrementAndGet();
+			task.run();
+		}
+	}
+
+
+	/**
+	 * Run a task on an executor thread, waiting for a permit first if tasks run on virtual threads
+	 *
+	 * @param task the task to run
+	 */
+	private void run(final Runnable task) {
+
+		if (permits != null) {
+			try {
+				permits.acquire();
+			}
+			catch (InterruptedException e) {
+				queued.decrementAndGet();
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+
+		queued.decrementAndGet();
+		active.incrementAndGet();
+		try {
+			task.run();
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred in a datastore task.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		finally {
+			active.decrementAndGet();
+			completed.incrementAndGet();
+			if (permits != null) {
+				permits.release();
+			}
+		}
+	}
+
+
+	/**
+	 * Stop accepting tasks, and wait for tasks already submitted to finish. Tasks submitted
+	 * after this method is called run on the calling thread.
+	 *
+	 * @param timeout the maximum time in milliseconds to wait, or zero to wait without limit
+	 * @return {@code true} if all tasks finished, {@code false} if the timeout elapsed first
+	 */
+	public final boolean shutdown(final long timeout) {
+
+		executor.shutdown();
+
+		try {
+			if (timeout == 0) {
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					// keep waiting
+				}
+				return true;
+			}
+			return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+
+	/**
+	 * Get a description of the type of threads tasks run on
+	 *
+	 * @return "virtual threads" or "platform threads"
+	 */
+	public final String getThreadType() {
+		return virtual ? "virtual threads" : "platform threads";
+	}
+
+
+	/**
+	 * Get the number of tasks waiting to run
+	 *
+	 * @return the number of waiting tasks
+	 */
+	public final int getQueuedCount() {
+		return queued.get();
+	}
+
+
+	/**
+	 * Get the highest number of tasks that have waited to run at once
+	 *
+	 * @return the peak number of waiting tasks
+	 */
+	public final int getPeakQueuedCount() {
+		return peakQueued.get();
+	}
+
+
+	/**
+	 * Get the number of tasks running
+	 *
+	 * @return the number of running tasks
+	 */
+	public final int getActiveCount() {
+		return active.get();
+	}
+
+
+	/**
+	 * Get the number of tasks that have finished
+	 *
+	 * @return the number of completed tasks
+	 */
+	public final long getCompletedCount() {
+		return completed.get();
+	}
+
+
+	/**
+	 * Get the number of tasks that ran on the submitting thread because the limit of waiting tasks was reached
+	 *
+	 * @return the number of tasks run on the submitting thread
+	 */
+	public final long getCallerRunsCount() {
+		return callerRuns.get();
+	}
+
+
+	/**
+	 * Get the number of tasks submitted from the main thread that were rejected because the limit
+	 * of waiting tasks was reached
+	 *
+	 * @return the number of rejected tasks
+	 */
+	public final long getRejectedCount() {
+		return rejected.get();
+	}
+
+
+	/**
+	 * Get the maximum number of tasks running at once
+	 *
+	 * @return the configured thread limit
+	 */
+	public final int getMaxThreads() {
+		return maxThreads;
+	}
+
+
+	/**
+	 * Get the maximum number of tasks waiting to run
+	 *
+	 * @return the configured queue size
+	 */
+	public final int getMaxQueued() {
+		return maxQueued;
+	}
+
+}
@@ -0,0 +1,779 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+
+/**
+ * Embedded H2 implementation of Datastore
+ * for persistent storage of death chests and chest block objects.<br>
+ * The database is opened in file mode. H2's MVStore engine uses multi-version concurrency control,
+ * so readers on pooled connections are not blocked by the write queue thread's open transaction.
+ */
+final class DataStoreH2 extends DataStore implements BatchWriter {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// queries properties file for H2 dialect
+	private static final String queryFileName = "queries-h2.properties";
+
+	// database connection pool
+	private ConnectionPool connectionPool;
+
+	// single writer thread queue for all insert and delete operations
+	private WriteQueue writeQueue;
+
+	// number of rows fetched from the database at a time when streaming records
+	private int fetchSize;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreH2(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.H2;
+
+		// set filename
+		this.filename = "deathchests.mv.db";
+	}
+
+
+	/**
+	 * Initialize the connection pool and
+	 * create tables if they don't already exist
+	 */
+	@Override
+	final void initialize() throws SQLException, ClassNotFoundException {
+
+		// register the driver; the class name is relocated with the bundled H2 classes when the jar is shaded
+		final String jdbcDriverName = "org.h2.Driver";
+
+		Class.forName(jdbcDriverName);
+
+		// create database url; H2 appends the .mv.db extension to the database name
+		String deathChestsDb = plugin.getDataFolder().getAbsolutePath() + File.separator + "deathchests";
+		String dbUrl = "jdbc:h2:file:" + deathChestsDb + ";DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=10000";
+
+		// get pool size and fetch size from config, substituting defaults for invalid values
+		int poolSize = plugin.getConfig().getInt("storage.h2-pool-size", 4);
+		if (poolSize < 2) {
+			poolSize = 4;
+		}
+		fetchSize = Math.max(1, plugin.getConfig().getInt("storage.fetch-size", 1000));
+
+		// create connection pool
+		connectionPool = new ConnectionPool(dbUrl, poolSize, 10000);
+
+		// create tables and indexes
+		Connection connection = connectionPool.borrow();
+		try (Statement statement = connection.createStatement()) {
+			statement.executeUpdate(getQuery("CreateDeathChestTable"));
+			statement.executeUpdate(getQuery("CreateDeathBlockTable"));
+			statement.executeUpdate(getQuery("CreateChestOwnerIndex"));
+			statement.executeUpdate(getQuery("CreateChestExpirationIndex"));
+			statement.executeUpdate(getQuery("CreateBlockChestIndex"));
+		}
+		finally {
+			connectionPool.release(connection);
+		}
+
+		// start writer thread
+		writeQueue = new WriteQueue(plugin, this.getName(), this);
+		writeQueue.start();
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized.");
+	}
+
+
+	/**
+	 * Get a query from the H2 queries properties file
+	 *
+	 * @param query the query name
+	 * @return the query string
+	 * @throws SQLException if the queries properties file could not be loaded
+	 */
+	private static String getQuery(final String query) throws SQLException {
+		return Queries.getQuery(queryFileName, query);
+	}
+
+
+	@Override
+	public final int forEachChestRecord(final Consumer<DeathChest> consumer) {
+		return readChestRecords("SelectAllChests", null, consumer);
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		// if passed ownerUUID is null, return empty list
+		if (ownerUUID == null) {
+			return results;
+		}
+
+		readChestRecords("SelectChestsByOwner", ownerUUID, results::add);
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime) {
+		final List<DeathChest> results = new ArrayList<>();
+		readChestRecords("SelectChestsExpiringBefore", expirationTime, results::add);
+		return results;
+	}
+
+
+	/**
+	 * Execute a chest record query on a pooled connection and pass each chest record to a consumer.
+	 * A read error is logged.
+	 *
+	 * @param queryName the name of the query
+	 * @param parameter the query parameter, or null if the query has no parameter
+	 * @param consumer  the consumer to receive each chest record
+	 * @return the number of chest records passed to the consumer
+	 */
+	private int readChestRecords(final String queryName, final Object parameter, final Consumer<DeathChest> consumer) {
+
+		int count = 0;
+
+		try {
+			count = queryChestRecords(queryName, consumer, parameter == null ? new Object[0] : new Object[]{parameter});
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch chest records from the H2 database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+
+		if (plugin.debug) {
+			plugin.getLogger().info(count + " chest records fetched from H2 datastore.");
+		}
+		return count;
+	}
+
+
+	/**
+	 * Execute a chest record query on a pooled connection and pass each chest record to a consumer
+	 *
+	 * @param queryName  the name of the query
+	 * @param consumer   the consumer to receive each chest record
+	 * @param parameters the query parameters
+	 * @return the number of chest records passed to the consumer
+	 * @throws SQLException if the chest records could not be read
+	 */
+	private int queryChestRecords(final String queryName, final Consumer<DeathChest> consumer,
+								  final Object... parameters) throws SQLException {
+
+		int count = 0;
+		Connection connection = connectionPool.borrow();
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery(queryName))) {
+
+			for (int i = 0; i < parameters.length; i++) {
+				preparedStatement.setObject(i + 1, parameters[i]);
+			}
+
+			// set number of rows fetched from database at a time
+			preparedStatement.setFetchSize(fetchSize);
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					UUID chestUUID = rs.getObject("ChestUUID", UUID.class);
+					UUID ownerUUID = rs.getObject("OwnerUUID", UUID.class);
+					UUID killerUUID = rs.getObject("KillerUUID", UUID.class);
+
+					// set other fields in deathChestBlock from database fields
+					int itemCount = rs.getInt("ItemCount");
+					long placementTime = rs.getLong("PlacementTime");
+					long expirationTime = rs.getLong("ExpirationTime");
+
+					// pass DeathChest object to consumer
+					consumer.accept(new DeathChest(chestUUID, ownerUUID, killerUUID, itemCount, placementTime, expirationTime));
+					count++;
+				}
+			}
+		}
+		finally {
+			connectionPool.release(connection);
+		}
+
+		return count;
+	}
+
+
+	@Override
+	public final int forEachBlockRecord(final Consumer<ChestBlock> consumer) {
+
+		int count = readBlockRecords("SelectAllBlocks", null, consumer);
+
+		if (plugin.debug) {
+			plugin.getLogger().info(count + " block records fetched from H2 datastore.");
+		}
+		return count;
+	}
+
+
+	@Override
+	public final boolean hasChestIndex() {
+		return true;
+	}
+
+
+	@Override
+	final boolean supportsBackup() {
+		return true;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecords(final Collection<UUID> chestUUIDs) {
+		final List<DeathChest> results = new ArrayList<>();
+		for (UUID chestUUID : chestUUIDs) {
+			readChestRecords("SelectChestByUUID", chestUUID, results::add);
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getBlockRecords(final Collection<UUID> chestUUIDs) {
+		final List<ChestBlock> results = new ArrayList<>();
+		for (UUID chestUUID : chestUUIDs) {
+			readBlockRecords("SelectBlocksByChest", chestUUID, results::add);
+		}
+		return results;
+	}
+
+
+	@Override
+	final List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) throws SQLException {
+		final List<ChestBlock> results = new ArrayList<>();
+		for (UUID chestUUID : chestUUIDs) {
+			queryBlockRecords("SelectBlocksByChest", results::add, chestUUID);
+		}
+		return results;
+	}
+
+
+	@Override
+	final List<DeathChest> readChestRecordPage(final UUID afterChestUUID, final int limit) throws SQLException {
+		final List<DeathChest> results = new ArrayList<>();
+
+		// the first page has no preceding chest UUID
+		if (afterChestUUID == null) {
+			queryChestRecords("SelectFirstChestPage", results::add, limit);
+		}
+		else {
+			queryChestRecords("SelectChestPage", results::add, afterChestUUID, limit);
+		}
+		return results;
+	}
+
+
+	/**
+	 * Execute a block record query on a pooled connection and pass each block record to a consumer.
+	 * Block records for worlds that are not loaded are skipped. A read error is logged.
+	 *
+	 * @param queryName the name of the query
+	 * @param parameter the query parameter, or null if the query has no parameter
+	 * @param consumer  the consumer to receive each block record
+	 * @return the number of block records passed to the consumer
+	 */
+	private int readBlockRecords(final String queryName, final Object parameter, final Consumer<ChestBlock> consumer) {
+
+		try {
+			return queryBlockRecords(queryName, consumer, parameter == null ? new Object[0] : new Object[]{parameter});
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch block records from the H2 database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+
+		return 0;
+	}
+
+
+	/**
+	 * Execute a block record query on a pooled connection and pass each block record to a consumer.
+	 * Block records for worlds that are not loaded are skipped.
+	 *
+	 * @param queryName  the name of the query
+	 * @param consumer   the consumer to receive each block record
+	 * @param parameters the query parameters
+	 * @return the number of block records passed to the consumer
+	 * @throws SQLException if the block records could not be read
+	 */
+	private int queryBlockRecords(final String queryName, final Consumer<ChestBlock> consumer,
+								  final Object... parameters) throws SQLException {
+
+		int count = 0;
+		Connection connection = connectionPool.borrow();
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery(queryName))) {
+
+			for (int i = 0; i < parameters.length; i++) {
+				preparedStatement.setObject(i + 1, parameters[i]);
+			}
+
+			// set number of rows fetched from database at a time
+			preparedStatement.setFetchSize(fetchSize);
+
+			// execute sql query
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+
+				while (rs.next()) {
+
+					// skip block records for worlds that are not loaded
+					World world = plugin.worldCache.getWorld(rs.getString("WorldName"));
+					if (world == null) {
+						continue;
+					}
+
+					Location location = new Location(world, rs.getInt("X"), rs.getInt("Y"), rs.getInt("Z"));
+
+					// pass ChestBlock object to consumer
+					consumer.accept(new ChestBlock(rs.getObject("ChestUUID", UUID.class), location));
+					count++;
+				}
+			}
+		}
+		finally {
+			connectionPool.release(connection);
+		}
+
+		return count;
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> putChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// queue chest record insert
+		final CompletableFuture<Void> chestFuture =
+				writeQueue.submit(new WriteOperation(WriteOperationType.PUT_CHEST, deathChest));
+
+		// if chest manager has not been created yet, there are no chest blocks to insert
+		if (plugin.chestManager == null) {
+			return chestFuture;
+		}
+
+		// queue insert for each chest block; blocks are committed after the chest record
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		futures.add(chestFuture);
+		for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
+			futures.add(putBlockRecord(chestBlock));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+
+	@Override
+	final CompletableFuture<Void> putBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || chestBlock.getLocation().getWorld() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// queue block record insert
+		return writeQueue.submit(new WriteOperation(WriteOperationType.PUT_BLOCK, chestBlock));
+	}
+
+
+	@Override
+	final CompletableFuture<Void> removeChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// queue chest record delete
+		return writeQueue.submit(new WriteOperation(WriteOperationType.DELETE_CHEST, deathChest));
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || chestBlock.getLocation().getWorld() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// queue block record delete
+		return writeQueue.submit(new WriteOperation(WriteOperationType.DELETE_BLOCK, chestBlock));
+	}
+
+
+	/**
+	 * Write a chunk of insert operations in a single transaction, returning once it is committed
+	 *
+	 * @param writeOperations the insert operations to write
+	 * @throws SQLException if the transaction could not be committed
+	 */
+	@Override
+	final void putRecords(final List<WriteOperation> writeOperations) throws SQLException {
+		writeBatch(writeOperations);
+	}
+
+
+	/**
+	 * Commit a batch of write operations in a single transaction on a pooled connection.
+	 * Called only from the write queue thread.
+	 *
+	 * @param batch the list of write operations to commit
+	 * @throws SQLException if the transaction could not be committed
+	 */
+	@Override
+	public final void writeBatch(final List<WriteOperation> batch) throws SQLException {
+
+		final Connection connection = connectionPool.borrow();
+
+		// statements prepared for this batch, by query name
+		final Map<String, PreparedStatement> statements = new HashMap<>();
+
+		try {
+			// begin transaction
+			connection.setAutoCommit(false);
+
+			int rowsAffected = 0;
+
+			// execute each write operation, deleting runs of consecutive chests with bulk statements
+			int index = 0;
+			while (index < batch.size()) {
+				if (batch.get(index).getType() == WriteOperationType.DELETE_CHEST) {
+					int end = WriteOperation.runEnd(batch, index, Queries.BULK_SIZE);
+					rowsAffected += deleteChests(connection, statements, batch.subList(index, end));
+					index = end;
+				}
+				else {
+					rowsAffected += executeWriteOperation(connection, statements, batch.get(index));
+					index++;
+				}
+			}
+
+			// commit transaction
+			connection.commit();
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(rowsAffected + " rows affected by " + batch.size() + " write operations.");
+			}
+		}
+		catch (Exception e) {
+
+			// roll back transaction on any failure, so returning the connection to the pool does not
+			// commit a partial batch, and pass exception on to write queue
+			try {
+				connection.rollback();
+			}
+			catch (SQLException rollbackException) {
+				e.addSuppressed(rollbackException);
+			}
+			throw e;
+		}
+		finally {
+
+			// close statements, then return connection to pool even if a statement could not be closed;
+			// a connection whose statements could not be closed is discarded by the pool if it is unusable
+			try {
+				closeStatements(statements.values());
+			}
+			finally {
+				connectionPool.release(connection);
+			}
+		}
+	}
+
+
+	/**
+	 * Close prepared statements, attempting to close every statement even if one fails
+	 *
+	 * @param statements the statements to close
+	 * @throws SQLException if a statement could not be closed; further failures are added as suppressed exceptions
+	 */
+	private static void closeStatements(final Collection<PreparedStatement> statements) throws SQLException {
+
+		SQLException exception = null;
+
+		for (PreparedStatement preparedStatement : statements) {
+			try {
+				preparedStatement.close();
+			}
+			catch (SQLException e) {
+				if (exception == null) {
+					exception = e;
+				}
+				else {
+					exception.addSuppressed(e);
+				}
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+
+	/**
+	 * Execute a single write operation within the current transaction
+	 *
+	 * @param connection     the connection with the open transaction
+	 * @param statements     the statements prepared for the current batch, by query name
+	 * @param writeOperation the write operation to execute
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int executeWriteOperation(final Connection connection,
+									  final Map<String, PreparedStatement> statements,
+									  final WriteOperation writeOperation) throws SQLException {
+
+		PreparedStatement preparedStatement;
+
+		switch (writeOperation.getType()) {
+			case PUT_CHEST:
+				DeathChest deathChest = writeOperation.getDeathChest();
+				preparedStatement = prepare(connection, statements, "InsertChestRecord");
+				preparedStatement.setObject(1, deathChest.getChestUUID());
+				preparedStatement.setObject(2, deathChest.getOwnerUUID());
+				preparedStatement.setObject(3, deathChest.getKillerUUID());
+				preparedStatement.setInt(4, deathChest.getItemCount());
+				preparedStatement.setLong(5, deathChest.getPlacementTime());
+				preparedStatement.setLong(6, deathChest.getExpirationTime());
+				return preparedStatement.executeUpdate();
+
+			case PUT_BLOCK:
+				ChestBlock chestBlock = writeOperation.getChestBlock();
+				preparedStatement = prepare(connection, statements, "InsertBlockRecord");
+				setLocation(preparedStatement, chestBlock.getLocation());
+				preparedStatement.setObject(5, chestBlock.getChestUUID());
+				return preparedStatement.executeUpdate();
+
+			case DELETE_CHEST:
+				preparedStatement = prepare(connection, statements, "DeleteChestByUUID");
+				preparedStatement.setObject(1, writeOperation.getDeathChest().getChestUUID());
+				return preparedStatement.executeUpdate();
+
+			case DELETE_BLOCK:
+				preparedStatement = prepare(connection, statements, "DeleteBlockByLocation");
+				setLocation(preparedStatement, writeOperation.getChestBlock().getLocation());
+				return preparedStatement.executeUpdate();
+		}
+		return 0;
+	}
+
+
+	/**
+	 * Delete up to {@link Queries#BULK_SIZE} chest records with a single statement.
+	 * Their block records are deleted by the foreign key cascade.
+	 *
+	 * @param connection       the connection with the open transaction
+	 * @param statements       the statements prepared for the current batch, by query name
+	 * @param deleteOperations the chest delete operations
+	 * @return the number of chest rows deleted
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int deleteChests(final Connection connection,
+							 final Map<String, PreparedStatement> statements,
+							 final List<WriteOperation> deleteOperations) throws SQLException {
+
+		// a single chest is deleted with the single row statement
+		if (deleteOperations.size() == 1) {
+			return executeWriteOperation(connection, statements, deleteOperations.get(0));
+		}
+
+		PreparedStatement preparedStatement = statements.get("DeleteChestsByUUID");
+		if (preparedStatement == null) {
+			preparedStatement = connection.prepareStatement(Queries.getBulkQuery(queryFileName, "DeleteChestsByUUID"));
+			statements.put("DeleteChestsByUUID", preparedStatement);
+		}
+
+		// set every parameter, repeating the last chest UUID for unused parameters
+		for (int i = 0; i < Queries.BULK_SIZE; i++) {
+			preparedStatement.setObject(i + 1,
+					deleteOperations.get(Math.min(i, deleteOperations.size() - 1)).getDeathChest().getChestUUID());
+		}
+		return preparedStatement.executeUpdate();
+	}
+
+
+	/**
+	 * Get a statement prepared for the current batch, preparing it on first use
+	 *
+	 * @param connection the connection with the open transaction
+	 * @param statements the statements prepared for the current batch, by query name
+	 * @param queryName  the name of the query
+	 * @return the prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	private PreparedStatement prepare(final Connection connection,
+									  final Map<String, PreparedStatement> statements,
+									  final String queryName) throws SQLException {
+
+		PreparedStatement preparedStatement = statements.get(queryName);
+		if (preparedStatement == null) {
+			preparedStatement = connection.prepareStatement(getQuery(queryName));
+			statements.put(queryName, preparedStatement);
+		}
+		return preparedStatement;
+	}
+
+
+	/**
+	 * Set world name and block coordinate parameters 1 to 4 of a statement
+	 *
+	 * @param preparedStatement the statement
+	 * @param location          the block location
+	 * @throws SQLException if a parameter could not be set
+	 */
+	private void setLocation(final PreparedStatement preparedStatement, final Location location) throws SQLException {
+		preparedStatement.setString(1, Objects.requireNonNull(location.getWorld()).getName());
+		preparedStatement.setInt(2, location.getBlockX());
+		preparedStatement.setInt(3, location.getBlockY());
+		preparedStatement.setInt(4, location.getBlockZ());
+	}
+
+
+	/**
+	 * Copy the database to a zip backup file while it remains in use, on a pooled connection.
+	 * The copy is written to a temporary file and moved into place when complete.
+	 *
+	 * @param backupFolder the folder to write the backup to
+	 * @param backupName   the backup filename, without extension
+	 * @return the backup file
+	 * @throws SQLException if the database could not be copied
+	 * @throws IOException  if the backup file could not be moved into place
+	 */
+	@Override
+	final File backup(final File backupFolder, final String backupName) throws SQLException, IOException {
+
+		final File backupFile = new File(backupFolder, backupName + ".zip");
+		final File tempFile = new File(backupFolder, backupName + ".zip.tmp");
+
+		// remove temporary file left by an interrupted backup
+		Files.deleteIfExists(tempFile.toPath());
+
+		Connection connection = connectionPool.borrow();
+		try (Statement statement = connection.createStatement()) {
+
+			// copy database to temporary file; the file name is a string literal, so quotes are doubled
+			statement.execute(String.format(getQuery("BackupDatabase"), tempFile.getPath().replace("'", "''")));
+		}
+		catch (SQLException e) {
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
+		}
+		finally {
+			connectionPool.release(connection);
+		}
+
+		// move completed backup into place
+		Files.move(tempFile.toPath(), backupFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+		return backupFile;
+	}
+
+
+	/**
+	 * Close database connections
+	 */
+	@Override
+	public final void close() {
+
+		if (isInitialized()) {
+
+			// commit any pending write operations before closing connections
+			writeQueue.shutdown();
+
+			// close pooled connections; the database is closed when its last connection closes
+			connectionPool.close();
+			plugin.getLogger().info(this.getName() + " datastore connections closed.");
+
+			setInitialized(false);
+		}
+	}
+
+
+	@Override
+	final void sync() {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	final boolean delete() {
+
+		boolean result = false;
+		File dataStoreFile = new File(plugin.getDataFolder() + File.separator + this.getFilename());
+		if (dataStoreFile.exists()) {
+			result = dataStoreFile.delete();
+		}
+
+		// delete trace file, if any
+		File traceFile = new File(plugin.getDataFolder() + File.separator + "deathchests.trace.db");
+		if (traceFile.exists()) {
+			//noinspection ResultOfMethodCallIgnored
+			traceFile.delete();
+		}
+		return result;
+	}
+
+
+	@Override
+	final boolean exists() {
+		// get path name to old data store file
+		File dataStoreFile = new File(plugin.getDataFolder() + File.separator + this.getFilename());
+		return dataStoreFile.exists();
+	}
+
+}
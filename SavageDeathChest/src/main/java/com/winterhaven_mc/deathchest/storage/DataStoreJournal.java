@@ -0,0 +1,916 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * Append-only journal implementation of Datastore
+ * for persistent storage of death chests and chest block objects.<br>
+ * Every insert and delete is appended to the journal file as a record, and each batch of records
+ * committed by the write queue is synced to disk together. The live records are held in memory,
+ * and are replayed from the journal when the datastore is initialized. When the proportion of
+ * superseded records in the journal passes a configured threshold, a background task rewrites
+ * the live records into a fresh journal file that replaces the old one.
+ */
+final class DataStoreJournal extends DataStore implements BatchWriter {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// live chest records by chest UUID, in chest UUID order for paged reads
+	private final ConcurrentNavigableMap<UUID, DeathChest> chestRecords =
+			new ConcurrentSkipListMap<>(RecordCodec::compareUUIDs);
+
+	// live block records by block key
+	private final Map<String, ChestBlock> blockRecords = new ConcurrentHashMap<>();
+
+	// block keys of live block records by chest UUID, so a chest delete removes only its own blocks
+	private final Map<UUID, Set<String>> blockKeysByChest = new ConcurrentHashMap<>();
+
+	// live block records in worlds that were not loaded at replay, by world name and packed position;
+	// kept as read, so that compaction writes them unchanged and they are loaded once their world is
+	private final Map<String, Map<Long, JournalCodec.UnresolvedBlock>> unresolvedBlocks = new ConcurrentHashMap<>();
+
+	// single writer thread queue for all insert and delete operations
+	private WriteQueue writeQueue;
+
+	// journal file channel, positioned at end of file
+	private FileChannel channel;
+
+	// number of records in journal file, live or superseded
+	private long recordCount;
+
+	// proportion of superseded records in the journal at which it is compacted
+	private double compactionRatio;
+
+	// minimum number of records in the journal before it is compacted
+	private long compactionMinRecords;
+
+	// repeating task to compact the journal
+	private CompactionTask compactionTask;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreJournal(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.JOURNAL;
+
+		// set filename
+		this.filename = "deathchests.journal";
+	}
+
+
+	/**
+	 * Replay the journal file into memory and open it for appending
+	 */
+	@Override
+	final void initialize() throws IOException {
+
+		// get compaction settings from config, substituting defaults for invalid values
+		compactionRatio = plugin.getConfig().getDouble("storage.journal-compaction-ratio", 0.5);
+		if (compactionRatio <= 0 || compactionRatio >= 1) {
+			compactionRatio = 0.5;
+		}
+
+		compactionMinRecords = plugin.getConfig().getLong("storage.journal-compaction-min-records", 1000);
+		if (compactionMinRecords < 0) {
+			compactionMinRecords = 1000;
+		}
+
+		// remove compaction file left by an interrupted compaction; the journal file is still complete
+		File compactionFile = getCompactionFile();
+		if (compactionFile.exists()) {
+			Files.delete(compactionFile.toPath());
+		}
+
+		// replay existing journal file; a file too short to hold a header is rewritten as new
+		long validLength = 0;
+		if (getJournalFile().length() >= JournalCodec.HEADER_SIZE) {
+			validLength = replay();
+		}
+
+		// open journal file for appending, discarding any damaged records at end of file
+		channel = openChannel(validLength);
+
+		// start writer thread
+		writeQueue = new WriteQueue(plugin, this.getName(), this);
+		writeQueue.start();
+
+		// start compaction task
+		startCompactionTask();
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized.");
+	}
+
+
+	/**
+	 * Read all records in the journal file and apply them to the in memory records
+	 *
+	 * @return the length in bytes of the valid part of the journal file
+	 * @throws IOException if the journal file could not be read
+	 */
+	private long replay() throws IOException {
+
+		final long startTime = System.currentTimeMillis();
+
+		long validLength = JournalCodec.HEADER_SIZE;
+		recordCount = 0;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(getJournalFile()), 0x10000))) {
+
+			JournalCodec.readHeader(in);
+
+			byte[] bytes;
+			while ((bytes = JournalCodec.readRecord(in)) != null) {
+
+				// apply record; block records for worlds that are not loaded are kept unresolved
+				WriteOperation writeOperation = JournalCodec.decode(bytes, plugin.worldCache::getWorld);
+				if (writeOperation != null) {
+					apply(writeOperation);
+				}
+				else {
+					applyUnresolved(JournalCodec.decodeUnresolved(bytes));
+				}
+
+				validLength += bytes.length + JournalCodec.RECORD_OVERHEAD;
+				recordCount++;
+			}
+		}
+		catch (EOFException | JournalCodec.JournalDamagedException e) {
+
+			// a damaged record can only be the result of an interrupted write; discard it and all following records
+			plugin.getLogger().warning("Damaged record found in " + this.getName()
+					+ " datastore after " + recordCount + " records; discarding remainder of journal.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+
+		// output debugging information
+		if (plugin.debug) {
+			plugin.getLogger().info("Replayed " + recordCount + " journal records ("
+					+ chestRecords.size() + " chests, " + blockRecords.size() + " blocks) in "
+					+ (System.currentTimeMillis() - startTime) + " ms.");
+		}
+
+		// report block records kept for worlds that are not loaded
+		final int unresolvedCount = getUnresolvedBlockCount();
+		if (unresolvedCount > 0) {
+			plugin.getLogger().info(unresolvedCount + " block records in worlds that are not loaded were kept in the "
+					+ this.getName() + " datastore; they will be loaded on a startup when their worlds are loaded.");
+		}
+
+		return validLength;
+	}
+
+
+	/**
+	 * Open the journal file for appending, writing a header if the file is new
+	 *
+	 * @param validLength the length of the valid part of the journal file; any data past this length is discarded
+	 * @return the file channel, positioned at end of file
+	 * @throws IOException if the journal file could not be opened
+	 */
+	private FileChannel openChannel(final long validLength) throws IOException {
+
+		FileChannel fileChannel = FileChannel.open(getJournalFile().toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+		// if file is new, write header
+		if (validLength == 0) {
+			fileChannel.truncate(0);
+			writeFully(fileChannel, headerBytes());
+			fileChannel.force(true);
+		}
+
+		// discard damaged records at end of file
+		else if (fileChannel.size() > validLength) {
+			fileChannel.truncate(validLength);
+			fileChannel.force(true);
+		}
+
+		fileChannel.position(fileChannel.size());
+		return fileChannel;
+	}
+
+
+	/**
+	 * Start repeating asynchronous task to compact the journal, if enabled
+	 */
+	private void startCompactionTask() {
+
+		// get compaction interval in seconds from config
+		long interval = plugin.getConfig().getLong("storage.journal-compaction-interval", 60);
+
+		// if interval is zero or negative, compaction task is disabled
+		if (interval <= 0) {
+			return;
+		}
+
+		// convert seconds to ticks and start task
+		long ticks = TimeUnit.SECONDS.toMillis(interval) / 50;
+		compactionTask = new CompactionTask(this);
+		compactionTask.runTaskTimerAsynchronously(plugin, ticks, ticks);
+	}
+
+
+	@Override
+	public final int forEachChestRecord(final Consumer<DeathChest> consumer) {
+
+		int count = 0;
+		for (DeathChest deathChest : chestRecords.values()) {
+			consumer.accept(deathChest);
+			count++;
+		}
+		return count;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		// if passed ownerUUID is null, return empty list
+		if (ownerUUID == null) {
+			return results;
+		}
+
+		for (DeathChest deathChest : chestRecords.values()) {
+			if (ownerUUID.equals(deathChest.getOwnerUUID())) {
+				results.add(deathChest);
+			}
+		}
+
+		// sort by expiration time, as the SQLite datastore does
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		for (DeathChest deathChest : chestRecords.values()) {
+			if (deathChest.getExpirationTime() > 0 && deathChest.getExpirationTime() < expirationTime) {
+				results.add(deathChest);
+			}
+		}
+
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public final int forEachBlockRecord(final Consumer<ChestBlock> consumer) {
+
+		int count = 0;
+		for (ChestBlock chestBlock : blockRecords.values()) {
+			consumer.accept(chestBlock);
+			count++;
+		}
+		return count;
+	}
+
+
+	@Override
+	final List<DeathChest> readChestRecordPage(final UUID afterChestUUID, final int limit) {
+
+		final List<DeathChest> page = new ArrayList<>(limit);
+
+		// read chest records in order from the first chest after the passed UUID
+		final Map<UUID, DeathChest> tail = afterChestUUID == null
+				? chestRecords
+				: chestRecords.tailMap(afterChestUUID, false);
+		for (DeathChest deathChest : tail.values()) {
+			if (page.size() >= limit) {
+				break;
+			}
+			page.add(deathChest);
+		}
+		return page;
+	}
+
+
+	@Override
+	final List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		// look up the block records of each chest by its indexed block keys
+		for (UUID chestUUID : chestUUIDs) {
+			Set<String> blockKeys = blockKeysByChest.get(chestUUID);
+			if (blockKeys == null) {
+				continue;
+			}
+			for (String blockKey : blockKeys) {
+				ChestBlock chestBlock = blockRecords.get(blockKey);
+				if (chestBlock != null) {
+					results.add(chestBlock);
+				}
+			}
+		}
+		return results;
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> putChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// apply to memory and queue journal record
+		final CompletableFuture<Void> chestFuture = submit(new WriteOperation(WriteOperationType.PUT_CHEST, deathChest));
+
+		// if chest manager has not been created yet, there are no chest blocks to insert
+		if (plugin.chestManager == null) {
+			return chestFuture;
+		}
+
+		// queue insert for each chest block; blocks are journaled after the chest record
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		futures.add(chestFuture);
+		for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
+			futures.add(putBlockRecord(chestBlock));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+
+	@Override
+	final CompletableFuture<Void> putBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || RecordCodec.blockKey(chestBlock.getLocation()) == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// apply to memory and queue journal record
+		return submit(new WriteOperation(WriteOperationType.PUT_BLOCK, chestBlock));
+	}
+
+
+	@Override
+	final CompletableFuture<Void> removeChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// apply to memory and queue journal record
+		return submit(new WriteOperation(WriteOperationType.DELETE_CHEST, deathChest));
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || RecordCodec.blockKey(chestBlock.getLocation()) == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// apply to memory and queue journal record
+		return submit(new WriteOperation(WriteOperationType.DELETE_BLOCK, chestBlock));
+	}
+
+
+	/**
+	 * Apply a write operation to the in memory records, then queue it to be appended to the journal.
+	 * Reads see the change immediately; it is durable once the write queue has synced its batch.
+	 *
+	 * @param writeOperation the write operation
+	 * @return a future completed when the journal record has been synced
+	 */
+	private CompletableFuture<Void> submit(final WriteOperation writeOperation) {
+		apply(writeOperation);
+		return writeQueue.submit(writeOperation);
+	}
+
+
+	/**
+	 * Apply a write operation to the in memory records, with the same semantics as the SQLite datastore:
+	 * a block record is only inserted if its chest record exists, and deleting a chest record deletes its block records.
+	 *
+	 * @param writeOperation the write operation to apply
+	 */
+	private void apply(final WriteOperation writeOperation) {
+
+		switch (writeOperation.getType()) {
+			case PUT_CHEST:
+				chestRecords.put(writeOperation.getDeathChest().getChestUUID(), writeOperation.getDeathChest());
+				break;
+			case PUT_BLOCK:
+				ChestBlock chestBlock = writeOperation.getChestBlock();
+				removeUnresolved(chestBlock);
+				if (chestRecords.containsKey(chestBlock.getChestUUID())) {
+					String blockKey = RecordCodec.blockKey(chestBlock.getLocation());
+					removeChestBlockKey(blockRecords.put(blockKey, chestBlock), blockKey);
+					blockKeysByChest.computeIfAbsent(chestBlock.getChestUUID(),
+							k -> ConcurrentHashMap.newKeySet()).add(blockKey);
+				}
+				break;
+			case DELETE_CHEST:
+				UUID chestUUID = writeOperation.getDeathChest().getChestUUID();
+				chestRecords.remove(chestUUID);
+
+				// remove only the block records indexed under this chest
+				Set<String> blockKeys = blockKeysByChest.remove(chestUUID);
+				if (blockKeys != null) {
+					for (String blockKey : blockKeys) {
+						blockRecords.remove(blockKey);
+					}
+				}
+
+				// unresolved block records are only present after replay, and are usually none
+				if (!unresolvedBlocks.isEmpty()) {
+					for (Map<Long, JournalCodec.UnresolvedBlock> worldBlocks : unresolvedBlocks.values()) {
+						worldBlocks.values().removeIf(block -> chestUUID.equals(block.getChestUUID()));
+					}
+				}
+				break;
+			case DELETE_BLOCK:
+				removeUnresolved(writeOperation.getChestBlock());
+				String blockKey = RecordCodec.blockKey(writeOperation.getChestBlock().getLocation());
+				removeChestBlockKey(blockRecords.remove(blockKey), blockKey);
+				break;
+		}
+	}
+
+
+	/**
+	 * Remove a block key from the index of block keys by chest, for a block record that was removed or replaced
+	 *
+	 * @param chestBlock the block record that was removed or replaced, or null if there was none
+	 * @param blockKey the block key of the record
+	 */
+	private void removeChestBlockKey(final ChestBlock chestBlock, final String blockKey) {
+
+		// if no block record was removed, do nothing and return
+		if (chestBlock == null) {
+			return;
+		}
+
+		// remove key from its chest's set, and remove the set when it becomes empty
+		blockKeysByChest.computeIfPresent(chestBlock.getChestUUID(), (chestUUID, blockKeys) -> {
+			blockKeys.remove(blockKey);
+			return blockKeys.isEmpty() ? null : blockKeys;
+		});
+	}
+
+
+	/**
+	 * Apply a block record whose world is not loaded to the unresolved block records,
+	 * with the same semantics as a resolved block record
+	 *
+	 * @param unresolvedBlock the unresolved block record, or null if the record was not a block record
+	 */
+	private void applyUnresolved(final JournalCodec.UnresolvedBlock unresolvedBlock) {
+
+		if (unresolvedBlock == null) {
+			return;
+		}
+
+		if (unresolvedBlock.isDelete()) {
+			Map<Long, JournalCodec.UnresolvedBlock> worldBlocks = unresolvedBlocks.get(unresolvedBlock.getWorldName());
+			if (worldBlocks != null) {
+				worldBlocks.remove(unresolvedBlock.getPosition());
+			}
+		}
+		else if (chestRecords.containsKey(unresolvedBlock.getChestUUID())) {
+			unresolvedBlocks.computeIfAbsent(unresolvedBlock.getWorldName(), k -> new ConcurrentHashMap<>())
+					.put(unresolvedBlock.getPosition(), unresolvedBlock);
+		}
+	}
+
+
+	/**
+	 * Remove the unresolved block record at the location of a block, which a later record supersedes
+	 *
+	 * @param chestBlock the block
+	 */
+	private void removeUnresolved(final ChestBlock chestBlock) {
+
+		// if there are no unresolved block records, do nothing and return
+		if (unresolvedBlocks.isEmpty() || chestBlock.getLocation().getWorld() == null) {
+			return;
+		}
+
+		Map<Long, JournalCodec.UnresolvedBlock> worldBlocks =
+				unresolvedBlocks.get(chestBlock.getLocation().getWorld().getName());
+		if (worldBlocks != null) {
+			worldBlocks.remove(RecordCodec.packPosition(chestBlock.getLocation().getBlockX(),
+					chestBlock.getLocation().getBlockY(), chestBlock.getLocation().getBlockZ()));
+		}
+	}
+
+
+	/**
+	 * Get the number of live block records in worlds that were not loaded at replay
+	 *
+	 * @return the number of unresolved block records
+	 */
+	private int getUnresolvedBlockCount() {
+		int count = 0;
+		for (Map<Long, JournalCodec.UnresolvedBlock> worldBlocks : unresolvedBlocks.values()) {
+			count += worldBlocks.size();
+		}
+		return count;
+	}
+
+
+	/**
+	 * Apply a chunk of insert operations to memory, and append them to the journal with a single sync,
+	 * returning once they are durable
+	 *
+	 * @param writeOperations the insert operations to write
+	 * @throws IOException if the records could not be written
+	 */
+	@Override
+	final void putRecords(final List<WriteOperation> writeOperations) throws IOException {
+		for (WriteOperation writeOperation : writeOperations) {
+			apply(writeOperation);
+		}
+		writeBatch(writeOperations);
+	}
+
+
+	/**
+	 * Append a batch of write operations to the journal and sync them to disk together.
+	 * Called only from the write queue thread.
+	 *
+	 * @param batch the list of write operations to append
+	 * @throws IOException if the records could not be written
+	 */
+	@Override
+	public synchronized final void writeBatch(final List<WriteOperation> batch) throws IOException {
+
+		// encode all records in batch
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 64);
+		final DataOutputStream out = new DataOutputStream(bytes);
+		for (WriteOperation writeOperation : batch) {
+			JournalCodec.writeRecord(writeOperation, out);
+		}
+		out.flush();
+
+		final long position = channel.position();
+		try {
+			// append records and sync to disk once for the whole batch
+			writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+			channel.force(false);
+			recordCount += batch.size();
+		}
+		catch (IOException e) {
+
+			// discard partially written records, so that the journal stays readable
+			channel.truncate(position);
+			channel.position(position);
+			throw e;
+		}
+
+		// output debugging information
+		if (plugin.debug) {
+			plugin.getLogger().info(batch.size() + " records appended to " + this.getName() + " datastore.");
+		}
+	}
+
+
+	/**
+	 * Get the proportion of records in the journal that have been superseded by later records
+	 *
+	 * @return the proportion of superseded records, between 0 and 1
+	 */
+	private double getGarbageRatio() {
+
+		if (recordCount == 0) {
+			return 0;
+		}
+
+		long liveCount = chestRecords.size() + blockRecords.size() + getUnresolvedBlockCount();
+		return Math.max(0, 1.0 - (double) liveCount / recordCount);
+	}
+
+
+	/**
+	 * Rewrite the live records into a fresh journal file, and replace the journal file with it.
+	 * Write operations held by the write queue are committed first. Write operations already applied
+	 * to memory but still in the write queue are appended to the new journal after it replaces the old one;
+	 * all record types are idempotent, so a record present in both is harmless. While the live records are
+	 * written, the write queue does not cancel insert and delete pairs, so a record written to the new journal
+	 * is never cancelled by a later write operation that is then not journaled.
+	 *
+	 * @param force if {@code true}, compact regardless of the proportion of superseded records
+	 */
+	final void compact(final boolean force) {
+
+		// if compaction is not due, do nothing and return
+		if (!isCompactionDue(force)) {
+			return;
+		}
+
+		// commit held write operations before the live records are written
+		writeQueue.flush();
+
+		compactJournal(force);
+	}
+
+
+	/**
+	 * Check if the journal is open and the compaction threshold has been reached
+	 *
+	 * @param force if {@code true}, compaction is due regardless of the proportion of superseded records
+	 * @return {@code true} if the journal should be compacted, {@code false} if not
+	 */
+	private synchronized boolean isCompactionDue(final boolean force) {
+		return channel != null && channel.isOpen()
+				&& (force || (recordCount >= compactionMinRecords && getGarbageRatio() >= compactionRatio));
+	}
+
+
+	/**
+	 * Rewrite the live records into a fresh journal file, and replace the journal file with it.
+	 * Synchronized with batch appends.
+	 *
+	 * @param force if {@code true}, compact regardless of the proportion of superseded records
+	 */
+	private synchronized void compactJournal(final boolean force) {
+
+		// if compaction is no longer due, do nothing and return
+		if (!isCompactionDue(force)) {
+			return;
+		}
+
+		final long startTime = System.currentTimeMillis();
+		final long oldRecordCount = recordCount;
+		final File compactionFile = getCompactionFile();
+
+		try {
+			// write live records to compaction file, without cancelling write operations they reflect
+			long newRecordCount;
+			writeQueue.suspendCancellation();
+			try {
+				newRecordCount = writeCompactionFile(compactionFile);
+			}
+			finally {
+				writeQueue.resumeCancellation();
+			}
+
+			// replace journal file with compaction file
+			channel.close();
+			try {
+				Files.move(compactionFile.toPath(), getJournalFile().toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(compactionFile.toPath(), getJournalFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			recordCount = newRecordCount;
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(this.getName() + " datastore compacted from " + oldRecordCount
+						+ " to " + newRecordCount + " records in "
+						+ (System.currentTimeMillis() - startTime) + " ms.");
+			}
+		}
+		catch (IOException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while compacting the " + this.getName() + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+
+			// remove incomplete compaction file
+			//noinspection ResultOfMethodCallIgnored
+			compactionFile.delete();
+		}
+		finally {
+
+			// reopen journal file for appending
+			if (!channel.isOpen()) {
+				try {
+					channel = openChannel(getJournalFile().length());
+				}
+				catch (IOException e) {
+					plugin.getLogger().severe("Could not reopen " + this.getName() + " datastore journal file!");
+					plugin.getLogger().severe(e.getMessage());
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Write a journal file containing only the live records, including block records in worlds
+	 * that were not loaded at replay, and sync it to disk
+	 *
+	 * @param file the file to write
+	 * @return the number of records written
+	 * @throws IOException if the file could not be written
+	 */
+	private long writeCompactionFile(final File file) throws IOException {
+
+		long count = 0;
+
+		try (FileOutputStream fileOutputStream = new FileOutputStream(file);
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream, 0x10000))) {
+
+			JournalCodec.writeHeader(out);
+
+			// write chest records before block records, so that block records replay after their chest
+			for (DeathChest deathChest : chestRecords.values()) {
+				JournalCodec.writeRecord(new WriteOperation(WriteOperationType.PUT_CHEST, deathChest), out);
+				count++;
+			}
+
+			for (ChestBlock chestBlock : blockRecords.values()) {
+				JournalCodec.writeRecord(new WriteOperation(WriteOperationType.PUT_BLOCK, chestBlock), out);
+				count++;
+			}
+
+			// copy block records in worlds that were not loaded at replay unchanged
+			for (Map<Long, JournalCodec.UnresolvedBlock> worldBlocks : unresolvedBlocks.values()) {
+				for (JournalCodec.UnresolvedBlock unresolvedBlock : worldBlocks.values()) {
+					JournalCodec.writeRawRecord(unresolvedBlock.getBytes(), out);
+					count++;
+				}
+			}
+
+			// sync to disk before the file replaces the journal
+			out.flush();
+			fileOutputStream.getFD().sync();
+		}
+
+		return count;
+	}
+
+
+	/**
+	 * Get the encoded journal file header
+	 *
+	 * @return a buffer containing the header
+	 * @throws IOException if the header could not be encoded
+	 */
+	private ByteBuffer headerBytes() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(JournalCodec.HEADER_SIZE);
+		JournalCodec.writeHeader(new DataOutputStream(bytes));
+		return ByteBuffer.wrap(bytes.toByteArray());
+	}
+
+
+	/**
+	 * Write all remaining bytes of a buffer to a file channel
+	 *
+	 * @param fileChannel the channel to write to
+	 * @param buffer      the buffer to write
+	 * @throws IOException if the buffer could not be written
+	 */
+	private static void writeFully(final FileChannel fileChannel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			fileChannel.write(buffer);
+		}
+	}
+
+
+	/**
+	 * Get the journal file
+	 *
+	 * @return the journal file
+	 */
+	private File getJournalFile() {
+		return new File(plugin.getDataFolder() + File.separator + this.getFilename());
+	}
+
+
+	/**
+	 * Get the file that live records are written to during compaction
+	 *
+	 * @return the compaction file
+	 */
+	private File getCompactionFile() {
+		return new File(plugin.getDataFolder() + File.separator + this.getFilename() + ".compact");
+	}
+
+
+	/**
+	 * Close journal file
+	 */
+	@Override
+	public final void close() {
+
+		if (isInitialized()) {
+
+			// append any pending write operations before closing journal
+			writeQueue.shutdown();
+
+			// stop compaction task
+			if (compactionTask != null) {
+				compactionTask.cancel();
+			}
+
+			// compact journal if threshold has been reached, so that the next startup replays fewer records
+			compact(false);
+
+			try {
+				channel.close();
+				plugin.getLogger().info(this.getName() + " datastore journal closed.");
+			}
+			catch (IOException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while closing the " + this.getName() + " datastore journal.");
+				plugin.getLogger().warning(e.getMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+			}
+			setInitialized(false);
+		}
+	}
+
+
+	@Override
+	synchronized final void sync() {
+
+		// if journal is not open, do nothing and return
+		if (channel == null || !channel.isOpen()) {
+			return;
+		}
+
+		try {
+			channel.force(true);
+		}
+		catch (IOException e) {
+			plugin.getLogger().warning("An error occurred while syncing the " + this.getName() + " datastore journal.");
+			plugin.getLogger().warning(e.getMessage());
+		}
+	}
+
+
+	@Override
+	final boolean delete() {
+
+		boolean result = false;
+		File dataStoreFile = getJournalFile();
+		if (dataStoreFile.exists()) {
+			result = dataStoreFile.delete();
+		}
+
+		// delete compaction file, if any
+		File compactionFile = getCompactionFile();
+		if (compactionFile.exists()) {
+			//noinspection ResultOfMethodCallIgnored
+			compactionFile.delete();
+		}
+		return result;
+	}
+
+
+	@Override
+	final boolean exists() {
+		// get path name to old data store file
+		return getJournalFile().exists();
+	}
+
+}
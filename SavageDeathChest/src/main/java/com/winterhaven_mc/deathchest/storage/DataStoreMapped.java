@@ -0,0 +1,618 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+/**
+ * Memory-mapped implementation of Datastore
+ * for persistent storage of death chests and chest block objects.<br>
+ * Chest and block records are stored in fixed width slots of two memory-mapped files.
+ * Inserts and deletes update slots in place, and a repeating task forces modified pages to disk.
+ * Loading is a sequential scan of the mapped slots.
+ */
+final class DataStoreMapped extends DataStore {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// chest record size: chest, owner and killer UUIDs, item count, placement time and expiration time
+	private static final int CHEST_RECORD_SIZE = 16 + 16 + 16 + 4 + 8 + 8;
+
+	// block record size: chest UUID, world UUID and packed position
+	private static final int BLOCK_RECORD_SIZE = 16 + 16 + 8;
+
+	// chest record slots
+	private MappedSlotFile chestFile;
+
+	// block record slots
+	private MappedSlotFile blockFile;
+
+	// chest record slot numbers by chest UUID, in chest UUID order for paged reads
+	private final NavigableMap<UUID, Integer> chestSlots = new TreeMap<>(RecordCodec::compareUUIDs);
+
+	// block record slot numbers by block key
+	private final Map<String, Integer> blockSlots = new HashMap<>();
+
+	// block keys of each chest's block records by chest UUID, so a chest's blocks are freed without a scan
+	private final Map<UUID, Set<String>> chestBlockKeys = new HashMap<>();
+
+	// true if slots have been modified since the mapped pages were last forced to disk
+	private boolean dirty;
+
+	// repeating task to force modified pages to disk
+	private SyncTask syncTask;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreMapped(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.MAPPED;
+
+		// set filename
+		this.filename = "deathchests-chests.dat";
+	}
+
+
+	/**
+	 * Map the datastore files and index their live slots
+	 */
+	@Override
+	synchronized final void initialize() throws IOException {
+
+		// open chest and block slot files
+		chestFile = new MappedSlotFile(getChestFile(), CHEST_RECORD_SIZE);
+		chestFile.open();
+
+		blockFile = new MappedSlotFile(getBlockFile(), BLOCK_RECORD_SIZE);
+		blockFile.open();
+
+		// index live chest slots
+		chestSlots.clear();
+		for (int slot = 0; slot < chestFile.getHighWater(); slot++) {
+			if (chestFile.isLive(slot)) {
+				chestSlots.put(RecordCodec.getUUID(chestFile.record(slot)), slot);
+			}
+		}
+
+		// index live block slots, freeing block slots whose chest no longer exists
+		blockSlots.clear();
+		chestBlockKeys.clear();
+		for (int slot = 0; slot < blockFile.getHighWater(); slot++) {
+			if (blockFile.isLive(slot)) {
+				ByteBuffer record = blockFile.record(slot);
+				UUID chestUUID = RecordCodec.getUUID(record);
+				UUID worldUID = RecordCodec.getUUID(record);
+				long position = record.getLong();
+				if (chestSlots.containsKey(chestUUID)) {
+					String blockKey = blockKey(worldUID, position);
+					blockSlots.put(blockKey, slot);
+					chestBlockKeys.computeIfAbsent(chestUUID, k -> new HashSet<>()).add(blockKey);
+				}
+				else {
+					blockFile.free(slot);
+				}
+			}
+		}
+
+		// start sync task
+		startSyncTask();
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized.");
+
+		// output debugging information
+		if (plugin.debug) {
+			plugin.getLogger().info(this.getName() + " datastore: " + chestFile.getLiveCount() + " chest slots, "
+					+ blockFile.getLiveCount() + " block slots in use.");
+		}
+	}
+
+
+	/**
+	 * Start repeating asynchronous task to force modified pages to disk, if enabled
+	 */
+	private void startSyncTask() {
+
+		// get sync interval in seconds from config
+		long interval = plugin.getConfig().getLong("storage.mapped-sync-interval", 5);
+
+		// if interval is zero or negative, sync task is disabled; pages are written by the operating system
+		if (interval <= 0) {
+			return;
+		}
+
+		// convert seconds to ticks and start task
+		long ticks = TimeUnit.SECONDS.toMillis(interval) / 50;
+		syncTask = new SyncTask(this);
+		syncTask.runTaskTimerAsynchronously(plugin, ticks, ticks);
+	}
+
+
+	@Override
+	public synchronized final int forEachChestRecord(final Consumer<DeathChest> consumer) {
+
+		int count = 0;
+		for (int slot = 0; slot < chestFile.getHighWater(); slot++) {
+			if (chestFile.isLive(slot)) {
+				consumer.accept(readChestRecord(slot));
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	@Override
+	public synchronized final List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		// if passed ownerUUID is null, return empty list
+		if (ownerUUID == null) {
+			return results;
+		}
+
+		forEachChestRecord(deathChest -> {
+			if (ownerUUID.equals(deathChest.getOwnerUUID())) {
+				results.add(deathChest);
+			}
+		});
+
+		// sort by expiration time, as the SQLite datastore does
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public synchronized final List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		forEachChestRecord(deathChest -> {
+			if (deathChest.getExpirationTime() > 0 && deathChest.getExpirationTime() < expirationTime) {
+				results.add(deathChest);
+			}
+		});
+
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public synchronized final int forEachBlockRecord(final Consumer<ChestBlock> consumer) {
+
+		int count = 0;
+		for (int slot = 0; slot < blockFile.getHighWater(); slot++) {
+			if (blockFile.isLive(slot)) {
+
+				// skip block records for worlds that are not loaded
+				ChestBlock chestBlock = readBlockRecord(slot);
+				if (chestBlock == null) {
+					continue;
+				}
+
+				consumer.accept(chestBlock);
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	@Override
+	synchronized final List<DeathChest> readChestRecordPage(final UUID afterChestUUID, final int limit) {
+
+		final List<DeathChest> page = new ArrayList<>(limit);
+
+		// read chest slots in order from the first chest after the passed UUID
+		final Map<UUID, Integer> tail = afterChestUUID == null
+				? chestSlots
+				: chestSlots.tailMap(afterChestUUID, false);
+		for (int slot : tail.values()) {
+			if (page.size() >= limit) {
+				break;
+			}
+			page.add(readChestRecord(slot));
+		}
+		return page;
+	}
+
+
+	@Override
+	synchronized final List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		// read the block slots of each chest by its indexed block keys
+		for (UUID chestUUID : chestUUIDs) {
+			Set<String> blockKeys = chestBlockKeys.get(chestUUID);
+			if (blockKeys == null) {
+				continue;
+			}
+			for (String blockKey : blockKeys) {
+				ChestBlock chestBlock = readBlockRecord(blockSlots.get(blockKey));
+				if (chestBlock != null) {
+					results.add(chestBlock);
+				}
+			}
+		}
+		return results;
+	}
+
+
+	/**
+	 * Read the block record in a slot
+	 *
+	 * @param slot the slot number
+	 * @return the block record, or null if its world is not loaded
+	 */
+	private ChestBlock readBlockRecord(final int slot) {
+
+		ByteBuffer record = blockFile.record(slot);
+		UUID chestUUID = RecordCodec.getUUID(record);
+		UUID worldUID = RecordCodec.getUUID(record);
+		long position = record.getLong();
+
+		World world = plugin.worldCache.getWorld(worldUID);
+		if (world == null) {
+			return null;
+		}
+
+		return new ChestBlock(chestUUID, new Location(world,
+				RecordCodec.unpackX(position),
+				RecordCodec.unpackY(position),
+				RecordCodec.unpackZ(position)));
+	}
+
+
+	/**
+	 * Read the chest record in a slot
+	 *
+	 * @param slot the slot number
+	 * @return the chest record
+	 */
+	private DeathChest readChestRecord(final int slot) {
+
+		ByteBuffer record = chestFile.record(slot);
+
+		return new DeathChest(RecordCodec.getUUID(record),
+				RecordCodec.getUUID(record),
+				RecordCodec.getUUID(record),
+				record.getInt(),
+				record.getLong(),
+				record.getLong());
+	}
+
+
+	@Override
+	public synchronized final CompletableFuture<Void> putChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		try {
+			// get existing slot for chest, or allocate new slot
+			Integer slot = chestSlots.get(deathChest.getChestUUID());
+			if (slot == null) {
+				slot = chestFile.allocate();
+			}
+
+			// write record in place
+			ByteBuffer record = chestFile.record(slot);
+			RecordCodec.putUUID(record, deathChest.getChestUUID());
+			RecordCodec.putUUID(record, deathChest.getOwnerUUID());
+			RecordCodec.putUUID(record, deathChest.getKillerUUID());
+			record.putInt(deathChest.getItemCount());
+			record.putLong(deathChest.getPlacementTime());
+			record.putLong(deathChest.getExpirationTime());
+			chestFile.markLive(slot);
+
+			chestSlots.put(deathChest.getChestUUID(), slot);
+			dirty = true;
+		}
+		catch (IOException e) {
+			logWriteError("inserting chest record", e);
+			return failedFuture(e);
+		}
+
+		// if chest manager has not been created yet, there are no chest blocks to insert
+		if (plugin.chestManager == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// insert each chest block; a failed block insert fails the chest insert
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
+			futures.add(putBlockRecord(chestBlock));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+
+	@Override
+	synchronized final CompletableFuture<Void> putBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || chestBlock.getLocation().getWorld() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// block records are only inserted for existing chest records
+		if (!chestSlots.containsKey(chestBlock.getChestUUID())) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		final Location location = chestBlock.getLocation();
+		final UUID worldUID = location.getWorld().getUID();
+		final long position = RecordCodec.packPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+		final String blockKey = blockKey(worldUID, position);
+
+		try {
+			// get existing slot for block location, removing it from the block keys of the chest it held,
+			// or allocate new slot
+			Integer slot = blockSlots.get(blockKey);
+			if (slot == null) {
+				slot = blockFile.allocate();
+			}
+			else {
+				removeChestBlockKey(RecordCodec.getUUID(blockFile.record(slot)), blockKey);
+			}
+
+			// write record in place
+			ByteBuffer record = blockFile.record(slot);
+			RecordCodec.putUUID(record, chestBlock.getChestUUID());
+			RecordCodec.putUUID(record, worldUID);
+			record.putLong(position);
+			blockFile.markLive(slot);
+
+			blockSlots.put(blockKey, slot);
+			chestBlockKeys.computeIfAbsent(chestBlock.getChestUUID(), k -> new HashSet<>()).add(blockKey);
+			dirty = true;
+		}
+		catch (IOException e) {
+			logWriteError("inserting block record", e);
+			return failedFuture(e);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	@Override
+	synchronized final CompletableFuture<Void> removeChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// free chest slot
+		Integer slot = chestSlots.remove(deathChest.getChestUUID());
+		if (slot == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		chestFile.free(slot);
+
+		// free block slots of chest
+		Set<String> blockKeys = chestBlockKeys.remove(deathChest.getChestUUID());
+		if (blockKeys != null) {
+			for (String blockKey : blockKeys) {
+				Integer blockSlot = blockSlots.remove(blockKey);
+				if (blockSlot != null) {
+					blockFile.free(blockSlot);
+				}
+			}
+		}
+		dirty = true;
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	@Override
+	public synchronized final CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || chestBlock.getLocation().getWorld() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		final Location location = chestBlock.getLocation();
+		final String blockKey = blockKey(location.getWorld().getUID(),
+				RecordCodec.packPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+		Integer slot = blockSlots.remove(blockKey);
+		if (slot != null) {
+			removeChestBlockKey(RecordCodec.getUUID(blockFile.record(slot)), blockKey);
+			blockFile.free(slot);
+			dirty = true;
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	/**
+	 * Remove a block key from the block keys of a chest
+	 *
+	 * @param chestUUID the chest UUID
+	 * @param blockKey  the block key
+	 */
+	private void removeChestBlockKey(final UUID chestUUID, final String blockKey) {
+		Set<String> blockKeys = chestBlockKeys.get(chestUUID);
+		if (blockKeys != null) {
+			blockKeys.remove(blockKey);
+			if (blockKeys.isEmpty()) {
+				chestBlockKeys.remove(chestUUID);
+			}
+		}
+	}
+
+
+	/**
+	 * Get the key used to identify a block record by location
+	 *
+	 * @param worldUID the block world UID
+	 * @param position the packed block position
+	 * @return the block key
+	 */
+	private static String blockKey(final UUID worldUID, final long position) {
+		return worldUID + ":" + position;
+	}
+
+
+	/**
+	 * Output an error message for a failed write
+	 *
+	 * @param action the action that failed
+	 * @param e      the exception
+	 */
+	private void logWriteError(final String action, final IOException e) {
+
+		// output simple error message
+		plugin.getLogger().warning("An error occurred while " + action + " in the " + this.getName() + " datastore.");
+		plugin.getLogger().warning(e.getMessage());
+
+		// if debugging is enabled, output stack trace
+		if (plugin.debug) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Get the chest slot file
+	 *
+	 * @return the chest slot file
+	 */
+	private File getChestFile() {
+		return new File(plugin.getDataFolder() + File.separator + this.getFilename());
+	}
+
+
+	/**
+	 * Get the block slot file
+	 *
+	 * @return the block slot file
+	 */
+	private File getBlockFile() {
+		return new File(plugin.getDataFolder() + File.separator + "deathchests-blocks.dat");
+	}
+
+
+	/**
+	 * Close mapped files
+	 */
+	@Override
+	public synchronized final void close() {
+
+		if (isInitialized()) {
+
+			// stop sync task
+			if (syncTask != null) {
+				syncTask.cancel();
+			}
+
+			try {
+				chestFile.close();
+				blockFile.close();
+				plugin.getLogger().info(this.getName() + " datastore files closed.");
+			}
+			catch (IOException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while closing the " + this.getName() + " datastore files.");
+				plugin.getLogger().warning(e.getMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+			}
+			setInitialized(false);
+		}
+	}
+
+
+	/**
+	 * Force modified mapped pages to disk. The mappings are taken under the datastore lock,
+	 * and forced outside it, so inserts and deletes are not held up while the pages are written.
+	 */
+	@Override
+	final void sync() {
+
+		final MappedByteBuffer chestMapping;
+		final MappedByteBuffer blockMapping;
+
+		synchronized (this) {
+
+			// if datastore is not open, or no slots have been modified, do nothing and return
+			if (!isInitialized() || !dirty) {
+				return;
+			}
+
+			chestMapping = chestFile.getMapping();
+			blockMapping = blockFile.getMapping();
+			dirty = false;
+		}
+
+		// pages modified after the mappings were taken are forced by the next sync
+		if (chestMapping != null) {
+			chestMapping.force();
+		}
+		if (blockMapping != null) {
+			blockMapping.force();
+		}
+	}
+
+
+	@Override
+	final boolean delete() {
+
+		boolean result = false;
+		File dataStoreFile = getChestFile();
+		if (dataStoreFile.exists()) {
+			result = dataStoreFile.delete();
+		}
+
+		// delete block slot file
+		File blockFile = getBlockFile();
+		if (blockFile.exists()) {
+			//noinspection ResultOfMethodCallIgnored
+			blockFile.delete();
+		}
+		return result;
+	}
+
+
+	@Override
+	final boolean exists() {
+		// get path name to old data store file
+		return getChestFile().exists();
+	}
+
+}
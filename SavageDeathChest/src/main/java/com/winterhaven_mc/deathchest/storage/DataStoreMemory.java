@@ -0,0 +1,270 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.Location;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+
+/**
+ * In-memory implementation of Datastore, for servers where death chests do not need to survive a restart.<br>
+ * The chest manager's chest and block indexes are the only copy of the records, so inserts and deletes
+ * are no-ops, and reads are answered from the indexes. Nothing is written to disk, except an optional
+ * dump of the live records when the datastore is closed.
+ */
+final class DataStoreMemory extends DataStore {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreMemory(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.MEMORY;
+
+		// set filename of optional dump file
+		this.filename = "deathchests-dump.txt";
+	}
+
+
+	@Override
+	final void initialize() {
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized. Death chests will not be saved across restarts.");
+	}
+
+
+	@Override
+	public final int forEachChestRecord(final Consumer<DeathChest> consumer) {
+
+		// if chest manager has not been created yet, there are no records
+		if (plugin.chestManager == null) {
+			return 0;
+		}
+
+		int count = 0;
+		for (DeathChest deathChest : plugin.chestManager.getAllChests()) {
+			consumer.accept(deathChest);
+			count++;
+		}
+		return count;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		// if passed ownerUUID is null, return empty list
+		if (ownerUUID == null) {
+			return results;
+		}
+
+		forEachChestRecord(deathChest -> {
+			if (ownerUUID.equals(deathChest.getOwnerUUID())) {
+				results.add(deathChest);
+			}
+		});
+
+		// sort by expiration time, as the SQLite datastore does
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		forEachChestRecord(deathChest -> {
+			if (deathChest.getExpirationTime() > 0 && deathChest.getExpirationTime() < expirationTime) {
+				results.add(deathChest);
+			}
+		});
+
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public final int forEachBlockRecord(final Consumer<ChestBlock> consumer) {
+
+		// if chest manager has not been created yet, there are no records
+		if (plugin.chestManager == null) {
+			return 0;
+		}
+
+		int count = 0;
+		for (DeathChest deathChest : plugin.chestManager.getAllChests()) {
+			for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
+				consumer.accept(chestBlock);
+				count++;
+			}
+		}
+		return count;
+	}
+
+
+	@Override
+	final List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		// if chest manager has not been created yet, there are no records
+		if (plugin.chestManager == null) {
+			return results;
+		}
+
+		// look up the blocks of each chest in the block index
+		for (UUID chestUUID : chestUUIDs) {
+			results.addAll(plugin.chestManager.getBlockSet(chestUUID));
+		}
+		return results;
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> putChestRecord(final DeathChest deathChest) {
+		// no action necessary for this storage type; chest is held in chest index
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	@Override
+	final CompletableFuture<Void> putBlockRecord(final ChestBlock chestBlock) {
+		// no action necessary for this storage type; block is held in block index
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	@Override
+	final CompletableFuture<Void> removeChestRecord(final DeathChest deathChest) {
+		// no action necessary for this storage type; chest is removed from chest index
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock) {
+		// no action necessary for this storage type; block is removed from block index
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	/**
+	 * Close the datastore, writing a dump of the live records if enabled in config
+	 */
+	@Override
+	public final void close() {
+
+		if (isInitialized()) {
+
+			// write dump file for debugging, if enabled
+			if (plugin.getConfig().getBoolean("storage.memory-dump-on-close", false)) {
+				writeDump();
+			}
+			setInitialized(false);
+		}
+	}
+
+
+	/**
+	 * Write a text file listing all live chest and block records
+	 */
+	private void writeDump() {
+
+		final List<String> lines = new ArrayList<>();
+
+		forEachChestRecord(deathChest -> lines.add("chest,"
+				+ deathChest.getChestUUID() + ","
+				+ deathChest.getOwnerUUID() + ","
+				+ deathChest.getKillerUUID() + ","
+				+ deathChest.getItemCount() + ","
+				+ deathChest.getPlacementTime() + ","
+				+ deathChest.getExpirationTime()));
+
+		forEachBlockRecord(chestBlock -> {
+			Location location = chestBlock.getLocation();
+			lines.add("block,"
+					+ chestBlock.getChestUUID() + ","
+					+ (location.getWorld() == null ? "" : location.getWorld().getName()) + ","
+					+ location.getBlockX() + ","
+					+ location.getBlockY() + ","
+					+ location.getBlockZ());
+		});
+
+		File dumpFile = new File(plugin.getDataFolder() + File.separator + this.getFilename());
+		try {
+			Files.write(dumpFile.toPath(), lines, StandardCharsets.UTF_8);
+			plugin.getLogger().info(lines.size() + " records dumped to " + dumpFile.getName() + ".");
+		}
+		catch (IOException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while writing the " + this.getName() + " datastore dump file.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	@Override
+	final void sync() {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	final boolean delete() {
+		// no action necessary for this storage type; dump file is left for debugging
+		return true;
+	}
+
+
+	/**
+	 * Check for existence of datastore records. Records exist only while this datastore is open,
+	 * so live chests are converted when the storage type is changed by a reload, and a new
+	 * instance created at startup never has anything to convert.
+	 *
+	 * @return {@code true} if the datastore is initialized, {@code false} if it is not
+	 */
+	@Override
+	final boolean exists() {
+		return isInitialized();
+	}
+
+
+	@Override
+	public final boolean isPersistent() {
+		return false;
+	}
+
+}
@@ -4,13 +4,17 @@ import com.winterhaven_mc.deathchest.PluginMain;
 import com.winterhaven_mc.deathchest.chests.ChestBlock;
 import com.winterhaven_mc.deathchest.chests.DeathChest;
 import org.bukkit.Location;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.World;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.concurrent.TimeUnit;
 
 import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
@@ -24,14 +28,69 @@ import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
  */
 
 
-final class DataStoreSQLite extends DataStore {
+final class DataStoreSQLite extends DataStore implements BatchWriter {
 
 	// reference to main class
 	private final PluginMain plugin;
 
-	// database connection object
+	// valid journal mode settings
+	private final static List<String> journalModes =
+			Collections.unmodifiableList(new ArrayList<>(
+					Arrays.asList("WAL", "DELETE", "TRUNCATE", "PERSIST", "MEMORY", "OFF")));
+
+	// valid synchronous settings
+	private final static List<String> synchronousLevels =
+			Collections.unmodifiableList(new ArrayList<>(
+					Arrays.asList("OFF", "NORMAL", "FULL", "EXTRA")));
+
+	// database connection used by the write queue thread, and by maintenance synchronized with its batches
 	private Connection connection;
 
+	// prepared statements for the write connection
+	private StatementCache statementCache;
+
+	// read-only database connection used by reads on any thread, so a read never runs inside a write transaction
+	private Connection readConnection;
+
+	// prepared statements for the read connection
+	private StatementCache readStatementCache;
+
+	// single writer thread queue for all insert and delete operations
+	private WriteQueue writeQueue;
+
+	// cache of world dictionary keys by world name
+	private final Map<String, Integer> worldKeys = new ConcurrentHashMap<>();
+
+	// number of rows fetched from the database at a time when streaming records
+	private int fetchSize;
+
+	// true if database is in write-ahead log journal mode
+	private boolean walEnabled;
+
+	// repeating task to checkpoint the write-ahead log
+	private CheckpointTask checkpointTask;
+
+	// SQLite auto_vacuum value for incremental mode
+	private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+	// true if free pages are reclaimed by incremental vacuum
+	private boolean incrementalVacuum;
+
+	// true if the database must be rebuilt once by a full vacuum to enable incremental vacuum
+	private boolean fullVacuumPending;
+
+	// maximum number of free pages reclaimed by each incremental vacuum
+	private int vacuumPages;
+
+	// maximum number of pending write operations for the datastore to be considered lightly loaded
+	private int maintenanceMaxPendingWrites;
+
+	// repeating task to vacuum and optimize the database
+	private MaintenanceTask maintenanceTask;
+
+	// name used for this database in log messages and the writer thread name
+	private final String label;
+
 
 	/**
 	 * Class constructor
@@ -48,6 +107,32 @@ final class DataStoreSQLite extends DataStore {
 
 		// set filename
 		this.filename = "deathchests.db";
+
+		// set label
+		this.label = this.getName();
+	}
+
+
+	/**
+	 * Class constructor for a database file other than the default, such as a world shard
+	 *
+	 * @param plugin   reference to main class
+	 * @param filename the database filename, relative to the plugin data folder
+	 * @param label    the name used for this database in log messages and the writer thread name
+	 */
+	DataStoreSQLite(final PluginMain plugin, final String filename, final String label) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.SQLITE;
+
+		// set filename
+		this.filename = filename;
+
+		// set label
+		this.label = label;
 	}
 
 
@@ -63,87 +148,814 @@ final class DataStoreSQLite extends DataStore {
 
 		Class.forName(jdbcDriverName);
 
-		// create database url
-		String deathChestsDb = plugin.getDataFolder() + File.separator + filename;
-		String jdbc = "jdbc:sqlite";
-		String dbUrl = jdbc + ":" + deathChestsDb;
-
 		// create a database connection
-		connection = DriverManager.getConnection(dbUrl);
+		connection = DriverManager.getConnection(getUrl());
+
+		// get fetch size from config
+		fetchSize = Math.max(1, plugin.getConfig().getInt("storage.fetch-size", 1000));
 
 		final Statement statement = connection.createStatement();
 
 		// enable foreign keys
 		statement.executeUpdate(getQuery("EnableForeignKeys"));
 
-		// execute table creation statements
-		statement.executeUpdate(getQuery("CreateDeathChestTable"));
-		statement.executeUpdate(getQuery("CreateDeathBlockTable"));
+		// enable incremental vacuum; must be set before tables are created in a new database file
+		configureAutoVacuum(statement);
+
+		// set journal mode, synchronous level and page cache size
+		configurePragmas(statement);
+
+		// create tables, upgrading existing datastore file to current schema version if necessary
+		SQLiteSchema.update(plugin, connection);
+
+		// remove orphaned records
+		SQLiteReconciliation.reconcile(plugin, connection, label);
+
+		// load world dictionary keys
+		loadWorldKeys(statement);
+
+		// rebuild an existing database file to enable incremental vacuum, before the writer thread is started
+		if (fullVacuumPending) {
+			try {
+				fullVacuum();
+			}
+			catch (SQLException e) {
+
+				// output simple error message
+				plugin.getLogger().warning("An error occurred while rebuilding the " + label + " datastore "
+						+ "to enable incremental vacuum; it will be retried on the next startup.");
+				plugin.getLogger().warning(e.getMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		// check that indexed queries use their indexes; if not, update query planner statistics and check again
+		List<String> unindexedQueries = SQLiteSchema.verifyQueryPlans(plugin, connection);
+		if (!unindexedQueries.isEmpty()) {
+			statement.execute(getQuery("Analyze"));
+			unindexedQueries = SQLiteSchema.verifyQueryPlans(plugin, connection);
+			if (!unindexedQueries.isEmpty()) {
+				plugin.getLogger().warning(label + " datastore queries do not use an index: "
+						+ String.join(", ", unindexedQueries) + ".");
+			}
+		}
+
+		// prepare statements used by insert and delete operations
+		statementCache = new StatementCache(connection, plugin.queryProfiler);
+		statementCache.prepare("InsertChestRecord",
+				"InsertBlockRecord",
+				"DeleteChestByUUID",
+				"DeleteBlockByLocation");
+
+		// open read connection; in write-ahead log mode its reads see only committed batches, without blocking the writer
+		readConnection = DriverManager.getConnection(getUrl());
+		try (Statement readStatement = readConnection.createStatement()) {
+			readStatement.execute(String.format(getQuery("SetQueryOnly"), 1));
+			int cacheSize = plugin.getConfig().getInt("storage.cache-size", 2048);
+			if (cacheSize > 0) {
+				readStatement.execute(String.format(getQuery("SetCacheSize"), -cacheSize));
+			}
+		}
+		readStatementCache = new StatementCache(readConnection, plugin.queryProfiler);
+
+		// start writer thread
+		writeQueue = new WriteQueue(plugin, label, this);
+		writeQueue.start();
+
+		// start write-ahead log checkpoint task
+		startCheckpointTask();
+
+		// start vacuum and optimize task
+		startMaintenanceTask();
 
 		// set initialized true
 		setInitialized(true);
 
 		// output log message
-		plugin.getLogger().info(this.getName() + " datastore initialized.");
+		plugin.getLogger().info(label + " datastore initialized.");
+	}
+
+
+	/**
+	 * Enable incremental vacuum, if configured. A new database file is created in incremental mode.
+	 * An existing database file must be rebuilt by a full vacuum to change mode, which is done once
+	 * during startup, before the writer thread is started.
+	 *
+	 * @param statement the statement used to execute pragmas
+	 * @throws SQLException if a pragma could not be executed
+	 */
+	private void configureAutoVacuum(final Statement statement) throws SQLException {
+
+		// if incremental vacuum is disabled in config, leave auto vacuum mode unchanged
+		if (!plugin.getConfig().getBoolean("storage.incremental-vacuum", true)) {
+			return;
+		}
+
+		// set incremental mode; takes effect immediately only if no tables have been created
+		statement.execute(String.format(getQuery("SetAutoVacuum"), "INCREMENTAL"));
+
+		int autoVacuum = 0;
+		ResultSet rs = statement.executeQuery(getQuery("GetAutoVacuum"));
+		if (rs.next()) {
+			autoVacuum = rs.getInt(1);
+		}
+		rs.close();
+
+		incrementalVacuum = autoVacuum == AUTO_VACUUM_INCREMENTAL;
+		fullVacuumPending = !incrementalVacuum;
+
+		if (fullVacuumPending) {
+			plugin.getLogger().info(label + " datastore will be rebuilt to enable incremental vacuum.");
+		}
+	}
+
+
+	/**
+	 * Set journal mode, synchronous level and page cache size from config settings
+	 *
+	 * @param statement the statement used to execute pragmas
+	 * @throws SQLException if a pragma could not be executed
+	 */
+	private void configurePragmas(final Statement statement) throws SQLException {
+
+		// get journal mode from config, using WAL if setting is invalid
+		String journalMode = matchSetting(plugin.getConfig().getString("storage.journal-mode"), journalModes, "WAL");
+
+		// set journal mode; the pragma returns the journal mode actually in effect
+		ResultSet rs = statement.executeQuery(String.format(getQuery("SetJournalMode"), journalMode));
+		if (rs.next()) {
+			journalMode = rs.getString(1);
+		}
+		rs.close();
+		walEnabled = "WAL".equalsIgnoreCase(journalMode);
+
+		// get synchronous level from config, using NORMAL if setting is invalid
+		String synchronous = matchSetting(plugin.getConfig().getString("storage.synchronous"), synchronousLevels, "NORMAL");
+		statement.execute(String.format(getQuery("SetSynchronous"), synchronous));
+
+		// get page cache size in kibibytes from config; a negative cache_size value is interpreted as kibibytes
+		int cacheSize = plugin.getConfig().getInt("storage.cache-size", 2048);
+		if (cacheSize > 0) {
+			statement.execute(String.format(getQuery("SetCacheSize"), -cacheSize));
+		}
+
+		// output debugging information
+		if (plugin.debug) {
+			plugin.getLogger().info("SQLite journal mode: " + journalMode
+					+ ", synchronous: " + synchronous
+					+ ", cache size: " + cacheSize + " KiB");
+		}
+	}
+
+
+	/**
+	 * Match a config setting against a list of valid settings
+	 *
+	 * @param setting       the configured setting
+	 * @param validSettings the list of valid settings
+	 * @param defaultValue  the value to return if configured setting is not valid
+	 * @return the matching valid setting in upper case, or the default value if no match
+	 */
+	private String matchSetting(final String setting, final List<String> validSettings, final String defaultValue) {
+
+		// if setting is null, return default
+		if (setting == null) {
+			return defaultValue;
+		}
+
+		// if setting matches a valid setting, return valid setting
+		for (String validSetting : validSettings) {
+			if (validSetting.equalsIgnoreCase(setting.trim())) {
+				return validSetting;
+			}
+		}
+
+		plugin.getLogger().warning("Invalid storage setting '" + setting + "'; using " + defaultValue + ".");
+		return defaultValue;
+	}
+
+
+	/**
+	 * Load world dictionary keys into cache
+	 *
+	 * @param statement the statement used to query the world table
+	 * @throws SQLException if the world table could not be queried
+	 */
+	private void loadWorldKeys(final Statement statement) throws SQLException {
+
+		worldKeys.clear();
+
+		ResultSet rs = statement.executeQuery(getQuery("SelectAllWorlds"));
+		while (rs.next()) {
+			worldKeys.put(rs.getString("WorldName"), rs.getInt("WorldKey"));
+		}
+		rs.close();
+	}
+
+
+	/**
+	 * Find the world dictionary key for a world name.
+	 * Called only from the write queue thread.
+	 *
+	 * @param worldName the world name
+	 * @return the world key, or null if the world is not in the world dictionary
+	 * @throws SQLException if the world table could not be queried
+	 */
+	private Integer findWorldKey(final String worldName) throws SQLException {
+
+		// if world key is cached, return it
+		Integer worldKey = worldKeys.get(worldName);
+		if (worldKey != null) {
+			return worldKey;
+		}
+
+		// query world key
+		PreparedStatement preparedStatement = statementCache.get("SelectWorldKey");
+		preparedStatement.setString(1, worldName);
+		final long startTime = plugin.queryProfiler.start();
+		ResultSet rs = preparedStatement.executeQuery();
+		if (rs.next()) {
+			worldKey = rs.getInt(1);
+
+			// put world key in cache
+			worldKeys.put(worldName, worldKey);
+		}
+		rs.close();
+		plugin.queryProfiler.record("SelectWorldKey", startTime, worldKey == null ? 0 : 1);
+
+		return worldKey;
+	}
+
+
+	/**
+	 * Get the world dictionary key for a world name, inserting a new world record if necessary.
+	 * Called only from the write queue thread.
+	 *
+	 * @param worldName the world name
+	 * @return the world key
+	 * @throws SQLException if the world key could not be retrieved
+	 */
+	private int getWorldKey(final String worldName) throws SQLException {
+
+		// if world is already in dictionary, return key
+		Integer worldKey = findWorldKey(worldName);
+		if (worldKey != null) {
+			return worldKey;
+		}
+
+		// insert world record
+		PreparedStatement preparedStatement = statementCache.get("InsertWorldRecord");
+		preparedStatement.setString(1, worldName);
+		executeUpdate("InsertWorldRecord", preparedStatement);
+
+		// get new world key
+		worldKey = findWorldKey(worldName);
+		if (worldKey == null) {
+			throw new SQLException("Could not get world key for world '" + worldName + "'.");
+		}
+		return worldKey;
+	}
+
+
+	/**
+	 * Start repeating asynchronous task to checkpoint the write-ahead log, if enabled
+	 */
+	private void startCheckpointTask() {
+
+		// if not in write-ahead log mode, no checkpoint task is needed
+		if (!walEnabled) {
+			return;
+		}
+
+		// get checkpoint interval in seconds from config
+		long interval = plugin.getConfig().getLong("storage.checkpoint-interval", 300);
+
+		// if interval is zero or negative, checkpoint task is disabled
+		if (interval <= 0) {
+			return;
+		}
+
+		// convert seconds to ticks and start task
+		long ticks = TimeUnit.SECONDS.toMillis(interval) / 50;
+		checkpointTask = new CheckpointTask(this);
+		checkpointTask.runTaskTimerAsynchronously(plugin, ticks, ticks);
+	}
+
+
+	/**
+	 * Start repeating asynchronous task to vacuum and optimize the database, if enabled
+	 */
+	private void startMaintenanceTask() {
+
+		// get maintenance interval in seconds from config
+		long interval = plugin.getConfig().getLong("storage.maintenance-interval", 60);
+
+		// if interval is zero or negative, maintenance task is disabled
+		if (interval <= 0) {
+			return;
+		}
+
+		// get page budget and load threshold from config, substituting defaults for invalid values
+		vacuumPages = plugin.getConfig().getInt("storage.vacuum-pages", 256);
+		if (vacuumPages < 1) {
+			vacuumPages = 256;
+		}
+		maintenanceMaxPendingWrites = plugin.getConfig().getInt("storage.maintenance-max-pending-writes", 32);
+		if (maintenanceMaxPendingWrites < 0) {
+			maintenanceMaxPendingWrites = 32;
+		}
+
+		// get optimize interval in minutes from config; zero disables optimize
+		long optimizeInterval = plugin.getConfig().getLong("storage.optimize-interval", 360);
+		if (optimizeInterval < 0) {
+			optimizeInterval = 360;
+		}
+
+		// convert seconds to ticks and start task
+		long ticks = TimeUnit.SECONDS.toMillis(interval) / 50;
+		maintenanceTask = new MaintenanceTask(this, optimizeInterval);
+		maintenanceTask.runTaskTimerAsynchronously(plugin, ticks, ticks);
+	}
+
+
+	/**
+	 * Check if the datastore is lightly loaded enough to run maintenance
+	 *
+	 * @return {@code true} if no more than the configured number of write operations are pending
+	 */
+	final boolean isLightlyLoaded() {
+		return writeQueue.size() <= maintenanceMaxPendingWrites;
+	}
+
+
+	/**
+	 * Reclaim free pages. Reclaims up to the configured page budget with an incremental vacuum, in a single
+	 * transaction, so the writer thread is held up only briefly. Synchronized with batch commits,
+	 * so the vacuum never runs on the connection while the write queue thread has a transaction open.
+	 */
+	synchronized final void vacuum() {
+
+		// if datastore has been closed, do nothing and return
+		if (!isInitialized()) {
+			return;
+		}
+
+		try {
+			// if incremental vacuum is not enabled, do nothing and return
+			if (!incrementalVacuum) {
+				return;
+			}
+
+			// if there are no free pages, do nothing and return
+			final int freePages = getPragmaInt("GetFreelistCount");
+			if (freePages == 0) {
+				return;
+			}
+
+			// each step of the incremental vacuum pragma reclaims one page, so execute it once per page
+			final int pages = Math.min(freePages, vacuumPages);
+			final long startTime = plugin.queryProfiler.start();
+			connection.setAutoCommit(false);
+			try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("IncrementalVacuum"))) {
+				for (int i = 0; i < pages; i++) {
+					preparedStatement.execute();
+				}
+				connection.commit();
+			}
+			catch (SQLException e) {
+				connection.rollback();
+				plugin.queryProfiler.recordFailure("IncrementalVacuum", startTime, e);
+				throw e;
+			}
+			finally {
+				connection.setAutoCommit(true);
+			}
+
+			final int reclaimedPages = freePages - getPragmaInt("GetFreelistCount");
+			plugin.queryProfiler.record("IncrementalVacuum", startTime, reclaimedPages);
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(label + " incremental vacuum reclaimed "
+						+ (long) reclaimedPages * getPragmaInt("GetPageSize") + " bytes; "
+						+ (freePages - reclaimedPages) + " free pages remain.");
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while vacuuming the " + label + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Rebuild the database with a full vacuum, so the auto vacuum mode set at startup takes effect.
+	 * Called once during startup, before the writer thread is started, for a database file created
+	 * before incremental vacuum was enabled.
+	 *
+	 * @throws SQLException if the database could not be rebuilt; it is retried on the next startup
+	 */
+	private void fullVacuum() throws SQLException {
+
+		final long fileSize = new File(plugin.getDataFolder(), filename).length();
+
+		try (Statement statement = connection.createStatement()) {
+
+			final long startTime = plugin.queryProfiler.start();
+			try {
+				statement.execute(getQuery("Vacuum"));
+			}
+			catch (SQLException e) {
+				plugin.queryProfiler.recordFailure("Vacuum", startTime, e);
+				throw e;
+			}
+			plugin.queryProfiler.record("Vacuum", startTime, 0);
+		}
+
+		fullVacuumPending = false;
+		incrementalVacuum = getPragmaInt("GetAutoVacuum") == AUTO_VACUUM_INCREMENTAL;
+
+		// in write-ahead log mode, the database file shrinks when the rebuilt pages are checkpointed
+		checkpoint("TRUNCATE");
+
+		plugin.getLogger().info(label + " datastore rebuilt to enable incremental vacuum; "
+				+ (fileSize - new File(plugin.getDataFolder(), filename).length()) + " bytes reclaimed.");
+	}
+
+
+	/**
+	 * Update query planner statistics. Analyzes all tables the first time, and afterwards lets
+	 * SQLite analyze only the tables whose statistics are out of date. Synchronized with batch commits.
+	 */
+	synchronized final void optimize() {
+
+		// if datastore has been closed, do nothing and return
+		if (!isInitialized()) {
+			return;
+		}
+
+		try (Statement statement = connection.createStatement()) {
+
+			// if tables have never been analyzed, analyze them all
+			String queryName = "Optimize";
+			try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("SelectTableExists"))) {
+				preparedStatement.setString(1, "sqlite_stat1");
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+					if (!rs.next()) {
+						queryName = "Analyze";
+					}
+				}
+			}
+
+			final long startTime = plugin.queryProfiler.start();
+			try {
+				statement.execute(getQuery(queryName));
+			}
+			catch (SQLException e) {
+				plugin.queryProfiler.recordFailure(queryName, startTime, e);
+				throw e;
+			}
+			plugin.queryProfiler.record(queryName, startTime, 0);
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(label + " query planner statistics updated by " + queryName + ".");
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while optimizing the " + label + " datastore.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Get the integer value of a pragma
+	 *
+	 * @param queryName the query name of the pragma
+	 * @return the pragma value, or zero if the pragma returned no value
+	 * @throws SQLException if the pragma could not be executed
+	 */
+	private int getPragmaInt(final String queryName) throws SQLException {
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery(getQuery(queryName))) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+
+	/**
+	 * Checkpoint the write-ahead log. Synchronized with batch commits, so that a checkpoint
+	 * is never run on the connection while the write queue thread has a transaction open.
+	 *
+	 * @param mode the checkpoint mode: PASSIVE, FULL, RESTART or TRUNCATE
+	 */
+	synchronized final void checkpoint(final String mode) {
+
+		// if not in write-ahead log mode, do nothing and return
+		if (!walEnabled) {
+			return;
+		}
+
+		// checkpoint returns busy flag, frames in log and frames checkpointed
+		final long startTime = plugin.queryProfiler.start();
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery(String.format(getQuery("CheckpointWal"), mode))) {
+
+			plugin.queryProfiler.record("CheckpointWal", startTime, 0);
+
+			// output debugging information
+			if (plugin.debug && rs.next()) {
+				plugin.getLogger().info("SQLite " + mode + " checkpoint: "
+						+ rs.getInt(3) + " of " + rs.getInt(2) + " log frames checkpointed"
+						+ (rs.getInt(1) != 0 ? " (busy)." : "."));
+			}
+		}
+		catch (SQLException e) {
+			plugin.queryProfiler.recordFailure("CheckpointWal", startTime, e);
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while checkpointing the SQLite write-ahead log.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
 	}
 
 
 	@Override
-	public final List<ChestBlock> getAllBlockRecords() {
+	public final int forEachBlockRecord(final Consumer<ChestBlock> consumer) {
 
-		final List<ChestBlock> results = new ArrayList<>();
+		int count = 0;
+
+		try {
+
+			PreparedStatement preparedStatement =
+					readStatementCache.get("SelectAllBlocks");
+
+			synchronized (preparedStatement) {
+
+				// set number of rows fetched from database at a time
+				preparedStatement.setFetchSize(fetchSize);
+
+				// execute sql query
+				final long startTime = plugin.queryProfiler.start();
+				ResultSet rs = preparedStatement.executeQuery();
+
+				while (rs.next()) {
+
+					// declare chestUUID
+					UUID chestUUID;
+
+					// try to convert chest uuid from stored bytes
+					try {
+						chestUUID = Objects.requireNonNull(RecordCodec.toUUID(rs.getBytes("ChestUUID")));
+					}
+					catch (Exception e) {
+						plugin.getLogger().warning("[SQLite forEachBlockRecord] An error occurred while trying to set chestUUID.");
+						plugin.getLogger().warning(e.getLocalizedMessage());
+						continue;
+					}
+
+					String worldName = rs.getString("WorldName");
+
+					// skip block records for worlds that are not loaded; expired chests in unloaded worlds
+					// are removed by reconciliation at startup
+					World world = plugin.worldCache.getWorld(worldName);
+					if (world == null) {
+						continue;
+					}
+
+					// get packed block position
+					long position = rs.getLong("Position");
+
+					// create Location object from database fields
+					Location location = new Location(world,
+							RecordCodec.unpackX(position),
+							RecordCodec.unpackY(position),
+							RecordCodec.unpackZ(position));
+
+					// pass ChestBlock object to consumer
+					consumer.accept(new ChestBlock(chestUUID, location));
+					count++;
+				}
+				rs.close();
+				plugin.queryProfiler.record("SelectAllBlocks", startTime, count);
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to "
+					+ "fetch all block records from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		if (plugin.debug) {
+			plugin.getLogger().info(count + " block records fetched from SQLite datastore.");
+		}
+		return count;
+	}
+
+
+	@Override
+	public final int forEachChestRecord(final Consumer<DeathChest> consumer) {
+
+		int count = 0;
+
+		try {
+
+			PreparedStatement preparedStatement =
+					readStatementCache.get("SelectAllChests");
+
+			synchronized (preparedStatement) {
+
+				// set number of rows fetched from database at a time
+				preparedStatement.setFetchSize(fetchSize);
+
+				// execute sql query
+				final long startTime = plugin.queryProfiler.start();
+				count = readChestRecords(preparedStatement.executeQuery(), consumer);
+				plugin.queryProfiler.record("SelectAllChests", startTime, count);
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch all chest records from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		if (plugin.debug) {
+			plugin.getLogger().info(count + " chest records fetched from SQLite datastore.");
+		}
+		return count;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		// if passed ownerUUID is null, return empty list
+		if (ownerUUID == null) {
+			return results;
+		}
+
+		try {
+
+			PreparedStatement preparedStatement =
+					readStatementCache.get("SelectChestsByOwner");
+
+			synchronized (preparedStatement) {
+
+				preparedStatement.setBytes(1, RecordCodec.toBytes(ownerUUID));
+
+				// execute sql query
+				final long startTime = plugin.queryProfiler.start();
+				int count = readChestRecords(preparedStatement.executeQuery(), results::add);
+				plugin.queryProfiler.record("SelectChestsByOwner", startTime, count);
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch chest records by owner from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime) {
+
+		final List<DeathChest> results = new ArrayList<>();
+
+		try {
+
+			PreparedStatement preparedStatement =
+					readStatementCache.get("SelectChestsExpiringBefore");
+
+			synchronized (preparedStatement) {
+
+				preparedStatement.setLong(1, expirationTime);
+
+				// execute sql query
+				final long startTime = plugin.queryProfiler.start();
+				int count = readChestRecords(preparedStatement.executeQuery(), results::add);
+				plugin.queryProfiler.record("SelectChestsExpiringBefore", startTime, count);
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch expiring chest records from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		return results;
+	}
+
+
+	@Override
+	public final boolean hasChestIndex() {
+		return true;
+	}
+
+
+	@Override
+	final boolean supportsBackup() {
+		return true;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecords(final Collection<UUID> chestUUIDs) {
+
+		final List<DeathChest> results = new ArrayList<>();
 
 		try {
 
 			PreparedStatement preparedStatement =
-					connection.prepareStatement(getQuery("SelectAllBlocks"));
-
-			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+					readStatementCache.get("SelectChestByUUID");
 
-			while (rs.next()) {
+			synchronized (preparedStatement) {
 
-				// declare chestUUID
-				UUID chestUUID;
+				for (UUID chestUUID : chestUUIDs) {
+					preparedStatement.setBytes(1, RecordCodec.toBytes(chestUUID));
 
-				// try to convert chest uuid from stored string
-				try {
-					chestUUID = UUID.fromString(rs.getString("ChestUUID"));
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("[SQLite getAllBlockRecords] An error occurred while trying to set chestUUID.");
-					plugin.getLogger().warning("[SQLite getAllBlockRecords] chestUUID string: " + rs.getString("ChestUUID"));
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					continue;
+					// execute sql query
+					final long startTime = plugin.queryProfiler.start();
+					int count = readChestRecords(preparedStatement.executeQuery(), results::add);
+					plugin.queryProfiler.record("SelectChestByUUID", startTime, count);
 				}
+			}
+		}
+		catch (SQLException e) {
 
-				String worldName = rs.getString("WorldName");
-
-				// check that world is valid
-				if (plugin.getServer().getWorld(worldName) == null) {
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while trying to fetch chest records by UUID from the SQLite database.");
+			plugin.getLogger().warning(e.getMessage());
 
-					// delete all records expired more than 30 days in database that have this invalid world
-					deleteOrphanedChests(worldName);
-					continue;
-				}
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+		return results;
+	}
 
-				// create Location object from database fields
-				Location location = new Location(plugin.getServer().getWorld(worldName),
-						rs.getInt("X"),
-						rs.getInt("Y"),
-						rs.getInt("Z"));
 
-				ChestBlock chestBlock = new ChestBlock(chestUUID, location);
+	@Override
+	public final List<ChestBlock> getBlockRecords(final Collection<UUID> chestUUIDs) {
 
-				// add DeathChestObject to results ArrayList
-				results.add(chestBlock);
-			}
+		try {
+			return readBlockRecords(chestUUIDs);
 		}
 		catch (SQLException e) {
 
 			// output simple error message
-			plugin.getLogger().warning("An error occurred while trying to "
-					+ "fetch all block records from the SQLite database.");
+			plugin.getLogger().warning("An error occurred while trying to fetch block records by chest from the SQLite database.");
 			plugin.getLogger().warning(e.getMessage());
 
 			// if debugging is enabled, output stack trace
@@ -151,375 +963,587 @@ final class DataStoreSQLite extends DataStore {
 				e.printStackTrace();
 			}
 		}
-		if (plugin.debug) {
-			plugin.getLogger().info(results.size() + " block records fetched from SQLite datastore.");
+		return new ArrayList<>();
+	}
+
+
+	@Override
+	final List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) throws SQLException {
+
+		final List<ChestBlock> results = new ArrayList<>();
+
+		PreparedStatement preparedStatement =
+				readStatementCache.get("SelectBlocksByChest");
+
+		synchronized (preparedStatement) {
+
+			for (UUID chestUUID : chestUUIDs) {
+				preparedStatement.setBytes(1, RecordCodec.toBytes(chestUUID));
+
+				// execute sql query
+				final long startTime = plugin.queryProfiler.start();
+				int count = 0;
+				ResultSet rs = preparedStatement.executeQuery();
+				while (rs.next()) {
+					count++;
+
+					// skip block records for worlds that are not loaded
+					World world = plugin.worldCache.getWorld(rs.getString("WorldName"));
+					if (world == null) {
+						continue;
+					}
+
+					// get packed block position
+					long position = rs.getLong("Position");
+
+					// create ChestBlock object from database fields
+					results.add(new ChestBlock(chestUUID, new Location(world,
+							RecordCodec.unpackX(position),
+							RecordCodec.unpackY(position),
+							RecordCodec.unpackZ(position))));
+				}
+				rs.close();
+				plugin.queryProfiler.record("SelectBlocksByChest", startTime, count);
+			}
 		}
 		return results;
 	}
 
 
 	@Override
-	public final List<DeathChest> getAllChestRecords() {
+	final List<DeathChest> readChestRecordPage(final UUID afterChestUUID, final int limit) throws SQLException {
 
 		final List<DeathChest> results = new ArrayList<>();
 
-		try {
+		// the first page has no preceding chest UUID
+		final String queryName = afterChestUUID == null ? "SelectFirstChestPage" : "SelectChestPage";
 
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(getQuery("SelectAllChests"));
+		PreparedStatement preparedStatement = readStatementCache.get(queryName);
 
-			// execute sql query
-			ResultSet rs = preparedStatement.executeQuery();
+		synchronized (preparedStatement) {
 
-			while (rs.next()) {
+			int index = 1;
+			if (afterChestUUID != null) {
+				preparedStatement.setBytes(index++, RecordCodec.toBytes(afterChestUUID));
+			}
+			preparedStatement.setInt(index, limit);
 
-				UUID chestUUID;
-				UUID ownerUUID;
-				UUID killerUUID;
+			// execute sql query
+			final long startTime = plugin.queryProfiler.start();
+			int count = readChestRecords(preparedStatement.executeQuery(), results::add);
+			plugin.queryProfiler.record(queryName, startTime, count);
+		}
+		return results;
+	}
 
-				// try to convert chest uuid from stored string
-				try {
-					chestUUID = UUID.fromString(rs.getString("ChestUUID"));
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("[SQLite getAllChestRecords] An error occurred while trying to set chestUUID.");
-					plugin.getLogger().warning("[SQLite getAllChestRecords] chestUUID string: " + rs.getString("ChestUUID"));
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					continue;
-				}
 
-				// try to convert owner uuid from stored string
-				try {
-					ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("[SQLite getAllChestRecords] An error occurred while trying to set ownerUUID.");
-					plugin.getLogger().warning("[SQLite getAllChestRecords] ownerUUID string: " + rs.getString("OwnerUUID"));
-					plugin.getLogger().warning(e.getLocalizedMessage());
-					continue;
-				}
+	/**
+	 * Create DeathChest objects from chest table rows and pass each to a consumer.
+	 * Rows with invalid chest or owner UUIDs are skipped.
+	 *
+	 * @param rs       the result set of a chest table query
+	 * @param consumer the consumer to receive each DeathChest
+	 * @return the number of DeathChest objects passed to the consumer
+	 * @throws SQLException if the result set could not be read
+	 */
+	private int readChestRecords(final ResultSet rs, final Consumer<DeathChest> consumer) throws SQLException {
 
-				// try to convert killer uuid from stored string, or set to null if invalid uuid
-				try {
-					killerUUID = UUID.fromString(rs.getString("KillerUUID"));
-				}
-				catch (Exception e) {
-					killerUUID = null;
-				}
+		int count = 0;
 
-				// set other fields in deathChestBlock from database fields
-				int itemCount = rs.getInt("ItemCount");
-				long placementTime = rs.getLong("PlacementTime");
-				long expirationTime = rs.getLong("ExpirationTime");
+		while (rs.next()) {
 
-				DeathChest deathChest = new DeathChest(chestUUID, ownerUUID, killerUUID, itemCount, placementTime, expirationTime);
+			UUID chestUUID;
+			UUID ownerUUID;
+			UUID killerUUID;
 
-				// add DeathChestObject to results ArrayList
-				results.add(deathChest);
+			// try to convert chest uuid from stored bytes
+			try {
+				chestUUID = Objects.requireNonNull(RecordCodec.toUUID(rs.getBytes("ChestUUID")));
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("[SQLite readChestRecords] An error occurred while trying to set chestUUID.");
+				plugin.getLogger().warning("[SQLite readChestRecords] chest key: " + rs.getLong("ChestKey"));
+				continue;
 			}
-		}
-		catch (SQLException e) {
 
-			// output simple error message
-			plugin.getLogger().warning("An error occurred while trying to fetch all chest records from the SQLite database.");
-			plugin.getLogger().warning(e.getMessage());
+			// try to convert owner uuid from stored bytes
+			try {
+				ownerUUID = Objects.requireNonNull(RecordCodec.toUUID(rs.getBytes("OwnerUUID")));
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("[SQLite readChestRecords] An error occurred while trying to set ownerUUID.");
+				plugin.getLogger().warning("[SQLite readChestRecords] chest key: " + rs.getLong("ChestKey"));
+				continue;
+			}
 
-			// if debugging is enabled, output stack trace
-			if (plugin.debug) {
-				e.printStackTrace();
+			// try to convert killer uuid from stored bytes, or set to null if invalid uuid
+			try {
+				killerUUID = RecordCodec.toUUID(rs.getBytes("KillerUUID"));
 			}
+			catch (Exception e) {
+				killerUUID = null;
+			}
+
+			// set other fields in deathChestBlock from database fields
+			int itemCount = rs.getInt("ItemCount");
+			long placementTime = rs.getLong("PlacementTime");
+			long expirationTime = rs.getLong("ExpirationTime");
+
+			DeathChest deathChest = new DeathChest(chestUUID, ownerUUID, killerUUID, itemCount, placementTime, expirationTime);
+
+			// pass DeathChest object to consumer
+			consumer.accept(deathChest);
+			count++;
 		}
-		if (plugin.debug) {
-			plugin.getLogger().info(results.size() + " chest records fetched from SQLite datastore.");
-		}
-		return results;
+		rs.close();
+
+		return count;
 	}
 
 
 	@Override
-	public synchronized final void putChestRecord(final DeathChest deathChest) {
+	public final CompletableFuture<Void> putChestRecord(final DeathChest deathChest) {
 
-		// if passed deathChestBlock is null, do nothing and return
+		// if passed deathChest is null, do nothing and return
 		if (deathChest == null) {
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-
-				// catch invalid chest uuid exception
-				String chestUUID;
-				try {
-					chestUUID = deathChest.getChestUUID().toString();
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("DeathChest chest UUID is invalid.");
-					return;
-				}
+		// queue chest record insert
+		final CompletableFuture<Void> chestFuture =
+				writeQueue.submit(new WriteOperation(WriteOperationType.PUT_CHEST, deathChest));
 
-				// catch invalid player uuid exception
-				String ownerUUID;
-				try {
-					ownerUUID = deathChest.getOwnerUUID().toString();
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("DeathChest owner UUID is invalid.");
-					return;
-				}
+		// if chest manager has not been created yet, there are no chest blocks to insert
+		if (plugin.chestManager == null) {
+			return chestFuture;
+		}
 
-				// catch invalid killer uuid exception
-				String killerUUID;
-				try {
-					killerUUID = deathChest.getKillerUUID().toString();
-				}
-				catch (Exception e) {
-					killerUUID = null;
-				}
+		// queue insert for each chest block; blocks are committed after the chest record
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		futures.add(chestFuture);
+		for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
+			futures.add(putBlockRecord(chestBlock));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
 
-				try {
-					// create prepared statement
-					PreparedStatement preparedStatement =
-							connection.prepareStatement(getQuery("InsertChestRecord"));
 
-					preparedStatement.setString(1, chestUUID);
-					preparedStatement.setString(2, ownerUUID);
-					preparedStatement.setString(3, killerUUID);
-					preparedStatement.setInt(4, deathChest.getItemCount());
-					preparedStatement.setLong(5, deathChest.getPlacementTime());
-					preparedStatement.setLong(6, deathChest.getExpirationTime());
+	@Override
+	final CompletableFuture<Void> putBlockRecord(final ChestBlock chestBlock) {
 
-					// execute prepared statement
-					int rowsAffected = preparedStatement.executeUpdate();
+		// if passed chestBlock is null, do nothing and return
+		if (chestBlock == null) {
+			return CompletableFuture.completedFuture(null);
+		}
 
-					// output debugging information
-					if (plugin.debug) {
-						plugin.getLogger().info(rowsAffected + " chest records inserted.");
-					}
-				}
-				catch (SQLException e) {
+		// queue block record insert
+		return writeQueue.submit(new WriteOperation(WriteOperationType.PUT_BLOCK, chestBlock));
+	}
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while inserting a DeathChest into the SQLite database.");
-					plugin.getLogger().warning(e.getMessage());
 
-					// if debugging is enabled, output stack trace
-					if (plugin.debug) {
-						e.printStackTrace();
-					}
-				}
+	@Override
+	final CompletableFuture<Void> removeChestRecord(final DeathChest deathChest) {
 
-				// insert each chest block into datastore
-				for (ChestBlock chestBlock : plugin.chestManager.getBlockSet(deathChest.getChestUUID())) {
-					putBlockRecord(chestBlock);
-				}
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
 
-			}
-		}.runTaskAsynchronously(plugin);
+		// queue chest record delete
+		return writeQueue.submit(new WriteOperation(WriteOperationType.DELETE_CHEST, deathChest));
 	}
 
 
 	@Override
-	synchronized void putBlockRecord(final ChestBlock chestBlock) {
+	public final CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock) {
 
-		// if passed deathChestBlock is null, do nothing and return
+		// if passed chestBlock is null, do nothing and return
 		if (chestBlock == null) {
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
-		new BukkitRunnable() {
-			@Override
-			public void run() {
+		// queue block record delete
+		return writeQueue.submit(new WriteOperation(WriteOperationType.DELETE_BLOCK, chestBlock));
+	}
 
-				// catch invalid player uuid exception
-				String chestUUID;
-				try {
-					chestUUID = chestBlock.getChestUUID().toString();
-				}
-				catch (Exception e) {
-					plugin.getLogger().warning("ChestBlock chest UUID is invalid.");
-					return;
-				}
 
-				try {
-					// create prepared statement
-					PreparedStatement preparedStatement =
-							connection.prepareStatement(getQuery("InsertBlockRecord"));
+	/**
+	 * Write a chunk of insert operations in a single transaction, returning once it is committed
+	 *
+	 * @param writeOperations the insert operations to write
+	 * @throws SQLException if the transaction could not be committed
+	 */
+	@Override
+	final void putRecords(final List<WriteOperation> writeOperations) throws SQLException {
+		writeBatch(writeOperations);
+	}
+
 
-					preparedStatement.setString(1, chestUUID);
-					preparedStatement.setString(2, chestBlock.getLocation().getWorld().getName());
-					preparedStatement.setInt(3, chestBlock.getLocation().getBlockX());
-					preparedStatement.setInt(4, chestBlock.getLocation().getBlockY());
-					preparedStatement.setInt(5, chestBlock.getLocation().getBlockZ());
+	/**
+	 * Commit a batch of write operations in a single transaction.
+	 * Called only from the write queue thread.
+	 *
+	 * @param batch the list of write operations to commit
+	 * @throws SQLException if the transaction could not be committed
+	 */
+	@Override
+	public synchronized final void writeBatch(final List<WriteOperation> batch) throws SQLException {
 
-					// execute prepared statement
-					int rowsAffected = preparedStatement.executeUpdate();
+		// begin transaction
+		connection.setAutoCommit(false);
 
-					// output debugging information
-					if (plugin.debug) {
-						plugin.getLogger().info(rowsAffected + " block records inserted.");
-					}
+		try {
+			int rowsAffected = 0;
+
+			// execute each write operation, deleting runs of consecutive chests with bulk statements
+			int index = 0;
+			while (index < batch.size()) {
+				if (batch.get(index).getType() == WriteOperationType.DELETE_CHEST) {
+					int end = WriteOperation.runEnd(batch, index, Queries.BULK_SIZE);
+					rowsAffected += deleteChests(batch.subList(index, end));
+					index = end;
+				}
+				else {
+					rowsAffected += executeWriteOperation(batch.get(index));
+					index++;
 				}
-				catch (SQLException e) {
+			}
+
+			// commit transaction; commit time includes syncing the database or write-ahead log to disk
+			final long startTime = plugin.queryProfiler.start();
+			try {
+				connection.commit();
+			}
+			catch (SQLException e) {
+				plugin.queryProfiler.recordFailure("Commit", startTime, e);
+				throw e;
+			}
+			plugin.queryProfiler.record("Commit", startTime, rowsAffected);
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while "
-							+ "inserting a death chest block into the SQLite database.");
-					plugin.getLogger().warning(e.getMessage());
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(rowsAffected + " rows affected by " + batch.size() + " write operations.");
+			}
+		}
+		catch (Exception e) {
 
-					// if debugging is enabled, output stack trace
-					if (plugin.debug) {
-						e.printStackTrace();
-					}
-				}
+			// roll back transaction on any failure, so ending the transaction does not commit a partial batch,
+			// and pass exception on to write queue
+			try {
+				connection.rollback();
+			}
+			catch (SQLException rollbackException) {
+				e.addSuppressed(rollbackException);
 			}
-		}.runTaskAsynchronously(plugin);
-	}
 
+			// world keys inserted in rolled back transaction are no longer valid
+			worldKeys.clear();
+			throw e;
+		}
+		finally {
 
-	@Override
-	synchronized public final void deleteChestRecord(final DeathChest deathChest) {
+			// end transaction
+			connection.setAutoCommit(true);
+		}
+	}
 
-		// if passed deathChest is null, do nothing and return
-		if (deathChest == null) {
-			return;
+
+	/**
+	 * Execute a single write operation within the current transaction
+	 *
+	 * @param writeOperation the write operation to execute
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int executeWriteOperation(final WriteOperation writeOperation) throws SQLException {
+
+		switch (writeOperation.getType()) {
+			case PUT_CHEST:
+				return insertChestRecord(writeOperation.getDeathChest());
+			case PUT_BLOCK:
+				return insertBlockRecord(writeOperation.getChestBlock());
+			case DELETE_CHEST:
+				return deleteChest(writeOperation.getDeathChest());
+			case DELETE_BLOCK:
+				return deleteBlock(writeOperation.getChestBlock());
 		}
+		return 0;
+	}
 
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-				try {
-					// create prepared statement
-					PreparedStatement preparedStatement =
-							connection.prepareStatement(getQuery("DeleteChestByUUID"));
 
-					preparedStatement.setString(1, deathChest.getChestUUID().toString());
+	/**
+	 * Insert a chest record
+	 *
+	 * @param deathChest the death chest to insert
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int insertChestRecord(final DeathChest deathChest) throws SQLException {
 
-					// execute prepared statement
-					int rowsAffected = preparedStatement.executeUpdate();
+		// catch invalid chest uuid
+		if (deathChest.getChestUUID() == null) {
+			plugin.getLogger().warning("DeathChest chest UUID is invalid.");
+			return 0;
+		}
 
-					// output debugging information
-					if (plugin.debug) {
-						plugin.getLogger().info(rowsAffected + " chest records deleted.");
-					}
-				}
-				catch (SQLException e) {
+		// catch invalid player uuid
+		if (deathChest.getOwnerUUID() == null) {
+			plugin.getLogger().warning("DeathChest owner UUID is invalid.");
+			return 0;
+		}
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while attempting to "
-							+ "delete a chest record from the " + toString() + " datastore.");
-					plugin.getLogger().warning(e.getMessage());
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				statementCache.get("InsertChestRecord");
 
-					// if debugging is enabled, output stack trace
-					if (plugin.debug) {
-						e.printStackTrace();
-					}
-				}
-			}
-		}.runTaskAsynchronously(plugin);
+		// killer uuid may be null
+		preparedStatement.setBytes(1, RecordCodec.toBytes(deathChest.getChestUUID()));
+		preparedStatement.setBytes(2, RecordCodec.toBytes(deathChest.getOwnerUUID()));
+		preparedStatement.setBytes(3, RecordCodec.toBytes(deathChest.getKillerUUID()));
+		preparedStatement.setInt(4, deathChest.getItemCount());
+		preparedStatement.setLong(5, deathChest.getPlacementTime());
+		preparedStatement.setLong(6, deathChest.getExpirationTime());
 
+		// execute prepared statement
+		return executeUpdate("InsertChestRecord", preparedStatement);
 	}
 
 
-	@Override
-	synchronized public final void deleteBlockRecord(final ChestBlock chestBlock) {
+	/**
+	 * Insert a block record
+	 *
+	 * @param chestBlock the chest block to insert
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int insertBlockRecord(final ChestBlock chestBlock) throws SQLException {
 
-		// if passed chestBlock is null, do nothing and return
-		if (chestBlock == null) {
-			return;
+		// catch invalid chest uuid
+		if (chestBlock.getChestUUID() == null) {
+			plugin.getLogger().warning("ChestBlock chest UUID is invalid.");
+			return 0;
 		}
 
 		// get chest block location
 		final Location location = chestBlock.getLocation();
 
-		new BukkitRunnable() {
-			@Override
-			public void run() {
-				try {
-					// create prepared statement
-					PreparedStatement preparedStatement =
-							connection.prepareStatement(getQuery("DeleteBlockByLocation"));
-
-					preparedStatement.setString(1, location.getWorld().getName());
-					preparedStatement.setInt(2, location.getBlockX());
-					preparedStatement.setInt(3, location.getBlockY());
-					preparedStatement.setInt(4, location.getBlockZ());
-
-					// execute prepared statement
-					int rowsAffected = preparedStatement.executeUpdate();
-
-					// output debugging information
-					if (plugin.debug) {
-						plugin.getLogger().info(rowsAffected + " block records deleted.");
-					}
-				}
-				catch (SQLException e) {
+		// get world key before preparing insert, because world lookup may use its own statements
+		final int worldKey = getWorldKey(location.getWorld().getName());
 
-					// output simple error message
-					plugin.getLogger().warning("An error occurred while attempting to "
-							+ "delete a record from the " + toString() + " datastore.");
-					plugin.getLogger().warning(e.getMessage());
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				statementCache.get("InsertBlockRecord");
 
-					// if debugging is enabled, output stack trace
-					if (plugin.debug) {
-						e.printStackTrace();
-					}
-				}
-			}
-		}.runTaskAsynchronously(plugin);
+		preparedStatement.setInt(1, worldKey);
+		preparedStatement.setLong(2, RecordCodec.packPosition(location.getBlockX(),
+				location.getBlockY(),
+				location.getBlockZ()));
+		preparedStatement.setBytes(3, RecordCodec.toBytes(chestBlock.getChestUUID()));
+
+		// execute prepared statement
+		return executeUpdate("InsertBlockRecord", preparedStatement);
 	}
 
 
 	/**
-	 * Delete orphaned chests in nonexistent world {@code worldName}
+	 * Delete a chest record
 	 *
-	 * @param worldName the world name of orphaned chests to delete
+	 * @param deathChest the death chest to delete
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
 	 */
-	private void deleteOrphanedChests(final String worldName) {
+	private int deleteChest(final DeathChest deathChest) throws SQLException {
 
-		// pastDueTime = current time in milliseconds - 30 days
-		final long pastDueTime = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30);
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				statementCache.get("DeleteChestByUUID");
 
-		try {
-			// create prepared statement
-			PreparedStatement preparedStatement =
-					connection.prepareStatement(getQuery("DeleteOrphanedChests"));
+		preparedStatement.setBytes(1, RecordCodec.toBytes(deathChest.getChestUUID()));
 
-			preparedStatement.setString(1, worldName);
-			preparedStatement.setLong(2, pastDueTime);
+		// execute prepared statement
+		return executeUpdate("DeleteChestByUUID", preparedStatement);
+	}
 
-			// execute prepared statement
-			int rowsAffected = preparedStatement.executeUpdate();
 
-			// output debugging information
-			if (plugin.debug) {
-				plugin.getLogger().info(rowsAffected + " rows deleted.");
-			}
+	/**
+	 * Delete up to {@link Queries#BULK_SIZE} chest records with a single statement.
+	 * Their block records are deleted by the foreign key cascade.
+	 *
+	 * @param deleteOperations the chest delete operations
+	 * @return the number of chest rows deleted
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int deleteChests(final List<WriteOperation> deleteOperations) throws SQLException {
+
+		// a single chest is deleted with the single row statement
+		if (deleteOperations.size() == 1) {
+			return deleteChest(deleteOperations.get(0).getDeathChest());
+		}
+
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				statementCache.getBulk("DeleteChestsByUUID");
+
+		// set every parameter, repeating the last chest UUID for unused parameters
+		for (int i = 0; i < Queries.BULK_SIZE; i++) {
+			DeathChest deathChest = deleteOperations.get(Math.min(i, deleteOperations.size() - 1)).getDeathChest();
+			preparedStatement.setBytes(i + 1, RecordCodec.toBytes(deathChest.getChestUUID()));
+		}
+
+		// execute prepared statement
+		return executeUpdate("DeleteChestsByUUID", preparedStatement);
+	}
+
+
+	/**
+	 * Delete a block record
+	 *
+	 * @param chestBlock the chest block to delete
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int deleteBlock(final ChestBlock chestBlock) throws SQLException {
+
+		// get chest block location
+		final Location location = chestBlock.getLocation();
+
+		// get world key; if world is not in dictionary, there is no block record to delete
+		final Integer worldKey = findWorldKey(location.getWorld().getName());
+		if (worldKey == null) {
+			return 0;
+		}
+
+		// create prepared statement
+		PreparedStatement preparedStatement =
+				statementCache.get("DeleteBlockByLocation");
+
+		preparedStatement.setInt(1, worldKey);
+		preparedStatement.setLong(2, RecordCodec.packPosition(location.getBlockX(),
+				location.getBlockY(),
+				location.getBlockZ()));
+
+		// execute prepared statement
+		return executeUpdate("DeleteBlockByLocation", preparedStatement);
+	}
+
+
+	/**
+	 * Execute an insert, update or delete statement, recording it in the profiler
+	 *
+	 * @param queryName         the query name of the statement
+	 * @param preparedStatement the prepared statement, with its parameters set
+	 * @return the number of rows affected
+	 * @throws SQLException if the statement could not be executed
+	 */
+	private int executeUpdate(final String queryName, final PreparedStatement preparedStatement) throws SQLException {
+
+		final long startTime = plugin.queryProfiler.start();
+		try {
+			final int rowsAffected = preparedStatement.executeUpdate();
+			plugin.queryProfiler.record(queryName, startTime, rowsAffected);
+			return rowsAffected;
 		}
 		catch (SQLException e) {
+			plugin.queryProfiler.recordFailure(queryName, startTime, e);
+			throw e;
+		}
+	}
 
-			// output simple error message
-			plugin.getLogger().warning("An error occurred while attempting to delete orphaned chests from the SQLite database.");
-			plugin.getLogger().warning(e.getMessage());
 
-			// if debugging is enabled, output stack trace
-			if (plugin.debug) {
-				e.printStackTrace();
-			}
+	/**
+	 * Get the database url
+	 *
+	 * @return the jdbc url of the database file
+	 */
+	private String getUrl() {
+
+		// create database url
+		String deathChestsDb = plugin.getDataFolder() + File.separator + filename;
+		String jdbc = "jdbc:sqlite";
+		return jdbc + ":" + deathChestsDb;
+	}
+
+
+	/**
+	 * Copy the database to a backup file while it remains in use. The copy is made on a connection of its own,
+	 * so in write-ahead log mode its read transaction sees a consistent snapshot without blocking the writer thread.
+	 * The copy is written to a temporary file and moved into place when complete.
+	 *
+	 * @param backupFolder the folder to write the backup to
+	 * @param backupName   the backup filename, without extension
+	 * @return the backup file
+	 * @throws SQLException if the database could not be copied
+	 * @throws IOException  if the backup file could not be moved into place
+	 */
+	@Override
+	final File backup(final File backupFolder, final String backupName) throws SQLException, IOException {
+
+		final File backupFile = new File(backupFolder, backupName + ".db");
+		final File tempFile = new File(backupFolder, backupName + ".db.tmp");
+
+		// remove temporary file left by an interrupted backup
+		Files.deleteIfExists(tempFile.toPath());
+
+		try (Connection backupConnection = DriverManager.getConnection(getUrl());
+			 PreparedStatement preparedStatement = backupConnection.prepareStatement(getQuery("BackupDatabase"))) {
+
+			// copy database to temporary file
+			preparedStatement.setString(1, tempFile.getPath());
+			executeUpdate("BackupDatabase", preparedStatement);
+		}
+		catch (SQLException e) {
+			Files.deleteIfExists(tempFile.toPath());
+			throw e;
 		}
+
+		// move completed backup into place
+		Files.move(tempFile.toPath(), backupFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+		return backupFile;
 	}
 
 
 	/**
-	 * Close database connection
+	 * Close database connections
 	 */
 	@Override
 	public final void close() {
 
 		if (isInitialized()) {
+
+			// commit any pending write operations before closing connection
+			writeQueue.shutdown();
+
+			// stop checkpoint and maintenance tasks
+			if (checkpointTask != null) {
+				checkpointTask.cancel();
+			}
+			if (maintenanceTask != null) {
+				maintenanceTask.cancel();
+			}
+
+			// update query planner statistics that queries run on this connection have shown to be out of date
+			if (maintenanceTask != null) {
+				optimize();
+			}
+
+			// checkpoint and truncate write-ahead log
+			checkpoint("TRUNCATE");
+
+			// output statement cache statistics
+			if (plugin.debug) {
+				plugin.getLogger().info(label + " statement cache: " + statementCache.toString()
+						+ "; read statement cache: " + readStatementCache.toString());
+			}
+
 			try {
+				// close cached statements
+				readStatementCache.close();
+				statementCache.close();
+
+				readConnection.close();
 				connection.close();
-				plugin.getLogger().info(this.getName() + " datastore connection closed.");
+				plugin.getLogger().info(label + " datastore connection closed.");
 			}
 			catch (SQLException e) {
 
@@ -551,6 +1575,15 @@ final class DataStoreSQLite extends DataStore {
 		if (dataStoreFile.exists()) {
 			result = dataStoreFile.delete();
 		}
+
+		// delete write-ahead log and shared memory files, if any
+		for (String suffix : Arrays.asList("-wal", "-shm")) {
+			File file = new File(dataStoreFile.getPath() + suffix);
+			if (file.exists()) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
 		return result;
 	}
 
@@ -0,0 +1,802 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.Location;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * Sharded SQLite implementation of Datastore
+ * for persistent storage of death chests and chest block objects.<br>
+ * Each world has its own SQLite database file in the shards folder, with its own connection and writer thread,
+ * so writes in one world do not contend for the write lock of another. A chest is stored in the shard of the
+ * world its blocks are in. A chest record whose world is not yet known, as when converting from another
+ * datastore before its blocks have been read, is held in an unassigned shard until its first block arrives.
+ * The shard of a world that has been removed from the server is dropped by moving its files to the dropped folder,
+ * where they are kept until removed by hand.
+ */
+final class DataStoreSQLiteSharded extends DataStore {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// shard filename extension
+	private static final String SHARD_EXTENSION = ".db";
+
+	// name of folder in the shards folder that shards of removed worlds are moved to
+	private static final String DROPPED_FOLDER = "dropped";
+
+	// name of shard for chests whose world is not yet known
+	private static final String UNASSIGNED_SHARD = "_unassigned";
+
+	// world shards by world name
+	private final Map<String, DataStoreSQLite> shards = new ConcurrentHashMap<>();
+
+	// shard for chests whose world is not yet known
+	private DataStoreSQLite unassignedShard;
+
+	// shard holding each chest record, by chest UUID
+	private final Map<UUID, DataStoreSQLite> chestShards = new ConcurrentHashMap<>();
+
+	// chest records held in the unassigned shard, by chest UUID
+	private final Map<UUID, DeathChest> unassignedChests = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	DataStoreSQLiteSharded(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set datastore type
+		this.type = DataStoreType.SQLITE_SHARDED;
+
+		// set filename of shards folder
+		this.filename = "shards";
+	}
+
+
+	/**
+	 * Open all existing shards on the datastore executor, dropping shards of worlds that no longer exist
+	 */
+	@Override
+	final void initialize() throws Exception {
+
+		// create shards folder
+		File shardFolder = getShardFolder();
+		if (!shardFolder.isDirectory() && !shardFolder.mkdirs()) {
+			throw new Exception("Could not create shards folder " + shardFolder.getPath() + ".");
+		}
+
+		// start opening unassigned shard
+		final Map<String, CompletableFuture<DataStoreSQLite>> futures = new LinkedHashMap<>();
+		futures.put(UNASSIGNED_SHARD, openShardAsync(UNASSIGNED_SHARD));
+
+		// start opening world shards
+		File[] shardFiles = shardFolder.listFiles((dir, name) -> name.endsWith(SHARD_EXTENSION));
+		if (shardFiles != null) {
+			for (File shardFile : shardFiles) {
+
+				String worldName = shardFile.getName().substring(0, shardFile.getName().length() - SHARD_EXTENSION.length());
+				if (worldName.equals(UNASSIGNED_SHARD)) {
+					continue;
+				}
+
+				// if world has been removed from server, move its shard to the dropped folder
+				if (plugin.getServer().getWorld(worldName) == null
+						&& !new File(plugin.getServer().getWorldContainer(), worldName).isDirectory()) {
+					dropShard(worldName, shardFile);
+					continue;
+				}
+
+				futures.put(worldName, openShardAsync(worldName));
+			}
+		}
+
+		// wait for all shards to open, keeping the first failure
+		Exception failure = null;
+		for (Map.Entry<String, CompletableFuture<DataStoreSQLite>> entry : futures.entrySet()) {
+			try {
+				DataStoreSQLite shard = entry.getValue().join();
+				if (entry.getKey().equals(UNASSIGNED_SHARD)) {
+					unassignedShard = shard;
+				}
+				else {
+					shards.put(entry.getKey(), shard);
+				}
+			}
+			catch (CompletionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+
+		// if any shard could not be opened, close the shards that were opened and throw
+		if (failure != null) {
+			for (DataStoreSQLite shard : shards.values()) {
+				shard.close();
+			}
+			if (unassignedShard != null) {
+				unassignedShard.close();
+			}
+			shards.clear();
+			unassignedShard = null;
+			throw failure;
+		}
+
+		// set initialized true
+		setInitialized(true);
+
+		// output log message
+		plugin.getLogger().info(this.getName() + " datastore initialized with " + shards.size() + " world shards.");
+	}
+
+
+	/**
+	 * Open and initialize a shard on the datastore executor. If the executor rejects the task,
+	 * the shard is opened on the calling thread.
+	 *
+	 * @param shardName the shard name; the world name for a world shard
+	 * @return a future of the initialized shard, completed exceptionally if the shard could not be initialized
+	 */
+	private CompletableFuture<DataStoreSQLite> openShardAsync(final String shardName) {
+
+		final CompletableFuture<DataStoreSQLite> future = new CompletableFuture<>();
+
+		final Runnable task = () -> {
+			try {
+				future.complete(openShard(shardName));
+			}
+			catch (Exception e) {
+				future.completeExceptionally(e);
+			}
+		};
+
+		try {
+			plugin.dataStoreExecutor.execute(task);
+		}
+		catch (RejectedExecutionException e) {
+			task.run();
+		}
+
+		return future;
+	}
+
+
+	/**
+	 * Open and initialize a shard
+	 *
+	 * @param shardName the shard name; the world name for a world shard
+	 * @return the initialized shard
+	 * @throws Exception if the shard could not be initialized
+	 */
+	private DataStoreSQLite openShard(final String shardName) throws Exception {
+		DataStoreSQLite shard = new DataStoreSQLite(plugin,
+				this.getFilename() + File.separator + shardName + SHARD_EXTENSION,
+				"SQLite [" + shardName + "]");
+		shard.initialize();
+		return shard;
+	}
+
+
+	/**
+	 * Get the shard for a world, opening a new shard if the world does not have one
+	 *
+	 * @param worldName the world name
+	 * @return the shard, or null if a new shard could not be opened
+	 */
+	private DataStoreSQLite getShard(final String worldName) {
+
+		DataStoreSQLite shard = shards.get(worldName);
+		if (shard != null) {
+			return shard;
+		}
+
+		synchronized (shards) {
+
+			// check again, in case shard was opened while waiting
+			shard = shards.get(worldName);
+			if (shard != null) {
+				return shard;
+			}
+
+			try {
+				shard = openShard(worldName);
+				shards.put(worldName, shard);
+				return shard;
+			}
+			catch (Exception e) {
+
+				// output simple error message
+				plugin.getLogger().warning("Could not open death chest shard for world '" + worldName + "'.");
+				plugin.getLogger().warning(e.getMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+				return null;
+			}
+		}
+	}
+
+
+	/**
+	 * Get the shard for a chest from the world of its blocks, or null if its world is not known
+	 *
+	 * @param deathChest the chest
+	 * @return the world shard, or null if the world of the chest is not known
+	 */
+	private DataStoreSQLite getShard(final DeathChest deathChest) {
+
+		// if chest manager has not been created yet, chest blocks are not known
+		if (plugin.chestManager == null) {
+			return null;
+		}
+
+		Location location = deathChest.getLocation();
+		if (location == null || location.getWorld() == null) {
+			return null;
+		}
+
+		return getShard(location.getWorld().getName());
+	}
+
+
+	/**
+	 * Get all open shards, including the unassigned shard
+	 *
+	 * @return list of shards
+	 */
+	private List<DataStoreSQLite> getAllShards() {
+		List<DataStoreSQLite> allShards = new ArrayList<>(shards.values());
+		allShards.add(unassignedShard);
+		return allShards;
+	}
+
+
+	/**
+	 * Read records from all shards in parallel. Records are read and parsed concurrently,
+	 * but the consumer is called by one shard at a time.
+	 *
+	 * @param reader function that reads the records of one shard, passing each record to a consumer, and returns the record count
+	 * @return the total number of records read
+	 */
+	private int readAllShards(final ToIntFunction<DataStoreSQLite> reader) {
+
+		final List<DataStoreSQLite> allShards = getAllShards();
+
+		// get number of threads from config, using one thread per processor by default
+		int threads = plugin.getConfig().getInt("storage.shard-load-threads", Runtime.getRuntime().availableProcessors());
+		threads = Math.max(1, Math.min(threads, allShards.size()));
+
+		// if only one thread is needed, read shards in calling thread
+		if (threads == 1) {
+			int count = 0;
+			for (DataStoreSQLite shard : allShards) {
+				count += reader.applyAsInt(shard);
+			}
+			return count;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Integer>> futures = new ArrayList<>();
+			for (DataStoreSQLite shard : allShards) {
+				futures.add(executor.submit(() -> reader.applyAsInt(shard)));
+			}
+
+			int count = 0;
+			for (Future<Integer> future : futures) {
+				try {
+					count += future.get();
+				}
+				catch (ExecutionException e) {
+					plugin.getLogger().warning("An error occurred while reading a death chest shard.");
+					plugin.getLogger().warning(e.getCause().getMessage());
+				}
+			}
+			return count;
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return 0;
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+
+	@Override
+	public final int forEachChestRecord(final Consumer<DeathChest> consumer) {
+
+		final Object lock = new Object();
+
+		return readAllShards(shard -> shard.forEachChestRecord(deathChest -> {
+
+			// record shard of chest, so later writes for the chest are routed to it
+			chestShards.put(deathChest.getChestUUID(), shard);
+			if (shard == unassignedShard) {
+				unassignedChests.put(deathChest.getChestUUID(), deathChest);
+			}
+
+			synchronized (lock) {
+				consumer.accept(deathChest);
+			}
+		}));
+	}
+
+
+	@Override
+	public final int forEachBlockRecord(final Consumer<ChestBlock> consumer) {
+
+		final Object lock = new Object();
+
+		return readAllShards(shard -> shard.forEachBlockRecord(chestBlock -> {
+			synchronized (lock) {
+				consumer.accept(chestBlock);
+			}
+		}));
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsByOwner(final UUID ownerUUID) {
+
+		final List<DeathChest> results = new ArrayList<>();
+		for (DataStoreSQLite shard : getAllShards()) {
+			results.addAll(shard.getChestRecordsByOwner(ownerUUID));
+		}
+
+		// merge shard results in order of expiration time
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecordsExpiringBefore(final long expirationTime) {
+
+		final List<DeathChest> results = new ArrayList<>();
+		for (DataStoreSQLite shard : getAllShards()) {
+			results.addAll(shard.getChestRecordsExpiringBefore(expirationTime));
+		}
+
+		// merge shard results in order of expiration time
+		results.sort(Comparator.comparingLong(DeathChest::getExpirationTime));
+		return results;
+	}
+
+
+	@Override
+	public final boolean hasChestIndex() {
+		return true;
+	}
+
+
+	@Override
+	final boolean supportsBackup() {
+		return true;
+	}
+
+
+	@Override
+	public final List<DeathChest> getChestRecords(final Collection<UUID> chestUUIDs) {
+
+		final List<DeathChest> results = new ArrayList<>();
+		for (DataStoreSQLite shard : getAllShards()) {
+			results.addAll(shard.getChestRecords(chestUUIDs));
+		}
+		return results;
+	}
+
+
+	@Override
+	public final List<ChestBlock> getBlockRecords(final Collection<UUID> chestUUIDs) {
+
+		final List<ChestBlock> results = new ArrayList<>();
+		for (DataStoreSQLite shard : shards.values()) {
+			results.addAll(shard.getBlockRecords(chestUUIDs));
+		}
+		return results;
+	}
+
+
+	@Override
+	final List<ChestBlock> readBlockRecords(final Collection<UUID> chestUUIDs) throws Exception {
+
+		final List<ChestBlock> results = new ArrayList<>();
+		for (DataStoreSQLite shard : shards.values()) {
+			results.addAll(shard.readBlockRecords(chestUUIDs));
+		}
+		return results;
+	}
+
+
+	@Override
+	final List<DeathChest> readChestRecordPage(final UUID afterChestUUID, final int limit) throws Exception {
+
+		final List<DeathChest> results = new ArrayList<>();
+		for (DataStoreSQLite shard : getAllShards()) {
+			for (DeathChest deathChest : shard.readChestRecordPage(afterChestUUID, limit)) {
+
+				// record shard of chest, so later writes for the chest are routed to it
+				chestShards.put(deathChest.getChestUUID(), shard);
+				if (shard == unassignedShard) {
+					unassignedChests.put(deathChest.getChestUUID(), deathChest);
+				}
+				results.add(deathChest);
+			}
+		}
+
+		// merge shard pages in chest UUID order, keeping the first page of the merged records
+		results.sort((chest1, chest2) -> RecordCodec.compareUUIDs(chest1.getChestUUID(), chest2.getChestUUID()));
+		return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> putChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// put chest in shard of its world; the shard also inserts the chest's blocks
+		DataStoreSQLite shard = getShard(deathChest);
+		if (shard != null) {
+			chestShards.put(deathChest.getChestUUID(), shard);
+			return shard.putChestRecord(deathChest);
+		}
+
+		// world of chest is not known, so hold chest in unassigned shard until its first block arrives
+		unassignedChests.put(deathChest.getChestUUID(), deathChest);
+		chestShards.put(deathChest.getChestUUID(), unassignedShard);
+		return unassignedShard.putChestRecord(deathChest);
+	}
+
+
+	@Override
+	final CompletableFuture<Void> putBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || chestBlock.getLocation().getWorld() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		DataStoreSQLite shard = getShard(chestBlock.getLocation().getWorld().getName());
+		if (shard == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// if chest is held in unassigned shard, move it to the shard of its block's world
+		DeathChest unassignedChest = unassignedChests.remove(chestBlock.getChestUUID());
+		if (unassignedChest != null) {
+			final CompletableFuture<Void> chestFuture = shard.putChestRecord(unassignedChest);
+			unassignedShard.deleteChestRecord(unassignedChest);
+			chestShards.put(chestBlock.getChestUUID(), shard);
+			return CompletableFuture.allOf(chestFuture, shard.putBlockRecord(chestBlock));
+		}
+
+		return shard.putBlockRecord(chestBlock);
+	}
+
+
+	@Override
+	final CompletableFuture<Void> removeChestRecord(final DeathChest deathChest) {
+
+		// if passed deathChest is null, do nothing and return
+		if (deathChest == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		unassignedChests.remove(deathChest.getChestUUID());
+
+		// delete chest from its shard, or from all shards if its shard is not known
+		DataStoreSQLite shard = chestShards.remove(deathChest.getChestUUID());
+		if (shard != null) {
+			return shard.deleteChestRecord(deathChest);
+		}
+
+		final List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (DataStoreSQLite anyShard : getAllShards()) {
+			futures.add(anyShard.deleteChestRecord(deathChest));
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+
+	@Override
+	public final CompletableFuture<Void> deleteBlockRecord(final ChestBlock chestBlock) {
+
+		// if passed chestBlock is null or has no world, do nothing and return
+		if (chestBlock == null || chestBlock.getLocation().getWorld() == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		DataStoreSQLite shard = shards.get(chestBlock.getLocation().getWorld().getName());
+		if (shard != null) {
+			return shard.deleteBlockRecord(chestBlock);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	/**
+	 * Write a chunk of write operations, committing each shard's part in a single transaction.
+	 * A chest whose world is not yet known is committed to the unassigned shard, and moved to its
+	 * world shard when its first block arrives; it is deleted from the unassigned shard only after
+	 * it has been committed to the world shard. A chest delete goes to the shard holding the chest,
+	 * or to every shard if that shard is not known, and a block delete goes to the shard of the block's world.
+	 *
+	 * @param writeOperations the write operations to write
+	 * @throws Exception if a shard transaction could not be committed
+	 */
+	@Override
+	final void putRecords(final List<WriteOperation> writeOperations) throws Exception {
+
+		// operations for each shard, in order
+		final Map<DataStoreSQLite, List<WriteOperation>> shardOperations = new LinkedHashMap<>();
+
+		// chests moved out of unassigned shard by this chunk
+		final List<WriteOperation> unassignedDeletes = new ArrayList<>();
+
+		for (WriteOperation writeOperation : writeOperations) {
+
+			DataStoreSQLite shard;
+
+			if (writeOperation.getType() == WriteOperationType.PUT_CHEST) {
+				DeathChest deathChest = writeOperation.getDeathChest();
+				shard = getShard(deathChest);
+				if (shard == null) {
+					shard = unassignedShard;
+					unassignedChests.put(deathChest.getChestUUID(), deathChest);
+				}
+				chestShards.put(deathChest.getChestUUID(), shard);
+			}
+			else if (writeOperation.getType() == WriteOperationType.PUT_BLOCK) {
+				ChestBlock chestBlock = writeOperation.getChestBlock();
+				if (chestBlock.getLocation().getWorld() == null) {
+					continue;
+				}
+				shard = getShard(chestBlock.getLocation().getWorld().getName());
+				if (shard == null) {
+					continue;
+				}
+
+				// move chest held in unassigned shard to block's world shard
+				DeathChest unassignedChest = unassignedChests.remove(chestBlock.getChestUUID());
+				if (unassignedChest != null) {
+					shardOperations.computeIfAbsent(shard, k -> new ArrayList<>())
+							.add(new WriteOperation(WriteOperationType.PUT_CHEST, unassignedChest));
+					unassignedDeletes.add(new WriteOperation(WriteOperationType.DELETE_CHEST, unassignedChest));
+					chestShards.put(chestBlock.getChestUUID(), shard);
+				}
+			}
+			else if (writeOperation.getType() == WriteOperationType.DELETE_CHEST) {
+				final UUID chestUUID = writeOperation.getDeathChest().getChestUUID();
+				unassignedChests.remove(chestUUID);
+				shard = chestShards.remove(chestUUID);
+
+				// shard of chest is not known, so delete chest from every shard
+				if (shard == null) {
+					for (DataStoreSQLite anyShard : getAllShards()) {
+						shardOperations.computeIfAbsent(anyShard, k -> new ArrayList<>()).add(writeOperation);
+					}
+					continue;
+				}
+			}
+			else {
+				ChestBlock chestBlock = writeOperation.getChestBlock();
+				if (chestBlock.getLocation().getWorld() == null) {
+					continue;
+				}
+
+				// a world without a shard has no block records to delete
+				shard = shards.get(chestBlock.getLocation().getWorld().getName());
+				if (shard == null) {
+					continue;
+				}
+			}
+
+			shardOperations.computeIfAbsent(shard, k -> new ArrayList<>()).add(writeOperation);
+		}
+
+		// commit each shard's operations
+		for (Map.Entry<DataStoreSQLite, List<WriteOperation>> entry : shardOperations.entrySet()) {
+			entry.getKey().putRecords(entry.getValue());
+		}
+
+		// remove moved chests from unassigned shard once they are committed to their world shard
+		if (!unassignedDeletes.isEmpty()) {
+			unassignedShard.putRecords(unassignedDeletes);
+		}
+	}
+
+
+	/**
+	 * Get the shards folder
+	 *
+	 * @return the shards folder
+	 */
+	private File getShardFolder() {
+		return new File(plugin.getDataFolder() + File.separator + this.getFilename());
+	}
+
+
+	/**
+	 * Drop the shard of a world that has been removed from the server, by moving its database file and its
+	 * write-ahead log and shared memory files to the dropped folder under a name stamped with the current time.
+	 * If the files cannot be moved, they are left in place and the shard is not opened.
+	 *
+	 * @param worldName the world name
+	 * @param shardFile the shard database file
+	 */
+	private void dropShard(final String worldName, final File shardFile) {
+
+		final File droppedFolder = new File(getShardFolder(), DROPPED_FOLDER);
+		final String droppedName = worldName + "-" + System.currentTimeMillis() + SHARD_EXTENSION;
+
+		try {
+			if (!droppedFolder.isDirectory() && !droppedFolder.mkdirs()) {
+				throw new IOException("Could not create dropped shards folder " + droppedFolder.getPath() + ".");
+			}
+
+			// move write-ahead log and shared memory files first, so the database file is never left without them
+			for (String suffix : Arrays.asList("-wal", "-shm")) {
+				File file = new File(shardFile.getPath() + suffix);
+				if (file.exists()) {
+					Files.move(file.toPath(), new File(droppedFolder, droppedName + suffix).toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.move(shardFile.toPath(), new File(droppedFolder, droppedName).toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+
+			plugin.getLogger().warning("World '" + worldName + "' no longer exists; its death chest shard was moved to "
+					+ getFilename() + File.separator + DROPPED_FOLDER + File.separator + droppedName + ".");
+		}
+		catch (IOException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("World '" + worldName + "' no longer exists, but its death chest shard "
+					+ "could not be moved to the dropped folder; it was left in place and not opened.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Delete a shard database file and its write-ahead log and shared memory files
+	 *
+	 * @param shardFile the shard database file
+	 * @return {@code true} if the shard database file was deleted, {@code false} if not
+	 */
+	private boolean dropShardFile(final File shardFile) {
+
+		boolean result = shardFile.delete();
+
+		for (String suffix : Arrays.asList("-wal", "-shm")) {
+			File file = new File(shardFile.getPath() + suffix);
+			if (file.exists()) {
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Copy each shard to a backup file in a folder of its own while the shards remain in use.
+	 * The shards are copied to a temporary folder, which is renamed once every shard has been copied,
+	 * so an incomplete backup is never taken for a complete one.
+	 *
+	 * @param backupFolder the folder to write the backup to
+	 * @param backupName   the name of the folder to write the shard backups to
+	 * @return the folder containing the shard backups
+	 * @throws Exception if a shard could not be copied
+	 */
+	@Override
+	final File backup(final File backupFolder, final String backupName) throws Exception {
+
+		final File shardBackupFolder = new File(backupFolder, backupName);
+		final File tempFolder = new File(backupFolder, backupName + ".tmp");
+
+		// remove temporary folder left by an interrupted backup
+		DataStoreBackup.deleteRecursively(tempFolder.toPath());
+		if (!tempFolder.mkdirs()) {
+			throw new IOException("Could not create backup folder " + tempFolder.getPath() + ".");
+		}
+
+		try {
+			for (Map.Entry<String, DataStoreSQLite> entry : shards.entrySet()) {
+				entry.getValue().backup(tempFolder, entry.getKey());
+			}
+			unassignedShard.backup(tempFolder, UNASSIGNED_SHARD);
+
+			// move completed backup into place
+			Files.move(tempFolder.toPath(), shardBackupFolder.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (Exception e) {
+
+			// remove partial backup
+			DataStoreBackup.deleteRecursively(tempFolder.toPath());
+			throw e;
+		}
+
+		return shardBackupFolder;
+	}
+
+
+	/**
+	 * Close all shards
+	 */
+	@Override
+	public final void close() {
+
+		if (isInitialized()) {
+
+			// each shard commits its pending write operations before closing
+			for (DataStoreSQLite shard : getAllShards()) {
+				shard.close();
+			}
+			setInitialized(false);
+		}
+	}
+
+
+	@Override
+	final void sync() {
+		// no action necessary for this storage type
+	}
+
+
+	@Override
+	final boolean delete() {
+
+		File shardFolder = getShardFolder();
+
+		File[] shardFiles = shardFolder.listFiles((dir, name) -> name.endsWith(SHARD_EXTENSION));
+		if (shardFiles != null) {
+			for (File shardFile : shardFiles) {
+				dropShardFile(shardFile);
+			}
+		}
+
+		// the shards folder is kept if it holds dropped shards
+		return shardFolder.delete() || new File(shardFolder, DROPPED_FOLDER).isDirectory();
+	}
+
+
+	@Override
+	final boolean exists() {
+
+		// datastore exists if shards folder contains any shard files
+		File[] shardFiles = getShardFolder().listFiles((dir, name) -> name.endsWith(SHARD_EXTENSION));
+		return shardFiles != null && shardFiles.length > 0;
+	}
+
+}
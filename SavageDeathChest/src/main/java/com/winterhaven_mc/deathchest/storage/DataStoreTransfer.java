@@ -0,0 +1,444 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.ConsoleCommandSender;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * A class that exports death chest records to a file, and imports them from a file, so that chests
+ * can be moved between servers or datastores.<br>
+ * Export files are gzipped, and hold a header followed by each chest record and then its block records,
+ * in the framed record format of the journal datastore. Records are streamed in chunks on the datastore
+ * executor, so memory use does not grow with the number of chests. Exports may be limited to a set of worlds,
+ * and imports may be limited to a set of worlds and may rename worlds.
+ */
+public final class DataStoreTransfer {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// name of exports folder in plugin data folder
+	private static final String EXPORT_FOLDER = "exports";
+
+	// extension of export file names
+	private static final String EXPORT_EXTENSION = ".dcx.gz";
+
+	// export file header magic number, "DCEX"
+	private static final int MAGIC = 0x44434558;
+
+	// export file format version
+	private static final int VERSION = 1;
+
+	// number of chests read or written at a time
+	private static final int CHUNK_SIZE = 1000;
+
+	// true while an export or import is running
+	private final AtomicBoolean running = new AtomicBoolean();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public DataStoreTransfer(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+	}
+
+
+	/**
+	 * Check if an export file name is valid
+	 *
+	 * @param name the export name, without folder or extension
+	 * @return {@code true} if the name contains only letters, digits, underscores and hyphens
+	 */
+	public static boolean isValidName(final String name) {
+		return name != null && name.matches("[A-Za-z0-9_-]{1,64}");
+	}
+
+
+	/**
+	 * Get the path of an export file relative to the plugin data folder, for display
+	 *
+	 * @param name the export name
+	 * @return the relative path of the export file
+	 */
+	public static String getDisplayPath(final String name) {
+		return EXPORT_FOLDER + File.separator + name + EXPORT_EXTENSION;
+	}
+
+
+	/**
+	 * Export death chests on the datastore executor
+	 *
+	 * @param sender the command sender to report the result to
+	 * @param name   the export name
+	 * @param worlds the names of the worlds whose chests to export, or an empty set to export chests in all worlds
+	 * @return {@code true} if the export was started, {@code false} if an export or import is already running
+	 * @throws RejectedExecutionException if the datastore executor is busy
+	 */
+	public final boolean exportAsync(final CommandSender sender, final String name, final Set<String> worlds) {
+
+		// allow only one export or import at a time
+		if (!running.compareAndSet(false, true)) {
+			return false;
+		}
+
+		try {
+			plugin.dataStoreExecutor.execute(() -> {
+				try {
+					export(sender, name, worlds);
+				}
+				finally {
+					running.set(false);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			running.set(false);
+			throw e;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Import death chests on the datastore executor
+	 *
+	 * @param sender   the command sender to report the result to
+	 * @param name     the export name
+	 * @param worlds   the names of the worlds in the export file whose chests to import,
+	 *                 or an empty set to import chests in all worlds
+	 * @param worldMap map of world names in the export file to the names of the worlds to import their chests into
+	 * @return {@code true} if the import was started, {@code false} if an export or import is already running
+	 * @throws RejectedExecutionException if the datastore executor is busy
+	 */
+	public final boolean importAsync(final CommandSender sender, final String name,
+									 final Set<String> worlds, final Map<String, String> worldMap) {
+
+		// allow only one export or import at a time
+		if (!running.compareAndSet(false, true)) {
+			return false;
+		}
+
+		try {
+			plugin.dataStoreExecutor.execute(() -> {
+				try {
+					importChests(sender, name, worlds, worldMap);
+				}
+				finally {
+					running.set(false);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			running.set(false);
+			throw e;
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Export death chests to a file on the calling thread. Chests are read from the datastore in pages,
+	 * so no read is held open between chunks, and the block records of each chunk are looked up together.
+	 * If a read fails, the export fails and no export file is written. Only blocks in loaded worlds are exported,
+	 * and chests with no exported blocks are left out.
+	 *
+	 * @param sender the command sender to report the result to, or null to report the result only in the log
+	 * @param name   the export name
+	 * @param worlds the names of the worlds whose chests to export, or an empty set to export chests in all worlds
+	 */
+	private void export(final CommandSender sender, final String name, final Set<String> worlds) {
+
+		final DataStore dataStore = plugin.dataStore;
+
+		final File exportFolder = new File(plugin.getDataFolder(), EXPORT_FOLDER);
+		final File exportFile = new File(exportFolder, name + EXPORT_EXTENSION);
+		final File tempFile = new File(exportFolder, name + EXPORT_EXTENSION + ".tmp");
+
+		try {
+			if (!exportFolder.isDirectory() && !exportFolder.mkdirs()) {
+				throw new IOException("Could not create export folder " + exportFolder.getPath() + ".");
+			}
+
+			final long startTime = System.nanoTime();
+			final int[] counts = new int[2];
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new GZIPOutputStream(new FileOutputStream(tempFile), 0x10000)))) {
+
+				// write header
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+
+				// read chest records a page at a time, in chest UUID order, writing each page with its blocks;
+				// a read error ends the export, so a partial export file is never moved into place
+				UUID lastChestUUID = null;
+				List<DeathChest> chunk;
+				while (!(chunk = dataStore.readChestRecordPage(lastChestUUID, CHUNK_SIZE)).isEmpty()) {
+					writeChunk(dataStore, chunk, worlds, out, counts);
+					lastChestUUID = chunk.get(chunk.size() - 1).getChestUUID();
+				}
+			}
+
+			// replace any previous export of the same name
+			Files.move(tempFile.toPath(), exportFile.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+			String message = "Exported " + counts[0] + " chests with " + counts[1] + " blocks from the "
+					+ dataStore.getName() + " datastore to " + getDisplayPath(name) + " in " + elapsed + " ms.";
+			plugin.getLogger().info(message);
+			report(sender, ChatColor.GREEN + message);
+		}
+		catch (Exception e) {
+
+			// remove partial export file
+			if (!tempFile.delete() && tempFile.exists()) {
+				plugin.getLogger().warning("Could not remove partial export file " + tempFile.getName() + ".");
+			}
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while exporting death chests to " + getDisplayPath(name) + ".");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			report(sender, ChatColor.RED + "The death chest export failed. See the server log for details.");
+		}
+	}
+
+
+	/**
+	 * Write a chunk of chest records to an export file, each followed by its block records
+	 *
+	 * @param dataStore the datastore to read block records from
+	 * @param chunk     the chest records to write
+	 * @param worlds    the names of the worlds whose blocks to write, or an empty set to write blocks in all worlds
+	 * @param out       the export file output stream
+	 * @param counts    the numbers of chests and blocks written, updated by this method
+	 * @throws Exception if the block records could not be read or the records could not be written
+	 */
+	private static void writeChunk(final DataStore dataStore,
+								   final List<DeathChest> chunk,
+								   final Set<String> worlds,
+								   final DataOutputStream out,
+								   final int[] counts) throws Exception {
+
+		// get block records of chunk chests, grouped by chest
+		final List<UUID> chestUUIDs = new ArrayList<>(chunk.size());
+		for (DeathChest deathChest : chunk) {
+			chestUUIDs.add(deathChest.getChestUUID());
+		}
+		final Map<UUID, List<ChestBlock>> blockMap = new HashMap<>();
+		for (ChestBlock chestBlock : dataStore.readBlockRecords(chestUUIDs)) {
+			final World world = chestBlock.getLocation().getWorld();
+			if (world != null && (worlds.isEmpty() || worlds.contains(world.getName()))) {
+				blockMap.computeIfAbsent(chestBlock.getChestUUID(), k -> new ArrayList<>()).add(chestBlock);
+			}
+		}
+
+		for (DeathChest deathChest : chunk) {
+
+			// chests with no blocks in the exported worlds are left out
+			final List<ChestBlock> chestBlocks = blockMap.get(deathChest.getChestUUID());
+			if (chestBlocks == null) {
+				continue;
+			}
+
+			JournalCodec.writeRecord(new WriteOperation(WriteOperationType.PUT_CHEST, deathChest), out);
+			for (ChestBlock chestBlock : chestBlocks) {
+				JournalCodec.writeRecord(new WriteOperation(WriteOperationType.PUT_BLOCK, chestBlock), out);
+			}
+			counts[0]++;
+			counts[1] += chestBlocks.size();
+		}
+	}
+
+
+	/**
+	 * Import death chests from a file on the calling thread. Records are committed to the datastore in chunks
+	 * of whole chests, each chest with its blocks.
+	 * A chest is imported only if at least one of its blocks is in an imported world that is loaded.
+	 *
+	 * @param sender   the command sender to report the result to, or null to report the result only in the log
+	 * @param name     the export name
+	 * @param worlds   the names of the worlds in the export file whose chests to import,
+	 *                 or an empty set to import chests in all worlds
+	 * @param worldMap map of world names in the export file to the names of the worlds to import their chests into
+	 */
+	private void importChests(final CommandSender sender, final String name,
+							  final Set<String> worlds, final Map<String, String> worldMap) {
+
+		final DataStore dataStore = plugin.dataStore;
+
+		final File exportFile = new File(new File(plugin.getDataFolder(), EXPORT_FOLDER), name + EXPORT_EXTENSION);
+
+		// resolve worlds by name in the export file, leaving out worlds not imported
+		final Function<String, World> worldResolver = worldName -> {
+			if (!worlds.isEmpty() && !worlds.contains(worldName)) {
+				return null;
+			}
+			return plugin.worldCache.getWorld(worldMap.getOrDefault(worldName, worldName));
+		};
+
+		int chestCount = 0;
+		int blockCount = 0;
+		int skippedCount = 0;
+
+		try {
+			if (!exportFile.isFile()) {
+				throw new FileNotFoundException("Export file " + getDisplayPath(name) + " does not exist.");
+			}
+
+			final long startTime = System.nanoTime();
+
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new GZIPInputStream(new FileInputStream(exportFile), 0x10000)))) {
+
+				// read and check header
+				if (in.readInt() != MAGIC) {
+					throw new IOException("File is not a death chest export.");
+				}
+				int version = in.readInt();
+				if (version != VERSION) {
+					throw new IOException("Unsupported export format version " + version + ".");
+				}
+
+				final List<WriteOperation> chunk = new ArrayList<>();
+
+				// number of chests in current chunk
+				int chunkChestCount = 0;
+
+				// chest record waiting for its first imported block, and chest whose blocks are being imported
+				WriteOperation pendingChest = null;
+				UUID importingChestUUID = null;
+
+				byte[] record;
+				while ((record = JournalCodec.readRecord(in)) != null) {
+
+					final WriteOperation writeOperation = JournalCodec.decode(record, worldResolver);
+
+					// block in a world that is not imported or not loaded
+					if (writeOperation == null) {
+						skippedCount++;
+						continue;
+					}
+
+					if (writeOperation.getType() == WriteOperationType.PUT_CHEST) {
+						pendingChest = writeOperation;
+						importingChestUUID = null;
+						continue;
+					}
+
+					if (writeOperation.getType() != WriteOperationType.PUT_BLOCK) {
+						throw new IOException("Export file contains an unexpected "
+								+ writeOperation.getType() + " record.");
+					}
+
+					final UUID chestUUID = writeOperation.getChestBlock().getChestUUID();
+
+					// write chest record before its first imported block
+					if (pendingChest != null && pendingChest.getDeathChest().getChestUUID().equals(chestUUID)) {
+
+						// commit chunk once it is full, before starting the next chest
+						if (chunkChestCount >= CHUNK_SIZE) {
+							dataStore.putRecords(chunk);
+							chunk.clear();
+							chunkChestCount = 0;
+						}
+
+						chunk.add(pendingChest);
+						chunkChestCount++;
+						pendingChest = null;
+						importingChestUUID = chestUUID;
+						chestCount++;
+					}
+
+					// a block whose chest record does not precede it is left out
+					if (!chestUUID.equals(importingChestUUID)) {
+						skippedCount++;
+						continue;
+					}
+
+					chunk.add(writeOperation);
+					blockCount++;
+				}
+
+				// commit final chunk
+				if (!chunk.isEmpty()) {
+					dataStore.putRecords(chunk);
+				}
+			}
+
+			final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+			String message = "Imported " + chestCount + " chests with " + blockCount + " blocks from "
+					+ getDisplayPath(name) + " to the " + dataStore.getName() + " datastore in " + elapsed + " ms";
+			if (skippedCount > 0) {
+				message = message + ", skipping " + skippedCount + " blocks in worlds not imported or not loaded";
+			}
+			message = message + ".";
+			plugin.getLogger().info(message);
+			report(sender, ChatColor.GREEN + message);
+			if (chestCount > 0) {
+				report(sender, ChatColor.AQUA + "Imported chests will be placed when the server is restarted.");
+			}
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while importing death chests from " + getDisplayPath(name)
+					+ ". " + chestCount + " chests were imported before the error.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			report(sender, ChatColor.RED + "The death chest import failed. See the server log for details.");
+		}
+	}
+
+
+	/**
+	 * Send an export or import result message to a command sender on the main thread. The console is not sent
+	 * the message, because the result is already in the log.
+	 *
+	 * @param sender  the command sender, or null
+	 * @param message the message to send
+	 */
+	private void report(final CommandSender sender, final String message) {
+
+		if (sender == null || sender instanceof ConsoleCommandSender || !plugin.isEnabled()) {
+			return;
+		}
+
+		CompletionThread.MAIN.execute(plugin, () -> sender.sendMessage(message));
+	}
+
+}
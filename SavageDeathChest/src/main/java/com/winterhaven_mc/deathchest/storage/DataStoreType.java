@@ -4,8 +4,7 @@ import com.winterhaven_mc.deathchest.PluginMain;
 
 
 /**
- * An enum whose values represent the types of data store available.<br>
- * Note: Only SQLite data store is implemented at this time.
+ * An enum whose values represent the types of data store available.
  */
 enum DataStoreType {
 
@@ -16,6 +15,51 @@ enum DataStoreType {
 			// create new SQLite datastore object
 			return new DataStoreSQLite(plugin);
 		}
+	},
+
+	SQLITE_SHARDED("SQLite-Sharded") {
+		@Override
+		public DataStore create() {
+
+			// create new per-world sharded SQLite datastore object
+			return new DataStoreSQLiteSharded(plugin);
+		}
+	},
+
+	JOURNAL("Journal") {
+		@Override
+		public DataStore create() {
+
+			// create new journal datastore object
+			return new DataStoreJournal(plugin);
+		}
+	},
+
+	MAPPED("Mapped") {
+		@Override
+		public DataStore create() {
+
+			// create new memory-mapped datastore object
+			return new DataStoreMapped(plugin);
+		}
+	},
+
+	H2("H2") {
+		@Override
+		public DataStore create() {
+
+			// create new H2 datastore object
+			return new DataStoreH2(plugin);
+		}
+	},
+
+	MEMORY("Memory") {
+		@Override
+		public DataStore create() {
+
+			// create new in-memory datastore object
+			return new DataStoreMemory(plugin);
+		}
 	};
 
 	private final static PluginMain plugin = PluginMain.instance;
@@ -0,0 +1,587 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
+
+
+/**
+ * A class that archives death chest lifecycle events, so they can be looked up after the chest record is deleted.
+ * Events are kept in an SQLite database file of their own, whatever the datastore type. Recording an event
+ * only places it on a bounded queue; a background writer thread appends queued events in batches,
+ * each batch in a single transaction. Events older than the configured retention period are purged by the
+ * writer thread. Reads are paged by event key, and use an index on owner and event order; the key of the last
+ * event on each page read is remembered, so the following page is read from the index without skipping events.
+ */
+public final class HistoryArchive implements Runnable {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// history database filename in plugin data folder
+	private static final String FILENAME = "history.db";
+
+	// interval in milliseconds between purges of events older than the retention period
+	private static final long PURGE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+	// minimum interval in milliseconds between warnings of events discarded because the queue was full
+	private static final long DROP_WARNING_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+	// maximum number of owners and page sizes whose page boundaries are remembered
+	private static final int MAX_PAGE_CURSORS = 64;
+
+	// bounded queue of events waiting to be appended
+	private final BlockingQueue<HistoryEvent> queue;
+
+	// maximum number of events appended in a single transaction
+	private final int batchSize;
+
+	// time in milliseconds the writer thread waits for additional events before appending a batch
+	private final long flushInterval;
+
+	// time in milliseconds events are kept, or zero to keep events forever
+	private final long retention;
+
+	// maximum time in milliseconds to wait at shutdown for queued events to be appended
+	private final long shutdownTimeout;
+
+	// database connection object
+	private Connection connection;
+
+	// the writer thread
+	private Thread thread;
+
+	// true while the writer thread is accepting new events
+	private volatile boolean running;
+
+	// time in milliseconds since epoch that old events were last purged
+	private long lastPurgeTime;
+
+	// number of events discarded because the queue was full, since the last warning
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	// time in milliseconds since epoch that discarded events were last reported
+	private long lastDropWarningTime;
+
+	// event key of the last event on each page read, indexed by owner UUID and page size; most recently used last
+	private final Map<String, List<Long>> pageCursors = new LinkedHashMap<String, List<Long>>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, List<Long>> eldest) {
+			return size() > MAX_PAGE_CURSORS;
+		}
+	};
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public HistoryArchive(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// get archive settings from config, substituting defaults for invalid values
+		int queueSize = plugin.getConfig().getInt("storage.history-queue-size", 10000);
+		if (queueSize < 1) {
+			queueSize = 10000;
+		}
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+
+		int configBatchSize = plugin.getConfig().getInt("storage.write-batch-size", 256);
+		if (configBatchSize < 1) {
+			configBatchSize = 256;
+		}
+		this.batchSize = configBatchSize;
+
+		long configFlushInterval = plugin.getConfig().getLong("storage.history-flush-interval", 1000);
+		if (configFlushInterval < 0) {
+			configFlushInterval = 1000;
+		}
+		this.flushInterval = configFlushInterval;
+
+		long retentionDays = plugin.getConfig().getLong("storage.history-retention-days", 90);
+		if (retentionDays < 0) {
+			retentionDays = 90;
+		}
+		this.retention = TimeUnit.DAYS.toMillis(retentionDays);
+
+		long configShutdownTimeout = plugin.getConfig().getLong("storage.shutdown-timeout", 10);
+		if (configShutdownTimeout < 0) {
+			configShutdownTimeout = 10;
+		}
+		this.shutdownTimeout = TimeUnit.SECONDS.toMillis(configShutdownTimeout);
+	}
+
+
+	/**
+	 * Open the history database, creating its table and indexes if they do not exist, and start the writer thread.
+	 * If the database cannot be opened, events are not recorded.
+	 */
+	public final void open() {
+
+		// if history is disabled in config, do nothing and return
+		if (!plugin.getConfig().getBoolean("storage.history", true)) {
+			return;
+		}
+
+		try {
+			Class.forName("org.sqlite.JDBC");
+			connection = DriverManager.getConnection("jdbc:sqlite:"
+					+ new File(plugin.getDataFolder(), FILENAME).getPath());
+
+			try (Statement statement = connection.createStatement()) {
+
+				// appends need not block reads, and a power loss may roll back only the last batches
+				statement.executeQuery(String.format(getQuery("SetJournalMode"), "WAL")).close();
+				statement.execute(String.format(getQuery("SetSynchronous"), "NORMAL"));
+
+				statement.execute(getQuery("CreateHistoryTable"));
+				statement.execute(getQuery("CreateHistoryOwnerIndex"));
+				statement.execute(getQuery("CreateHistoryTimeIndex"));
+			}
+		}
+		catch (ClassNotFoundException | SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("Could not open the death chest history archive; history will not be recorded.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			connection = null;
+			return;
+		}
+
+		// start writer thread
+		running = true;
+		thread = new Thread(this, plugin.getName() + " history writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+	/**
+	 * Check if events are being recorded
+	 *
+	 * @return {@code true} if the history archive is open, {@code false} if not
+	 */
+	public final boolean isOpen() {
+		return running;
+	}
+
+
+	/**
+	 * Record an event. The event is appended to the archive by the writer thread. Never blocks;
+	 * if the queue is full, the event is discarded, and discarded events are counted and reported
+	 * periodically by the writer thread.
+	 *
+	 * @param historyEvent the event to record
+	 */
+	public final void record(final HistoryEvent historyEvent) {
+
+		// if archive is not open, do nothing and return
+		if (!running) {
+			return;
+		}
+
+		if (!queue.offer(historyEvent)) {
+			droppedCount.incrementAndGet();
+		}
+	}
+
+
+	/**
+	 * Output a warning with the number of events discarded since the last warning, if any
+	 */
+	private void reportDroppedEvents() {
+
+		final long count = droppedCount.getAndSet(0);
+		if (count > 0) {
+			plugin.getLogger().warning("Death chest history queue is full; " + count
+					+ " events were not recorded.");
+		}
+		lastDropWarningTime = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Retrieve a page of a chest owner's events, newest first, on the datastore executor
+	 *
+	 * @param ownerUUID        the UUID of the chest owner
+	 * @param page             the page number, starting from 1
+	 * @param pageSize         the number of events on a page
+	 * @param completionThread the thread to complete the future on
+	 * @return a future of List of HistoryEvent; the list holds one event more than the page size
+	 * if there is a following page
+	 */
+	public final CompletableFuture<List<HistoryEvent>> getEventsByOwnerAsync(final UUID ownerUUID,
+																			 final int page,
+																			 final int pageSize,
+																			 final CompletionThread completionThread) {
+
+		final CompletableFuture<List<HistoryEvent>> future = new CompletableFuture<>();
+
+		try {
+			plugin.dataStoreExecutor.execute(() -> {
+				try {
+					future.complete(getEventsByOwner(ownerUUID, page, pageSize));
+				}
+				catch (Exception e) {
+					future.completeExceptionally(e);
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+
+		return DataStore.completeOn(future, completionThread);
+	}
+
+
+	/**
+	 * Retrieve a page of a chest owner's events, newest first. Synchronized with batch appends,
+	 * as the archive has a single connection.<br>
+	 * The page is read from the events before the last event of the previous page. If that event is not
+	 * remembered, the pages before it are stepped over by reading only their event keys from the index.
+	 * Reading the first page forgets the owner's page boundaries, as events may have been added since.
+	 *
+	 * @param ownerUUID the UUID of the chest owner
+	 * @param page      the page number, starting from 1
+	 * @param pageSize  the number of events on a page
+	 * @return List of HistoryEvent; the list holds one event more than the page size if there is a following page
+	 * @throws SQLException if the events could not be read
+	 */
+	private synchronized List<HistoryEvent> getEventsByOwner(final UUID ownerUUID,
+															 final int page,
+															 final int pageSize) throws SQLException {
+
+		final List<HistoryEvent> results = new ArrayList<>();
+
+		// if archive is not open, return empty list
+		if (connection == null) {
+			return results;
+		}
+
+		// get remembered page boundaries, starting over when the first page is read
+		final int pageNumber = Math.max(1, page);
+		final String cursorKey = ownerUUID + ":" + pageSize;
+		List<Long> boundaries = pageNumber == 1 ? null : pageCursors.get(cursorKey);
+		if (boundaries == null) {
+			boundaries = new ArrayList<>();
+			pageCursors.put(cursorKey, boundaries);
+		}
+
+		// step over pages before the requested page whose boundaries are not remembered
+		while (boundaries.size() < pageNumber - 1) {
+			final Long lastEventKey = selectLastEventKey(ownerUUID,
+					boundaries.isEmpty() ? Long.MAX_VALUE : boundaries.get(boundaries.size() - 1), pageSize);
+
+			// if there are not enough events to reach the requested page, return empty list
+			if (lastEventKey == null) {
+				return results;
+			}
+			boundaries.add(lastEventKey);
+		}
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("SelectHistoryByOwner"))) {
+
+			preparedStatement.setBytes(1, RecordCodec.toBytes(ownerUUID));
+			preparedStatement.setLong(2, pageNumber == 1 ? Long.MAX_VALUE : boundaries.get(pageNumber - 2));
+
+			// read one event past the page, to tell if there is a following page without counting events
+			preparedStatement.setInt(3, pageSize + 1);
+
+			final long startTime = plugin.queryProfiler.start();
+			int rowCount = 0;
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+
+					// remember the last event of the page, so the following page can be read after it
+					if (++rowCount == pageSize && boundaries.size() == pageNumber - 1) {
+						boundaries.add(rs.getLong("EventKey"));
+					}
+
+					HistoryEventType type;
+					try {
+						type = HistoryEventType.valueOf(rs.getString("EventType"));
+					}
+					catch (IllegalArgumentException e) {
+						continue;
+					}
+
+					results.add(new HistoryEvent(rs.getLong("EventTime"),
+							type,
+							RecordCodec.toUUID(rs.getBytes("ChestUUID")),
+							RecordCodec.toUUID(rs.getBytes("OwnerUUID")),
+							RecordCodec.toUUID(rs.getBytes("KillerUUID")),
+							RecordCodec.toUUID(rs.getBytes("ActorUUID")),
+							rs.getString("WorldName"),
+							rs.getInt("X"),
+							rs.getInt("Y"),
+							rs.getInt("Z"),
+							rs.getInt("ItemCount")));
+				}
+			}
+			plugin.queryProfiler.record("SelectHistoryByOwner", startTime, results.size());
+		}
+
+		return results;
+	}
+
+
+	/**
+	 * Get the event key of the last event on a page of a chest owner's events, newest first,
+	 * reading only event keys from the owner index
+	 *
+	 * @param ownerUUID      the UUID of the chest owner
+	 * @param beforeEventKey the page holds events before this event key
+	 * @param pageSize       the number of events on a page
+	 * @return the event key of the last event on the page, or null if the page is not full
+	 * @throws SQLException if the event keys could not be read
+	 */
+	private Long selectLastEventKey(final UUID ownerUUID,
+									final long beforeEventKey,
+									final int pageSize) throws SQLException {
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("SelectHistoryKeysByOwner"))) {
+
+			preparedStatement.setBytes(1, RecordCodec.toBytes(ownerUUID));
+			preparedStatement.setLong(2, beforeEventKey);
+			preparedStatement.setInt(3, pageSize);
+
+			final long startTime = plugin.queryProfiler.start();
+			int rowCount = 0;
+			long lastEventKey = 0;
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+					rowCount++;
+					lastEventKey = rs.getLong("EventKey");
+				}
+			}
+			plugin.queryProfiler.record("SelectHistoryKeysByOwner", startTime, rowCount);
+
+			return rowCount == pageSize ? lastEventKey : null;
+		}
+	}
+
+
+	/**
+	 * Writer thread loop. Wait for an event, collect further events for the flush interval,
+	 * then append them in batches. When the archive is closed, queued events are appended without waiting.
+	 */
+	@Override
+	public final void run() {
+
+		final List<HistoryEvent> batch = new ArrayList<>(batchSize);
+
+		while (running || !queue.isEmpty()) {
+
+			try {
+				// wait for an event; time out periodically to check running state and purge old events
+				HistoryEvent first = queue.poll(250, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+
+					// collect further events, so they are appended together
+					if (running && flushInterval > 0 && queue.size() < batchSize) {
+						Thread.sleep(flushInterval);
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				// append any collected events before checking running state again
+			}
+
+			// append collected events in batches
+			while (!batch.isEmpty() || queue.size() >= batchSize) {
+				queue.drainTo(batch, batchSize - batch.size());
+				append(batch);
+				batch.clear();
+			}
+
+			// purge old events if due
+			if (retention > 0 && System.currentTimeMillis() - lastPurgeTime >= PURGE_INTERVAL) {
+				purge();
+				lastPurgeTime = System.currentTimeMillis();
+			}
+
+			// report discarded events if due
+			if (System.currentTimeMillis() - lastDropWarningTime >= DROP_WARNING_INTERVAL) {
+				reportDroppedEvents();
+			}
+		}
+	}
+
+
+	/**
+	 * Append a batch of events in a single transaction. If the transaction fails, or the archive
+	 * has been closed, the events are discarded.
+	 *
+	 * @param batch the events to append
+	 */
+	private synchronized void append(final List<HistoryEvent> batch) {
+
+		// if archive has been closed, do nothing and return
+		if (connection == null) {
+			return;
+		}
+
+		final long startTime = plugin.queryProfiler.start();
+
+		try {
+			connection.setAutoCommit(false);
+
+			try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("InsertHistoryEvent"))) {
+				for (HistoryEvent historyEvent : batch) {
+					preparedStatement.setLong(1, historyEvent.getEventTime());
+					preparedStatement.setString(2, historyEvent.getType().name());
+					preparedStatement.setBytes(3, RecordCodec.toBytes(historyEvent.getChestUUID()));
+					preparedStatement.setBytes(4, RecordCodec.toBytes(historyEvent.getOwnerUUID()));
+					preparedStatement.setBytes(5, RecordCodec.toBytes(historyEvent.getKillerUUID()));
+					preparedStatement.setBytes(6, RecordCodec.toBytes(historyEvent.getActorUUID()));
+					preparedStatement.setString(7, historyEvent.getWorldName());
+					preparedStatement.setInt(8, historyEvent.getX());
+					preparedStatement.setInt(9, historyEvent.getY());
+					preparedStatement.setInt(10, historyEvent.getZ());
+					preparedStatement.setInt(11, historyEvent.getItemCount());
+					preparedStatement.addBatch();
+				}
+				preparedStatement.executeBatch();
+				connection.commit();
+			}
+			catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			}
+			finally {
+				connection.setAutoCommit(true);
+			}
+
+			plugin.queryProfiler.record("InsertHistoryEvent", startTime, batch.size());
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(batch.size() + " death chest history events recorded.");
+			}
+		}
+		catch (SQLException e) {
+			plugin.queryProfiler.recordFailure("InsertHistoryEvent", startTime, e);
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while recording " + batch.size()
+					+ " death chest history events; they were discarded.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Delete events older than the retention period
+	 */
+	private synchronized void purge() {
+
+		// if archive has been closed, do nothing and return
+		if (connection == null) {
+			return;
+		}
+
+		try (PreparedStatement preparedStatement = connection.prepareStatement(getQuery("DeleteHistoryBefore"))) {
+
+			preparedStatement.setLong(1, System.currentTimeMillis() - retention);
+
+			final long startTime = plugin.queryProfiler.start();
+			final int rowsAffected = preparedStatement.executeUpdate();
+			plugin.queryProfiler.record("DeleteHistoryBefore", startTime, rowsAffected);
+
+			// output debugging information
+			if (plugin.debug && rowsAffected > 0) {
+				plugin.getLogger().info(rowsAffected + " death chest history events past the retention period deleted.");
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while deleting old death chest history events.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+
+	/**
+	 * Stop accepting events, wait up to the shutdown timeout for queued events to be appended,
+	 * and close the history database. Events still queued after the timeout are discarded, and the database
+	 * is closed once a batch being appended has completed.
+	 */
+	public final void close() {
+
+		// if archive is not open, do nothing and return
+		if (!running) {
+			return;
+		}
+
+		// stop accepting events, and wait for writer thread to append queued events
+		running = false;
+		try {
+			thread.join(shutdownTimeout);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// discard events not appended within the timeout, so the writer thread stops after its current batch
+		if (thread.isAlive()) {
+			plugin.getLogger().warning(queue.size()
+					+ " death chest history events were not recorded within the shutdown timeout.");
+			queue.clear();
+			thread.interrupt();
+		}
+
+		// report events discarded since the last warning
+		reportDroppedEvents();
+
+		// close connection, waiting for a batch being appended to complete
+		try {
+			synchronized (this) {
+				connection.close();
+				connection = null;
+			}
+		}
+		catch (SQLException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while closing the death chest history archive.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
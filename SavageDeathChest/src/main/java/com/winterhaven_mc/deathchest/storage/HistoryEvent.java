@@ -0,0 +1,225 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.Location;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.UUID;
+
+
+/**
+ * A class that represents a death chest lifecycle event recorded in the history archive.
+ * The event keeps its own copy of the chest's owner, killer and location,
+ * so it outlives the chest record.
+ */
+@Immutable
+public final class HistoryEvent {
+
+	// time of the event, in milliseconds since epoch
+	private final long eventTime;
+
+	// the type of the event
+	private final HistoryEventType type;
+
+	// the UUID of the death chest
+	private final UUID chestUUID;
+
+	// the UUID of the death chest owner
+	private final UUID ownerUUID;
+
+	// the UUID of the player who killed the death chest owner, if any; otherwise null
+	private final UUID killerUUID;
+
+	// the UUID of the player who looted or broke the death chest, if any; otherwise null
+	private final UUID actorUUID;
+
+	// the world name and block coordinates of the death chest, or null world name if unknown
+	private final String worldName;
+	private final int x;
+	private final int y;
+	private final int z;
+
+	// the number of items in the death chest when the event occurred
+	private final int itemCount;
+
+
+	/**
+	 * Class constructor for events read from the history archive
+	 *
+	 * @param eventTime  the event time
+	 * @param type       the event type
+	 * @param chestUUID  the chest UUID
+	 * @param ownerUUID  the chest owner UUID
+	 * @param killerUUID the chest killer UUID, or null
+	 * @param actorUUID  the UUID of the player who caused the event, or null
+	 * @param worldName  the chest world name, or null
+	 * @param x          the chest block x coordinate
+	 * @param y          the chest block y coordinate
+	 * @param z          the chest block z coordinate
+	 * @param itemCount  the number of items in the chest
+	 */
+	HistoryEvent(final long eventTime,
+				 final HistoryEventType type,
+				 final UUID chestUUID,
+				 final UUID ownerUUID,
+				 final UUID killerUUID,
+				 final UUID actorUUID,
+				 final String worldName,
+				 final int x,
+				 final int y,
+				 final int z,
+				 final int itemCount) {
+
+		this.eventTime = eventTime;
+		this.type = type;
+		this.chestUUID = chestUUID;
+		this.ownerUUID = ownerUUID;
+		this.killerUUID = killerUUID;
+		this.actorUUID = actorUUID;
+		this.worldName = worldName;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.itemCount = itemCount;
+	}
+
+
+	/**
+	 * Class constructor for a new event for a death chest, occurring now
+	 *
+	 * @param type       the event type
+	 * @param deathChest the death chest
+	 * @param actorUUID  the UUID of the player who caused the event, or null
+	 * @param location   the chest location, or null if unknown
+	 * @param itemCount  the number of items in the chest
+	 */
+	public HistoryEvent(final HistoryEventType type,
+						final DeathChest deathChest,
+						final UUID actorUUID,
+						final Location location,
+						final int itemCount) {
+
+		this(System.currentTimeMillis(),
+				type,
+				deathChest.getChestUUID(),
+				deathChest.getOwnerUUID(),
+				deathChest.getKillerUUID(),
+				actorUUID,
+				location == null || location.getWorld() == null ? null : location.getWorld().getName(),
+				location == null ? 0 : location.getBlockX(),
+				location == null ? 0 : location.getBlockY(),
+				location == null ? 0 : location.getBlockZ(),
+				itemCount);
+	}
+
+
+	/**
+	 * Getter method for event time
+	 *
+	 * @return the event time, in milliseconds since epoch
+	 */
+	public final long getEventTime() {
+		return eventTime;
+	}
+
+
+	/**
+	 * Getter method for event type
+	 *
+	 * @return the event type
+	 */
+	public final HistoryEventType getType() {
+		return type;
+	}
+
+
+	/**
+	 * Getter method for chest UUID
+	 *
+	 * @return the chest UUID
+	 */
+	public final UUID getChestUUID() {
+		return chestUUID;
+	}
+
+
+	/**
+	 * Getter method for chest owner UUID
+	 *
+	 * @return the chest owner UUID
+	 */
+	public final UUID getOwnerUUID() {
+		return ownerUUID;
+	}
+
+
+	/**
+	 * Getter method for chest killer UUID
+	 *
+	 * @return the chest killer UUID, or null if the owner was not killed by a player
+	 */
+	public final UUID getKillerUUID() {
+		return killerUUID;
+	}
+
+
+	/**
+	 * Getter method for the UUID of the player who caused the event
+	 *
+	 * @return the UUID of the player who looted or broke the chest, or null
+	 */
+	public final UUID getActorUUID() {
+		return actorUUID;
+	}
+
+
+	/**
+	 * Getter method for chest world name
+	 *
+	 * @return the chest world name, or null if the chest location was unknown
+	 */
+	public final String getWorldName() {
+		return worldName;
+	}
+
+
+	/**
+	 * Getter method for chest block x coordinate
+	 *
+	 * @return the chest block x coordinate
+	 */
+	public final int getX() {
+		return x;
+	}
+
+
+	/**
+	 * Getter method for chest block y coordinate
+	 *
+	 * @return the chest block y coordinate
+	 */
+	public final int getY() {
+		return y;
+	}
+
+
+	/**
+	 * Getter method for chest block z coordinate
+	 *
+	 * @return the chest block z coordinate
+	 */
+	public final int getZ() {
+		return z;
+	}
+
+
+	/**
+	 * Getter method for item count
+	 *
+	 * @return the number of items in the chest when the event occurred
+	 */
+	public final int getItemCount() {
+		return itemCount;
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.winterhaven_mc.deathchest.storage;
+
+
+/**
+ * An enum whose values represent the death chest lifecycle events recorded in the history archive
+ */
+public enum HistoryEventType {
+
+	DEPLOYED,
+	LOOTED,
+	EXPIRED,
+	BROKEN,
+
+}
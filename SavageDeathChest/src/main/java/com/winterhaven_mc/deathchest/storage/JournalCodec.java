@@ -0,0 +1,430 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.io.*;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+
+/**
+ * A utility class that contains static methods for reading and writing journal datastore records.<br>
+ * A journal file begins with a header of a magic number and format version, followed by records of the form
+ * {@code [int payload length][payload][int CRC32 of payload]}, where the first byte of the payload is
+ * the record type.
+ */
+final class JournalCodec {
+
+	// journal file magic number, "DCJL"
+	static final int MAGIC = 0x44434A4C;
+
+	// journal file format version
+	static final int VERSION = 1;
+
+	// size of journal file header in bytes
+	static final int HEADER_SIZE = 8;
+
+	// size of record length and checksum fields in bytes
+	static final int RECORD_OVERHEAD = 8;
+
+	// largest valid record payload; a larger length can only be read from a damaged record
+	static final int MAX_PAYLOAD_SIZE = 0x10000;
+
+	// record type codes
+	private static final byte PUT_CHEST = 1;
+	private static final byte PUT_BLOCK = 2;
+	private static final byte DELETE_CHEST = 3;
+	private static final byte DELETE_BLOCK = 4;
+
+
+	/**
+	 * Private constructor to prevent instantiation of class
+	 */
+	private JournalCodec() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Write a journal file header
+	 *
+	 * @param out the output stream to write to
+	 * @throws IOException if the header could not be written
+	 */
+	static void writeHeader(final DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+
+	/**
+	 * Read and check a journal file header
+	 *
+	 * @param in the input stream to read from
+	 * @throws IOException if the header could not be read, or is not a supported journal header
+	 */
+	static void readHeader(final DataInputStream in) throws IOException {
+
+		if (in.readInt() != MAGIC) {
+			throw new IOException("File is not a death chest journal.");
+		}
+
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported journal format version " + version + ".");
+		}
+	}
+
+
+	/**
+	 * Write a write operation as a framed journal record
+	 *
+	 * @param writeOperation the write operation to write
+	 * @param out            the output stream to write to
+	 * @throws IOException if the record could not be written
+	 */
+	static void writeRecord(final WriteOperation writeOperation, final DataOutputStream out) throws IOException {
+
+		// encode payload
+		final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(64);
+		final DataOutputStream payload = new DataOutputStream(payloadBytes);
+
+		switch (writeOperation.getType()) {
+			case PUT_CHEST:
+				DeathChest deathChest = writeOperation.getDeathChest();
+				payload.writeByte(PUT_CHEST);
+				writeUUID(payload, deathChest.getChestUUID());
+				writeUUID(payload, deathChest.getOwnerUUID());
+				writeUUID(payload, deathChest.getKillerUUID());
+				payload.writeInt(deathChest.getItemCount());
+				payload.writeLong(deathChest.getPlacementTime());
+				payload.writeLong(deathChest.getExpirationTime());
+				break;
+			case PUT_BLOCK:
+				payload.writeByte(PUT_BLOCK);
+				writeUUID(payload, writeOperation.getChestBlock().getChestUUID());
+				writeLocation(payload, writeOperation.getChestBlock().getLocation());
+				break;
+			case DELETE_CHEST:
+				payload.writeByte(DELETE_CHEST);
+				writeUUID(payload, writeOperation.getDeathChest().getChestUUID());
+				break;
+			case DELETE_BLOCK:
+				payload.writeByte(DELETE_BLOCK);
+				writeUUID(payload, writeOperation.getChestBlock().getChestUUID());
+				writeLocation(payload, writeOperation.getChestBlock().getLocation());
+				break;
+		}
+		payload.flush();
+
+		// write framed record
+		writeRawRecord(payloadBytes.toByteArray(), out);
+	}
+
+
+	/**
+	 * Write a record payload, as returned by {@link #readRecord(DataInputStream)}, as a framed journal record
+	 *
+	 * @param bytes the record payload
+	 * @param out   the output stream to write to
+	 * @throws IOException if the record could not be written
+	 */
+	static void writeRawRecord(final byte[] bytes, final DataOutputStream out) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.writeInt(checksum(bytes));
+	}
+
+
+	/**
+	 * Read a framed journal record
+	 *
+	 * @param in the input stream to read from
+	 * @return the record payload, or null if the end of the stream was reached before a record
+	 * @throws EOFException    if the end of the stream was reached inside a record
+	 * @throws IOException     if the record could not be read
+	 * @throws JournalDamagedException if the record length or checksum is not valid
+	 */
+	static byte[] readRecord(final DataInputStream in) throws IOException {
+
+		// read payload length; end of stream between records is the normal end of the journal
+		final int length;
+		try {
+			length = in.readInt();
+		}
+		catch (EOFException e) {
+			return null;
+		}
+
+		if (length <= 0 || length > MAX_PAYLOAD_SIZE) {
+			throw new JournalDamagedException("Invalid record length " + length + ".");
+		}
+
+		// read payload and checksum
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		if (in.readInt() != checksum(bytes)) {
+			throw new JournalDamagedException("Record checksum does not match.");
+		}
+
+		return bytes;
+	}
+
+
+	/**
+	 * Decode a journal record payload into a write operation, looking up block record worlds by name
+	 * with a resolver, which may rename worlds or leave some out
+	 *
+	 * @param bytes         the record payload
+	 * @param worldResolver the function that returns the world for a world name in the record, or null
+	 * @return the write operation, or null if the record is a block record whose world was not resolved
+	 * @throws IOException if the payload could not be decoded
+	 */
+	static WriteOperation decode(final byte[] bytes, final Function<String, World> worldResolver) throws IOException {
+
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		final byte type = in.readByte();
+		switch (type) {
+			case PUT_CHEST:
+				return new WriteOperation(WriteOperationType.PUT_CHEST, new DeathChest(readUUID(in),
+						readUUID(in),
+						readUUID(in),
+						in.readInt(),
+						in.readLong(),
+						in.readLong()));
+			case DELETE_CHEST:
+				return new WriteOperation(WriteOperationType.DELETE_CHEST,
+						new DeathChest(readUUID(in), null, null, 0, 0, 0));
+			case PUT_BLOCK:
+			case DELETE_BLOCK:
+				final UUID chestUUID = readUUID(in);
+				final Location location = readLocation(in, worldResolver);
+				if (location == null) {
+					return null;
+				}
+				return new WriteOperation(type == PUT_BLOCK ? WriteOperationType.PUT_BLOCK
+						: WriteOperationType.DELETE_BLOCK, new ChestBlock(chestUUID, location));
+		}
+		throw new JournalDamagedException("Unknown record type " + type + ".");
+	}
+
+
+	/**
+	 * Decode the fields of a block record payload without looking up its world, so that a record
+	 * for a world that is not loaded can be kept and written again unchanged
+	 *
+	 * @param bytes the record payload
+	 * @return the unresolved block record, or null if the record is not a block record
+	 * @throws IOException if the payload could not be decoded
+	 */
+	static UnresolvedBlock decodeUnresolved(final byte[] bytes) throws IOException {
+
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		final byte type = in.readByte();
+		if (type != PUT_BLOCK && type != DELETE_BLOCK) {
+			return null;
+		}
+
+		final UUID chestUUID = readUUID(in);
+		final String worldName = in.readUTF();
+		final long position = in.readLong();
+
+		return new UnresolvedBlock(type == DELETE_BLOCK, chestUUID, worldName, position, bytes);
+	}
+
+
+	/**
+	 * Get the CRC32 checksum of a record payload
+	 *
+	 * @param bytes the record payload
+	 * @return the checksum
+	 */
+	private static int checksum(final byte[] bytes) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(bytes, 0, bytes.length);
+		return (int) crc32.getValue();
+	}
+
+
+	/**
+	 * Write a nullable UUID; null is written as the nil UUID
+	 *
+	 * @param out  the output stream to write to
+	 * @param uuid the UUID to write
+	 * @throws IOException if the UUID could not be written
+	 */
+	private static void writeUUID(final DataOutputStream out, final UUID uuid) throws IOException {
+		out.writeLong(uuid == null ? 0L : uuid.getMostSignificantBits());
+		out.writeLong(uuid == null ? 0L : uuid.getLeastSignificantBits());
+	}
+
+
+	/**
+	 * Read a nullable UUID; the nil UUID is read as null
+	 *
+	 * @param in the input stream to read from
+	 * @return the UUID, or null
+	 * @throws IOException if the UUID could not be read
+	 */
+	private static UUID readUUID(final DataInputStream in) throws IOException {
+
+		long mostSignificantBits = in.readLong();
+		long leastSignificantBits = in.readLong();
+
+		if (mostSignificantBits == 0L && leastSignificantBits == 0L) {
+			return null;
+		}
+		return new UUID(mostSignificantBits, leastSignificantBits);
+	}
+
+
+	/**
+	 * Write a block location as world name and packed position
+	 *
+	 * @param out      the output stream to write to
+	 * @param location the block location to write
+	 * @throws IOException if the location could not be written
+	 */
+	private static void writeLocation(final DataOutputStream out, final Location location) throws IOException {
+		out.writeUTF(location.getWorld().getName());
+		out.writeLong(RecordCodec.packPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ()));
+	}
+
+
+	/**
+	 * Read a block location written by {@link #writeLocation(DataOutputStream, Location)}
+	 *
+	 * @param in            the input stream to read from
+	 * @param worldResolver the function that returns the world for a world name
+	 * @return the block location, or null if the world was not resolved
+	 * @throws IOException if the location could not be read
+	 */
+	private static Location readLocation(final DataInputStream in,
+										 final Function<String, World> worldResolver) throws IOException {
+
+		final String worldName = in.readUTF();
+		final long position = in.readLong();
+
+		final World world = worldResolver.apply(worldName);
+		if (world == null) {
+			return null;
+		}
+
+		return new Location(world,
+				RecordCodec.unpackX(position),
+				RecordCodec.unpackY(position),
+				RecordCodec.unpackZ(position));
+	}
+
+
+	/**
+	 * A block record whose world was not loaded when it was read, with its payload
+	 */
+	static final class UnresolvedBlock {
+
+		// true if the record deletes the block
+		private final boolean delete;
+
+		// chest UUID of the block
+		private final UUID chestUUID;
+
+		// world name and packed position of the block
+		private final String worldName;
+		private final long position;
+
+		// the record payload
+		private final byte[] bytes;
+
+
+		/**
+		 * Class constructor
+		 *
+		 * @param delete    true if the record deletes the block
+		 * @param chestUUID chest UUID of the block
+		 * @param worldName world name of the block
+		 * @param position  packed position of the block
+		 * @param bytes     the record payload
+		 */
+		private UnresolvedBlock(final boolean delete, final UUID chestUUID, final String worldName,
+								final long position, final byte[] bytes) {
+			this.delete = delete;
+			this.chestUUID = chestUUID;
+			this.worldName = worldName;
+			this.position = position;
+			this.bytes = bytes;
+		}
+
+
+		/**
+		 * Check if the record deletes the block
+		 *
+		 * @return {@code true} for a block delete record, {@code false} for a block insert record
+		 */
+		boolean isDelete() {
+			return delete;
+		}
+
+
+		/**
+		 * Get the chest UUID of the block
+		 *
+		 * @return the chest UUID
+		 */
+		UUID getChestUUID() {
+			return chestUUID;
+		}
+
+
+		/**
+		 * Get the world name of the block
+		 *
+		 * @return the world name
+		 */
+		String getWorldName() {
+			return worldName;
+		}
+
+
+		/**
+		 * Get the packed position of the block
+		 *
+		 * @return the packed position
+		 */
+		long getPosition() {
+			return position;
+		}
+
+
+		/**
+		 * Get the record payload
+		 *
+		 * @return the record payload
+		 */
+		byte[] getBytes() {
+			return bytes;
+		}
+	}
+
+
+	/**
+	 * An exception thrown when a journal record is damaged, as after a partial write
+	 */
+	static final class JournalDamagedException extends IOException {
+
+		/**
+		 * Class constructor
+		 *
+		 * @param message the exception message
+		 */
+		JournalDamagedException(final String message) {
+			super(message);
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A class that implements a repeating task to maintain an SQLite database. When the datastore is lightly
+ * loaded, the task reclaims a budget of free pages with an incremental vacuum, and periodically
+ * updates query planner statistics. Runs are skipped while the datastore is busy.
+ */
+final class MaintenanceTask extends BukkitRunnable {
+
+	// the datastore to maintain
+	private final DataStoreSQLite dataStore;
+
+	// interval in milliseconds between query planner statistics updates, or zero to disable
+	private final long optimizeInterval;
+
+	// time in milliseconds since epoch that query planner statistics were last updated
+	private long lastOptimizeTime;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dataStore        the datastore to maintain
+	 * @param optimizeInterval the interval in minutes between query planner statistics updates, or zero to disable
+	 */
+	MaintenanceTask(final DataStoreSQLite dataStore, final long optimizeInterval) {
+
+		// set datastore field
+		this.dataStore = dataStore;
+
+		// set optimize interval; statistics are first updated on the first lightly loaded run
+		this.optimizeInterval = TimeUnit.MINUTES.toMillis(optimizeInterval);
+	}
+
+
+	@Override
+	public void run() {
+
+		// if datastore is busy, wait for a later run
+		if (!dataStore.isLightlyLoaded()) {
+			return;
+		}
+
+		// reclaim free pages
+		dataStore.vacuum();
+
+		// update query planner statistics if due
+		if (optimizeInterval > 0 && System.currentTimeMillis() - lastOptimizeTime >= optimizeInterval) {
+			dataStore.optimize();
+			lastOptimizeTime = System.currentTimeMillis();
+		}
+	}
+
+}
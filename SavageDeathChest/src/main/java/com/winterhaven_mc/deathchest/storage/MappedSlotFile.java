@@ -0,0 +1,326 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * A class that implements a memory-mapped file of fixed width record slots.<br>
+ * The file begins with a header, followed by slots of {@code slotSize} bytes. The first byte of each slot
+ * is its state; the remaining bytes hold the record. Deleted slots are chained into a free list through
+ * the four bytes following the state byte, and are reused before the file is grown.
+ * This class is not thread safe; callers must synchronize access.
+ */
+final class MappedSlotFile {
+
+	// mapped slot file magic number, "DCMF"
+	private static final int MAGIC = 0x44434D46;
+
+	// mapped slot file format version
+	private static final int VERSION = 1;
+
+	// size of file header in bytes
+	private static final int HEADER_SIZE = 32;
+
+	// header field offsets
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int SLOT_SIZE_OFFSET = 8;
+	private static final int HIGH_WATER_OFFSET = 12;
+	private static final int FREE_HEAD_OFFSET = 16;
+	private static final int LIVE_COUNT_OFFSET = 20;
+
+	// slot states
+	private static final byte SLOT_EMPTY = 0;
+	private static final byte SLOT_LIVE = 1;
+	private static final byte SLOT_FREE = 2;
+
+	// free list terminator
+	private static final int NO_SLOT = -1;
+
+	// number of slots mapped when a new file is created
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// the file
+	private final File file;
+
+	// size of each slot in bytes, including state byte
+	private final int slotSize;
+
+	// file channel used to map the file
+	private FileChannel channel;
+
+	// mapped file contents
+	private MappedByteBuffer buffer;
+
+	// number of slots in mapped region
+	private int capacity;
+
+	// number of slots ever allocated; slots at or above the high water mark have never been used
+	private int highWater;
+
+	// first slot in free list
+	private int freeHead;
+
+	// number of live slots
+	private int liveCount;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param file       the file
+	 * @param recordSize the size of each record in bytes, not including the slot state byte
+	 */
+	MappedSlotFile(final File file, final int recordSize) {
+		this.file = file;
+		this.slotSize = recordSize + 1;
+	}
+
+
+	/**
+	 * Open and map the file, creating it if it does not exist, and rebuild the free list
+	 *
+	 * @throws IOException if the file could not be opened, or is not a compatible slot file
+	 */
+	final void open() throws IOException {
+
+		channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		// if file is new, map initial capacity and write header
+		if (channel.size() < HEADER_SIZE) {
+			map(INITIAL_CAPACITY);
+			buffer.putInt(MAGIC_OFFSET, MAGIC);
+			buffer.putInt(VERSION_OFFSET, VERSION);
+			buffer.putInt(SLOT_SIZE_OFFSET, slotSize);
+			highWater = 0;
+			freeHead = NO_SLOT;
+			liveCount = 0;
+			writeHeader();
+			return;
+		}
+
+		// map existing file
+		map((int) Math.max(1, (channel.size() - HEADER_SIZE) / slotSize));
+
+		// check header
+		if (buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+			throw new IOException("File " + file.getName() + " is not a death chest slot file.");
+		}
+		if (buffer.getInt(VERSION_OFFSET) != VERSION) {
+			throw new IOException("Unsupported slot file format version " + buffer.getInt(VERSION_OFFSET) + ".");
+		}
+		if (buffer.getInt(SLOT_SIZE_OFFSET) != slotSize) {
+			throw new IOException("File " + file.getName() + " has slot size " + buffer.getInt(SLOT_SIZE_OFFSET)
+					+ ", expected " + slotSize + ".");
+		}
+
+		highWater = Math.min(Math.max(0, buffer.getInt(HIGH_WATER_OFFSET)), capacity);
+
+		// rebuild free list from slot states, in case the file was not synced before it was last closed
+		rebuildFreeList();
+	}
+
+
+	/**
+	 * Map the file with the given slot capacity, extending the file if necessary
+	 *
+	 * @param newCapacity the number of slots to map
+	 * @throws IOException if the file could not be mapped
+	 */
+	private void map(final int newCapacity) throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) newCapacity * slotSize);
+		capacity = newCapacity;
+	}
+
+
+	/**
+	 * Chain all slots below the high water mark that are not live into the free list, and count live slots
+	 */
+	private void rebuildFreeList() {
+
+		freeHead = NO_SLOT;
+		liveCount = 0;
+
+		// chain in descending order, so that lower slots are reused first
+		for (int slot = highWater - 1; slot >= 0; slot--) {
+			if (buffer.get(offset(slot)) == SLOT_LIVE) {
+				liveCount++;
+			}
+			else {
+				buffer.put(offset(slot), SLOT_FREE);
+				buffer.putInt(offset(slot) + 1, freeHead);
+				freeHead = slot;
+			}
+		}
+		writeHeader();
+	}
+
+
+	/**
+	 * Write high water mark, free list head and live count to header
+	 */
+	private void writeHeader() {
+		buffer.putInt(HIGH_WATER_OFFSET, highWater);
+		buffer.putInt(FREE_HEAD_OFFSET, freeHead);
+		buffer.putInt(LIVE_COUNT_OFFSET, liveCount);
+	}
+
+
+	/**
+	 * Get the byte offset of a slot in the file
+	 *
+	 * @param slot the slot number
+	 * @return the byte offset of the slot state byte
+	 */
+	private int offset(final int slot) {
+		return HEADER_SIZE + slot * slotSize;
+	}
+
+
+	/**
+	 * Get the number of slots ever allocated; all live slots are below this number
+	 *
+	 * @return the high water mark
+	 */
+	final int getHighWater() {
+		return highWater;
+	}
+
+
+	/**
+	 * Get the number of live slots
+	 *
+	 * @return the number of live slots
+	 */
+	final int getLiveCount() {
+		return liveCount;
+	}
+
+
+	/**
+	 * Check if a slot holds a live record
+	 *
+	 * @param slot the slot number
+	 * @return {@code true} if the slot is live, {@code false} if it is free or has never been used
+	 */
+	final boolean isLive(final int slot) {
+		return slot >= 0 && slot < highWater && buffer.get(offset(slot)) == SLOT_LIVE;
+	}
+
+
+	/**
+	 * Get a buffer positioned at the record of a slot, for reading or writing the record
+	 *
+	 * @param slot the slot number
+	 * @return a buffer sharing the mapped file contents, positioned at the start of the record and limited to its end
+	 */
+	final ByteBuffer record(final int slot) {
+		ByteBuffer record = buffer.duplicate();
+		record.limit(offset(slot) + slotSize);
+		record.position(offset(slot) + 1);
+		return record;
+	}
+
+
+	/**
+	 * Allocate a slot for a new record, reusing a free slot if there is one, and growing the file if not.
+	 * The slot is not live until {@link #markLive(int)} is called after its record has been written.
+	 *
+	 * @return the slot number
+	 * @throws IOException if the file could not be grown
+	 */
+	final int allocate() throws IOException {
+
+		// reuse head of free list
+		if (freeHead != NO_SLOT) {
+			int slot = freeHead;
+			freeHead = buffer.getInt(offset(slot) + 1);
+			writeHeader();
+			return slot;
+		}
+
+		// if all mapped slots are used, double the mapped region
+		if (highWater == capacity) {
+			map(capacity * 2);
+		}
+
+		int slot = highWater++;
+		writeHeader();
+		return slot;
+	}
+
+
+	/**
+	 * Mark a slot live; called after its record has been written, so that a partially written record is never live
+	 *
+	 * @param slot the slot number
+	 */
+	final void markLive(final int slot) {
+		if (buffer.get(offset(slot)) != SLOT_LIVE) {
+			buffer.put(offset(slot), SLOT_LIVE);
+			liveCount++;
+			writeHeader();
+		}
+	}
+
+
+	/**
+	 * Free a slot and add it to the free list
+	 *
+	 * @param slot the slot number
+	 */
+	final void free(final int slot) {
+
+		if (!isLive(slot)) {
+			return;
+		}
+
+		buffer.put(offset(slot), SLOT_FREE);
+		buffer.putInt(offset(slot) + 1, freeHead);
+		freeHead = slot;
+		liveCount--;
+		writeHeader();
+	}
+
+
+	/**
+	 * Get the current mapping of the file, so modified pages can be written to disk without holding
+	 * the caller's lock. The mapping stays valid after the file is grown or closed.
+	 *
+	 * @return the mapped file contents, or null if the file is not open
+	 */
+	final MappedByteBuffer getMapping() {
+		return buffer;
+	}
+
+
+	/**
+	 * Write modified mapped pages to disk
+	 */
+	final void force() {
+		if (buffer != null) {
+			buffer.force();
+		}
+	}
+
+
+	/**
+	 * Write modified mapped pages to disk and close the file
+	 *
+	 * @throws IOException if the file could not be closed
+	 */
+	final void close() throws IOException {
+		force();
+		buffer = null;
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+}
@@ -3,16 +3,23 @@ package com.winterhaven_mc.deathchest.storage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
- * A utility class that contains static methods for retrieving database queries from the queries properties file.
+ * A utility class that contains static methods for retrieving database queries from the queries properties files.
+ * Each SQL dialect has its own properties file; the default file contains the SQLite queries.
  */
 final class Queries {
 
 	private static final String propFileName = "queries.properties";
-	private static Properties properties;
+	private static final Map<String, Properties> propertiesMap = new ConcurrentHashMap<>();
+
+	// number of parameters in a bulk query; unused parameters are set to repeat the last value
+	static final int BULK_SIZE = 64;
 
 	/**
 	 * Private constructor to prevent instantiation of class
@@ -22,23 +29,26 @@ final class Queries {
 	}
 
 
-	private static Properties getQueries() throws SQLException {
+	private static Properties getQueries(final String fileName) throws SQLException {
 
-		// singleton
+		// one instance per properties file
+		Properties properties = propertiesMap.get(fileName);
 		if (properties == null) {
 			properties = new Properties();
 			try {
 
-				InputStream inputStream = Queries.class.getResourceAsStream("/" + propFileName);
+				InputStream inputStream = Queries.class.getResourceAsStream("/" + fileName);
 
 				if (inputStream == null) {
-					throw new SQLException("Unable to load property file: " + propFileName);
+					throw new SQLException("Unable to load property file: " + fileName);
 				}
 				properties.load(inputStream);
+				inputStream.close();
 			}
 			catch (IOException e) {
-				throw new SQLException("Unable to load property file: " + propFileName);
+				throw new SQLException("Unable to load property file: " + fileName);
 			}
+			propertiesMap.put(fileName, properties);
 		}
 
 		return properties;
@@ -46,7 +56,38 @@ final class Queries {
 
 
 	static String getQuery(final String query) throws SQLException {
-		return getQueries().getProperty(query);
+		return getQueries(propFileName).getProperty(query);
+	}
+
+
+	static String getQuery(final String fileName, final String query) throws SQLException {
+		return getQueries(fileName).getProperty(query);
+	}
+
+
+	/**
+	 * Get a bulk query, with its %s placeholder replaced by a list of {@link #BULK_SIZE} parameters
+	 *
+	 * @param query the query name
+	 * @return the bulk query
+	 * @throws SQLException if the properties file could not be loaded
+	 */
+	static String getBulkQuery(final String query) throws SQLException {
+		return String.format(getQuery(query), String.join(",", Collections.nCopies(BULK_SIZE, "?")));
+	}
+
+
+	/**
+	 * Get a bulk query from a properties file, with its %s placeholder replaced by a list of
+	 * {@link #BULK_SIZE} parameters
+	 *
+	 * @param fileName the properties file name
+	 * @param query    the query name
+	 * @return the bulk query
+	 * @throws SQLException if the properties file could not be loaded
+	 */
+	static String getBulkQuery(final String fileName, final String query) throws SQLException {
+		return String.format(getQuery(fileName, query), String.join(",", Collections.nCopies(BULK_SIZE, "?")));
 	}
 
 }
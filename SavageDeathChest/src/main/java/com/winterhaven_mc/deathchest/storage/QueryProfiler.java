@@ -0,0 +1,458 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * An opt-in profiler for datastore statements. When enabled, records a latency histogram, rows affected
+ * and busy or locked failures for each statement, keyed by query name from the queries properties file,
+ * along with statement preparation time and the time write operations wait on the write queue.
+ * When disabled, each profiled statement costs only a volatile read.
+ */
+public final class QueryProfiler {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// upper bounds of latency histogram buckets in microseconds; the last bucket has no upper bound
+	private static final long[] BUCKET_BOUNDS = { 10, 100, 1000, 10000, 100000, 1000000 };
+
+	// labels of latency histogram buckets
+	private static final String[] BUCKET_LABELS = { "<10us", "<100us", "<1ms", "<10ms", "<100ms", "<1s", ">=1s" };
+
+	// SQLite result codes for a busy database and a locked table
+	private static final int SQLITE_BUSY = 5;
+	private static final int SQLITE_LOCKED = 6;
+
+	// number of statements shown by the profile command
+	private static final int REPORT_LIMIT = 10;
+
+	// statement statistics keyed by query name
+	private final Map<String, QueryStats> statsMap = new ConcurrentHashMap<>();
+
+	// time write operations spend on the write queue before the writer thread takes them
+	private final QueryStats queueWait = new QueryStats("write queue wait");
+
+	// true while statistics are being recorded
+	private volatile boolean enabled;
+
+	// time in milliseconds since epoch that statistics were last reset
+	private volatile long resetTime;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to main class
+	 */
+	public QueryProfiler(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// get enabled setting from config
+		this.enabled = plugin.getConfig().getBoolean("storage.profiler", false);
+		this.resetTime = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Check if statistics are being recorded
+	 *
+	 * @return {@code true} if the profiler is enabled, {@code false} if not
+	 */
+	public final boolean isEnabled() {
+		return enabled;
+	}
+
+
+	/**
+	 * Start or stop recording statistics. Statistics already recorded are kept.
+	 *
+	 * @param enabled {@code true} to start recording, {@code false} to stop
+	 */
+	public final void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+
+	/**
+	 * Discard all recorded statistics
+	 */
+	public final void reset() {
+		statsMap.clear();
+		queueWait.clear();
+		resetTime = System.currentTimeMillis();
+	}
+
+
+	/**
+	 * Get the start time of a profiled operation
+	 *
+	 * @return the current value of the system nanosecond timer, or zero if the profiler is disabled
+	 */
+	final long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+
+	/**
+	 * Record a completed statement
+	 *
+	 * @param queryName the query name of the statement
+	 * @param startTime the start time returned by {@link #start()}
+	 * @param rows      the number of rows affected or read
+	 */
+	final void record(final String queryName, final long startTime, final int rows) {
+
+		// if profiler was disabled when operation started, do nothing and return
+		if (startTime == 0) {
+			return;
+		}
+
+		getStats(queryName).record(System.nanoTime() - startTime, rows);
+	}
+
+
+	/**
+	 * Record a failed statement. Failures because the database was busy or a table was locked
+	 * are counted separately, as they indicate lock contention.
+	 *
+	 * @param queryName the query name of the statement
+	 * @param startTime the start time returned by {@link #start()}
+	 * @param e         the exception thrown by the statement
+	 */
+	final void recordFailure(final String queryName, final long startTime, final SQLException e) {
+
+		// if profiler was disabled when operation started, do nothing and return
+		if (startTime == 0) {
+			return;
+		}
+
+		// extended result codes carry the primary result code in their low byte
+		final int resultCode = e.getErrorCode() & 0xFF;
+		getStats(queryName).recordFailure(System.nanoTime() - startTime,
+				resultCode == SQLITE_BUSY || resultCode == SQLITE_LOCKED);
+	}
+
+
+	/**
+	 * Record the preparation of a statement
+	 *
+	 * @param queryName the query name of the statement
+	 * @param startTime the start time returned by {@link #start()}
+	 */
+	final void recordPrepare(final String queryName, final long startTime) {
+
+		// if profiler was disabled when operation started, do nothing and return
+		if (startTime == 0) {
+			return;
+		}
+
+		getStats(queryName).recordPrepare(System.nanoTime() - startTime);
+	}
+
+
+	/**
+	 * Record the time a write operation waited on the write queue
+	 *
+	 * @param nanos the wait time in nanoseconds
+	 */
+	final void recordQueueWait(final long nanos) {
+
+		// if profiler is disabled, do nothing and return
+		if (!enabled) {
+			return;
+		}
+
+		queueWait.record(nanos, 1);
+	}
+
+
+	/**
+	 * Get the statistics for a query name, creating them if necessary
+	 *
+	 * @param queryName the query name
+	 * @return the statistics for the query name
+	 */
+	private QueryStats getStats(final String queryName) {
+		return statsMap.computeIfAbsent(queryName, QueryStats::new);
+	}
+
+
+	/**
+	 * Get a summary of recorded statistics, with statements ordered by total time, longest first
+	 *
+	 * @param limit the maximum number of statements to include, or zero to include all statements
+	 * @return List of String - the report lines
+	 */
+	private List<String> report(final int limit) {
+
+		final List<String> lines = new ArrayList<>();
+
+		lines.add("Datastore profile since " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(resetTime))
+				+ " (profiler " + (enabled ? "enabled" : "disabled") + ")");
+		lines.add("Histogram buckets: " + String.join(" ", BUCKET_LABELS));
+
+		// copy statistics, so they are ordered by totals that do not change while they are sorted,
+		// and are reported as they were when copied
+		final List<QueryStats> snapshot = new ArrayList<>(statsMap.size());
+		for (QueryStats stats : statsMap.values()) {
+			snapshot.add(stats.copy());
+		}
+		snapshot.sort(Comparator.comparingLong(QueryStats::getTotalNanos).reversed());
+
+		if (snapshot.isEmpty()) {
+			lines.add("No statements recorded.");
+		}
+
+		int count = 0;
+		for (QueryStats stats : snapshot) {
+			if (limit > 0 && count++ >= limit) {
+				lines.add((snapshot.size() - limit) + " more statements not shown.");
+				break;
+			}
+			stats.report(lines);
+		}
+
+		queueWait.copy().report(lines);
+
+		return lines;
+	}
+
+
+	/**
+	 * Get a summary of the statements with the longest total time, for display by command
+	 *
+	 * @return List of String - the report lines
+	 */
+	public final List<String> report() {
+		return report(REPORT_LIMIT);
+	}
+
+
+	/**
+	 * Write a summary of all recorded statistics to a file in the plugin data folder
+	 *
+	 * @return the file written
+	 * @throws IOException if the file could not be written
+	 */
+	public final File dump() throws IOException {
+
+		final File file = new File(plugin.getDataFolder(),
+				"profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt");
+
+		try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+			for (String line : report(0)) {
+				writer.println(line);
+			}
+
+			// print writer does not throw on write errors
+			if (writer.checkError()) {
+				throw new IOException("Could not write profile to " + file.getName() + ".");
+			}
+		}
+
+		return file;
+	}
+
+
+	/**
+	 * Format a duration in nanoseconds as milliseconds
+	 *
+	 * @param nanos the duration in nanoseconds
+	 * @return the duration in milliseconds, with three decimal places
+	 */
+	private static String millis(final double nanos) {
+		return String.format("%.3f ms", nanos / TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+
+	/**
+	 * Statistics for a single statement
+	 */
+	private static final class QueryStats {
+
+		// the query name
+		private final String name;
+
+		// latency histogram counts
+		private final long[] buckets = new long[BUCKET_LABELS.length];
+
+		// number of completed executions
+		private long count;
+
+		// total and maximum execution time in nanoseconds
+		private long totalNanos;
+		private long maxNanos;
+
+		// total rows affected or read
+		private long rows;
+
+		// number of failed executions, and failures because the database was busy or locked
+		private long failures;
+		private long busy;
+
+		// number of statement preparations and their total time in nanoseconds
+		private long prepares;
+		private long prepareNanos;
+
+
+		/**
+		 * Class constructor
+		 *
+		 * @param name the query name
+		 */
+		QueryStats(final String name) {
+			this.name = name;
+		}
+
+
+		/**
+		 * Record a completed execution
+		 *
+		 * @param nanos the execution time in nanoseconds
+		 * @param rows  the number of rows affected or read
+		 */
+		synchronized void record(final long nanos, final int rows) {
+			addLatency(nanos);
+			this.rows += rows;
+		}
+
+
+		/**
+		 * Record a failed execution
+		 *
+		 * @param nanos the time in nanoseconds until the execution failed
+		 * @param busy  {@code true} if the database was busy or a table was locked
+		 */
+		synchronized void recordFailure(final long nanos, final boolean busy) {
+			addLatency(nanos);
+			failures++;
+			if (busy) {
+				this.busy++;
+			}
+		}
+
+
+		/**
+		 * Record a statement preparation
+		 *
+		 * @param nanos the preparation time in nanoseconds
+		 */
+		synchronized void recordPrepare(final long nanos) {
+			prepares++;
+			prepareNanos += nanos;
+		}
+
+
+		/**
+		 * Add an execution time to the totals and histogram
+		 *
+		 * @param nanos the execution time in nanoseconds
+		 */
+		private void addLatency(final long nanos) {
+
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+
+			final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+			int bucket = 0;
+			while (bucket < BUCKET_BOUNDS.length && micros >= BUCKET_BOUNDS[bucket]) {
+				bucket++;
+			}
+			buckets[bucket]++;
+		}
+
+
+		/**
+		 * Discard recorded statistics
+		 */
+		synchronized void clear() {
+			Arrays.fill(buckets, 0);
+			count = 0;
+			totalNanos = 0;
+			maxNanos = 0;
+			rows = 0;
+			failures = 0;
+			busy = 0;
+			prepares = 0;
+			prepareNanos = 0;
+		}
+
+
+		/**
+		 * Get a copy of the recorded statistics
+		 *
+		 * @return a new QueryStats holding the statistics recorded so far
+		 */
+		synchronized QueryStats copy() {
+			final QueryStats copy = new QueryStats(name);
+			System.arraycopy(buckets, 0, copy.buckets, 0, buckets.length);
+			copy.count = count;
+			copy.totalNanos = totalNanos;
+			copy.maxNanos = maxNanos;
+			copy.rows = rows;
+			copy.failures = failures;
+			copy.busy = busy;
+			copy.prepares = prepares;
+			copy.prepareNanos = prepareNanos;
+			return copy;
+		}
+
+
+		/**
+		 * Get the total execution time
+		 *
+		 * @return the total execution time in nanoseconds
+		 */
+		synchronized long getTotalNanos() {
+			return totalNanos;
+		}
+
+
+		/**
+		 * Add report lines for this statement
+		 *
+		 * @param lines the list of report lines to add to
+		 */
+		synchronized void report(final List<String> lines) {
+
+			if (count == 0 && prepares == 0) {
+				return;
+			}
+
+			StringBuilder summary = new StringBuilder(name)
+					.append(": ").append(count).append(" executions")
+					.append(", total ").append(millis(totalNanos))
+					.append(", avg ").append(millis(count == 0 ? 0 : (double) totalNanos / count))
+					.append(", max ").append(millis(maxNanos))
+					.append(", rows ").append(rows);
+			if (failures > 0) {
+				summary.append(", failed ").append(failures).append(" (busy/locked ").append(busy).append(")");
+			}
+			if (prepares > 0) {
+				summary.append(", prepared ").append(prepares).append(" in ").append(millis(prepareNanos));
+			}
+			lines.add(summary.toString());
+
+			StringBuilder histogram = new StringBuilder("  ");
+			for (long bucketCount : buckets) {
+				histogram.append(' ').append(bucketCount);
+			}
+			lines.add(histogram.toString());
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import org.bukkit.Location;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+
+/**
+ * A utility class that contains static methods for converting record fields to and from their compact stored form
+ */
+final class RecordCodec {
+
+	// bit widths of packed block coordinates
+	private static final int X_BITS = 26;
+	private static final int Z_BITS = 26;
+	private static final int Y_BITS = 12;
+
+
+	/**
+	 * Private constructor to prevent instantiation of class
+	 */
+	private RecordCodec() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Convert a UUID to a 16 byte array
+	 *
+	 * @param uuid the UUID to convert
+	 * @return byte array of length 16, or null if passed uuid is null
+	 */
+	static byte[] toBytes(final UUID uuid) {
+
+		if (uuid == null) {
+			return null;
+		}
+
+		return ByteBuffer.allocate(16)
+				.putLong(uuid.getMostSignificantBits())
+				.putLong(uuid.getLeastSignificantBits())
+				.array();
+	}
+
+
+	/**
+	 * Compare two UUIDs in the order of their 16 byte arrays, which is the order SQLite sorts stored UUIDs in
+	 *
+	 * @param uuid1 the first UUID to compare
+	 * @param uuid2 the second UUID to compare
+	 * @return a negative integer, zero or a positive integer as the first UUID sorts before, with or after the second
+	 */
+	static int compareUUIDs(final UUID uuid1, final UUID uuid2) {
+
+		int result = Long.compareUnsigned(uuid1.getMostSignificantBits(), uuid2.getMostSignificantBits());
+		if (result == 0) {
+			result = Long.compareUnsigned(uuid1.getLeastSignificantBits(), uuid2.getLeastSignificantBits());
+		}
+		return result;
+	}
+
+
+	/**
+	 * Convert a 16 byte array to a UUID
+	 *
+	 * @param bytes the byte array to convert
+	 * @return the UUID, or null if passed byte array is null
+	 * @throws IllegalArgumentException if passed byte array is not 16 bytes long
+	 */
+	static UUID toUUID(final byte[] bytes) {
+
+		if (bytes == null) {
+			return null;
+		}
+
+		if (bytes.length != 16) {
+			throw new IllegalArgumentException("UUID must be 16 bytes, but was " + bytes.length + " bytes.");
+		}
+
+		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+		return new UUID(byteBuffer.getLong(), byteBuffer.getLong());
+	}
+
+
+	/**
+	 * Write a nullable UUID to a buffer as 16 bytes; null is written as the nil UUID
+	 *
+	 * @param buffer the buffer to write to
+	 * @param uuid   the UUID to write
+	 */
+	static void putUUID(final ByteBuffer buffer, final UUID uuid) {
+		buffer.putLong(uuid == null ? 0L : uuid.getMostSignificantBits());
+		buffer.putLong(uuid == null ? 0L : uuid.getLeastSignificantBits());
+	}
+
+
+	/**
+	 * Read a nullable UUID written by {@link #putUUID(ByteBuffer, UUID)} from a buffer
+	 *
+	 * @param buffer the buffer to read from
+	 * @return the UUID, or null if the nil UUID was read
+	 */
+	static UUID getUUID(final ByteBuffer buffer) {
+
+		long mostSignificantBits = buffer.getLong();
+		long leastSignificantBits = buffer.getLong();
+
+		if (mostSignificantBits == 0L && leastSignificantBits == 0L) {
+			return null;
+		}
+		return new UUID(mostSignificantBits, leastSignificantBits);
+	}
+
+
+	/**
+	 * Pack block coordinates into a single long, with 26 bits each for x and z and 12 bits for y
+	 *
+	 * @param x the block x coordinate
+	 * @param y the block y coordinate
+	 * @param z the block z coordinate
+	 * @return the packed block position
+	 */
+	static long packPosition(final int x, final int y, final int z) {
+		return ((long) x & ((1L << X_BITS) - 1)) << (Z_BITS + Y_BITS)
+				| ((long) z & ((1L << Z_BITS) - 1)) << Y_BITS
+				| ((long) y & ((1L << Y_BITS) - 1));
+	}
+
+
+	/**
+	 * Get the block x coordinate from a packed block position
+	 *
+	 * @param position the packed block position
+	 * @return the block x coordinate
+	 */
+	static int unpackX(final long position) {
+		return (int) (position >> (Z_BITS + Y_BITS));
+	}
+
+
+	/**
+	 * Get the block y coordinate from a packed block position
+	 *
+	 * @param position the packed block position
+	 * @return the block y coordinate
+	 */
+	static int unpackY(final long position) {
+		return (int) (position << (64 - Y_BITS) >> (64 - Y_BITS));
+	}
+
+
+	/**
+	 * Get the block z coordinate from a packed block position
+	 *
+	 * @param position the packed block position
+	 * @return the block z coordinate
+	 */
+	static int unpackZ(final long position) {
+		return (int) (position << X_BITS >> (X_BITS + Y_BITS));
+	}
+
+
+	/**
+	 * Get the key used to identify a block record by location
+	 *
+	 * @param location the block location
+	 * @return the block key, or null if the location has no world
+	 */
+	static String blockKey(final Location location) {
+
+		if (location == null || location.getWorld() == null) {
+			return null;
+		}
+
+		return location.getWorld().getName() + ":"
+				+ packPosition(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.World;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
+
+
+/**
+ * A utility class that contains a static method for removing orphaned records from the SQLite datastore
+ * with set-based statements, in a single transaction at startup.
+ */
+final class SQLiteReconciliation {
+
+	// number of days after expiration that chests in worlds that are not loaded are kept
+	private static final long UNKNOWN_WORLD_GRACE_DAYS = 30;
+
+
+	/**
+	 * Private constructor to prevent instantiation of class
+	 */
+	private SQLiteReconciliation() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Remove orphaned records:
+	 * <ul>
+	 * <li>chests with blocks in worlds that are not loaded, expired more than 30 days ago,
+	 * with their blocks; a world may only be loaded after this plugin, so newer chests are kept</li>
+	 * <li>blocks without a parent chest</li>
+	 * <li>chests without blocks, unless a datastore conversion is in progress, because
+	 * an interrupted conversion has committed chest records whose blocks are not yet written</li>
+	 * </ul>
+	 * Must be called before the write queue thread is started.
+	 *
+	 * @param plugin     reference to main class
+	 * @param connection the database connection
+	 * @param label      the name used for this database in log messages
+	 * @throws SQLException if the records could not be removed
+	 */
+	static void reconcile(final PluginMain plugin, final Connection connection, final String label) throws SQLException {
+
+		final long startTime = System.currentTimeMillis();
+
+		final Statement statement = connection.createStatement();
+
+		// begin transaction
+		connection.setAutoCommit(false);
+
+		int unknownWorldChestCount;
+		int orphanBlockCount;
+		int orphanChestCount = 0;
+
+		try {
+			// populate temporary table of loaded world names
+			statement.execute(getQuery("CreateLoadedWorldTable"));
+			PreparedStatement insertWorld = connection.prepareStatement(getQuery("InsertLoadedWorld"));
+			for (World world : plugin.getServer().getWorlds()) {
+				insertWorld.setString(1, world.getName());
+				insertWorld.addBatch();
+			}
+			insertWorld.executeBatch();
+			insertWorld.close();
+
+			// delete chests in worlds that are not loaded; their blocks are deleted by cascade
+			PreparedStatement deleteChests = connection.prepareStatement(getQuery("DeleteChestsInUnknownWorlds"));
+			deleteChests.setLong(1, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(UNKNOWN_WORLD_GRACE_DAYS));
+			unknownWorldChestCount = deleteChests.executeUpdate();
+			deleteChests.close();
+
+			// delete blocks without a parent chest
+			orphanBlockCount = statement.executeUpdate(getQuery("DeleteBlocksWithoutChest"));
+
+			// delete chests without blocks, unless a conversion may still write their blocks
+			if (!DataStoreConversion.isInterrupted(plugin)) {
+				orphanChestCount = statement.executeUpdate(getQuery("DeleteChestsWithoutBlocks"));
+			}
+
+			statement.execute(getQuery("DropLoadedWorldTable"));
+
+			// commit transaction
+			connection.commit();
+		}
+		catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(true);
+			statement.close();
+		}
+
+		// output counts if any records were removed, or if debugging is enabled
+		if (unknownWorldChestCount + orphanBlockCount + orphanChestCount > 0 || plugin.debug) {
+			plugin.getLogger().info(label + " datastore reconciled in "
+					+ (System.currentTimeMillis() - startTime) + " ms: "
+					+ unknownWorldChestCount + " chests in unloaded worlds, "
+					+ orphanBlockCount + " blocks without chests and "
+					+ orphanChestCount + " chests without blocks removed.");
+		}
+	}
+
+}
@@ -0,0 +1,422 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
+
+
+/**
+ * A utility class that contains static methods for creating the SQLite datastore schema
+ * and upgrading existing datastore files to the current schema version.
+ * <p>
+ * Schema versions are recorded in the database user_version pragma:
+ * <ul>
+ * <li>version 1: UUIDs stored as strings, world name and x,y,z columns on every block record
+ * (unversioned files containing a Chests table are version 1)</li>
+ * <li>version 2: UUIDs stored as 16 byte blobs, world names in a Worlds dictionary table,
+ * block coordinates packed into a single indexed Position column</li>
+ * </ul>
+ */
+final class SQLiteSchema {
+
+	// current schema version
+	static final int CURRENT_VERSION = 2;
+
+	// number of rows inserted per batch during migration
+	private static final int MIGRATION_BATCH_SIZE = 1000;
+
+
+	/**
+	 * Private constructor to prevent instantiation of class
+	 */
+	private SQLiteSchema() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Create schema tables, upgrading an existing datastore file if necessary.
+	 * Must be called before the write queue thread is started.
+	 *
+	 * @param plugin     reference to main class
+	 * @param connection the database connection
+	 * @throws SQLException if the schema could not be created or upgraded
+	 */
+	static void update(final PluginMain plugin, final Connection connection) throws SQLException {
+
+		final Statement statement = connection.createStatement();
+
+		// get schema version
+		int version = getVersion(statement);
+
+		// unversioned file with existing tables is version 1
+		if (version == 0 && tableExists(connection, "Chests")) {
+			version = 1;
+		}
+
+		// refuse to open a file written by a newer version of the plugin
+		if (version > CURRENT_VERSION) {
+			throw new SQLException("Datastore schema version " + version
+					+ " is newer than supported version " + CURRENT_VERSION + ".");
+		}
+
+		// upgrade version 1 file
+		if (version == 1) {
+			migrateV1(plugin, connection);
+		}
+
+		// execute table creation statements
+		createTables(statement);
+
+		// set schema version
+		statement.execute(String.format(getQuery("SetSchemaVersion"), CURRENT_VERSION));
+		statement.close();
+	}
+
+
+	/**
+	 * Execute table creation statements
+	 *
+	 * @param statement the statement used to execute table creation
+	 * @throws SQLException if a table could not be created
+	 */
+	private static void createTables(final Statement statement) throws SQLException {
+		statement.executeUpdate(getQuery("CreateWorldTable"));
+		statement.executeUpdate(getQuery("CreateDeathChestTable"));
+		statement.executeUpdate(getQuery("CreateDeathBlockTable"));
+
+		// create secondary indexes
+		statement.executeUpdate(getQuery("CreateChestOwnerIndex"));
+		statement.executeUpdate(getQuery("CreateChestExpirationIndex"));
+		statement.executeUpdate(getQuery("CreateBlockChestIndex"));
+	}
+
+
+	/**
+	 * Check that each indexed query searches an index instead of scanning a table.
+	 * The query plans are logged if debugging is enabled.
+	 *
+	 * @param plugin     reference to main class
+	 * @param connection the database connection
+	 * @return the names of the indexed queries that would scan a table, or an empty list if all use an index
+	 * @throws SQLException if a query plan could not be retrieved
+	 */
+	static List<String> verifyQueryPlans(final PluginMain plugin, final Connection connection) throws SQLException {
+
+		final List<String> unindexedQueries = new ArrayList<>();
+
+		// SelectBlockKeysByChest is the lookup performed by the Chests to Blocks foreign key cascade
+		for (String queryName : Arrays.asList("SelectChestsByOwner",
+				"SelectChestsExpiringBefore",
+				"SelectBlockKeysByChest",
+				"SelectChestByUUID",
+				"SelectBlocksByChest",
+				"SelectChestPage")) {
+
+			PreparedStatement preparedStatement =
+					connection.prepareStatement(String.format(getQuery("ExplainQueryPlan"), getQuery(queryName)));
+
+			ResultSet rs = preparedStatement.executeQuery();
+			while (rs.next()) {
+
+				// the last column of each query plan row is the plan detail
+				String detail = rs.getString(rs.getMetaData().getColumnCount());
+				if (plugin.debug) {
+					plugin.getLogger().info("[Query plan] " + queryName + ": " + detail);
+				}
+
+				if (detail.startsWith("SCAN") && !detail.contains("INDEX") && !unindexedQueries.contains(queryName)) {
+					unindexedQueries.add(queryName);
+				}
+			}
+			preparedStatement.close();
+		}
+
+		return unindexedQueries;
+	}
+
+
+	/**
+	 * Get the schema version recorded in the database file
+	 *
+	 * @param statement the statement used to query the schema version
+	 * @return the schema version, or zero if no version has been recorded
+	 * @throws SQLException if the version could not be read
+	 */
+	private static int getVersion(final Statement statement) throws SQLException {
+
+		int version = 0;
+
+		ResultSet rs = statement.executeQuery(getQuery("GetSchemaVersion"));
+		if (rs.next()) {
+			version = rs.getInt(1);
+		}
+		rs.close();
+
+		return version;
+	}
+
+
+	/**
+	 * Check if a table exists in the database file
+	 *
+	 * @param connection the database connection
+	 * @param tableName  the name of the table
+	 * @return {@code true} if the table exists, {@code false} if it does not
+	 * @throws SQLException if the database could not be queried
+	 */
+	private static boolean tableExists(final Connection connection, final String tableName) throws SQLException {
+
+		PreparedStatement preparedStatement = connection.prepareStatement(getQuery("SelectTableExists"));
+		preparedStatement.setString(1, tableName);
+
+		ResultSet rs = preparedStatement.executeQuery();
+		boolean result = rs.next();
+		preparedStatement.close();
+
+		return result;
+	}
+
+
+	/**
+	 * Upgrade a version 1 datastore file to version 2 in place, in a single transaction.
+	 * If any step fails, the transaction is rolled back and the file is left unchanged.
+	 *
+	 * @param plugin     reference to main class
+	 * @param connection the database connection
+	 * @throws SQLException if the upgrade failed
+	 */
+	private static void migrateV1(final PluginMain plugin, final Connection connection) throws SQLException {
+
+		plugin.getLogger().info("Upgrading SQLite datastore to schema version " + CURRENT_VERSION + "...");
+
+		final long startTime = System.currentTimeMillis();
+
+		final Statement statement = connection.createStatement();
+
+		// foreign keys must be disabled outside of a transaction, while old tables are renamed and dropped
+		statement.execute(getQuery("DisableForeignKeys"));
+
+		// begin transaction
+		connection.setAutoCommit(false);
+
+		int chestCount;
+		int blockCount;
+
+		try {
+			// move old tables aside
+			statement.execute(getQuery("RenameChestTableV1"));
+			statement.execute(getQuery("RenameBlockTableV1"));
+
+			// create new tables
+			createTables(statement);
+
+			// populate world dictionary from distinct block world names
+			statement.executeUpdate(getQuery("MigrateWorldsV1"));
+
+			// copy chest and block records
+			chestCount = migrateChestsV1(plugin, connection);
+			blockCount = migrateBlocksV1(plugin, connection);
+
+			// drop old tables
+			statement.execute(getQuery("DropBlockTableV1"));
+			statement.execute(getQuery("DropChestTableV1"));
+
+			// set schema version
+			statement.execute(String.format(getQuery("SetSchemaVersion"), CURRENT_VERSION));
+
+			// commit transaction
+			connection.commit();
+		}
+		catch (SQLException e) {
+			connection.rollback();
+			plugin.getLogger().severe("SQLite datastore upgrade failed; datastore file was not changed.");
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(true);
+			statement.execute(getQuery("EnableForeignKeys"));
+		}
+
+		// reclaim space freed by old tables
+		statement.execute(getQuery("Vacuum"));
+		statement.close();
+
+		plugin.getLogger().info("SQLite datastore upgraded: " + chestCount + " chest records and "
+				+ blockCount + " block records converted in "
+				+ (System.currentTimeMillis() - startTime) + " ms.");
+	}
+
+
+	/**
+	 * Copy version 1 chest records to version 2 chest table
+	 *
+	 * @param plugin     reference to main class
+	 * @param connection the database connection
+	 * @return the number of chest records copied
+	 * @throws SQLException if the records could not be copied
+	 */
+	private static int migrateChestsV1(final PluginMain plugin, final Connection connection) throws SQLException {
+
+		final Statement selectStatement = connection.createStatement();
+		final PreparedStatement insertStatement = connection.prepareStatement(getQuery("InsertChestRecord"));
+
+		int count = 0;
+
+		ResultSet rs = selectStatement.executeQuery(getQuery("SelectAllChestsV1"));
+
+		while (rs.next()) {
+
+			UUID chestUUID;
+			UUID ownerUUID;
+			UUID killerUUID;
+
+			// try to convert chest and owner uuids from stored strings; skip record if invalid
+			try {
+				chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+				ownerUUID = UUID.fromString(rs.getString("OwnerUUID"));
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("[SQLite upgrade] Skipping chest record with invalid UUID: "
+						+ rs.getString("ChestUUID"));
+				continue;
+			}
+
+			// try to convert killer uuid from stored string, or set to null if invalid uuid
+			try {
+				killerUUID = UUID.fromString(rs.getString("KillerUUID"));
+			}
+			catch (Exception e) {
+				killerUUID = null;
+			}
+
+			insertStatement.setBytes(1, RecordCodec.toBytes(chestUUID));
+			insertStatement.setBytes(2, RecordCodec.toBytes(ownerUUID));
+			insertStatement.setBytes(3, RecordCodec.toBytes(killerUUID));
+			insertStatement.setInt(4, rs.getInt("ItemCount"));
+			insertStatement.setLong(5, rs.getLong("PlacementTime"));
+			insertStatement.setLong(6, rs.getLong("ExpirationTime"));
+			insertStatement.addBatch();
+
+			// execute batch when full
+			if (++count % MIGRATION_BATCH_SIZE == 0) {
+				insertStatement.executeBatch();
+			}
+		}
+
+		// execute remaining batch
+		insertStatement.executeBatch();
+
+		rs.close();
+		selectStatement.close();
+		insertStatement.close();
+
+		return count;
+	}
+
+
+	/**
+	 * Copy version 1 block records to version 2 block table. A block record whose chest was not copied,
+	 * or whose world is not in the world dictionary, is not inserted, and is logged as dropped.
+	 *
+	 * @param plugin     reference to main class
+	 * @param connection the database connection
+	 * @return the number of block records inserted
+	 * @throws SQLException if the records could not be copied
+	 */
+	private static int migrateBlocksV1(final PluginMain plugin, final Connection connection) throws SQLException {
+
+		final Statement selectStatement = connection.createStatement();
+		final PreparedStatement insertStatement = connection.prepareStatement(getQuery("MigrateBlockRecordV1"));
+
+		// description of each block record in the current batch, to log records that are dropped
+		final List<String> batchRecords = new ArrayList<>(MIGRATION_BATCH_SIZE);
+
+		int count = 0;
+		int insertedCount = 0;
+
+		ResultSet rs = selectStatement.executeQuery(getQuery("SelectAllBlocksV1"));
+
+		while (rs.next()) {
+
+			UUID chestUUID;
+
+			// try to convert chest uuid from stored string; skip record if invalid
+			try {
+				chestUUID = UUID.fromString(rs.getString("ChestUUID"));
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("[SQLite upgrade] Skipping block record with invalid chest UUID: "
+						+ rs.getString("ChestUUID"));
+				continue;
+			}
+
+			insertStatement.setLong(1, RecordCodec.packPosition(rs.getInt("X"), rs.getInt("Y"), rs.getInt("Z")));
+			insertStatement.setBytes(2, RecordCodec.toBytes(chestUUID));
+			insertStatement.setString(3, rs.getString("WorldName"));
+			insertStatement.addBatch();
+			batchRecords.add("chest " + chestUUID + " in world " + rs.getString("WorldName")
+					+ " at " + rs.getInt("X") + ", " + rs.getInt("Y") + ", " + rs.getInt("Z"));
+
+			// execute batch when full
+			if (++count % MIGRATION_BATCH_SIZE == 0) {
+				insertedCount += executeBlockBatchV1(plugin, insertStatement, batchRecords);
+			}
+		}
+
+		// execute remaining batch
+		insertedCount += executeBlockBatchV1(plugin, insertStatement, batchRecords);
+
+		rs.close();
+		selectStatement.close();
+		insertStatement.close();
+
+		if (insertedCount < count) {
+			plugin.getLogger().warning("[SQLite upgrade] " + (count - insertedCount)
+					+ " block records were dropped because their chest or world was not found.");
+		}
+
+		return insertedCount;
+	}
+
+
+	/**
+	 * Execute a batch of version 1 block record inserts, logging each record that was not inserted
+	 * because its chest or world was not found
+	 *
+	 * @param plugin          reference to main class
+	 * @param insertStatement the insert statement holding the batch
+	 * @param batchRecords    the description of each record in the batch, in order; cleared when the batch is executed
+	 * @return the number of block records inserted
+	 * @throws SQLException if the batch could not be executed
+	 */
+	private static int executeBlockBatchV1(final PluginMain plugin,
+										   final PreparedStatement insertStatement,
+										   final List<String> batchRecords) throws SQLException {
+
+		final int[] updateCounts = insertStatement.executeBatch();
+
+		int insertedCount = 0;
+		for (int i = 0; i < updateCounts.length; i++) {
+
+			// the insert selects no row if the chest or world was not found
+			if (updateCounts[i] > 0 || updateCounts[i] == Statement.SUCCESS_NO_INFO) {
+				insertedCount++;
+			}
+			else if (i < batchRecords.size()) {
+				plugin.getLogger().warning("[SQLite upgrade] Dropping block record of " + batchRecords.get(i)
+						+ ": chest or world not found.");
+			}
+		}
+		batchRecords.clear();
+
+		return insertedCount;
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * A utility class that contains static methods for saving write operations that could not be committed
+ * before shutdown to a spill file, and replaying them into the datastore on the next startup.<br>
+ * The spill file uses the journal record format, so a record torn by a crash while it was being written
+ * is detected by its checksum, and the records before it are still replayed.
+ */
+final class SpillFile {
+
+	// spill file name in plugin data folder
+	private static final String SPILL_FILENAME = "pending-writes.spill";
+
+	// number of write operations replayed in each transaction
+	private static final int REPLAY_CHUNK_SIZE = 1000;
+
+
+	/**
+	 * Private constructor to prevent instantiation of class
+	 */
+	private SpillFile() {
+		throw new AssertionError();
+	}
+
+
+	/**
+	 * Get the spill file
+	 *
+	 * @param plugin reference to main class
+	 * @return the spill file
+	 */
+	private static File getFile(final PluginMain plugin) {
+		return new File(plugin.getDataFolder(), SPILL_FILENAME);
+	}
+
+
+	/**
+	 * Append write operations to the spill file, creating the file if necessary, and force them to disk.
+	 * Synchronized, because each datastore writer thread spills its own operations.
+	 *
+	 * @param plugin          reference to main class
+	 * @param writeOperations the write operations to append, in submission order
+	 * @throws IOException if the write operations could not be written
+	 */
+	static synchronized void append(final PluginMain plugin, final List<WriteOperation> writeOperations)
+			throws IOException {
+
+		// if there are no write operations, do nothing and return
+		if (writeOperations.isEmpty()) {
+			return;
+		}
+
+		final File file = getFile(plugin);
+		final boolean newFile = !file.exists() || file.length() == 0;
+
+		try (FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+
+			if (newFile) {
+				JournalCodec.writeHeader(out);
+			}
+			for (WriteOperation writeOperation : writeOperations) {
+				JournalCodec.writeRecord(writeOperation, out);
+			}
+			out.flush();
+			fileOutputStream.getFD().sync();
+		}
+	}
+
+
+	/**
+	 * Replay write operations from the spill file into a datastore, then delete the spill file.
+	 * Operations are committed in chunks, in the order they were submitted. If the spill file could not be
+	 * replayed completely, it is kept so it can be replayed again. Block operations for worlds that are not
+	 * loaded are not replayed; the spill file is rewritten with only those operations, so they are replayed
+	 * on a later startup when their worlds are loaded.
+	 *
+	 * @param plugin    reference to main class
+	 * @param dataStore the datastore to replay write operations into
+	 */
+	static synchronized void replay(final PluginMain plugin, final DataStore dataStore) {
+
+		final File file = getFile(plugin);
+
+		// if there is no spill file, do nothing and return
+		if (!file.exists()) {
+			return;
+		}
+
+		final List<WriteOperation> writeOperations = new ArrayList<>();
+
+		// block operations for worlds that are not loaded, kept in the spill file
+		final List<JournalCodec.UnresolvedBlock> unresolvedBlocks = new ArrayList<>();
+
+		// read spill file records, stopping at a damaged record
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+			JournalCodec.readHeader(in);
+
+			byte[] record;
+			while ((record = JournalCodec.readRecord(in)) != null) {
+				WriteOperation writeOperation = JournalCodec.decode(record, plugin.worldCache::getWorld);
+				if (writeOperation == null) {
+					JournalCodec.UnresolvedBlock unresolvedBlock = JournalCodec.decodeUnresolved(record);
+					if (unresolvedBlock != null) {
+						unresolvedBlocks.add(unresolvedBlock);
+					}
+					continue;
+				}
+
+				// a later chest delete supersedes kept operations for the chest's blocks
+				if (writeOperation.getType() == WriteOperationType.DELETE_CHEST && !unresolvedBlocks.isEmpty()) {
+					final UUID chestUUID = writeOperation.getDeathChest().getChestUUID();
+					unresolvedBlocks.removeIf(block -> chestUUID.equals(block.getChestUUID()));
+				}
+				writeOperations.add(writeOperation);
+			}
+		}
+		catch (EOFException | JournalCodec.JournalDamagedException e) {
+			plugin.getLogger().warning("The spill file ends with a damaged record, which was not replayed.");
+		}
+		catch (IOException e) {
+
+			// output simple error message
+			plugin.getLogger().warning("Could not read the spill file; it will be replayed on the next startup.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			return;
+		}
+
+		// commit write operations in chunks
+		try {
+			for (int i = 0; i < writeOperations.size(); i += REPLAY_CHUNK_SIZE) {
+				dataStore.putRecords(writeOperations.subList(i, Math.min(i + REPLAY_CHUNK_SIZE, writeOperations.size())));
+			}
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while replaying the spill file; it will be replayed on the next startup.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+			return;
+		}
+
+		// remove replayed operations from the spill file
+		if (unresolvedBlocks.isEmpty()) {
+			if (!file.delete()) {
+				plugin.getLogger().warning("Could not delete the spill file after replaying it.");
+			}
+		}
+		else {
+			try {
+				rewrite(file, unresolvedBlocks);
+			}
+			catch (IOException e) {
+
+				// output simple error message; the whole spill file will be replayed again, which is harmless
+				plugin.getLogger().warning("Could not remove replayed write operations from the spill file.");
+				plugin.getLogger().warning(e.getMessage());
+
+				// if debugging is enabled, output stack trace
+				if (plugin.debug) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		plugin.getLogger().info(writeOperations.size() + " write operations pending at the last shutdown were replayed into the "
+				+ dataStore.getName() + " datastore.");
+		if (!unresolvedBlocks.isEmpty()) {
+			plugin.getLogger().info(unresolvedBlocks.size() + " spilled block write operations for worlds that are not loaded"
+					+ " were kept in the spill file, to be replayed on a startup when their worlds are loaded.");
+		}
+	}
+
+
+	/**
+	 * Replace the spill file with one holding only the given block operations, unchanged and in order
+	 *
+	 * @param file             the spill file
+	 * @param unresolvedBlocks the block operations to keep
+	 * @throws IOException if the spill file could not be rewritten
+	 */
+	private static void rewrite(final File file, final List<JournalCodec.UnresolvedBlock> unresolvedBlocks)
+			throws IOException {
+
+		final File tempFile = new File(file.getPath() + ".tmp");
+
+		try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+
+			JournalCodec.writeHeader(out);
+			for (JournalCodec.UnresolvedBlock unresolvedBlock : unresolvedBlocks) {
+				JournalCodec.writeRawRecord(unresolvedBlock.getBytes(), out);
+			}
+			out.flush();
+			fileOutputStream.getFD().sync();
+		}
+
+		try {
+			Files.move(tempFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.winterhaven_mc.deathchest.storage.Queries.getQuery;
+
+
+/**
+ * A class that caches prepared statements for a single database connection,
+ * keyed by query name from the queries properties file.
+ * <p>
+ * The cache may be used from any thread: each statement is prepared once, under the cache's lock.
+ * A prepared statement must only be used by one thread at a time. The statements of a write connection's
+ * cache are used only by the write queue thread. The statements of a read connection's cache may be used
+ * by any datastore executor thread, so each use must synchronize on the statement.
+ */
+final class StatementCache {
+
+	// the connection that owns all cached statements
+	private final Connection connection;
+
+	// the profiler that records statement preparation time
+	private final QueryProfiler profiler;
+
+	// map of prepared statements keyed by query name
+	private final Map<String, PreparedStatement> statementMap;
+
+	// debug counters
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param connection the database connection to prepare statements on
+	 * @param profiler   the profiler that records statement preparation time
+	 */
+	StatementCache(final Connection connection, final QueryProfiler profiler) {
+		this.connection = connection;
+		this.profiler = profiler;
+		this.statementMap = new ConcurrentHashMap<>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+
+
+	/**
+	 * Prepare statements ahead of first use
+	 *
+	 * @param queryNames the query names of the statements to prepare
+	 * @throws SQLException if a statement could not be prepared
+	 */
+	final synchronized void prepare(final String... queryNames) throws SQLException {
+		for (String queryName : queryNames) {
+			if (!statementMap.containsKey(queryName)) {
+				statementMap.put(queryName, prepareStatement(queryName, getQuery(queryName)));
+			}
+		}
+	}
+
+
+	/**
+	 * Get a prepared statement by query name, preparing and caching the statement if necessary
+	 *
+	 * @param queryName the query name of the statement to retrieve
+	 * @return the cached prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	final PreparedStatement get(final String queryName) throws SQLException {
+		return get(queryName, false);
+	}
+
+
+	/**
+	 * Get a prepared bulk statement by query name, preparing and caching the statement if necessary
+	 *
+	 * @param queryName the query name of the bulk statement to retrieve
+	 * @return the cached prepared statement, with {@link Queries#BULK_SIZE} parameters
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	final PreparedStatement getBulk(final String queryName) throws SQLException {
+		return get(queryName, true);
+	}
+
+
+	/**
+	 * Get a prepared statement by query name, preparing and caching the statement if necessary.
+	 * A statement is prepared under the cache's lock, after checking the cache again, so concurrent
+	 * callers never prepare the same statement twice.
+	 *
+	 * @param queryName the query name of the statement to retrieve
+	 * @param bulk      true if the statement is a bulk statement
+	 * @return the cached prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	private PreparedStatement get(final String queryName, final boolean bulk) throws SQLException {
+
+		PreparedStatement preparedStatement = statementMap.get(queryName);
+
+		// if statement is cached, count hit and return statement
+		if (preparedStatement != null) {
+			hits.incrementAndGet();
+			return preparedStatement;
+		}
+
+		synchronized (this) {
+
+			// statement may have been prepared by another thread while waiting for lock
+			preparedStatement = statementMap.get(queryName);
+			if (preparedStatement != null) {
+				hits.incrementAndGet();
+				return preparedStatement;
+			}
+
+			// prepare statement and put in cache
+			misses.incrementAndGet();
+			preparedStatement = prepareStatement(queryName,
+					bulk ? Queries.getBulkQuery(queryName) : getQuery(queryName));
+			statementMap.put(queryName, preparedStatement);
+			return preparedStatement;
+		}
+	}
+
+
+	/**
+	 * Prepare a statement, recording the preparation time in the profiler
+	 *
+	 * @param queryName the query name of the statement to prepare
+	 * @param sql       the statement text
+	 * @return the prepared statement
+	 * @throws SQLException if the statement could not be prepared
+	 */
+	private PreparedStatement prepareStatement(final String queryName, final String sql) throws SQLException {
+		final long startTime = profiler.start();
+		final PreparedStatement preparedStatement = connection.prepareStatement(sql);
+		profiler.recordPrepare(queryName, startTime);
+		return preparedStatement;
+	}
+
+
+	/**
+	 * Close all cached statements
+	 */
+	final synchronized void close() {
+		for (PreparedStatement preparedStatement : statementMap.values()) {
+			try {
+				preparedStatement.close();
+			}
+			catch (SQLException e) {
+				// statement will be closed with its connection
+			}
+		}
+		statementMap.clear();
+	}
+
+
+	/**
+	 * Get cache statistics for debugging output
+	 *
+	 * @return String - the number of cached statements, cache hits and cache misses
+	 */
+	@Override
+	public final String toString() {
+		return statementMap.size() + " statements cached, "
+				+ hits.get() + " hits, "
+				+ misses.get() + " misses";
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import org.bukkit.scheduler.BukkitRunnable;
+
+
+/**
+ * A class that implements a repeating task to sync a datastore to disk
+ */
+final class SyncTask extends BukkitRunnable {
+
+	// the datastore to sync
+	private final DataStore dataStore;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param dataStore the datastore to sync
+	 */
+	SyncTask(final DataStore dataStore) {
+
+		// set datastore field
+		this.dataStore = dataStore;
+	}
+
+
+	@Override
+	public void run() {
+		this.dataStore.sync();
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+import org.bukkit.World;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A class that holds the loaded worlds by name and by UID, so that datastore reads on asynchronous threads
+ * can resolve the world of a block record without calling into the server. Worlds are recorded on the main
+ * thread, when the plugin is enabled and as worlds are loaded and unloaded.
+ */
+public final class WorldCache {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// loaded worlds by name
+	private final Map<String, World> worldsByName = new ConcurrentHashMap<>();
+
+	// loaded worlds by UID
+	private final Map<UUID, World> worldsByUID = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Class constructor. Must be called on the main thread.
+	 *
+	 * @param plugin reference to main class
+	 */
+	public WorldCache(final PluginMain plugin) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// record worlds that are already loaded
+		for (World world : plugin.getServer().getWorlds()) {
+			addWorld(world);
+		}
+	}
+
+
+	/**
+	 * Record a world that has been loaded. Must be called on the main thread.
+	 *
+	 * @param world the world that has been loaded
+	 */
+	public final void addWorld(final World world) {
+
+		// if passed world is null, do nothing and return
+		if (world == null) {
+			return;
+		}
+
+		worldsByName.put(world.getName(), world);
+		worldsByUID.put(world.getUID(), world);
+	}
+
+
+	/**
+	 * Remove a world that is being unloaded. Must be called on the main thread.
+	 *
+	 * @param world the world that is being unloaded
+	 */
+	public final void removeWorld(final World world) {
+
+		// if passed world is null, do nothing and return
+		if (world == null) {
+			return;
+		}
+
+		worldsByName.remove(world.getName());
+		worldsByUID.remove(world.getUID());
+	}
+
+
+	/**
+	 * Get a loaded world by name. May be called on any thread.
+	 *
+	 * @param worldName the world name
+	 * @return the world, or null if no world of that name is loaded
+	 */
+	public final World getWorld(final String worldName) {
+
+		// if passed world name is null, return null
+		if (worldName == null) {
+			return null;
+		}
+
+		return worldsByName.get(worldName);
+	}
+
+
+	/**
+	 * Get a loaded world by UID. May be called on any thread.
+	 *
+	 * @param worldUID the world UID
+	 * @return the world, or null if no world with that UID is loaded
+	 */
+	public final World getWorld(final UUID worldUID) {
+
+		// if passed world UID is null, return null
+		if (worldUID == null) {
+			return null;
+		}
+
+		return worldsByUID.get(worldUID);
+	}
+
+}
@@ -0,0 +1,290 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import java.util.*;
+
+
+/**
+ * A class that holds write operations for a grace window before they are committed, and cancels
+ * insert and delete pairs that fall within the window, so that a chest that is looted soon after
+ * it is deployed never reaches the datastore.<br>
+ * Used only by the write queue thread, except {@link #size()}.
+ */
+final class WriteCoalescer {
+
+	// time in nanoseconds a write operation is held before it is due to be committed
+	private final long window;
+
+	// held write operations, in submission order
+	private final Deque<HeldWrite> held = new ArrayDeque<>();
+
+	// held chest inserts by chest UUID
+	private final Map<UUID, HeldWrite> chestInserts = new HashMap<>();
+
+	// held block inserts by block key
+	private final Map<String, HeldWrite> blockInserts = new HashMap<>();
+
+	// held block inserts and deletes by chest UUID
+	private final Map<UUID, List<HeldWrite>> blockWritesByChest = new HashMap<>();
+
+	// number of held write operations that have not been cancelled
+	private volatile int size;
+
+	// number of write operations cancelled before reaching the datastore
+	private long cancelledCount;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param window the time in nanoseconds a write operation is held before it is due to be committed
+	 */
+	WriteCoalescer(final long window) {
+		this.window = window;
+	}
+
+
+	/**
+	 * Hold a write operation. A delete cancels a held insert for the same chest or block location;
+	 * if the insert has never been committed, the delete is cancelled with it.
+	 * The completion of a cancelled write operation is completed, as the datastore already reflects it.
+	 * A write operation that may not be cancelled is held without cancelling or being cancelled by others.
+	 *
+	 * @param writeOperation the write operation
+	 * @param now            the current time in nanoseconds
+	 * @param cancellable    {@code false} if the write operation must be committed even if a later one cancels it
+	 */
+	final void add(final WriteOperation writeOperation, final long now, final boolean cancellable) {
+
+		if (!cancellable) {
+			hold(writeOperation, now);
+			return;
+		}
+
+		switch (writeOperation.getType()) {
+
+			case PUT_CHEST:
+				chestInserts.put(writeOperation.getDeathChest().getChestUUID(), hold(writeOperation, now));
+				break;
+
+			case PUT_BLOCK:
+				String blockKey = RecordCodec.blockKey(writeOperation.getChestBlock().getLocation());
+				HeldWrite blockInsert = hold(writeOperation, now);
+				if (blockKey != null) {
+					blockInserts.put(blockKey, blockInsert);
+				}
+				blockWritesByChest.computeIfAbsent(writeOperation.getChestBlock().getChestUUID(),
+						k -> new ArrayList<>()).add(blockInsert);
+				break;
+
+			case DELETE_BLOCK:
+				HeldWrite heldInsert = blockInserts.remove(RecordCodec.blockKey(writeOperation.getChestBlock().getLocation()));
+				if (heldInsert != null) {
+					cancel(heldInsert);
+
+					// if the block's chest insert is still held, the block was never committed, so the delete is not needed
+					if (chestInserts.containsKey(heldInsert.writeOperation.getChestBlock().getChestUUID())) {
+						cancelledCount++;
+						writeOperation.getCompletion().complete(null);
+						break;
+					}
+				}
+				blockWritesByChest.computeIfAbsent(writeOperation.getChestBlock().getChestUUID(),
+						k -> new ArrayList<>()).add(hold(writeOperation, now));
+				break;
+
+			case DELETE_CHEST:
+				UUID chestUUID = writeOperation.getDeathChest().getChestUUID();
+
+				// deleting the chest deletes its blocks, so held block writes for the chest are not needed
+				List<HeldWrite> blockWrites = blockWritesByChest.remove(chestUUID);
+				if (blockWrites != null) {
+					for (HeldWrite blockWrite : blockWrites) {
+						if (blockWrite.writeOperation.getType() == WriteOperationType.PUT_BLOCK) {
+							blockInserts.remove(RecordCodec.blockKey(blockWrite.writeOperation.getChestBlock().getLocation()), blockWrite);
+						}
+						cancel(blockWrite);
+					}
+				}
+
+				// if the chest insert is still held, the chest was never committed, so the delete is not needed
+				HeldWrite chestInsert = chestInserts.remove(chestUUID);
+				if (chestInsert != null) {
+					cancel(chestInsert);
+					cancelledCount++;
+					writeOperation.getCompletion().complete(null);
+					break;
+				}
+				hold(writeOperation, now);
+				break;
+		}
+	}
+
+
+	/**
+	 * Make all held write operations committable only, so that no later write operation cancels them.
+	 * They are still committed when they are due.
+	 */
+	final void seal() {
+		chestInserts.clear();
+		blockInserts.clear();
+		blockWritesByChest.clear();
+	}
+
+
+	/**
+	 * Add a write operation to the held operations
+	 *
+	 * @param writeOperation the write operation
+	 * @param now            the current time in nanoseconds
+	 * @return the held write
+	 */
+	private HeldWrite hold(final WriteOperation writeOperation, final long now) {
+		HeldWrite heldWrite = new HeldWrite(writeOperation, now + window);
+		held.add(heldWrite);
+		size++;
+		return heldWrite;
+	}
+
+
+	/**
+	 * Cancel a held write operation; it is discarded when it reaches the head of the held operations
+	 *
+	 * @param heldWrite the held write to cancel
+	 */
+	private void cancel(final HeldWrite heldWrite) {
+		if (!heldWrite.cancelled) {
+			heldWrite.cancelled = true;
+			size--;
+			cancelledCount++;
+			heldWrite.writeOperation.getCompletion().complete(null);
+		}
+	}
+
+
+	/**
+	 * Discard cancelled write operations at the head of the held operations
+	 */
+	private void discardCancelled() {
+		while (!held.isEmpty() && held.peekFirst().cancelled) {
+			held.removeFirst();
+		}
+	}
+
+
+	/**
+	 * Check if there are no held write operations
+	 *
+	 * @return {@code true} if no write operations are held, {@code false} if any are
+	 */
+	final boolean isEmpty() {
+		discardCancelled();
+		return held.isEmpty();
+	}
+
+
+	/**
+	 * Get the time the oldest held write operation is due to be committed
+	 *
+	 * @return the due time in nanoseconds
+	 * @throws NoSuchElementException if no write operations are held
+	 */
+	final long getFirstDueTime() {
+		discardCancelled();
+		return held.getFirst().dueTime;
+	}
+
+
+	/**
+	 * Move held write operations that are due to a batch, in submission order
+	 *
+	 * @param batch     the batch to add write operations to
+	 * @param now       the current time in nanoseconds
+	 * @param batchSize the maximum number of write operations in the batch
+	 * @param all       if {@code true}, take write operations whether or not they are due
+	 */
+	final void takeDue(final List<WriteOperation> batch, final long now, final int batchSize, final boolean all) {
+
+		discardCancelled();
+		while (!held.isEmpty() && batch.size() < batchSize && (all || held.peekFirst().dueTime - now <= 0)) {
+
+			HeldWrite heldWrite = held.removeFirst();
+			if (heldWrite.cancelled) {
+				continue;
+			}
+
+			// remove write operation from indexes
+			WriteOperation writeOperation = heldWrite.writeOperation;
+			switch (writeOperation.getType()) {
+				case PUT_CHEST:
+					chestInserts.remove(writeOperation.getDeathChest().getChestUUID(), heldWrite);
+					break;
+				case PUT_BLOCK:
+					blockInserts.remove(RecordCodec.blockKey(writeOperation.getChestBlock().getLocation()), heldWrite);
+					// fall through
+				case DELETE_BLOCK:
+					List<HeldWrite> blockWrites = blockWritesByChest.get(writeOperation.getChestBlock().getChestUUID());
+					if (blockWrites != null) {
+						blockWrites.remove(heldWrite);
+						if (blockWrites.isEmpty()) {
+							blockWritesByChest.remove(writeOperation.getChestBlock().getChestUUID());
+						}
+					}
+					break;
+				default:
+					break;
+			}
+
+			batch.add(writeOperation);
+			size--;
+		}
+	}
+
+
+	/**
+	 * Get the number of held write operations that have not been cancelled. May be called from any thread.
+	 *
+	 * @return the number of held write operations
+	 */
+	final int size() {
+		return size;
+	}
+
+
+	/**
+	 * Get the number of write operations cancelled before reaching the datastore
+	 *
+	 * @return the number of cancelled write operations
+	 */
+	final long getCancelledCount() {
+		return cancelledCount;
+	}
+
+
+	/**
+	 * A write operation held until its due time
+	 */
+	private static final class HeldWrite {
+
+		// the write operation
+		private final WriteOperation writeOperation;
+
+		// time in nanoseconds the write operation is due to be committed
+		private final long dueTime;
+
+		// true if the write operation has been cancelled
+		private boolean cancelled;
+
+
+		/**
+		 * Class constructor
+		 *
+		 * @param writeOperation the write operation
+		 * @param dueTime        the time in nanoseconds the write operation is due to be committed
+		 */
+		HeldWrite(final WriteOperation writeOperation, final long dueTime) {
+			this.writeOperation = writeOperation;
+			this.dueTime = dueTime;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.chests.ChestBlock;
+import com.winterhaven_mc.deathchest.chests.DeathChest;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * A class that encapsulates a single pending write to the datastore
+ */
+final class WriteOperation {
+
+	// the type of this write operation
+	private final WriteOperationType type;
+
+	// the death chest to be written, if this is a chest operation
+	private final DeathChest deathChest;
+
+	// the chest block to be written, if this is a block operation
+	private final ChestBlock chestBlock;
+
+	// time in nanoseconds the write operation was created, just before it is submitted
+	private final long submitTime = System.nanoTime();
+
+	// completed when this write operation is durable, cancelled by a later operation, or discarded
+	private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+
+	/**
+	 * Class constructor for chest operations
+	 *
+	 * @param type       the type of write operation
+	 * @param deathChest the death chest to be written
+	 */
+	WriteOperation(final WriteOperationType type, final DeathChest deathChest) {
+		this.type = type;
+		this.deathChest = deathChest;
+		this.chestBlock = null;
+	}
+
+
+	/**
+	 * Class constructor for block operations
+	 *
+	 * @param type       the type of write operation
+	 * @param chestBlock the chest block to be written
+	 */
+	WriteOperation(final WriteOperationType type, final ChestBlock chestBlock) {
+		this.type = type;
+		this.deathChest = null;
+		this.chestBlock = chestBlock;
+	}
+
+
+	/**
+	 * Getter method for write operation type
+	 *
+	 * @return the type of this write operation
+	 */
+	final WriteOperationType getType() {
+		return type;
+	}
+
+
+	/**
+	 * Getter method for write operation death chest
+	 *
+	 * @return the death chest to be written, or null if this is a block operation
+	 */
+	final DeathChest getDeathChest() {
+		return deathChest;
+	}
+
+
+	/**
+	 * Getter method for write operation chest block
+	 *
+	 * @return the chest block to be written, or null if this is a chest operation
+	 */
+	final ChestBlock getChestBlock() {
+		return chestBlock;
+	}
+
+
+	/**
+	 * Getter method for write operation submit time
+	 *
+	 * @return the value of the system nanosecond timer when this write operation was created
+	 */
+	final long getSubmitTime() {
+		return submitTime;
+	}
+
+
+	/**
+	 * Getter method for write operation completion. The future is completed normally when the operation
+	 * is committed or cancelled by a later operation, and exceptionally when it is discarded or spilled.
+	 *
+	 * @return the future completed when this write operation is no longer pending
+	 */
+	final CompletableFuture<Void> getCompletion() {
+		return completion;
+	}
+
+
+	/**
+	 * Find the end of a run of consecutive write operations of the same type in a batch
+	 *
+	 * @param batch     the batch of write operations
+	 * @param start     the index of the first write operation in the run
+	 * @param maxLength the maximum length of the run
+	 * @return the index after the last write operation in the run
+	 */
+	static int runEnd(final List<WriteOperation> batch, final int start, final int maxLength) {
+
+		final WriteOperationType type = batch.get(start).getType();
+
+		int end = start + 1;
+		while (end < batch.size() && end - start < maxLength && batch.get(end).getType() == type) {
+			end++;
+		}
+		return end;
+	}
+
+}
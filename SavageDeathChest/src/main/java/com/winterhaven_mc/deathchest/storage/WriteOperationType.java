@@ -0,0 +1,14 @@
+package com.winterhaven_mc.deathchest.storage;
+
+
+/**
+ * An enum whose values represent the types of write operations that may be placed on the datastore write queue
+ */
+enum WriteOperationType {
+
+	PUT_CHEST,
+	PUT_BLOCK,
+	DELETE_CHEST,
+	DELETE_BLOCK,
+
+}
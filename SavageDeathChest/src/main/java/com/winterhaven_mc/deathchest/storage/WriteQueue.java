@@ -0,0 +1,496 @@
+package com.winterhaven_mc.deathchest.storage;
+
+import com.winterhaven_mc.deathchest.PluginMain;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * A class that implements a single datastore writer thread. Write operations are placed
+ * on a bounded queue and committed to the datastore in batches, each batch in a single transaction.
+ * Before they are committed, write operations are held for a configurable grace window, so that
+ * inserts and deletes for the same chest or block within the window cancel each other.
+ * At shutdown, write operations that cannot be committed within the configured timeout
+ * are saved to the spill file, to be replayed on the next startup.
+ */
+final class WriteQueue implements Runnable {
+
+	// reference to main class
+	private final PluginMain plugin;
+
+	// the datastore that commits batches of write operations
+	private final BatchWriter batchWriter;
+
+	// bounded queue of pending write operations
+	private final BlockingQueue<WriteOperation> queue;
+
+	// maximum number of write operations committed in a single transaction
+	private final int batchSize;
+
+	// maximum time in nanoseconds to wait for additional write operations before committing a batch
+	private final long flushInterval;
+
+	// held write operations waiting out the coalesce window
+	private final WriteCoalescer coalescer;
+
+	// the writer thread
+	private final Thread thread;
+
+	// maximum time in milliseconds to wait at shutdown for pending write operations to be committed
+	private final long shutdownTimeout;
+
+	// time in milliseconds to wait for the writer thread to spill its operations after the shutdown timeout
+	private static final long SPILL_GRACE_PERIOD = 5000;
+
+	// true while the writer thread is accepting new write operations
+	private volatile boolean running;
+
+	// true when the writer thread should stop committing and spill its remaining operations
+	private volatile boolean aborted;
+
+	// pending request for the writer thread to commit all held operations, completed once they are committed
+	private final AtomicReference<CompletableFuture<Void>> flushRequest = new AtomicReference<>();
+
+	// number of times cancellation has been suspended; when it changes, the writer thread seals held operations
+	private volatile int suspendCount;
+
+	// true while held operations may not be cancelled
+	private volatile boolean cancellationSuspended;
+
+	// time in nanoseconds before which submitted write operations may not be cancelled
+	private volatile long sealTime = System.nanoTime();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin      reference to main class
+	 * @param name        the name of the datastore, used to name the writer thread
+	 * @param batchWriter the datastore that commits batches of write operations
+	 */
+	WriteQueue(final PluginMain plugin, final String name, final BatchWriter batchWriter) {
+
+		// set reference to main class
+		this.plugin = plugin;
+
+		// set reference to batch writer
+		this.batchWriter = batchWriter;
+
+		// get queue settings from config, substituting defaults for invalid values
+		int queueSize = plugin.getConfig().getInt("storage.write-queue-size", 10000);
+		if (queueSize < 1) {
+			queueSize = 10000;
+		}
+
+		int configBatchSize = plugin.getConfig().getInt("storage.write-batch-size", 256);
+		if (configBatchSize < 1) {
+			configBatchSize = 256;
+		}
+		this.batchSize = configBatchSize;
+
+		long configFlushInterval = plugin.getConfig().getLong("storage.write-flush-interval", 50);
+		if (configFlushInterval < 0) {
+			configFlushInterval = 50;
+		}
+		this.flushInterval = TimeUnit.MILLISECONDS.toNanos(configFlushInterval);
+
+		// write operations not yet committed are lost if the server crashes, so a longer window trades crash safety for fewer writes
+		long coalesceWindow = plugin.getConfig().getLong("storage.write-coalesce-window", 250);
+		if (coalesceWindow < 0) {
+			coalesceWindow = 250;
+		}
+		this.coalescer = new WriteCoalescer(TimeUnit.MILLISECONDS.toNanos(coalesceWindow));
+
+		// a shutdown timeout of zero waits for all pending write operations to be committed
+		long configShutdownTimeout = plugin.getConfig().getLong("storage.shutdown-timeout", 10);
+		if (configShutdownTimeout < 0) {
+			configShutdownTimeout = 10;
+		}
+		this.shutdownTimeout = TimeUnit.SECONDS.toMillis(configShutdownTimeout);
+
+		// create bounded queue
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+
+		// create writer thread
+		this.thread = new Thread(this, plugin.getName() + " " + name + " writer");
+		this.thread.setDaemon(true);
+	}
+
+
+	/**
+	 * Start the writer thread
+	 */
+	final void start() {
+		this.running = true;
+		this.thread.start();
+	}
+
+
+	/**
+	 * Place a write operation on the queue. Never blocks the main thread: if the queue is full,
+	 * a write operation submitted from the main thread is rejected, and its future is completed
+	 * exceptionally with a {@link RejectedExecutionException}. A write operation submitted from any other
+	 * thread waits for the writer thread to make room, unless the writer thread stops first.
+	 *
+	 * @param writeOperation the write operation to enqueue
+	 * @return the future completed on the writer thread when the write operation is no longer pending,
+	 * or already completed exceptionally if the write operation was rejected
+	 */
+	final CompletableFuture<Void> submit(final WriteOperation writeOperation) {
+
+		// if writer thread is not running, discard operation and log warning
+		if (!running) {
+			plugin.getLogger().warning("Datastore write queue is closed; a "
+					+ writeOperation.getType() + " operation was discarded.");
+			writeOperation.getCompletion().completeExceptionally(
+					new IllegalStateException("Datastore write queue is closed."));
+			return writeOperation.getCompletion();
+		}
+
+		// try to add operation to queue without blocking
+		if (queue.offer(writeOperation)) {
+			return writeOperation.getCompletion();
+		}
+
+		// queue is full; reject operation submitted from main thread, so the server tick is never delayed
+		if (plugin.getServer().isPrimaryThread()) {
+			plugin.getLogger().warning("Datastore write queue is full; a "
+					+ writeOperation.getType() + " operation was rejected.");
+			writeOperation.getCompletion().completeExceptionally(
+					new RejectedExecutionException("Datastore write queue is full."));
+			return writeOperation.getCompletion();
+		}
+
+		// wait for writer thread to make room, for as long as it is running
+		plugin.getLogger().warning("Datastore write queue is full; waiting for writer thread.");
+		try {
+			while (!queue.offer(writeOperation, 100, TimeUnit.MILLISECONDS)) {
+				if (!thread.isAlive() || aborted) {
+					writeOperation.getCompletion().completeExceptionally(
+							new IllegalStateException("Datastore writer thread has stopped."));
+					break;
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writeOperation.getCompletion().completeExceptionally(e);
+		}
+		return writeOperation.getCompletion();
+	}
+
+
+	/**
+	 * Stop accepting new write operations, and wait up to the shutdown timeout for the writer thread
+	 * to commit all operations remaining on the queue. If the timeout elapses, the writer thread finishes
+	 * its current batch and saves the remaining operations to the spill file. If the writer thread is
+	 * still blocked in a commit after a grace period, the operations waiting on the queue are spilled here.
+	 */
+	final void shutdown() {
+
+		// stop accepting new operations
+		running = false;
+
+		try {
+			// wait for writer thread to drain queue
+			thread.join(shutdownTimeout);
+			if (!thread.isAlive()) {
+				return;
+			}
+
+			plugin.getLogger().warning("Datastore writes were not committed within the shutdown timeout; saving "
+					+ size() + " pending write operations to the spill file.");
+
+			// signal writer thread to spill its remaining operations
+			aborted = true;
+			thread.join(SPILL_GRACE_PERIOD);
+			if (!thread.isAlive()) {
+				return;
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// writer thread is blocked, so spill the operations it has not yet taken from the queue;
+		// operations it is holding or committing cannot be reached from this thread
+		final List<WriteOperation> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		spill(remaining);
+
+		if (!coalescer.isEmpty()) {
+			plugin.getLogger().warning("The datastore writer thread is not responding; "
+					+ coalescer.size() + " held write operations may be lost.");
+		}
+	}
+
+
+	/**
+	 * Wait for the writer thread to commit all write operations held or waiting on the queue,
+	 * without waiting out the coalesce window. Returns at once if called on the writer thread
+	 * or after shutdown, and waits no longer than the shutdown timeout.
+	 */
+	final void flush() {
+
+		// if writer thread is not running, or this is the writer thread, do nothing and return
+		if (!running || Thread.currentThread() == thread) {
+			return;
+		}
+
+		// join a pending request, or make a new one
+		final CompletableFuture<Void> request = new CompletableFuture<>();
+		final CompletableFuture<Void> pending = flushRequest.compareAndSet(null, request) ? request : flushRequest.get();
+		if (pending == null) {
+			return;
+		}
+
+		try {
+			pending.get(shutdownTimeout == 0 ? TimeUnit.SECONDS.toMillis(10) : shutdownTimeout, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException | TimeoutException e) {
+			plugin.getLogger().warning("Held datastore writes were not committed before the journal was compacted.");
+		}
+	}
+
+
+	/**
+	 * Stop cancelling held write operations, and do not cancel write operations submitted before
+	 * {@link #resumeCancellation()} is called. Used while the journal datastore writes a compacted journal
+	 * from its in memory records, which already reflect every submitted write operation, so that no write
+	 * operation it has written is cancelled by one submitted later.
+	 */
+	final void suspendCancellation() {
+		suspendCount++;
+		cancellationSuspended = true;
+	}
+
+
+	/**
+	 * Allow write operations submitted from now on to be cancelled again
+	 */
+	final void resumeCancellation() {
+		sealTime = System.nanoTime();
+		cancellationSuspended = false;
+	}
+
+
+	/**
+	 * Get the number of write operations waiting on the queue or held in the coalesce window
+	 *
+	 * @return the number of pending write operations
+	 */
+	final int size() {
+		return queue.size() + coalescer.size();
+	}
+
+
+	/**
+	 * Writer thread loop. Hold received write operations in the coalesce window. Once the oldest held
+	 * operation has been due for the flush interval, commit all due operations in batches.
+	 * When the queue is shut down, all held operations are committed without waiting, unless the
+	 * shutdown timeout elapses first.
+	 */
+	@Override
+	public final void run() {
+
+		final List<WriteOperation> received = new ArrayList<>(batchSize);
+		final List<WriteOperation> batch = new ArrayList<>(batchSize);
+
+		// number of times cancellation had been suspended when held operations were last sealed
+		int sealedSuspendCount = suspendCount;
+
+		while (!aborted && (running || !queue.isEmpty() || !coalescer.isEmpty())) {
+
+			try {
+				// wait for an operation, up to the commit time of the oldest held operation;
+				// time out periodically to check running state
+				long timeout = TimeUnit.MILLISECONDS.toNanos(250);
+				if (!coalescer.isEmpty()) {
+					timeout = Math.min(timeout, coalescer.getFirstDueTime() + flushInterval - System.nanoTime());
+				}
+				if (timeout > 0) {
+					WriteOperation first = queue.poll(timeout, TimeUnit.NANOSECONDS);
+					if (first != null) {
+						received.add(first);
+					}
+				}
+
+				// take any operations already waiting on the queue
+				queue.drainTo(received);
+			}
+			catch (InterruptedException e) {
+				// commit any held operations before checking running state again
+			}
+
+			// if cancellation has been suspended since held operations were last sealed, seal them
+			final int currentSuspendCount = suspendCount;
+			if (currentSuspendCount != sealedSuspendCount) {
+				coalescer.seal();
+				sealedSuspendCount = currentSuspendCount;
+			}
+
+			// hold received operations, cancelling insert and delete pairs submitted since cancellation was resumed
+			final long now = System.nanoTime();
+			for (WriteOperation writeOperation : received) {
+				plugin.queryProfiler.recordQueueWait(now - writeOperation.getSubmitTime());
+				coalescer.add(writeOperation, now,
+						!cancellationSuspended && writeOperation.getSubmitTime() - sealTime > 0);
+			}
+			received.clear();
+
+			// if shutting down or flushing, or oldest held operation has been due for the flush interval, commit due operations
+			final CompletableFuture<Void> request = flushRequest.get();
+			final boolean flushAll = !running || request != null;
+			if (!coalescer.isEmpty() && (flushAll || coalescer.getFirstDueTime() + flushInterval - now <= 0)) {
+				do {
+					coalescer.takeDue(batch, now, batchSize, flushAll);
+					if (!batch.isEmpty()) {
+						commit(batch);
+						batch.clear();
+					}
+				} while (!aborted && !coalescer.isEmpty() && (flushAll || coalescer.getFirstDueTime() - now <= 0));
+			}
+
+			// complete flush request once held operations are committed
+			if (request != null) {
+				flushRequest.compareAndSet(request, null);
+				request.complete(null);
+			}
+		}
+
+		// complete any flush request made while the writer thread was stopping
+		final CompletableFuture<Void> request = flushRequest.getAndSet(null);
+		if (request != null) {
+			request.complete(null);
+		}
+
+		// if shutdown timed out, spill held operations, oldest first, followed by operations still on the queue
+		if (aborted) {
+			final List<WriteOperation> remaining = new ArrayList<>();
+			coalescer.takeDue(remaining, System.nanoTime(), Integer.MAX_VALUE, true);
+			queue.drainTo(remaining);
+			spill(remaining);
+		}
+
+		// output debugging information
+		if (plugin.debug) {
+			plugin.getLogger().info(coalescer.getCancelledCount()
+					+ " datastore write operations cancelled before being committed.");
+		}
+	}
+
+
+	/**
+	 * Commit a batch of write operations. If the batch fails, retry each operation
+	 * in its own transaction so that one bad record does not discard the entire batch.
+	 * The completion of each operation is completed once it is committed or discarded.
+	 *
+	 * @param batch the list of write operations to commit
+	 */
+	private void commit(final List<WriteOperation> batch) {
+
+		try {
+			batchWriter.writeBatch(batch);
+
+			// output debugging information
+			if (plugin.debug) {
+				plugin.getLogger().info(batch.size() + " datastore write operations committed.");
+			}
+
+			for (WriteOperation writeOperation : batch) {
+				writeOperation.getCompletion().complete(null);
+			}
+			return;
+		}
+		catch (Exception e) {
+
+			// output simple error message
+			plugin.getLogger().warning("An error occurred while committing a batch of "
+					+ batch.size() + " datastore write operations.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+
+		// a single operation batch has already failed, so do not retry
+		if (batch.size() == 1) {
+			batch.get(0).getCompletion().completeExceptionally(new IllegalStateException("A "
+					+ batch.get(0).getType() + " datastore write operation could not be committed and was discarded."));
+			return;
+		}
+
+		// retry each operation in its own transaction
+		for (WriteOperation writeOperation : batch) {
+			try {
+				batchWriter.writeBatch(Collections.singletonList(writeOperation));
+				writeOperation.getCompletion().complete(null);
+			}
+			catch (Exception e) {
+				plugin.getLogger().warning("A " + writeOperation.getType()
+						+ " datastore write operation could not be committed and was discarded.");
+				plugin.getLogger().warning(e.getMessage());
+				writeOperation.getCompletion().completeExceptionally(e);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Save write operations that could not be committed to the spill file
+	 *
+	 * @param writeOperations the write operations to save, in submission order
+	 */
+	private void spill(final List<WriteOperation> writeOperations) {
+
+		// if there are no write operations, do nothing and return
+		if (writeOperations.isEmpty()) {
+			return;
+		}
+
+		// spilled operations are not committed to this datastore, so complete them exceptionally either way
+		IllegalStateException spilled = new IllegalStateException(
+				"Datastore write operation saved to the spill file, to be committed at the next startup.");
+
+		try {
+			SpillFile.append(plugin, writeOperations);
+			plugin.getLogger().info(writeOperations.size()
+					+ " pending datastore write operations saved to the spill file, to be replayed on the next startup.");
+		}
+		catch (IOException e) {
+			spilled = new IllegalStateException("Datastore write operation could not be saved to the spill file.", e);
+
+			// output simple error message
+			plugin.getLogger().warning("Could not save " + writeOperations.size()
+					+ " pending datastore write operations to the spill file; they are lost.");
+			plugin.getLogger().warning(e.getMessage());
+
+			// if debugging is enabled, output stack trace
+			if (plugin.debug) {
+				e.printStackTrace();
+			}
+		}
+
+		for (WriteOperation writeOperation : writeOperations) {
+			writeOperation.getCompletion().completeExceptionally(spilled);
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.winterhaven_mc.deathchest.tasks;
+
+import com.winterhaven_mc.deathchest.chests.ChestManager;
+import org.bukkit.scheduler.BukkitRunnable;
+
+
+/**
+ * A class that implements a repeating task to load expired death chests in unloaded chunks,
+ * when death chests are loaded lazily, so they are expired on time
+ */
+public final class ExpireSweepTask extends BukkitRunnable {
+
+	// the chest manager
+	private final ChestManager chestManager;
+
+
+	/**
+	 * Class constructor
+	 * @param chestManager the chest manager
+	 */
+	public ExpireSweepTask(final ChestManager chestManager) {
+
+		// set chest manager field
+		this.chestManager = chestManager;
+	}
+
+
+	@Override
+	public void run() {
+
+		// load expired chests, which are expired as they are published
+		this.chestManager.loadExpiredChests();
+	}
+
+}